@@ -0,0 +1,98 @@
+package com.ibm.cmod.ondemand.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas for read-only transactions (app.read-replicas.*). The primary
+ * pool is configured by spring.datasource as before; each replica URL gets a
+ * read-only pool with the same driver and credentials.
+ *
+ * The application's DataSource becomes a lazy proxy over
+ * {@link ReplicaRoutingDataSource}. Flyway, JDBC repositories outside a
+ * transaction and every read-write transaction still use the primary.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.read-replicas.enabled", havingValue = "true")
+public class ReadReplicaConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadReplicaConfiguration.class);
+
+    // A replica that stops answering must not hold up the heartbeat check or a read for long
+    private static final long REPLICA_CONNECTION_TIMEOUT_MS = 2000;
+
+    @Bean(destroyMethod = "close")
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(HikariDataSource primaryDataSource, DataSourceProperties properties,
+                                               @Value("${app.read-replicas.urls}") String[] urls,
+                                               @Value("${app.read-replicas.max-lag-ms:5000}") long maxLagMs) {
+        List<ReplicaLagMonitor.Replica> replicas = new ArrayList<>();
+        for (String url : urls) {
+            String trimmed = url.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("replica-" + (replicas.size() + 1));
+            dataSource.setDriverClassName(properties.determineDriverClassName());
+            dataSource.setJdbcUrl(trimmed);
+            dataSource.setUsername(properties.determineUsername());
+            dataSource.setPassword(properties.determinePassword());
+            dataSource.setReadOnly(true);
+            dataSource.setConnectionTimeout(REPLICA_CONNECTION_TIMEOUT_MS);
+            // Start even if a replica is down; the monitor keeps reads off it
+            dataSource.setInitializationFailTimeout(-1);
+            replicas.add(new ReplicaLagMonitor.Replica(dataSource.getPoolName(), dataSource));
+        }
+        logger.info("Routing read-only transactions to {} read replicas (max lag {} ms)", replicas.size(), maxLagMs);
+        return new ReplicaLagMonitor(primaryDataSource, replicas, maxLagMs);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaLagMonitor replicaLagMonitor) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primaryDataSource, replicaLagMonitor);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    /**
+     * Hibernate otherwise keeps a connection for the whole request under
+     * open-session-in-view, so a request's later transactions would reuse the
+     * target its first one was routed to
+     */
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionsAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(
+            @Value("${app.read-replicas.read-your-writes-ms:10000}") long stickinessMs) {
+        return new ReadYourWritesFilter(stickinessMs);
+    }
+}
@@ -0,0 +1,47 @@
+package com.ibm.cmod.ondemand.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread routing hint for {@link ReplicaRoutingDataSource}. Read-only
+ * transactions go to a replica unless the thread requires the primary: for
+ * the whole of a request that writes, for a while after a client's own write,
+ * and for reads that must not lag a change this instance has already seen.
+ *
+ * The hint is consulted when a transaction first touches the database, so it
+ * must be set before then.
+ */
+public final class ReadRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private ReadRouting() {
+    }
+
+    public static boolean isPrimaryRequired() {
+        return Boolean.TRUE.equals(PRIMARY_REQUIRED.get());
+    }
+
+    public static void requirePrimary() {
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+    }
+
+    public static void clear() {
+        PRIMARY_REQUIRED.remove();
+    }
+
+    /**
+     * Run a read against the primary even inside a read-only transaction
+     */
+    public static <T> T onPrimary(Supplier<T> read) {
+        if (isPrimaryRequired()) {
+            return read.get();
+        }
+        requirePrimary();
+        try {
+            return read.get();
+        } finally {
+            clear();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.ibm.cmod.ondemand.config;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Read-your-writes with replica routing. A request that may write (any method
+ * but GET, HEAD and OPTIONS) reads from the primary throughout and leaves a
+ * cookie that keeps the client's reads on the primary for the stickiness
+ * window, long enough for every replica within the lag tolerance to have the
+ * write. Clients that drop cookies see their writes once replicas catch up.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "statements-read-primary-until";
+
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final long stickinessMs;
+
+    public ReadYourWritesFilter(long stickinessMs) {
+        this.stickinessMs = stickinessMs;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        boolean write = !READ_METHODS.contains(request.getMethod());
+        if (write) {
+            Cookie cookie = new Cookie(COOKIE, Long.toString(now + stickinessMs));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (stickinessMs + 999) / 1000));
+            response.addCookie(cookie);
+        }
+        if (write || now < primaryUntil(request, now)) {
+            ReadRouting.requirePrimary();
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReadRouting.clear();
+        }
+    }
+
+    /**
+     * The cookie's deadline, capped at one window from now so a forged value cannot pin a client
+     */
+    private long primaryUntil(HttpServletRequest request, long now) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return 0L;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Math.min(Long.parseLong(cookie.getValue()), now + stickinessMs);
+                } catch (NumberFormatException e) {
+                    return 0L;
+                }
+            }
+        }
+        return 0L;
+    }
+}
@@ -0,0 +1,166 @@
+package com.ibm.cmod.ondemand.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks how far each read replica lags the primary and picks the replica for
+ * a read-only transaction.
+ *
+ * The primary rewrites the replica_heartbeat row every heartbeat interval; a
+ * replica that shows a heartbeat written at time T has applied every commit
+ * before T. A replica is eligible while its last seen heartbeat is at most
+ * max-lag-ms old, so the estimate also covers the heartbeat and check
+ * intervals. Eligible replicas take turns; with none eligible, or with the
+ * primary required, the read goes to the primary.
+ */
+public class ReplicaLagMonitor implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private static final String BEAT = "UPDATE replica_heartbeat SET beat_at = ? WHERE id = 1";
+    private static final String READ_BEAT = "SELECT beat_at FROM replica_heartbeat WHERE id = 1";
+
+    private final JdbcTemplate primary;
+    private final List<Replica> replicas;
+    private final long maxLagMs;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final AtomicLong replicaReads = new AtomicLong();
+    private final AtomicLong lagFallbacks = new AtomicLong();
+    private final AtomicLong readYourWrites = new AtomicLong();
+
+    public ReplicaLagMonitor(DataSource primary, List<Replica> replicas, long maxLagMs) {
+        this.primary = new JdbcTemplate(primary);
+        this.replicas = replicas;
+        this.maxLagMs = maxLagMs;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    /**
+     * Record on the primary that everything committed so far is older than now
+     */
+    public void beat() {
+        primary.update(BEAT, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * Read each replica's copy of the heartbeat; an unreachable replica takes no reads
+     */
+    public void check() {
+        for (Replica replica : replicas) {
+            try {
+                Timestamp beatAt = replica.jdbcTemplate.queryForObject(READ_BEAT, Timestamp.class);
+                replica.replicatedUpTo = beatAt != null ? beatAt.getTime() : 0L;
+                if (!replica.available) {
+                    logger.info("Read replica {} is reachable, {} ms behind", replica.name, lagOf(replica));
+                    replica.available = true;
+                }
+            } catch (DataAccessException e) {
+                if (replica.available) {
+                    logger.warn("Read replica {} is unreachable, reading from the primary instead: {}",
+                            replica.name, e.getMessage());
+                    replica.available = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * The replica for the next read-only transaction
+     *
+     * @return the replica name, or null to read from the primary
+     */
+    String selectReplica(boolean primaryRequired) {
+        if (primaryRequired) {
+            readYourWrites.incrementAndGet();
+            return null;
+        }
+        int start = next.getAndIncrement();
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+            if (replica.available && lagOf(replica) <= maxLagMs) {
+                replicaReads.incrementAndGet();
+                return replica.name;
+            }
+        }
+        lagFallbacks.incrementAndGet();
+        return null;
+    }
+
+    Map<String, DataSource> getReplicaDataSources() {
+        Map<String, DataSource> dataSources = new LinkedHashMap<>();
+        replicas.forEach(replica -> dataSources.put(replica.name, replica.dataSource));
+        return dataSources;
+    }
+
+    private static long lagOf(Replica replica) {
+        return System.currentTimeMillis() - replica.replicatedUpTo;
+    }
+
+    private static double lagGauge(Replica replica) {
+        return replica.available ? lagOf(replica) : Double.NaN;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Replica replica : replicas) {
+            Gauge.builder("statements.replica.lag", replica, ReplicaLagMonitor::lagGauge)
+                    .tag("replica", replica.name)
+                    .baseUnit("milliseconds")
+                    .register(registry);
+        }
+        FunctionCounter.builder("statements.replica.reads", replicaReads, AtomicLong::get)
+                .tag("target", "replica")
+                .tag("reason", "within-lag")
+                .register(registry);
+        FunctionCounter.builder("statements.replica.reads", lagFallbacks, AtomicLong::get)
+                .tag("target", "primary")
+                .tag("reason", "lag")
+                .register(registry);
+        FunctionCounter.builder("statements.replica.reads", readYourWrites, AtomicLong::get)
+                .tag("target", "primary")
+                .tag("reason", "read-your-writes")
+                .register(registry);
+    }
+
+    /**
+     * One replica connection pool and the last heartbeat seen on it
+     */
+    public static class Replica {
+        private final String name;
+        private final HikariDataSource dataSource;
+        private final JdbcTemplate jdbcTemplate;
+        private volatile long replicatedUpTo;
+        private volatile boolean available;
+
+        public Replica(String name, HikariDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+        }
+
+        public String getName() { return name; }
+    }
+}
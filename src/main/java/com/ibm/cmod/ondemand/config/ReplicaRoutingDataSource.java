@@ -0,0 +1,41 @@
+package com.ibm.cmod.ondemand.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sends read-only transactions to a replica chosen by {@link ReplicaLagMonitor}
+ * and everything else, including work outside a transaction, to the primary.
+ *
+ * The transaction's read-only flag is only set after the transaction manager
+ * has asked for a connection, so this must sit behind a
+ * LazyConnectionDataSourceProxy, which defers the choice to the first statement.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private final ReplicaLagMonitor monitor;
+
+    public ReplicaRoutingDataSource(DataSource primary, ReplicaLagMonitor monitor) {
+        this.monitor = monitor;
+        Map<Object, Object> targets = new HashMap<>(monitor.getReplicaDataSources());
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        String replica = monitor.selectReplica(ReadRouting.isPrimaryRequired());
+        return replica != null ? replica : PRIMARY;
+    }
+}
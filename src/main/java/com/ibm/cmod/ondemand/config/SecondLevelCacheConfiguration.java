@@ -0,0 +1,107 @@
+package com.ibm.cmod.ondemand.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.ibm.cmod.ondemand.entity.Statement;
+import com.ibm.cmod.ondemand.repository.StatementRepository;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.persistence.SharedCacheMode;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hibernate second-level cache for the Statement entity and the metadata
+ * cache's loader queries, on bounded Caffeine caches through JCache.
+ *
+ * Every region is created up front with its own entry limit, and Hibernate
+ * is told to fail rather than create an unbounded cache for a region missing
+ * here. The update-timestamps region holds one entry per table and is never
+ * bounded or expired: losing an entry would let stale query results through.
+ *
+ * Statistics are switched on, so per-region hits, misses and puts are
+ * published as the hibernate.second.level.cache.* and hibernate.cache.query.*
+ * metrics.
+ *
+ * Off by default: with the metadata cache in front, StatementReadMixBenchmarkTest
+ * measured reads slower with it on. When off, Hibernate is told so explicitly,
+ * as it would otherwise pick up the JCache region factory on the classpath.
+ * Loads in transactions routed to a read replica would fill the cache with
+ * rows that may be behind the primary, so it cannot be combined with replicas.
+ */
+@Configuration
+public class SecondLevelCacheConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(SecondLevelCacheConfiguration.class);
+
+    private static final String CAFFEINE_PROVIDER = "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider";
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "app.cache.second-level.enabled", havingValue = "true")
+    public CacheManager hibernateCacheManager(
+            @Value("${app.read-replicas.enabled:false}") boolean readReplicas,
+            @Value("${app.cache.second-level.statement-entries:20000}") long statementEntries,
+            @Value("${app.cache.second-level.by-id-query-entries:10000}") long byIdQueryEntries,
+            @Value("${app.cache.second-level.by-customer-query-entries:2000}") long byCustomerQueryEntries,
+            @Value("${app.cache.second-level.default-query-entries:1000}") long defaultQueryEntries,
+            @Value("${app.cache.second-level.expire-after-write-seconds:600}") long expireAfterWriteSeconds) {
+        if (readReplicas) {
+            throw new IllegalStateException(
+                    "app.cache.second-level.enabled cannot be combined with app.read-replicas.enabled");
+        }
+        Map<String, Long> regions = new LinkedHashMap<>();
+        regions.put(Statement.CACHE_REGION, statementEntries);
+        regions.put(StatementRepository.BY_ID_REGION, byIdQueryEntries);
+        regions.put(StatementRepository.BY_CUSTOMER_REGION, byCustomerQueryEntries);
+        regions.put(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, defaultQueryEntries);
+
+        CacheManager cacheManager = Caching.getCachingProvider(CAFFEINE_PROVIDER).getCacheManager();
+        regions.forEach((region, maxEntries) -> {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(maxEntries));
+            configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(expireAfterWriteSeconds)));
+            cacheManager.createCache(region, configuration);
+        });
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                new CaffeineConfiguration<>());
+
+        logger.info("Hibernate second-level cache regions (max entries): {}, expiring {} s after write",
+                regions, expireAfterWriteSeconds);
+        return cacheManager;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cache.second-level.enabled", havingValue = "true")
+    public HibernatePropertiesCustomizer secondLevelCache(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(AvailableSettings.JPA_SHARED_CACHE_MODE, SharedCacheMode.ENABLE_SELECTIVE);
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cache.second-level.enabled", havingValue = "false", matchIfMissing = true)
+    public HibernatePropertiesCustomizer noSecondLevelCache() {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, false);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, false);
+        };
+    }
+}
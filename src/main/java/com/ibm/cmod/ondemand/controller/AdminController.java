@@ -0,0 +1,272 @@
+package com.ibm.cmod.ondemand.controller;
+
+import com.ibm.cmod.ondemand.dto.BulkStatusReportResponse;
+import com.ibm.cmod.ondemand.dto.ImportReportResponse;
+import com.ibm.cmod.ondemand.dto.PurgeReportResponse;
+import com.ibm.cmod.ondemand.dto.RebalanceReportResponse;
+import com.ibm.cmod.ondemand.dto.StatementFilter;
+import com.ibm.cmod.ondemand.dto.StatementPartitionResponse;
+import com.ibm.cmod.ondemand.dto.StatementSummaryResponse;
+import com.ibm.cmod.ondemand.dto.SummaryReconciliationResponse;
+import com.ibm.cmod.ondemand.dto.TieringReportResponse;
+import com.ibm.cmod.ondemand.exception.InvalidRequestException;
+import com.ibm.cmod.ondemand.service.FileStorageService;
+import com.ibm.cmod.ondemand.service.StatementImportService;
+import com.ibm.cmod.ondemand.service.StatementLifecycleService;
+import com.ibm.cmod.ondemand.service.StatementPartitionService;
+import com.ibm.cmod.ondemand.service.StatementSummaryService;
+import com.ibm.cmod.ondemand.service.StorageRebalanceService;
+import com.ibm.cmod.ondemand.service.StorageTieringService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST Controller for administrative maintenance operations
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminController.class);
+
+    private final StorageTieringService storageTieringService;
+    private final StorageRebalanceService storageRebalanceService;
+    private final FileStorageService fileStorageService;
+    private final StatementPartitionService statementPartitionService;
+    private final StatementLifecycleService statementLifecycleService;
+    private final StatementSummaryService statementSummaryService;
+    private final StatementImportService statementImportService;
+
+    public AdminController(StorageTieringService storageTieringService,
+                           StorageRebalanceService storageRebalanceService,
+                           FileStorageService fileStorageService,
+                           StatementPartitionService statementPartitionService,
+                           StatementLifecycleService statementLifecycleService,
+                           StatementSummaryService statementSummaryService,
+                           StatementImportService statementImportService) {
+        this.storageTieringService = storageTieringService;
+        this.storageRebalanceService = storageRebalanceService;
+        this.fileStorageService = fileStorageService;
+        this.statementPartitionService = statementPartitionService;
+        this.statementLifecycleService = statementLifecycleService;
+        this.statementSummaryService = statementSummaryService;
+        this.statementImportService = statementImportService;
+    }
+
+    /**
+     * TIERING - Trigger a storage tiering run
+     * POST /api/admin/tiering/run
+     */
+    @PostMapping("/tiering/run")
+    public ResponseEntity<TieringReportResponse> runTiering() {
+        logger.info("API: Manual storage tiering request");
+        return ResponseEntity.ok(storageTieringService.runTiering());
+    }
+
+    /**
+     * BULK - Archive the AVAILABLE statements matching a filter to cold storage now
+     * POST /api/admin/statements/archive?customerId={id}&documentType={type}&from={date}&to={date}
+     */
+    @PostMapping("/statements/archive")
+    public ResponseEntity<TieringReportResponse> archiveStatements(
+            @RequestParam(required = false) String customerId,
+            @RequestParam(required = false) String documentType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        logger.info("API: Bulk archive request");
+        StatementFilter filter = StatementFilter.builder()
+                .customerId(customerId)
+                .documentType(documentType)
+                .from(from)
+                .to(to)
+                .build();
+        return ResponseEntity.ok(storageTieringService.archiveMatching(filter));
+    }
+
+    /**
+     * BULK - Soft-delete every statement matching a filter
+     * POST /api/admin/statements/delete?customerId={id}&documentType={type}&status={status}&from={date}&to={date}
+     */
+    @PostMapping("/statements/delete")
+    public ResponseEntity<BulkStatusReportResponse> deleteStatements(
+            @RequestParam(required = false) String customerId,
+            @RequestParam(required = false) String documentType,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        logger.info("API: Bulk delete request");
+        StatementFilter filter = StatementFilter.builder()
+                .customerId(customerId)
+                .documentType(documentType)
+                .status(status)
+                .from(from)
+                .to(to)
+                .build();
+        return ResponseEntity.ok(statementLifecycleService.deleteMatching(filter));
+    }
+
+    /**
+     * PURGE - Hard-delete statements DELETED longer than the grace period, with their documents
+     * POST /api/admin/purge/run
+     */
+    @PostMapping("/purge/run")
+    public ResponseEntity<PurgeReportResponse> runPurge() {
+        logger.info("API: Manual purge request");
+        return ResponseEntity.ok(statementLifecycleService.purge());
+    }
+
+    /**
+     * SUMMARY - Statement counts and bytes overall, per status, per document type,
+     * for the given customers and per statement date in range
+     * GET /api/admin/statements/summary?customerId={id}&customerId={id}&from={date}&to={date}
+     */
+    @GetMapping("/statements/summary")
+    public ResponseEntity<StatementSummaryResponse> getSummary(
+            @RequestParam(required = false) List<String> customerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(statementSummaryService.getSummary(customerId, from, to));
+    }
+
+    /**
+     * SUMMARY - Reconcile the summary against the statement tables now
+     * POST /api/admin/statements/summary/reconcile
+     */
+    @PostMapping("/statements/summary/reconcile")
+    public ResponseEntity<SummaryReconciliationResponse> reconcileSummary() {
+        logger.info("API: Manual summary reconciliation request");
+        return ResponseEntity.ok(statementSummaryService.reconcile());
+    }
+
+    /**
+     * IMPORT - Import statements from an index file in the staging directory in the background
+     * POST /api/admin/import?file={name}&offset={bytes}
+     */
+    @PostMapping("/import")
+    public ResponseEntity<ImportReportResponse> startImport(
+            @RequestParam String file,
+            @RequestParam(defaultValue = "0") long offset) {
+        logger.info("API: Statement import request for {} from byte {}", file, offset);
+        return new ResponseEntity<>(statementImportService.start(file, offset), HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * IMPORT - Progress of the running import, or the outcome of the last one
+     * GET /api/admin/import
+     */
+    @GetMapping("/import")
+    public ResponseEntity<ImportReportResponse> getImport() {
+        return statementImportService.getStatus()
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+
+    /**
+     * VOLUMES - List storage volumes and their placement weights
+     * GET /api/admin/storage/volumes
+     */
+    @GetMapping("/storage/volumes")
+    public ResponseEntity<Map<String, Integer>> getVolumes() {
+        Map<String, Integer> volumes = new LinkedHashMap<>();
+        fileStorageService.getVolumeWeights().forEach((path, weight) -> volumes.put(path.toString(), weight));
+        return ResponseEntity.ok(volumes);
+    }
+
+    /**
+     * VOLUMES - Add a storage volume and rebalance onto it in the background
+     * POST /api/admin/storage/volumes?location={path}&weight={weight}
+     */
+    @PostMapping("/storage/volumes")
+    public ResponseEntity<Map<String, Integer>> addVolume(
+            @RequestParam String location,
+            @RequestParam(defaultValue = "1") int weight) {
+        logger.info("API: Add storage volume request: {} (weight {})", location, weight);
+        if (weight < 1 || weight > FileStorageService.MAX_VOLUME_WEIGHT) {
+            throw new InvalidRequestException("weight must be between 1 and " + FileStorageService.MAX_VOLUME_WEIGHT);
+        }
+        storageRebalanceService.addVolume(location, weight);
+        return new ResponseEntity<>(getVolumes().getBody(), HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * REBALANCE - Move misplaced documents to their owning volume
+     * POST /api/admin/storage/rebalance
+     */
+    @PostMapping("/storage/rebalance")
+    public ResponseEntity<RebalanceReportResponse> rebalance() {
+        logger.info("API: Manual storage rebalance request");
+        return ResponseEntity.ok(storageRebalanceService.rebalance());
+    }
+
+    /**
+     * PARTITIONS - List monthly history partitions
+     * GET /api/admin/partitions
+     */
+    @GetMapping("/partitions")
+    public ResponseEntity<List<StatementPartitionResponse>> getPartitions() {
+        return ResponseEntity.ok(statementPartitionService.getPartitions());
+    }
+
+    /**
+     * PARTITIONS - Roll months older than the hot window into history partitions
+     * POST /api/admin/partitions/roll-off
+     */
+    @PostMapping("/partitions/roll-off")
+    public ResponseEntity<List<StatementPartitionResponse>> rollOffPartitions() {
+        logger.info("API: Manual partition roll-off request");
+        return ResponseEntity.ok(statementPartitionService.rollOff());
+    }
+
+    /**
+     * PARTITIONS - Hide a month from all reads, or make it visible again
+     * POST /api/admin/partitions/{yyyy-MM}/detach
+     * POST /api/admin/partitions/{yyyy-MM}/attach
+     */
+    @PostMapping("/partitions/{month}/{action:detach|attach}")
+    public ResponseEntity<StatementPartitionResponse> changePartitionState(
+            @PathVariable String month,
+            @PathVariable String action) {
+        logger.info("API: Partition {} request for {}", action, month);
+        LocalDate partitionMonth = parseMonth(month);
+        StatementPartitionResponse partition = "detach".equals(action)
+                ? statementPartitionService.detach(partitionMonth)
+                : statementPartitionService.attach(partitionMonth);
+        return ResponseEntity.ok(partition);
+    }
+
+    /**
+     * PARTITIONS - Drop a detached month
+     * DELETE /api/admin/partitions/{yyyy-MM}
+     */
+    @DeleteMapping("/partitions/{month}")
+    public ResponseEntity<Void> dropPartition(@PathVariable String month) {
+        logger.info("API: Partition drop request for {}", month);
+        statementPartitionService.drop(parseMonth(month));
+        return ResponseEntity.noContent().build();
+    }
+
+    private LocalDate parseMonth(String month) {
+        try {
+            return YearMonth.parse(month).atDay(1);
+        } catch (DateTimeParseException e) {
+            throw new InvalidRequestException("month must be in yyyy-MM format");
+        }
+    }
+}
@@ -1,23 +1,39 @@
 package com.ibm.cmod.ondemand.controller;
 
+import com.ibm.cmod.ondemand.dto.BulkCreateResponse;
 import com.ibm.cmod.ondemand.dto.IngestionReportResponse;
+import com.ibm.cmod.ondemand.dto.StatementFilter;
+import com.ibm.cmod.ondemand.dto.StatementLookupRequest;
+import com.ibm.cmod.ondemand.dto.StatementLookupResponse;
+import com.ibm.cmod.ondemand.dto.StatementPageResponse;
 import com.ibm.cmod.ondemand.dto.StatementRequest;
 import com.ibm.cmod.ondemand.dto.StatementResponse;
+import com.ibm.cmod.ondemand.entity.Statement;
+import com.ibm.cmod.ondemand.service.AsyncStatementService;
+import com.ibm.cmod.ondemand.service.BulkStatementService;
 import com.ibm.cmod.ondemand.service.IngestionService;
+import com.ibm.cmod.ondemand.service.StatementCreateResult;
+import com.ibm.cmod.ondemand.service.StatementExportService;
 import com.ibm.cmod.ondemand.service.StatementService;
+import com.ibm.cmod.ondemand.exception.InvalidRequestException;
+import com.ibm.cmod.ondemand.service.download.DocumentBundleService;
+import com.ibm.cmod.ondemand.service.download.DocumentTransferService;
+import com.ibm.cmod.ondemand.service.download.DownloadableDocument;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.Resource;
 import org.springframework.format.annotation.DateTimeFormat;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.net.URI;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * REST Controller for Statement operations
@@ -30,21 +46,69 @@ public class StatementController {
 
     private final StatementService statementService;
     private final IngestionService ingestionService;
+    private final DocumentTransferService documentTransferService;
+    private final DocumentBundleService documentBundleService;
+    private final StatementExportService statementExportService;
+    private final BulkStatementService bulkStatementService;
+    private final AsyncStatementService asyncStatementService;
 
-    public StatementController(StatementService statementService, IngestionService ingestionService) {
+    public StatementController(StatementService statementService,
+                               IngestionService ingestionService,
+                               DocumentTransferService documentTransferService,
+                               DocumentBundleService documentBundleService,
+                               StatementExportService statementExportService,
+                               BulkStatementService bulkStatementService,
+                               AsyncStatementService asyncStatementService) {
         this.statementService = statementService;
         this.ingestionService = ingestionService;
+        this.documentTransferService = documentTransferService;
+        this.documentBundleService = documentBundleService;
+        this.statementExportService = statementExportService;
+        this.bulkStatementService = bulkStatementService;
+        this.asyncStatementService = asyncStatementService;
     }
 
     /**
      * CREATE - Create a new statement
      * POST /api/statements
+     * POST /api/statements?async=true
+     * Returns 201 when created, 202 with a PENDING statement when accepted asynchronously,
+     * 200 when the statement already existed or the Idempotency-Key was seen before
      */
     @PostMapping
-    public ResponseEntity<StatementResponse> createStatement(@Valid @RequestBody StatementRequest request) {
-        logger.info("API: Create statement request for customer: {}", request.getCustomerId());
-        StatementResponse response = statementService.createStatement(request);
-        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    public ResponseEntity<StatementResponse> createStatement(
+            @Valid @RequestBody StatementRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestParam(defaultValue = "false") boolean async) {
+        logger.info("API: Create statement request for customer: {} (async {})", request.getCustomerId(), async);
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > 100)) {
+            throw new InvalidRequestException("Idempotency-Key must be 1 to 100 characters");
+        }
+        StatementCreateResult result = async
+                ? asyncStatementService.createStatement(request, idempotencyKey)
+                : statementService.createStatement(request, idempotencyKey);
+
+        StatementResponse statement = result.getStatement();
+        if (!result.isCreated()) {
+            return ResponseEntity.ok(statement);
+        }
+        if (Statement.StatementStatus.PENDING.name().equals(statement.getStatus())) {
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/statements/" + statement.getId()))
+                    .body(statement);
+        }
+        return new ResponseEntity<>(statement, HttpStatus.CREATED);
+    }
+
+    /**
+     * CREATE - Create many statements in one call
+     * POST /api/statements/bulk
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkCreateResponse> createStatements(@RequestBody List<StatementRequest> requests) {
+        logger.info("API: Bulk create request for {} statements", requests.size());
+        BulkCreateResponse response = bulkStatementService.createStatements(requests);
+        return ResponseEntity.ok(response);
     }
 
     /**
@@ -58,23 +122,107 @@ public class StatementController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * READ - Long-poll a statement until it leaves PENDING or the wait elapses
+     * GET /api/statements/{id}?wait={seconds}
+     */
+    @GetMapping(value = "/{id}", params = "wait")
+    public CompletableFuture<StatementResponse> awaitStatement(@PathVariable String id, @RequestParam int wait) {
+        logger.info("API: Await statement request for ID: {} (up to {}s)", id, wait);
+        return asyncStatementService.awaitStatement(id, wait);
+    }
+
     /**
      * READ - Get statements by customer ID
      * GET /api/statements?customerId={customerId}
      */
-    @GetMapping
-    public ResponseEntity<List<StatementResponse>> getStatements(
-            @RequestParam(required = false) String customerId) {
-        
-        if (customerId != null) {
-            logger.info("API: Get statements for customer: {}", customerId);
-            List<StatementResponse> responses = statementService.getStatementsByCustomer(customerId);
-            return ResponseEntity.ok(responses);
-        } else {
-            logger.info("API: Get all statements");
-            List<StatementResponse> responses = statementService.getAllStatements();
-            return ResponseEntity.ok(responses);
+    @GetMapping(params = "customerId")
+    public ResponseEntity<List<StatementResponse>> getStatements(@RequestParam String customerId) {
+        logger.info("API: Get statements for customer: {}", customerId);
+        List<StatementResponse> responses = statementService.getStatementsByCustomer(customerId);
+        return ResponseEntity.ok(responses);
+    }
+
+    /**
+     * READ - Get all statements, one keyset page at a time
+     * GET /api/statements?limit={limit}&cursor={nextCursor}
+     */
+    @GetMapping(params = "!customerId")
+    public ResponseEntity<StatementPageResponse> getStatementsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        logger.info("API: Get statements page");
+        StatementPageResponse page = statementService.getStatementsPage(cursor, limit);
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * READ - Look up many statements by ID in one call
+     * POST /api/statements/lookup
+     */
+    @PostMapping("/lookup")
+    public ResponseEntity<StatementLookupResponse> lookupStatements(
+            @Valid @RequestBody StatementLookupRequest request) {
+        logger.info("API: Lookup request for {} statements", request.getIds().size());
+        StatementLookupResponse response = statementService.lookupStatements(request.getIds());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * SEARCH - Find statements by any combination of criteria, one keyset page at a time
+     * GET /api/statements/search?customerId={id}&documentType={type}&status={status}&from={date}&to={date}&sort={newest|oldest}
+     */
+    @GetMapping("/search")
+    public ResponseEntity<StatementPageResponse> searchStatements(
+            @RequestParam(required = false) String customerId,
+            @RequestParam(required = false) String documentType,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "newest") String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+
+        logger.info("API: Search statements request");
+        if (!"newest".equalsIgnoreCase(sort) && !"oldest".equalsIgnoreCase(sort)) {
+            throw new InvalidRequestException("sort must be 'newest' or 'oldest'");
         }
+        StatementFilter filter = StatementFilter.builder()
+                .customerId(customerId)
+                .documentType(documentType)
+                .status(status)
+                .from(from)
+                .to(to)
+                .build();
+
+        StatementPageResponse page = statementService.searchStatements(
+                filter, "newest".equalsIgnoreCase(sort), cursor, limit);
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * EXPORT - Stream statement metadata as newline-delimited JSON
+     * GET /api/statements/export?from={date}&to={date}&status={status}&documentType={type}
+     */
+    @GetMapping("/export")
+    public void exportStatements(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String documentType,
+            HttpServletResponse response) throws IOException {
+
+        logger.info("API: Export statements request");
+        StatementFilter filter = StatementFilter.builder()
+                .from(from)
+                .to(to)
+                .status(status)
+                .documentType(documentType)
+                .build();
+
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        statementExportService.export(filter, response.getOutputStream());
     }
 
     /**
@@ -105,17 +253,41 @@ public class StatementController {
     /**
      * DOWNLOAD - Download statement file
      * GET /api/statements/{id}/download
+     * Supports Range, If-Range, If-None-Match and If-Modified-Since
      */
     @GetMapping("/{id}/download")
-    public ResponseEntity<Resource> downloadStatement(@PathVariable String id) {
+    public void downloadStatement(@PathVariable String id,
+                                  HttpServletRequest request,
+                                  HttpServletResponse response) throws IOException {
         logger.info("API: Download statement request for ID: {}", id);
-        Resource file = statementService.downloadStatement(id);
+        DownloadableDocument document = statementService.downloadStatement(id);
+        documentTransferService.serve(document, request, response);
+    }
 
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_PDF)
-                .header(HttpHeaders.CONTENT_DISPOSITION,
-                        "attachment; filename=\"" + file.getFilename() + "\"")
-                .body(file);
+    /**
+     * BUNDLE - Download several statements as one streamed ZIP
+     * GET /api/statements/bundle?customerId={customerId}&from={date}&to={date}
+     * GET /api/statements/bundle?ids={id1},{id2}
+     */
+    @GetMapping("/bundle")
+    public void downloadBundle(
+            @RequestParam(required = false) String customerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) List<String> ids,
+            HttpServletResponse response) throws IOException {
+
+        if (ids != null && !ids.isEmpty()) {
+            logger.info("API: Bundle download request for {} statement IDs", ids.size());
+            documentBundleService.streamBundle(ids, response);
+        } else if (customerId != null) {
+            LocalDate end = to != null ? to : LocalDate.now();
+            LocalDate start = from != null ? from : end.minusYears(1);
+            logger.info("API: Bundle download request for customer: {} ({} to {})", customerId, start, end);
+            documentBundleService.streamCustomerBundle(customerId, start, end, response);
+        } else {
+            throw new InvalidRequestException("Either ids or customerId is required");
+        }
     }
 
     /**
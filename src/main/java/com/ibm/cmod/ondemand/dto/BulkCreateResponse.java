@@ -0,0 +1,123 @@
+package com.ibm.cmod.ondemand.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response DTO for a bulk statement create. Results follow the request order,
+ * one per submitted item.
+ */
+public class BulkCreateResponse {
+
+    private int totalProcessed;
+    private int successCount;
+    private int failureCount;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime startTime;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime endTime;
+
+    private long processingTimeMs;
+
+    private List<ItemResult> results = new ArrayList<>();
+
+    public BulkCreateResponse() {
+    }
+
+    public void addSuccess(int index, StatementResponse statement, boolean created) {
+        results.add(new ItemResult(index, statement.getCustomerId(), statement, created, null));
+        successCount++;
+        totalProcessed++;
+    }
+
+    public void addFailure(int index, String customerId, String reason) {
+        results.add(new ItemResult(index, customerId, null, false, reason));
+        failureCount++;
+        totalProcessed++;
+    }
+
+    // Getters and Setters
+    public int getTotalProcessed() { return totalProcessed; }
+    public void setTotalProcessed(int totalProcessed) { this.totalProcessed = totalProcessed; }
+
+    public int getSuccessCount() { return successCount; }
+    public void setSuccessCount(int successCount) { this.successCount = successCount; }
+
+    public int getFailureCount() { return failureCount; }
+    public void setFailureCount(int failureCount) { this.failureCount = failureCount; }
+
+    public LocalDateTime getStartTime() { return startTime; }
+    public void setStartTime(LocalDateTime startTime) { this.startTime = startTime; }
+
+    public LocalDateTime getEndTime() { return endTime; }
+    public void setEndTime(LocalDateTime endTime) { this.endTime = endTime; }
+
+    public long getProcessingTimeMs() { return processingTimeMs; }
+    public void setProcessingTimeMs(long processingTimeMs) { this.processingTimeMs = processingTimeMs; }
+
+    public List<ItemResult> getResults() { return results; }
+    public void setResults(List<ItemResult> results) { this.results = results; }
+
+    // Builder
+    public static BulkCreateResponseBuilder builder() {
+        return new BulkCreateResponseBuilder();
+    }
+
+    public static class BulkCreateResponseBuilder {
+        private final BulkCreateResponse response = new BulkCreateResponse();
+
+        public BulkCreateResponseBuilder startTime(LocalDateTime startTime) {
+            response.startTime = startTime;
+            return this;
+        }
+
+        public BulkCreateResponse build() {
+            return response;
+        }
+    }
+
+    // Item Result class
+    public static class ItemResult {
+        private int index;
+        private String customerId;
+        private boolean success;
+        private boolean created;
+        private StatementResponse statement;
+        private String error;
+
+        public ItemResult() {
+        }
+
+        public ItemResult(int index, String customerId, StatementResponse statement, boolean created, String error) {
+            this.index = index;
+            this.customerId = customerId;
+            this.success = statement != null;
+            this.created = created;
+            this.statement = statement;
+            this.error = error;
+        }
+
+        public int getIndex() { return index; }
+        public void setIndex(int index) { this.index = index; }
+
+        public String getCustomerId() { return customerId; }
+        public void setCustomerId(String customerId) { this.customerId = customerId; }
+
+        public boolean isSuccess() { return success; }
+        public void setSuccess(boolean success) { this.success = success; }
+
+        public boolean isCreated() { return created; }
+        public void setCreated(boolean created) { this.created = created; }
+
+        public StatementResponse getStatement() { return statement; }
+        public void setStatement(StatementResponse statement) { this.statement = statement; }
+
+        public String getError() { return error; }
+        public void setError(String error) { this.error = error; }
+    }
+}
@@ -0,0 +1,53 @@
+package com.ibm.cmod.ondemand.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Response DTO for a set-based status change over a filter
+ */
+public class BulkStatusReportResponse {
+
+    private String status;
+    private int updatedCount;
+
+    /** Rows changed per table: the hot statements table and any history partitions in range */
+    private Map<String, Integer> updatedByTable = new LinkedHashMap<>();
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime startTime;
+
+    private long processingTimeMs;
+
+    public BulkStatusReportResponse() {
+    }
+
+    public BulkStatusReportResponse(String status, LocalDateTime startTime) {
+        this.status = status;
+        this.startTime = startTime;
+    }
+
+    public void addUpdated(String table, int rows) {
+        updatedByTable.put(table, rows);
+        updatedCount += rows;
+    }
+
+    // Getters and Setters
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public int getUpdatedCount() { return updatedCount; }
+    public void setUpdatedCount(int updatedCount) { this.updatedCount = updatedCount; }
+
+    public Map<String, Integer> getUpdatedByTable() { return updatedByTable; }
+    public void setUpdatedByTable(Map<String, Integer> updatedByTable) { this.updatedByTable = updatedByTable; }
+
+    public LocalDateTime getStartTime() { return startTime; }
+    public void setStartTime(LocalDateTime startTime) { this.startTime = startTime; }
+
+    public long getProcessingTimeMs() { return processingTimeMs; }
+    public void setProcessingTimeMs(long processingTimeMs) { this.processingTimeMs = processingTimeMs; }
+}
@@ -0,0 +1,128 @@
+package com.ibm.cmod.ondemand.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response DTO for a statement index import, running or finished
+ */
+public class ImportReportResponse {
+
+    public enum Status { RUNNING, COMPLETED, FAILED }
+
+    private String file;
+    private Status status;
+    private long fileSizeBytes;
+    private long startOffset;
+    private long bytesRead;
+    /** Every row before this byte offset is stored or rejected; restart from here */
+    private long committedOffset;
+
+    private long rowsRead;
+    private long importedCount;
+    private long duplicateCount;
+    private long rejectedCount;
+    private double rowsPerSecond;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime startTime;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime endTime;
+
+    private long processingTimeMs;
+
+    private String rejectsFile;
+    private List<Reject> rejects = new ArrayList<>();
+    private String error;
+
+    public ImportReportResponse() {
+    }
+
+    public ImportReportResponse(String file, long fileSizeBytes, long startOffset, LocalDateTime startTime) {
+        this.file = file;
+        this.status = Status.RUNNING;
+        this.fileSizeBytes = fileSizeBytes;
+        this.startOffset = startOffset;
+        this.bytesRead = startOffset;
+        this.committedOffset = startOffset;
+        this.startTime = startTime;
+    }
+
+    // Getters and Setters
+    public String getFile() { return file; }
+    public void setFile(String file) { this.file = file; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public long getFileSizeBytes() { return fileSizeBytes; }
+    public void setFileSizeBytes(long fileSizeBytes) { this.fileSizeBytes = fileSizeBytes; }
+
+    public long getStartOffset() { return startOffset; }
+    public void setStartOffset(long startOffset) { this.startOffset = startOffset; }
+
+    public long getBytesRead() { return bytesRead; }
+    public void setBytesRead(long bytesRead) { this.bytesRead = bytesRead; }
+
+    public long getCommittedOffset() { return committedOffset; }
+    public void setCommittedOffset(long committedOffset) { this.committedOffset = committedOffset; }
+
+    public long getRowsRead() { return rowsRead; }
+    public void setRowsRead(long rowsRead) { this.rowsRead = rowsRead; }
+
+    public long getImportedCount() { return importedCount; }
+    public void setImportedCount(long importedCount) { this.importedCount = importedCount; }
+
+    public long getDuplicateCount() { return duplicateCount; }
+    public void setDuplicateCount(long duplicateCount) { this.duplicateCount = duplicateCount; }
+
+    public long getRejectedCount() { return rejectedCount; }
+    public void setRejectedCount(long rejectedCount) { this.rejectedCount = rejectedCount; }
+
+    public double getRowsPerSecond() { return rowsPerSecond; }
+    public void setRowsPerSecond(double rowsPerSecond) { this.rowsPerSecond = rowsPerSecond; }
+
+    public LocalDateTime getStartTime() { return startTime; }
+    public void setStartTime(LocalDateTime startTime) { this.startTime = startTime; }
+
+    public LocalDateTime getEndTime() { return endTime; }
+    public void setEndTime(LocalDateTime endTime) { this.endTime = endTime; }
+
+    public long getProcessingTimeMs() { return processingTimeMs; }
+    public void setProcessingTimeMs(long processingTimeMs) { this.processingTimeMs = processingTimeMs; }
+
+    public String getRejectsFile() { return rejectsFile; }
+    public void setRejectsFile(String rejectsFile) { this.rejectsFile = rejectsFile; }
+
+    public List<Reject> getRejects() { return rejects; }
+    public void setRejects(List<Reject> rejects) { this.rejects = rejects; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    /**
+     * A row that failed validation, by the byte offset its line starts at
+     */
+    public static class Reject {
+        private long offset;
+        private String reason;
+
+        public Reject() {
+        }
+
+        public Reject(long offset, String reason) {
+            this.offset = offset;
+            this.reason = reason;
+        }
+
+        public long getOffset() { return offset; }
+        public void setOffset(long offset) { this.offset = offset; }
+
+        public String getReason() { return reason; }
+        public void setReason(String reason) { this.reason = reason; }
+    }
+}
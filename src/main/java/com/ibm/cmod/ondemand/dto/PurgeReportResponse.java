@@ -0,0 +1,72 @@
+package com.ibm.cmod.ondemand.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response DTO for a purge run over DELETED statements
+ */
+public class PurgeReportResponse {
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime deletedBefore;
+
+    private int purgedCount;
+    private int filesDeleted;
+    private int bundlesDeleted;
+    private int failedCount;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime startTime;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime endTime;
+
+    private long processingTimeMs;
+
+    private List<String> errors = new ArrayList<>();
+
+    public PurgeReportResponse() {
+    }
+
+    public PurgeReportResponse(LocalDateTime deletedBefore, LocalDateTime startTime) {
+        this.deletedBefore = deletedBefore;
+        this.startTime = startTime;
+    }
+
+    public void addFailure(int statements, String reason) {
+        errors.add(reason);
+        failedCount += statements;
+    }
+
+    // Getters and Setters
+    public LocalDateTime getDeletedBefore() { return deletedBefore; }
+    public void setDeletedBefore(LocalDateTime deletedBefore) { this.deletedBefore = deletedBefore; }
+
+    public int getPurgedCount() { return purgedCount; }
+    public void setPurgedCount(int purgedCount) { this.purgedCount = purgedCount; }
+
+    public int getFilesDeleted() { return filesDeleted; }
+    public void setFilesDeleted(int filesDeleted) { this.filesDeleted = filesDeleted; }
+
+    public int getBundlesDeleted() { return bundlesDeleted; }
+    public void setBundlesDeleted(int bundlesDeleted) { this.bundlesDeleted = bundlesDeleted; }
+
+    public int getFailedCount() { return failedCount; }
+    public void setFailedCount(int failedCount) { this.failedCount = failedCount; }
+
+    public LocalDateTime getStartTime() { return startTime; }
+    public void setStartTime(LocalDateTime startTime) { this.startTime = startTime; }
+
+    public LocalDateTime getEndTime() { return endTime; }
+    public void setEndTime(LocalDateTime endTime) { this.endTime = endTime; }
+
+    public long getProcessingTimeMs() { return processingTimeMs; }
+    public void setProcessingTimeMs(long processingTimeMs) { this.processingTimeMs = processingTimeMs; }
+
+    public List<String> getErrors() { return errors; }
+    public void setErrors(List<String> errors) { this.errors = errors; }
+}
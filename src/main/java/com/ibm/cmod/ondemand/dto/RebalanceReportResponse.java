@@ -0,0 +1,98 @@
+package com.ibm.cmod.ondemand.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Response DTO for a storage volume rebalance run
+ */
+public class RebalanceReportResponse {
+
+    private Map<String, Integer> volumes;
+    private long scanned;
+    private long moved;
+    private long failed;
+    private long bytesMoved;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime startTime;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime endTime;
+
+    private long processingTimeMs;
+
+    private List<String> errors = new ArrayList<>();
+
+    public RebalanceReportResponse() {
+    }
+
+    public synchronized void addScanned() {
+        scanned++;
+    }
+
+    public synchronized void addMoved(long bytes) {
+        moved++;
+        bytesMoved += bytes;
+    }
+
+    public synchronized void addFailure(String reason) {
+        failed++;
+        errors.add(reason);
+    }
+
+    // Getters and Setters
+    public Map<String, Integer> getVolumes() { return volumes; }
+    public void setVolumes(Map<String, Integer> volumes) { this.volumes = volumes; }
+
+    public synchronized long getScanned() { return scanned; }
+    public void setScanned(long scanned) { this.scanned = scanned; }
+
+    public synchronized long getMoved() { return moved; }
+    public void setMoved(long moved) { this.moved = moved; }
+
+    public synchronized long getFailed() { return failed; }
+    public void setFailed(long failed) { this.failed = failed; }
+
+    public synchronized long getBytesMoved() { return bytesMoved; }
+    public void setBytesMoved(long bytesMoved) { this.bytesMoved = bytesMoved; }
+
+    public LocalDateTime getStartTime() { return startTime; }
+    public void setStartTime(LocalDateTime startTime) { this.startTime = startTime; }
+
+    public LocalDateTime getEndTime() { return endTime; }
+    public void setEndTime(LocalDateTime endTime) { this.endTime = endTime; }
+
+    public long getProcessingTimeMs() { return processingTimeMs; }
+    public void setProcessingTimeMs(long processingTimeMs) { this.processingTimeMs = processingTimeMs; }
+
+    public synchronized List<String> getErrors() { return errors; }
+    public void setErrors(List<String> errors) { this.errors = errors; }
+
+    // Builder
+    public static RebalanceReportResponseBuilder builder() {
+        return new RebalanceReportResponseBuilder();
+    }
+
+    public static class RebalanceReportResponseBuilder {
+        private final RebalanceReportResponse response = new RebalanceReportResponse();
+
+        public RebalanceReportResponseBuilder volumes(Map<String, Integer> volumes) {
+            response.volumes = volumes;
+            return this;
+        }
+
+        public RebalanceReportResponseBuilder startTime(LocalDateTime startTime) {
+            response.startTime = startTime;
+            return this;
+        }
+
+        public RebalanceReportResponse build() {
+            return response;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.ibm.cmod.ondemand.dto;
+
+import com.ibm.cmod.ondemand.entity.Statement;
+import com.ibm.cmod.ondemand.exception.InvalidRequestException;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Optional criteria for selecting statements; null fields are not applied
+ */
+public class StatementFilter {
+
+    private String customerId;
+    private String documentType;
+    private String status;
+    private LocalDate from;
+    private LocalDate to;
+
+    public StatementFilter() {
+    }
+
+    // Getters and Setters
+    public String getCustomerId() { return customerId; }
+    public void setCustomerId(String customerId) { this.customerId = customerId; }
+
+    public String getDocumentType() { return documentType; }
+    public void setDocumentType(String documentType) { this.documentType = documentType; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public LocalDate getFrom() { return from; }
+    public void setFrom(LocalDate from) { this.from = from; }
+
+    public LocalDate getTo() { return to; }
+    public void setTo(LocalDate to) { this.to = to; }
+
+    /**
+     * Status criterion as the entity enum, or null when not filtered
+     */
+    public Statement.StatementStatus resolveStatus() {
+        if (status == null || status.isEmpty()) {
+            return null;
+        }
+        try {
+            return Statement.StatementStatus.valueOf(status.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Unknown statement status: " + status);
+        }
+    }
+
+    // Builder
+    public static StatementFilterBuilder builder() {
+        return new StatementFilterBuilder();
+    }
+
+    public static class StatementFilterBuilder {
+        private final StatementFilter filter = new StatementFilter();
+
+        public StatementFilterBuilder customerId(String customerId) {
+            filter.customerId = customerId;
+            return this;
+        }
+
+        public StatementFilterBuilder documentType(String documentType) {
+            filter.documentType = documentType;
+            return this;
+        }
+
+        public StatementFilterBuilder status(String status) {
+            filter.status = status;
+            return this;
+        }
+
+        public StatementFilterBuilder from(LocalDate from) {
+            filter.from = from;
+            return this;
+        }
+
+        public StatementFilterBuilder to(LocalDate to) {
+            filter.to = to;
+            return this;
+        }
+
+        public StatementFilter build() {
+            return filter;
+        }
+    }
+}
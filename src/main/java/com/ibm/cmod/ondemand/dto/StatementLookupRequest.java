@@ -0,0 +1,29 @@
+package com.ibm.cmod.ondemand.dto;
+
+import javax.validation.constraints.NotEmpty;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Request DTO for looking up several statements by ID in one call
+ */
+public class StatementLookupRequest {
+
+    @NotEmpty(message = "At least one statement ID is required")
+    private List<String> ids = new ArrayList<>();
+
+    public StatementLookupRequest() {
+    }
+
+    public StatementLookupRequest(List<String> ids) {
+        this.ids = ids;
+    }
+
+    public List<String> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<String> ids) {
+        this.ids = ids;
+    }
+}
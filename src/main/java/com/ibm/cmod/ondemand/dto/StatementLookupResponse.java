@@ -0,0 +1,93 @@
+package com.ibm.cmod.ondemand.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response DTO for a batch statement lookup. Results follow the request order,
+ * one per requested ID, with missing IDs reported in place.
+ */
+public class StatementLookupResponse {
+
+    private List<Result> results = new ArrayList<>();
+    private int requested;
+    private int found;
+    private int missing;
+
+    public StatementLookupResponse() {
+    }
+
+    /**
+     * Outcome for one requested ID; statement is null when it was not found
+     */
+    public static class Result {
+
+        private String id;
+        private boolean found;
+        private StatementResponse statement;
+
+        public Result() {
+        }
+
+        public Result(String id, StatementResponse statement) {
+            this.id = id;
+            this.found = statement != null;
+            this.statement = statement;
+        }
+
+        public String getId() { return id; }
+        public void setId(String id) { this.id = id; }
+
+        public boolean isFound() { return found; }
+        public void setFound(boolean found) { this.found = found; }
+
+        public StatementResponse getStatement() { return statement; }
+        public void setStatement(StatementResponse statement) { this.statement = statement; }
+    }
+
+    // Getters and Setters
+    public List<Result> getResults() { return results; }
+    public void setResults(List<Result> results) { this.results = results; }
+
+    public int getRequested() { return requested; }
+    public void setRequested(int requested) { this.requested = requested; }
+
+    public int getFound() { return found; }
+    public void setFound(int found) { this.found = found; }
+
+    public int getMissing() { return missing; }
+    public void setMissing(int missing) { this.missing = missing; }
+
+    // Builder
+    public static StatementLookupResponseBuilder builder() {
+        return new StatementLookupResponseBuilder();
+    }
+
+    public static class StatementLookupResponseBuilder {
+        private final StatementLookupResponse response = new StatementLookupResponse();
+
+        public StatementLookupResponseBuilder results(List<Result> results) {
+            response.results = results;
+            return this;
+        }
+
+        public StatementLookupResponseBuilder requested(int requested) {
+            response.requested = requested;
+            return this;
+        }
+
+        public StatementLookupResponseBuilder found(int found) {
+            response.found = found;
+            return this;
+        }
+
+        public StatementLookupResponseBuilder missing(int missing) {
+            response.missing = missing;
+            return this;
+        }
+
+        public StatementLookupResponse build() {
+            return response;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.ibm.cmod.ondemand.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response DTO for one keyset-paginated page of statements
+ */
+public class StatementPageResponse {
+
+    private List<StatementResponse> items = new ArrayList<>();
+    private int limit;
+    private boolean hasMore;
+    private String nextCursor;
+
+    public StatementPageResponse() {
+    }
+
+    // Getters and Setters
+    public List<StatementResponse> getItems() { return items; }
+    public void setItems(List<StatementResponse> items) { this.items = items; }
+
+    public int getLimit() { return limit; }
+    public void setLimit(int limit) { this.limit = limit; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    // Builder
+    public static StatementPageResponseBuilder builder() {
+        return new StatementPageResponseBuilder();
+    }
+
+    public static class StatementPageResponseBuilder {
+        private final StatementPageResponse response = new StatementPageResponse();
+
+        public StatementPageResponseBuilder items(List<StatementResponse> items) {
+            response.items = items;
+            return this;
+        }
+
+        public StatementPageResponseBuilder limit(int limit) {
+            response.limit = limit;
+            return this;
+        }
+
+        public StatementPageResponseBuilder hasMore(boolean hasMore) {
+            response.hasMore = hasMore;
+            return this;
+        }
+
+        public StatementPageResponseBuilder nextCursor(String nextCursor) {
+            response.nextCursor = nextCursor;
+            return this;
+        }
+
+        public StatementPageResponse build() {
+            return response;
+        }
+    }
+}
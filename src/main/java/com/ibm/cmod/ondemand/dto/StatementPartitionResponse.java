@@ -0,0 +1,76 @@
+package com.ibm.cmod.ondemand.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Response DTO for one monthly history partition of the statements table
+ */
+public class StatementPartitionResponse {
+
+    @JsonFormat(pattern = "yyyy-MM")
+    private LocalDate month;
+
+    private String tableName;
+    private long rowCount;
+    private String state;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime rolledAt;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime detachedAt;
+
+    // Bounds of created_at in the partition, null until known; used to prune reads
+    @JsonIgnore
+    private LocalDateTime minCreatedAt;
+
+    @JsonIgnore
+    private LocalDateTime maxCreatedAt;
+
+    public StatementPartitionResponse() {
+    }
+
+    public StatementPartitionResponse(LocalDate month, String tableName, long rowCount, String state,
+                                      LocalDateTime rolledAt, LocalDateTime detachedAt) {
+        this.month = month;
+        this.tableName = tableName;
+        this.rowCount = rowCount;
+        this.state = state;
+        this.rolledAt = rolledAt;
+        this.detachedAt = detachedAt;
+    }
+
+    // Getters and Setters
+    public LocalDate getMonth() { return month; }
+    public void setMonth(LocalDate month) { this.month = month; }
+
+    public String getTableName() { return tableName; }
+    public void setTableName(String tableName) { this.tableName = tableName; }
+
+    public long getRowCount() { return rowCount; }
+    public void setRowCount(long rowCount) { this.rowCount = rowCount; }
+
+    public String getState() { return state; }
+    public void setState(String state) { this.state = state; }
+
+    public LocalDateTime getRolledAt() { return rolledAt; }
+    public void setRolledAt(LocalDateTime rolledAt) { this.rolledAt = rolledAt; }
+
+    public LocalDateTime getDetachedAt() { return detachedAt; }
+    public void setDetachedAt(LocalDateTime detachedAt) { this.detachedAt = detachedAt; }
+
+    @JsonIgnore
+    public LocalDateTime getMinCreatedAt() { return minCreatedAt; }
+    public void setMinCreatedAt(LocalDateTime minCreatedAt) { this.minCreatedAt = minCreatedAt; }
+
+    @JsonIgnore
+    public LocalDateTime getMaxCreatedAt() { return maxCreatedAt; }
+    public void setMaxCreatedAt(LocalDateTime maxCreatedAt) { this.maxCreatedAt = maxCreatedAt; }
+
+    @JsonIgnore
+    public boolean isAttached() { return "ATTACHED".equals(state); }
+}
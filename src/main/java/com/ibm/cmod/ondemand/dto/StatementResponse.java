@@ -1,6 +1,8 @@
 package com.ibm.cmod.ondemand.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.ibm.cmod.ondemand.entity.Statement;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -20,6 +22,7 @@ public class StatementResponse {
     private String documentType;
     private String status;
     private Long fileSizeBytes;
+    private String contentChecksum;
 
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime createdAt;
@@ -29,9 +32,34 @@ public class StatementResponse {
 
     private String downloadUrl;
 
+    @JsonIgnore
+    private Integer version;
+
     public StatementResponse() {
     }
 
+    /**
+     * Projection constructor used by JPQL constructor expressions, so read
+     * queries build responses directly without managed entities
+     */
+    public StatementResponse(String id, String customerId, LocalDate statementDate, String documentPath,
+                             String documentType, Statement.StatementStatus status, Long fileSizeBytes,
+                             String contentChecksum, LocalDateTime createdAt, LocalDateTime updatedAt,
+                             Integer version) {
+        this.id = id;
+        this.customerId = customerId;
+        this.statementDate = statementDate;
+        this.documentPath = documentPath;
+        this.documentType = documentType;
+        this.status = status.name();
+        this.fileSizeBytes = fileSizeBytes;
+        this.contentChecksum = contentChecksum;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.downloadUrl = "/api/statements/" + id + "/download";
+        this.version = version;
+    }
+
     // Getters and Setters
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
@@ -54,6 +82,9 @@ public class StatementResponse {
     public Long getFileSizeBytes() { return fileSizeBytes; }
     public void setFileSizeBytes(Long fileSizeBytes) { this.fileSizeBytes = fileSizeBytes; }
 
+    public String getContentChecksum() { return contentChecksum; }
+    public void setContentChecksum(String contentChecksum) { this.contentChecksum = contentChecksum; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
@@ -63,6 +94,9 @@ public class StatementResponse {
     public String getDownloadUrl() { return downloadUrl; }
     public void setDownloadUrl(String downloadUrl) { this.downloadUrl = downloadUrl; }
 
+    public Integer getVersion() { return version; }
+    public void setVersion(Integer version) { this.version = version; }
+
     // Builder
     public static StatementResponseBuilder builder() {
         return new StatementResponseBuilder();
@@ -106,6 +140,11 @@ public class StatementResponse {
             return this;
         }
 
+        public StatementResponseBuilder contentChecksum(String contentChecksum) {
+            response.contentChecksum = contentChecksum;
+            return this;
+        }
+
         public StatementResponseBuilder createdAt(LocalDateTime createdAt) {
             response.createdAt = createdAt;
             return this;
@@ -121,6 +160,11 @@ public class StatementResponse {
             return this;
         }
 
+        public StatementResponseBuilder version(Integer version) {
+            response.version = version;
+            return this;
+        }
+
         public StatementResponse build() {
             return response;
         }
@@ -0,0 +1,73 @@
+package com.ibm.cmod.ondemand.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Response DTO for the statement summary: counts and document bytes overall, per
+ * status and per document type, and for the customers and statement dates asked for
+ */
+public class StatementSummaryResponse {
+
+    private long statementCount;
+    private long totalBytes;
+    private Map<String, Counts> byStatus = new LinkedHashMap<>();
+    private Map<String, Counts> byDocumentType = new LinkedHashMap<>();
+    private Map<String, Counts> byCustomer = new LinkedHashMap<>();
+    private Map<String, Counts> byStatementDate = new LinkedHashMap<>();
+
+    /** Last reconciliation against the statement tables on this instance; null if none yet */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime lastReconciledAt;
+
+    public StatementSummaryResponse() {
+    }
+
+    /**
+     * Statement count and document bytes of one key
+     */
+    public static class Counts {
+
+        private long statementCount;
+        private long totalBytes;
+
+        public Counts() {
+        }
+
+        public Counts(long statementCount, long totalBytes) {
+            this.statementCount = statementCount;
+            this.totalBytes = totalBytes;
+        }
+
+        public long getStatementCount() { return statementCount; }
+        public void setStatementCount(long statementCount) { this.statementCount = statementCount; }
+
+        public long getTotalBytes() { return totalBytes; }
+        public void setTotalBytes(long totalBytes) { this.totalBytes = totalBytes; }
+    }
+
+    // Getters and Setters
+    public long getStatementCount() { return statementCount; }
+    public void setStatementCount(long statementCount) { this.statementCount = statementCount; }
+
+    public long getTotalBytes() { return totalBytes; }
+    public void setTotalBytes(long totalBytes) { this.totalBytes = totalBytes; }
+
+    public Map<String, Counts> getByStatus() { return byStatus; }
+    public void setByStatus(Map<String, Counts> byStatus) { this.byStatus = byStatus; }
+
+    public Map<String, Counts> getByDocumentType() { return byDocumentType; }
+    public void setByDocumentType(Map<String, Counts> byDocumentType) { this.byDocumentType = byDocumentType; }
+
+    public Map<String, Counts> getByCustomer() { return byCustomer; }
+    public void setByCustomer(Map<String, Counts> byCustomer) { this.byCustomer = byCustomer; }
+
+    public Map<String, Counts> getByStatementDate() { return byStatementDate; }
+    public void setByStatementDate(Map<String, Counts> byStatementDate) { this.byStatementDate = byStatementDate; }
+
+    public LocalDateTime getLastReconciledAt() { return lastReconciledAt; }
+    public void setLastReconciledAt(LocalDateTime lastReconciledAt) { this.lastReconciledAt = lastReconciledAt; }
+}
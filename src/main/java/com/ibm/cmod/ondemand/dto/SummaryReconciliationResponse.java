@@ -0,0 +1,53 @@
+package com.ibm.cmod.ondemand.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response DTO for a reconciliation of the statement summary against the statement tables
+ */
+public class SummaryReconciliationResponse {
+
+    private int checkedKeys;
+    private int correctedKeys;
+
+    /** Keys that differed but changed within the settle window; left for the next run */
+    private int skippedKeys;
+
+    /** One line per corrected key: dimension, key and the correction applied */
+    private List<String> corrections = new ArrayList<>();
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime startTime;
+
+    private long processingTimeMs;
+
+    public SummaryReconciliationResponse() {
+    }
+
+    public SummaryReconciliationResponse(LocalDateTime startTime) {
+        this.startTime = startTime;
+    }
+
+    // Getters and Setters
+    public int getCheckedKeys() { return checkedKeys; }
+    public void setCheckedKeys(int checkedKeys) { this.checkedKeys = checkedKeys; }
+
+    public int getCorrectedKeys() { return correctedKeys; }
+    public void setCorrectedKeys(int correctedKeys) { this.correctedKeys = correctedKeys; }
+
+    public int getSkippedKeys() { return skippedKeys; }
+    public void setSkippedKeys(int skippedKeys) { this.skippedKeys = skippedKeys; }
+
+    public List<String> getCorrections() { return corrections; }
+    public void setCorrections(List<String> corrections) { this.corrections = corrections; }
+
+    public LocalDateTime getStartTime() { return startTime; }
+    public void setStartTime(LocalDateTime startTime) { this.startTime = startTime; }
+
+    public long getProcessingTimeMs() { return processingTimeMs; }
+    public void setProcessingTimeMs(long processingTimeMs) { this.processingTimeMs = processingTimeMs; }
+}
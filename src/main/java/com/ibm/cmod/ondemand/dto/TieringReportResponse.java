@@ -0,0 +1,105 @@
+package com.ibm.cmod.ondemand.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response DTO for a storage tiering run
+ */
+public class TieringReportResponse {
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate archivedBefore;
+
+    private int candidates;
+    private int archivedCount;
+    private int bundleCount;
+    private int failedCount;
+    private int restoredFilesPurged;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime startTime;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime endTime;
+
+    private long processingTimeMs;
+
+    private List<String> bundles = new ArrayList<>();
+    private List<String> errors = new ArrayList<>();
+
+    public TieringReportResponse() {
+    }
+
+    public synchronized void addBundle(String bundle, int documents) {
+        bundles.add(bundle);
+        bundleCount++;
+        archivedCount += documents;
+    }
+
+    public synchronized void addFailure(int documents, String reason) {
+        errors.add(reason);
+        failedCount += documents;
+    }
+
+    // Getters and Setters
+    public LocalDate getArchivedBefore() { return archivedBefore; }
+    public void setArchivedBefore(LocalDate archivedBefore) { this.archivedBefore = archivedBefore; }
+
+    public int getCandidates() { return candidates; }
+    public void setCandidates(int candidates) { this.candidates = candidates; }
+
+    public int getArchivedCount() { return archivedCount; }
+    public void setArchivedCount(int archivedCount) { this.archivedCount = archivedCount; }
+
+    public int getBundleCount() { return bundleCount; }
+    public void setBundleCount(int bundleCount) { this.bundleCount = bundleCount; }
+
+    public int getFailedCount() { return failedCount; }
+    public void setFailedCount(int failedCount) { this.failedCount = failedCount; }
+
+    public int getRestoredFilesPurged() { return restoredFilesPurged; }
+    public void setRestoredFilesPurged(int restoredFilesPurged) { this.restoredFilesPurged = restoredFilesPurged; }
+
+    public LocalDateTime getStartTime() { return startTime; }
+    public void setStartTime(LocalDateTime startTime) { this.startTime = startTime; }
+
+    public LocalDateTime getEndTime() { return endTime; }
+    public void setEndTime(LocalDateTime endTime) { this.endTime = endTime; }
+
+    public long getProcessingTimeMs() { return processingTimeMs; }
+    public void setProcessingTimeMs(long processingTimeMs) { this.processingTimeMs = processingTimeMs; }
+
+    public List<String> getBundles() { return bundles; }
+    public void setBundles(List<String> bundles) { this.bundles = bundles; }
+
+    public List<String> getErrors() { return errors; }
+    public void setErrors(List<String> errors) { this.errors = errors; }
+
+    // Builder
+    public static TieringReportResponseBuilder builder() {
+        return new TieringReportResponseBuilder();
+    }
+
+    public static class TieringReportResponseBuilder {
+        private final TieringReportResponse response = new TieringReportResponse();
+
+        public TieringReportResponseBuilder archivedBefore(LocalDate archivedBefore) {
+            response.archivedBefore = archivedBefore;
+            return this;
+        }
+
+        public TieringReportResponseBuilder startTime(LocalDateTime startTime) {
+            response.startTime = startTime;
+            return this;
+        }
+
+        public TieringReportResponse build() {
+            return response;
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package com.ibm.cmod.ondemand.entity;
 
+import com.ibm.cmod.ondemand.util.TimeOrderedIds;
+
 import javax.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -9,13 +13,21 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 /**
- * Statement Entity representing On-Demand Statement metadata
+ * Statement Entity representing On-Demand Statement metadata.
+ *
+ * Cached in the second-level cache with read-write concurrency: a cached copy
+ * is soft-locked while a transaction updates it, and a load never replaces a
+ * copy with a higher @Version.
  */
 @Entity
 @Table(name = "statements")
 @EntityListeners(AuditingEntityListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Statement.CACHE_REGION)
 public class Statement {
 
+    public static final String CACHE_REGION = "statements";
+
     @Id
     @Column(name = "id", length = 36)
     private String id;
@@ -39,6 +51,9 @@ public class Statement {
     @Column(name = "file_size_bytes")
     private Long fileSizeBytes;
 
+    @Column(name = "content_checksum", length = 64)
+    private String contentChecksum;
+
     @CreatedDate
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -52,7 +67,7 @@ public class Statement {
     private Integer version;
 
     public enum StatementStatus {
-        PENDING, AVAILABLE, ARCHIVED, DELETED
+        PENDING, AVAILABLE, ARCHIVED, DELETED, FAILED
     }
 
     public Statement() {
@@ -61,7 +76,7 @@ public class Statement {
     @PrePersist
     protected void onCreate() {
         if (id == null) {
-            id = java.util.UUID.randomUUID().toString();
+            id = TimeOrderedIds.next();
         }
         if (status == null) {
             status = StatementStatus.PENDING;
@@ -93,6 +108,9 @@ public class Statement {
     public Long getFileSizeBytes() { return fileSizeBytes; }
     public void setFileSizeBytes(Long fileSizeBytes) { this.fileSizeBytes = fileSizeBytes; }
 
+    public String getContentChecksum() { return contentChecksum; }
+    public void setContentChecksum(String contentChecksum) { this.contentChecksum = contentChecksum; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
@@ -145,6 +163,11 @@ public class Statement {
             return this;
         }
 
+        public StatementBuilder contentChecksum(String contentChecksum) {
+            statement.contentChecksum = contentChecksum;
+            return this;
+        }
+
         public Statement build() {
             return statement;
         }
@@ -0,0 +1,11 @@
+package com.ibm.cmod.ondemand.exception;
+
+/**
+ * Exception thrown when an Idempotency-Key is replayed with a different request body
+ */
+public class IdempotencyKeyReuseException extends RuntimeException {
+
+    public IdempotencyKeyReuseException(String message) {
+        super(message);
+    }
+}
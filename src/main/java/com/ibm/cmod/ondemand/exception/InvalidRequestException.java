@@ -0,0 +1,15 @@
+package com.ibm.cmod.ondemand.exception;
+
+/**
+ * Exception thrown when a request is well-formed but cannot be served as asked
+ */
+public class InvalidRequestException extends RuntimeException {
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+
+    public InvalidRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,11 @@
+package com.ibm.cmod.ondemand.exception;
+
+/**
+ * Exception thrown when a statement's document is requested before it is stored, or after its creation failed
+ */
+public class StatementNotAvailableException extends RuntimeException {
+
+    public StatementNotAvailableException(String message) {
+        super(message);
+    }
+}
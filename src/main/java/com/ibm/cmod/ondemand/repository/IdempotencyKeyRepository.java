@@ -0,0 +1,77 @@
+package com.ibm.cmod.ondemand.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * JDBC access to idempotency_keys
+ */
+@Repository
+public class IdempotencyKeyRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdempotencyKeyRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Key record created after the given time, if any
+     */
+    public Optional<IdempotencyRecord> find(String idempotencyKey, LocalDateTime notBefore) {
+        List<IdempotencyRecord> records = jdbcTemplate.query(
+                "SELECT idempotency_key, request_hash, statement_id FROM idempotency_keys"
+                        + " WHERE idempotency_key = ? AND created_at >= ?",
+                (rs, rowNum) -> new IdempotencyRecord(
+                        rs.getString("idempotency_key"),
+                        rs.getString("request_hash"),
+                        rs.getString("statement_id")),
+                idempotencyKey, Timestamp.valueOf(notBefore));
+        return records.stream().findFirst();
+    }
+
+    /**
+     * Record a key unless it is already present
+     *
+     * @return false if another request recorded the key first
+     */
+    public boolean insertIfAbsent(String idempotencyKey, String requestHash, String statementId) {
+        try {
+            jdbcTemplate.update(
+                    "INSERT INTO idempotency_keys (idempotency_key, request_hash, statement_id) VALUES (?, ?, ?)",
+                    idempotencyKey, requestHash, statementId);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    public int deleteOlderThan(LocalDateTime cutoff) {
+        return jdbcTemplate.update("DELETE FROM idempotency_keys WHERE created_at < ?", Timestamp.valueOf(cutoff));
+    }
+
+    /**
+     * One recorded Idempotency-Key and the statement it created
+     */
+    public static class IdempotencyRecord {
+        private final String idempotencyKey;
+        private final String requestHash;
+        private final String statementId;
+
+        public IdempotencyRecord(String idempotencyKey, String requestHash, String statementId) {
+            this.idempotencyKey = idempotencyKey;
+            this.requestHash = requestHash;
+            this.statementId = statementId;
+        }
+
+        public String getIdempotencyKey() { return idempotencyKey; }
+        public String getRequestHash() { return requestHash; }
+        public String getStatementId() { return statementId; }
+    }
+}
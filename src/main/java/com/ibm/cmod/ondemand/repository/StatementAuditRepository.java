@@ -0,0 +1,76 @@
+package com.ibm.cmod.ondemand.repository;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JDBC access to statement_audit. Events are written many rows per INSERT,
+ * so a batch costs one round trip whatever its size.
+ */
+@Repository
+public class StatementAuditRepository {
+
+    private static final String INSERT = "INSERT INTO statement_audit (statement_id, action, performed_at, details) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StatementAuditRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Insert the events as one multi-row INSERT
+     */
+    public int insertAll(List<AuditEvent> events) {
+        if (events.isEmpty()) {
+            return 0;
+        }
+        StringBuilder sql = new StringBuilder(INSERT.length() + events.size() * (ROW.length() + 2)).append(INSERT);
+        List<Object> params = new ArrayList<>(events.size() * 4);
+        for (AuditEvent event : events) {
+            if (!params.isEmpty()) {
+                sql.append(", ");
+            }
+            sql.append(ROW);
+            params.add(event.getStatementId());
+            params.add(event.getAction());
+            params.add(Timestamp.valueOf(event.getPerformedAt()));
+            params.add(event.getDetails());
+        }
+        return jdbcTemplate.update(sql.toString(), params.toArray());
+    }
+
+    /**
+     * One audited action on a statement; details may be null
+     */
+    public static class AuditEvent {
+        private final String statementId;
+        private final String action;
+        private final LocalDateTime performedAt;
+        private final String details;
+
+        @JsonCreator
+        public AuditEvent(@JsonProperty("statementId") String statementId,
+                          @JsonProperty("action") String action,
+                          @JsonProperty("performedAt") LocalDateTime performedAt,
+                          @JsonProperty("details") String details) {
+            this.statementId = statementId;
+            this.action = action;
+            this.performedAt = performedAt;
+            this.details = details;
+        }
+
+        public String getStatementId() { return statementId; }
+        public String getAction() { return action; }
+        public LocalDateTime getPerformedAt() { return performedAt; }
+        public String getDetails() { return details; }
+    }
+}
@@ -0,0 +1,81 @@
+package com.ibm.cmod.ondemand.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * JDBC access to statement_change_log. Appends join the caller's transaction,
+ * so a change is logged if and only if it commits.
+ */
+@Repository
+public class StatementChangeLogRepository {
+
+    private static final RowMapper<ChangeRecord> ROW_MAPPER = (rs, rowNum) -> new ChangeRecord(
+            rs.getLong("seq"),
+            rs.getString("statement_id"),
+            rs.getString("customer_id"),
+            rs.getString("origin_node"),
+            rs.getTimestamp("changed_at").toLocalDateTime());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StatementChangeLogRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void append(String statementId, String customerId, String originNode) {
+        jdbcTemplate.update(
+                "INSERT INTO statement_change_log (statement_id, customer_id, origin_node) VALUES (?, ?, ?)",
+                statementId, customerId, originNode);
+    }
+
+    /**
+     * Changes with a sequence above the given one, in sequence order
+     */
+    public List<ChangeRecord> findAfter(long seq, int limit) {
+        return jdbcTemplate.query(
+                "SELECT seq, statement_id, customer_id, origin_node, changed_at FROM statement_change_log"
+                        + " WHERE seq > ? ORDER BY seq LIMIT ?",
+                ROW_MAPPER, seq, limit);
+    }
+
+    public long findMaxSeq() {
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(seq) FROM statement_change_log", Long.class);
+        return max != null ? max : 0L;
+    }
+
+    public int deleteOlderThan(LocalDateTime cutoff) {
+        return jdbcTemplate.update("DELETE FROM statement_change_log WHERE changed_at < ?", Timestamp.valueOf(cutoff));
+    }
+
+    /**
+     * One logged change; either ID may be null
+     */
+    public static class ChangeRecord {
+        private final long seq;
+        private final String statementId;
+        private final String customerId;
+        private final String originNode;
+        private final LocalDateTime changedAt;
+
+        public ChangeRecord(long seq, String statementId, String customerId, String originNode,
+                            LocalDateTime changedAt) {
+            this.seq = seq;
+            this.statementId = statementId;
+            this.customerId = customerId;
+            this.originNode = originNode;
+            this.changedAt = changedAt;
+        }
+
+        public long getSeq() { return seq; }
+        public String getStatementId() { return statementId; }
+        public String getCustomerId() { return customerId; }
+        public String getOriginNode() { return originNode; }
+        public LocalDateTime getChangedAt() { return changedAt; }
+    }
+}
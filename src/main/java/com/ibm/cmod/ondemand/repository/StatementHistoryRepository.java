@@ -0,0 +1,512 @@
+package com.ibm.cmod.ondemand.repository;
+
+import com.ibm.cmod.ondemand.dto.StatementFilter;
+import com.ibm.cmod.ondemand.dto.StatementPartitionResponse;
+import com.ibm.cmod.ondemand.dto.StatementResponse;
+import com.ibm.cmod.ondemand.entity.Statement;
+import com.ibm.cmod.ondemand.util.PageCursor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * JDBC access to the monthly history partitions of statements (statements_pYYYYMM)
+ * and their catalog, statement_partitions. Reads take the partitions to query,
+ * already pruned by the caller, and combine them with UNION ALL so each read is
+ * one round trip; ordered reads limit every branch so each partition contributes
+ * only its own top rows.
+ *
+ * Partition table names are derived from the month, never from request input.
+ */
+@Repository
+public class StatementHistoryRepository {
+
+    public static final String ATTACHED = "ATTACHED";
+    public static final String DETACHED = "DETACHED";
+
+    private static final String COLUMNS = "id, customer_id, statement_date, document_path, document_type, status, "
+            + "file_size_bytes, content_checksum, created_at, updated_at, version";
+
+    private static final String TABLE = "{table}";
+
+    private static final RowMapper<StatementResponse> RESPONSE_MAPPER = (rs, rowNum) -> new StatementResponse(
+            rs.getString("id"),
+            rs.getString("customer_id"),
+            rs.getObject("statement_date", LocalDate.class),
+            rs.getString("document_path"),
+            rs.getString("document_type"),
+            Statement.StatementStatus.valueOf(rs.getString("status")),
+            rs.getObject("file_size_bytes", Long.class),
+            rs.getString("content_checksum"),
+            rs.getObject("created_at", LocalDateTime.class),
+            rs.getObject("updated_at", LocalDateTime.class),
+            rs.getObject("version", Integer.class));
+
+    private static final RowMapper<StatementPartitionResponse> PARTITION_MAPPER = (rs, rowNum) -> {
+        StatementPartitionResponse partition = new StatementPartitionResponse(
+                rs.getObject("partition_month", LocalDate.class),
+                rs.getString("table_name"),
+                rs.getLong("row_count"),
+                rs.getString("state"),
+                rs.getObject("rolled_at", LocalDateTime.class),
+                rs.getObject("detached_at", LocalDateTime.class));
+        partition.setMinCreatedAt(rs.getObject("min_created_at", LocalDateTime.class));
+        partition.setMaxCreatedAt(rs.getObject("max_created_at", LocalDateTime.class));
+        return partition;
+    };
+
+    private static final String PARTITION_COLUMNS =
+            "partition_month, table_name, row_count, state, rolled_at, detached_at, min_created_at, max_created_at";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StatementHistoryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Name of the history table holding the month that contains the given date
+     */
+    public static String tableName(LocalDate month) {
+        return String.format("statements_p%04d%02d", month.getYear(), month.getMonthValue());
+    }
+
+    // Catalog
+
+    /**
+     * Every partition, oldest month first
+     */
+    public List<StatementPartitionResponse> findPartitions() {
+        return jdbcTemplate.query("SELECT " + PARTITION_COLUMNS + " FROM statement_partitions"
+                + " ORDER BY partition_month", PARTITION_MAPPER);
+    }
+
+    /**
+     * Attached partitions whose month lies within the given months, oldest first; null bounds are open
+     */
+    public List<StatementPartitionResponse> findAttached(LocalDate fromMonth, LocalDate toMonth) {
+        StringBuilder sql = new StringBuilder("SELECT " + PARTITION_COLUMNS
+                + " FROM statement_partitions WHERE state = ?");
+        List<Object> params = new ArrayList<>(List.of(ATTACHED));
+        if (fromMonth != null) {
+            sql.append(" AND partition_month >= ?");
+            params.add(fromMonth);
+        }
+        if (toMonth != null) {
+            sql.append(" AND partition_month <= ?");
+            params.add(toMonth);
+        }
+        sql.append(" ORDER BY partition_month");
+        return jdbcTemplate.query(sql.toString(), PARTITION_MAPPER, params.toArray());
+    }
+
+    public Optional<StatementPartitionResponse> findPartition(LocalDate month) {
+        return jdbcTemplate.query("SELECT " + PARTITION_COLUMNS + " FROM statement_partitions"
+                + " WHERE partition_month = ?", PARTITION_MAPPER, month).stream().findFirst();
+    }
+
+    public int updateState(LocalDate month, String state, LocalDateTime detachedAt) {
+        return jdbcTemplate.update("UPDATE statement_partitions SET state = ?, detached_at = ?"
+                        + " WHERE partition_month = ?",
+                state, detachedAt != null ? Timestamp.valueOf(detachedAt) : null, month);
+    }
+
+    // Roll-off
+
+    /**
+     * Earliest statement date in the hot table before the boundary, ignoring PENDING rows
+     */
+    public Optional<LocalDate> findOldestHotDateBefore(LocalDate boundary) {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(
+                "SELECT MIN(statement_date) FROM statements WHERE statement_date < ? AND status <> ?",
+                LocalDate.class, boundary, Statement.StatementStatus.PENDING.name()));
+    }
+
+    /**
+     * Create a month's history table if missing. DDL commits implicitly on H2,
+     * so this must run outside the move transaction.
+     */
+    public void createPartitionTable(String tableName) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + tableName + " ("
+                + "id VARCHAR(36) PRIMARY KEY, "
+                + "customer_id VARCHAR(50) NOT NULL, "
+                + "statement_date DATE NOT NULL, "
+                + "document_path VARCHAR(500), "
+                + "document_type VARCHAR(50), "
+                + "status VARCHAR(20) NOT NULL, "
+                + "file_size_bytes BIGINT, "
+                + "content_checksum VARCHAR(64), "
+                + "created_at TIMESTAMP NOT NULL, "
+                + "updated_at TIMESTAMP NOT NULL, "
+                + "version INT NOT NULL)");
+        createPartitionIndexes(tableName);
+    }
+
+    /**
+     * Bring a history table's indexes up to date with the hot table's. Idempotent,
+     * so tables created by an earlier release are upgraded on startup.
+     *
+     * @return duplicate live statements soft-deleted to build the natural key index
+     */
+    public int createPartitionIndexes(String tableName) {
+        // Covering, like the hot table's idx_customer_date_cover
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_" + tableName + "_customer_cover"
+                + " ON " + tableName + "(customer_id, statement_date DESC, id DESC, status, document_type,"
+                + " document_path, file_size_bytes, content_checksum, created_at, updated_at, version)");
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_" + tableName + "_customer_date");
+        // Matches findPage's ORDER BY; H2 only reads an index in its declared order
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_" + tableName + "_created_id"
+                + " ON " + tableName + "(created_at DESC, id DESC)");
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_" + tableName + "_created_at");
+        return createActiveKey(tableName);
+    }
+
+    /**
+     * At most one live statement per natural key within the month, as V5/V6 enforce
+     * for the hot table. Older tables may already hold duplicates; like V5, all but
+     * the newest live row of each are soft-deleted before the unique index is built.
+     */
+    private int createActiveKey(String tableName) {
+        String index = "uk_" + tableName + "_active_key";
+        Integer existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES"
+                + " WHERE TABLE_NAME = ? AND INDEX_NAME = ?", Integer.class,
+                tableName.toUpperCase(Locale.ROOT), index.toUpperCase(Locale.ROOT));
+        if (existing != null && existing > 0) {
+            return 0;
+        }
+        jdbcTemplate.execute("ALTER TABLE " + tableName + " ADD COLUMN IF NOT EXISTS active_key VARCHAR(120)"
+                + " GENERATED ALWAYS AS (CASE WHEN status NOT IN ('DELETED', 'FAILED')"
+                + " THEN customer_id || '|' || CAST(statement_date AS VARCHAR) || '|' || document_type END)");
+        int superseded = jdbcTemplate.update("UPDATE " + tableName + " s SET status = 'DELETED',"
+                + " updated_at = CURRENT_TIMESTAMP, version = version + 1"
+                + " WHERE s.active_key IS NOT NULL AND EXISTS (SELECT 1 FROM " + tableName + " t"
+                + " WHERE t.active_key = s.active_key"
+                + " AND (t.created_at > s.created_at OR (t.created_at = s.created_at AND t.id > s.id)))");
+        jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + index + " ON " + tableName + "(active_key)");
+        return superseded;
+    }
+
+    /**
+     * Next batch of a month's hot rows in one settled status, newest first, strictly
+     * after the given position. The walk is a keyset range on idx_status_date_cover,
+     * so each batch reads only its own rows however large the month is.
+     */
+    public List<PageCursor> findRollOffBatch(LocalDate month, Statement.StatementStatus status, PageCursor after,
+                                             int limit) {
+        StringBuilder sql = new StringBuilder("SELECT id, statement_date FROM statements"
+                + " WHERE status = ? AND statement_date >= ? AND statement_date < ?");
+        List<Object> params = new ArrayList<>(List.of(status.name(), month, month.plusMonths(1)));
+        if (after != null) {
+            LocalDate afterDate = after.getPositionAsDate();
+            sql.append(" AND statement_date <= ? AND (statement_date < ? OR id < ?)");
+            params.add(afterDate);
+            params.add(afterDate);
+            params.add(after.getId());
+        }
+        sql.append(" ORDER BY status, statement_date DESC, id DESC FETCH FIRST ").append(limit).append(" ROWS ONLY");
+        return jdbcTemplate.query(sql.toString(),
+                (rs, rowNum) -> PageCursor.after(rs.getObject("statement_date", LocalDate.class), rs.getString("id")),
+                params.toArray());
+    }
+
+    /**
+     * Move the given hot rows into a history table. Run inside one transaction per
+     * batch. A row changed between the copy and the delete stays hot and its copy
+     * is dropped, so it is never lost or duplicated; it rolls off on the next run.
+     * A row whose natural key is already live in the partition is not copied and
+     * stays hot; PENDING rows are never copied.
+     *
+     * @return number of rows moved
+     */
+    public int moveRows(String tableName, List<String> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String in = " IN (" + placeholders(ids.size()) + ")";
+        List<Object> params = new ArrayList<>(ids);
+        params.add(Statement.StatementStatus.PENDING.name());
+        jdbcTemplate.update("INSERT INTO " + tableName + " (" + COLUMNS + ") SELECT " + COLUMNS
+                + " FROM statements s WHERE s.id" + in + " AND s.status <> ?"
+                + " AND (s.active_key IS NULL OR NOT EXISTS"
+                + " (SELECT 1 FROM " + tableName + " h WHERE h.active_key = s.active_key))",
+                params.toArray());
+        int moved = jdbcTemplate.update("DELETE FROM statements s WHERE s.id" + in
+                + " AND EXISTS (SELECT 1 FROM " + tableName + " h WHERE h.id = s.id AND h.version = s.version)",
+                ids.toArray());
+        jdbcTemplate.update("DELETE FROM " + tableName + " h WHERE h.id" + in
+                + " AND EXISTS (SELECT 1 FROM statements s WHERE s.id = h.id)", ids.toArray());
+        return moved;
+    }
+
+    /**
+     * Settled rows of a month still in the hot table, e.g. held back by a roll-off
+     */
+    public int countSettledHot(LocalDate month) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM statements"
+                + " WHERE statement_date >= ? AND statement_date < ? AND status <> ?", Integer.class,
+                month, month.plusMonths(1), Statement.StatementStatus.PENDING.name());
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Register a roll-off in the catalog, adding to the row count of an existing partition
+     */
+    public void recordRollOff(LocalDate month, String tableName, int moved) {
+        int updated = jdbcTemplate.update("UPDATE statement_partitions SET row_count = row_count + ?,"
+                + " rolled_at = CURRENT_TIMESTAMP WHERE partition_month = ?", moved, month);
+        if (updated == 0) {
+            jdbcTemplate.update("INSERT INTO statement_partitions (partition_month, table_name, row_count, state)"
+                    + " VALUES (?, ?, ?, ?)", month, tableName, moved, ATTACHED);
+        }
+        refreshCreatedRange(month, tableName);
+    }
+
+    /**
+     * Store the partition's current created_at range in the catalog
+     */
+    public void refreshCreatedRange(LocalDate month, String tableName) {
+        jdbcTemplate.update("UPDATE statement_partitions SET"
+                + " min_created_at = (SELECT MIN(created_at) FROM " + tableName + "),"
+                + " max_created_at = (SELECT MAX(created_at) FROM " + tableName + ")"
+                + " WHERE partition_month = ?", month);
+    }
+
+    /**
+     * Take rows removed from a partition, e.g. by a purge, off its catalog row count
+     */
+    public void subtractRows(LocalDate month, int removed) {
+        jdbcTemplate.update("UPDATE statement_partitions SET row_count = GREATEST(row_count - ?, 0)"
+                + " WHERE partition_month = ?", removed, month);
+    }
+
+    /**
+     * Drop a partition's table and catalog entry; independent of the number of rows it holds
+     */
+    public void dropPartition(StatementPartitionResponse partition) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition.getTableName());
+        jdbcTemplate.update("DELETE FROM statement_partitions WHERE partition_month = ?", partition.getMonth());
+    }
+
+    /**
+     * Move one statement back into the hot table so it can be written through JPA.
+     * Run inside the writing transaction.
+     *
+     * @return true if the statement was found in the partition
+     */
+    public boolean promote(StatementPartitionResponse partition, String id) {
+        String table = partition.getTableName();
+        int copied = jdbcTemplate.update("INSERT INTO statements (" + COLUMNS + ") SELECT " + COLUMNS
+                + " FROM " + table + " WHERE id = ?", id);
+        if (copied == 0) {
+            return false;
+        }
+        jdbcTemplate.update("DELETE FROM " + table + " WHERE id = ?", id);
+        jdbcTemplate.update("UPDATE statement_partitions SET row_count = row_count - 1 WHERE partition_month = ?",
+                partition.getMonth());
+        return true;
+    }
+
+    /**
+     * Fill in the checksum of a rolled-off row stored without one
+     *
+     * @return 1 if stored, 0 if the row is not in the partition or already has a checksum
+     */
+    public int backfillChecksum(StatementPartitionResponse partition, String id, String checksum) {
+        return jdbcTemplate.update("UPDATE " + partition.getTableName() + " SET content_checksum = ?"
+                + " WHERE id = ? AND content_checksum IS NULL", checksum, id);
+    }
+
+    // Reads
+
+    /**
+     * Month of the partition holding the statement, if any
+     */
+    public Optional<LocalDate> findMonthOf(List<StatementPartitionResponse> partitions, String id) {
+        if (partitions.isEmpty()) {
+            return Optional.empty();
+        }
+        StringBuilder sql = new StringBuilder();
+        List<Object> params = new ArrayList<>();
+        for (StatementPartitionResponse partition : partitions) {
+            if (sql.length() > 0) {
+                sql.append(" UNION ALL ");
+            }
+            sql.append("SELECT CAST(? AS DATE) AS partition_month FROM ").append(partition.getTableName())
+                    .append(" WHERE id = ?");
+            params.add(partition.getMonth());
+            params.add(id);
+        }
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> rs.getObject(1, LocalDate.class),
+                params.toArray()).stream().findFirst();
+    }
+
+    public Optional<StatementResponse> findById(List<StatementPartitionResponse> partitions, String id) {
+        return queryUnion(partitions, "SELECT " + COLUMNS + " FROM " + TABLE + " WHERE id = ?",
+                List.of(id), "").stream().findFirst();
+    }
+
+    public List<StatementResponse> findByIdIn(List<StatementPartitionResponse> partitions, Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return queryUnion(partitions, "SELECT " + COLUMNS + " FROM " + TABLE + " WHERE id IN (" + placeholders(ids.size()) + ")",
+                new ArrayList<>(ids), "");
+    }
+
+    public List<StatementResponse> findByCustomerId(List<StatementPartitionResponse> partitions, String customerId) {
+        return queryUnion(partitions, "SELECT " + COLUMNS + " FROM " + TABLE + " WHERE customer_id = ?",
+                List.of(customerId), "");
+    }
+
+    /**
+     * The live statement for a natural key in one partition, if any
+     */
+    public Optional<StatementResponse> findLiveByNaturalKey(StatementPartitionResponse partition, String customerId,
+                                                            LocalDate statementDate, String documentType,
+                                                            Collection<Statement.StatementStatus> inactive) {
+        List<Object> params = new ArrayList<>(List.of(customerId, statementDate, documentType));
+        inactive.forEach(status -> params.add(status.name()));
+        String excluded = String.join(", ", Collections.nCopies(inactive.size(), "?"));
+        return queryUnion(List.of(partition), "SELECT " + COLUMNS + " FROM " + TABLE
+                        + " WHERE customer_id = ? AND statement_date = ? AND document_type = ?"
+                        + " AND status NOT IN (" + excluded + ")",
+                params, "").stream().findFirst();
+    }
+
+    /**
+     * One keyset page of a search, ordered by (statement_date, id) like the hot-table search
+     */
+    public List<StatementResponse> search(List<StatementPartitionResponse> partitions, StatementFilter filter,
+                                          PageCursor after, boolean newestFirst, int maxResults) {
+        StringBuilder where = new StringBuilder();
+        List<Object> params = new ArrayList<>();
+        appendFilter(filter, where, params);
+        if (after != null) {
+            // Range form, as in the hot table's search
+            LocalDate afterDate = after.getPositionAsDate();
+            String op = newestFirst ? "<" : ">";
+            where.append(" AND statement_date ").append(op).append("= ?")
+                    .append(" AND (statement_date ").append(op).append(" ? OR id ").append(op).append(" ?)");
+            params.add(afterDate);
+            params.add(afterDate);
+            params.add(after.getId());
+        }
+        // A customer search reads the covering index in order; the constant prefix makes H2 see that
+        String prefix = filter.getCustomerId() != null ? "customer_id, " : "";
+        String order = newestFirst
+                ? " ORDER BY " + prefix + "statement_date DESC, id DESC"
+                : " ORDER BY " + prefix + "statement_date, id";
+        String limit = " FETCH FIRST " + maxResults + " ROWS ONLY";
+        return queryUnion(partitions, "SELECT " + COLUMNS + " FROM " + TABLE + where + order + limit,
+                params, order + limit);
+    }
+
+    /**
+     * One keyset page of all history rows, newest created first, strictly after the
+     * given (createdAt, id) position when one is given
+     */
+    public List<StatementResponse> findPage(List<StatementPartitionResponse> partitions, LocalDateTime afterCreatedAt,
+                                            String afterId, int maxResults) {
+        String where = "";
+        List<Object> params = new ArrayList<>();
+        if (afterCreatedAt != null) {
+            where = " WHERE created_at <= ? AND (created_at < ? OR id < ?)";
+            params.add(afterCreatedAt);
+            params.add(afterCreatedAt);
+            params.add(afterId);
+        }
+        String order = " ORDER BY created_at DESC, id DESC";
+        String limit = " FETCH FIRST " + maxResults + " ROWS ONLY";
+        return queryUnion(partitions, "SELECT " + COLUMNS + " FROM " + TABLE + where + order + limit,
+                params, order + limit);
+    }
+
+    /**
+     * Stream one partition's rows matching the filter, in no particular order, without loading them all
+     */
+    public void stream(StatementPartitionResponse partition, StatementFilter filter, int fetchSize,
+                       Consumer<StatementResponse> consumer) {
+        StringBuilder where = new StringBuilder();
+        List<Object> params = new ArrayList<>();
+        appendFilter(filter, where, params);
+        // Unordered like the hot table's export, so no sort holds back the first row
+        String sql = "SELECT " + COLUMNS + " FROM " + partition.getTableName() + where;
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(fetchSize);
+            for (int i = 0; i < params.size(); i++) {
+                statement.setObject(i + 1, params.get(i));
+            }
+            return statement;
+        }, rs -> {
+            consumer.accept(RESPONSE_MAPPER.mapRow(rs, 0));
+        });
+    }
+
+    /**
+     * WHERE clause over the filter's criteria, shared with the set-based maintenance statements
+     */
+    static void appendFilter(StatementFilter filter, StringBuilder where, List<Object> params) {
+        where.append(" WHERE 1 = 1");
+        if (filter.getCustomerId() != null) {
+            where.append(" AND customer_id = ?");
+            params.add(filter.getCustomerId());
+        }
+        if (filter.getDocumentType() != null) {
+            where.append(" AND document_type = ?");
+            params.add(filter.getDocumentType());
+        }
+        Statement.StatementStatus status = filter.resolveStatus();
+        if (status != null) {
+            where.append(" AND status = ?");
+            params.add(status.name());
+        }
+        if (filter.getFrom() != null) {
+            where.append(" AND statement_date >= ?");
+            params.add(filter.getFrom());
+        }
+        if (filter.getTo() != null) {
+            where.append(" AND statement_date <= ?");
+            params.add(filter.getTo());
+        }
+    }
+
+    /**
+     * Run the branch query against every partition as one UNION ALL, repeating its parameters per branch
+     */
+    private List<StatementResponse> queryUnion(List<StatementPartitionResponse> partitions, String branch,
+                                               List<Object> branchParams, String outer) {
+        if (partitions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        StringBuilder sql = new StringBuilder();
+        List<Object> params = new ArrayList<>(branchParams.size() * partitions.size());
+        for (StatementPartitionResponse partition : partitions) {
+            if (sql.length() > 0) {
+                sql.append(" UNION ALL ");
+            }
+            sql.append('(').append(branch.replace(TABLE, partition.getTableName())).append(')');
+            params.addAll(branchParams);
+        }
+        String query = outer.isEmpty()
+                ? sql.toString()
+                : "SELECT * FROM (" + sql + ") history" + outer;
+        return jdbcTemplate.query(query, RESPONSE_MAPPER, params.toArray());
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
@@ -0,0 +1,94 @@
+package com.ibm.cmod.ondemand.repository;
+
+import com.ibm.cmod.ondemand.entity.Statement;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC batch inserts of imported statements whose documents are already stored
+ */
+@Repository
+public class StatementImportRepository {
+
+    private static final String ACTIVE_KEY =
+            "s.customer_id || '|' || CAST(s.statement_date AS VARCHAR) || '|' || s.document_type";
+
+    // Matches on the natural key through the active_key unique index, so a row already live is left alone
+    private static final String INSERT_IF_ABSENT = "MERGE INTO statements t USING (VALUES (CAST(? AS VARCHAR(36)),"
+            + " CAST(? AS VARCHAR(50)), CAST(? AS DATE), CAST(? AS VARCHAR(50)), CAST(? AS VARCHAR(500)),"
+            + " CAST(? AS BIGINT))) s(id, customer_id, statement_date, document_type, document_path, file_size_bytes)"
+            + " ON t.active_key = " + ACTIVE_KEY
+            + " WHEN NOT MATCHED{history} THEN INSERT (id, customer_id, statement_date, document_type, document_path,"
+            + " status, file_size_bytes, created_at, updated_at, version)"
+            + " VALUES (s.id, s.customer_id, s.statement_date, s.document_type, s.document_path, ?, s.file_size_bytes,"
+            + " ?, ?, 0)";
+
+    // A rolled-off month's live rows are in its partition, keyed by its own active_key unique index
+    private static final String ABSENT_FROM_HISTORY =
+            " AND NOT EXISTS (SELECT 1 FROM {table} h WHERE h.active_key = " + ACTIVE_KEY + ")";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StatementImportRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Insert the statements in the caller's transaction, skipping any whose
+     * natural key already has a live statement in the hot table or in the
+     * history partition of its month. One JDBC batch per partition the
+     * statements' months fall in, and one for months still hot.
+     *
+     * @param partitions history table of each rolled-off month, keyed by the month's first day
+     * @return the statements actually inserted
+     */
+    public List<Statement> insertIfAbsent(List<Statement> statements, LocalDateTime now,
+                                          Map<LocalDate, String> partitions) {
+        Map<String, List<Statement>> byTable = new LinkedHashMap<>();
+        for (Statement statement : statements) {
+            String table = partitions.getOrDefault(statement.getStatementDate().withDayOfMonth(1), "");
+            byTable.computeIfAbsent(table, key -> new ArrayList<>()).add(statement);
+        }
+        List<Statement> inserted = new ArrayList<>(statements.size());
+        for (Map.Entry<String, List<Statement>> group : byTable.entrySet()) {
+            String history = group.getKey().isEmpty() ? "" : ABSENT_FROM_HISTORY.replace("{table}", group.getKey());
+            inserted.addAll(insertBatch(INSERT_IF_ABSENT.replace("{history}", history), group.getValue(), now));
+        }
+        return inserted;
+    }
+
+    private List<Statement> insertBatch(String sql, List<Statement> statements, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        List<Object[]> rows = new ArrayList<>(statements.size());
+        for (Statement statement : statements) {
+            rows.add(new Object[] {
+                    statement.getId(),
+                    statement.getCustomerId(),
+                    Date.valueOf(statement.getStatementDate()),
+                    statement.getDocumentType(),
+                    statement.getDocumentPath(),
+                    statement.getFileSizeBytes(),
+                    statement.getStatus().name(),
+                    timestamp,
+                    timestamp
+            });
+        }
+        int[] counts = jdbcTemplate.batchUpdate(sql, rows);
+        List<Statement> inserted = new ArrayList<>(statements.size());
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                inserted.add(statements.get(i));
+            }
+        }
+        return inserted;
+    }
+}
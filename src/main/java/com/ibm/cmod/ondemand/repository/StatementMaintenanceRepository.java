@@ -0,0 +1,162 @@
+package com.ibm.cmod.ondemand.repository;
+
+import com.ibm.cmod.ondemand.dto.StatementFilter;
+import com.ibm.cmod.ondemand.entity.Statement;
+import com.ibm.cmod.ondemand.repository.StatementSummaryRepository.Counts;
+import com.ibm.cmod.ondemand.repository.StatementSummaryRepository.StatementFacts;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Set-based maintenance statements over the hot statements table or one history
+ * partition, named by the caller. Each runs as a single statement in the
+ * caller's transaction instead of loading and saving rows one by one.
+ */
+@Repository
+public class StatementMaintenanceRepository {
+
+    public static final String HOT_TABLE = "statements";
+
+    private static final String DELETED = Statement.StatementStatus.DELETED.name();
+
+    private static final RowMapper<PurgeCandidate> CANDIDATE_MAPPER = (rs, rowNum) -> new PurgeCandidate(
+            rs.getString("id"),
+            rs.getString("customer_id"),
+            rs.getString("document_path"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StatementMaintenanceRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Add an audit row for every statement {@link #markDeleted} is about to delete.
+     * Run first, in the same transaction, so both see the same rows.
+     */
+    public int insertDeleteAudit(String table, StatementFilter filter, String action, LocalDateTime now,
+                                 String details) {
+        StringBuilder sql = new StringBuilder("INSERT INTO statement_audit (statement_id, action, performed_at, details)"
+                + " SELECT id, ?, ?, ? FROM ").append(table);
+        List<Object> params = new ArrayList<>(List.of(action, Timestamp.valueOf(now), details));
+        appendNotDeleted(filter, sql, params);
+        return jdbcTemplate.update(sql.toString(), params.toArray());
+    }
+
+    /**
+     * Add an outbox event for every statement {@link #markDeleted} is about to
+     * delete, like {@link #insertDeleteAudit}
+     */
+    public int insertDeleteEvents(String table, StatementFilter filter, String eventType, LocalDateTime now) {
+        StringBuilder sql = new StringBuilder("INSERT INTO statement_outbox (")
+                .append(StatementOutboxRepository.EVENT_COLUMNS)
+                .append(") SELECT ?, id, customer_id, statement_date, document_type, ?, file_size_bytes, ? FROM ")
+                .append(table);
+        List<Object> params = new ArrayList<>(List.of(eventType, DELETED, Timestamp.valueOf(now)));
+        appendNotDeleted(filter, sql, params);
+        return jdbcTemplate.update(sql.toString(), params.toArray());
+    }
+
+    /**
+     * Soft-delete every statement matching the filter that is not deleted yet. The
+     * version is bumped so JPA writers holding an older copy fail optimistically.
+     *
+     * @return counts of the changed rows by the status they had before
+     */
+    public Map<String, Counts> markDeleted(String table, StatementFilter filter, LocalDateTime now) {
+        StringBuilder sql = new StringBuilder("SELECT status, COUNT(*) AS statement_count,"
+                + " SUM(COALESCE(file_size_bytes, 0)) AS total_bytes FROM OLD TABLE (UPDATE ").append(table)
+                .append(" SET status = ?, updated_at = ?, version = version + 1");
+        List<Object> params = new ArrayList<>(List.of(DELETED, Timestamp.valueOf(now)));
+        appendNotDeleted(filter, sql, params);
+        sql.append(") GROUP BY status");
+        Map<String, Counts> previous = new LinkedHashMap<>();
+        jdbcTemplate.query(sql.toString(),
+                rs -> {
+                    previous.put(rs.getString("status"),
+                            new Counts(rs.getLong("statement_count"), rs.getLong("total_bytes")));
+                },
+                params.toArray());
+        return previous;
+    }
+
+    private static void appendNotDeleted(StatementFilter filter, StringBuilder sql, List<Object> params) {
+        StatementHistoryRepository.appendFilter(filter, sql, params);
+        sql.append(" AND status <> ?");
+        params.add(DELETED);
+    }
+
+    /**
+     * DELETED statements last changed before the cutoff, longest deleted first
+     */
+    public List<PurgeCandidate> findPurgeable(String table, LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.query("SELECT id, customer_id, document_path FROM " + table
+                        + " WHERE status = ? AND updated_at < ? ORDER BY updated_at FETCH FIRST " + limit + " ROWS ONLY",
+                CANDIDATE_MAPPER, DELETED, Timestamp.valueOf(cutoff));
+    }
+
+    /**
+     * Hard-delete the given statements if they are still DELETED and past the cutoff
+     *
+     * @return the rows actually deleted; rows changed or moved since they were selected are left
+     */
+    public List<StatementFacts> deletePurgeable(String table, Collection<String> ids, LocalDateTime cutoff) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Object> params = new ArrayList<>(ids);
+        params.add(DELETED);
+        params.add(Timestamp.valueOf(cutoff));
+        return jdbcTemplate.query("SELECT " + StatementSummaryRepository.FACT_COLUMNS + " FROM OLD TABLE (DELETE FROM "
+                        + table + " WHERE id IN (" + placeholders(ids.size()) + ") AND status = ? AND updated_at < ?)",
+                StatementSummaryRepository.FACTS_MAPPER, params.toArray());
+    }
+
+    /**
+     * Whether any statement in the given tables still has a document path starting with the prefix
+     */
+    public boolean isReferenced(Collection<String> tables, String documentPathPrefix) {
+        String pattern = documentPathPrefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        for (String table : tables) {
+            List<Integer> found = jdbcTemplate.queryForList("SELECT 1 FROM " + table
+                    + " WHERE document_path LIKE ? ESCAPE '\\' FETCH FIRST 1 ROWS ONLY", Integer.class, pattern);
+            if (!found.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * A DELETED statement eligible for purging
+     */
+    public static class PurgeCandidate {
+        private final String id;
+        private final String customerId;
+        private final String documentPath;
+
+        public PurgeCandidate(String id, String customerId, String documentPath) {
+            this.id = id;
+            this.customerId = customerId;
+            this.documentPath = documentPath;
+        }
+
+        public String getId() { return id; }
+        public String getCustomerId() { return customerId; }
+        public String getDocumentPath() { return documentPath; }
+    }
+}
@@ -0,0 +1,152 @@
+package com.ibm.cmod.ondemand.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * JDBC access to statement_outbox and the relay lock row. Appends join the
+ * caller's transaction, so an event exists if and only if its change commits.
+ */
+@Repository
+public class StatementOutboxRepository {
+
+    public static final String EVENT_COLUMNS = "event_type, statement_id, customer_id, statement_date, document_type,"
+            + " status, file_size_bytes, occurred_at";
+
+    private static final String INSERT = "INSERT INTO statement_outbox (" + EVENT_COLUMNS + ") VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final RowMapper<OutboxEvent> ROW_MAPPER = (rs, rowNum) -> {
+        long fileSize = rs.getLong("file_size_bytes");
+        Long fileSizeBytes = rs.wasNull() ? null : fileSize;
+        return new OutboxEvent(
+                rs.getLong("seq"),
+                rs.getString("event_type"),
+                rs.getString("statement_id"),
+                rs.getString("customer_id"),
+                rs.getDate("statement_date").toLocalDate(),
+                rs.getString("document_type"),
+                rs.getString("status"),
+                fileSizeBytes,
+                rs.getTimestamp("occurred_at").toLocalDateTime());
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StatementOutboxRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Insert the events as one multi-row INSERT; sequence numbers follow list order
+     */
+    public int appendAll(List<OutboxEvent> events) {
+        if (events.isEmpty()) {
+            return 0;
+        }
+        StringBuilder sql = new StringBuilder(INSERT.length() + events.size() * (ROW.length() + 2)).append(INSERT);
+        List<Object> params = new ArrayList<>(events.size() * 8);
+        for (OutboxEvent event : events) {
+            if (!params.isEmpty()) {
+                sql.append(", ");
+            }
+            sql.append(ROW);
+            params.add(event.getEventType());
+            params.add(event.getStatementId());
+            params.add(event.getCustomerId());
+            params.add(Date.valueOf(event.getStatementDate()));
+            params.add(event.getDocumentType());
+            params.add(event.getStatus());
+            params.add(event.getFileSizeBytes());
+            params.add(Timestamp.valueOf(event.getOccurredAt()));
+        }
+        return jdbcTemplate.update(sql.toString(), params.toArray());
+    }
+
+    /**
+     * Lock the relay row until the current transaction ends; another instance
+     * relaying at the same time waits here
+     *
+     * @return the highest sequence relayed so far
+     */
+    public long lockRelay() {
+        Long relayed = jdbcTemplate.queryForObject(
+                "SELECT relayed_seq FROM statement_outbox_relay WHERE id = 1 FOR UPDATE", Long.class);
+        return relayed != null ? relayed : 0L;
+    }
+
+    public void markRelayed(long seq, LocalDateTime at) {
+        jdbcTemplate.update("UPDATE statement_outbox_relay SET relayed_seq = GREATEST(relayed_seq, ?), relayed_at = ?"
+                + " WHERE id = 1", seq, Timestamp.valueOf(at));
+    }
+
+    /**
+     * The oldest committed events, in sequence order
+     */
+    public List<OutboxEvent> findFirst(int limit) {
+        return jdbcTemplate.query("SELECT seq, " + EVENT_COLUMNS + " FROM statement_outbox ORDER BY seq"
+                + " FETCH FIRST " + limit + " ROWS ONLY", ROW_MAPPER);
+    }
+
+    /**
+     * Delete delivered events by sequence. Not by range: an event with a lower
+     * sequence may commit after higher ones were read, and must stay.
+     */
+    public int deleteAll(Collection<Long> seqs) {
+        if (seqs.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update("DELETE FROM statement_outbox WHERE seq IN ("
+                + String.join(", ", Collections.nCopies(seqs.size(), "?")) + ")", seqs.toArray());
+    }
+
+    /**
+     * One statement change as delivered to the sinks. The sequence is null
+     * until stored; consumers use it to drop redelivered events.
+     */
+    public static class OutboxEvent {
+        private final Long seq;
+        private final String eventType;
+        private final String statementId;
+        private final String customerId;
+        private final LocalDate statementDate;
+        private final String documentType;
+        private final String status;
+        private final Long fileSizeBytes;
+        private final LocalDateTime occurredAt;
+
+        public OutboxEvent(Long seq, String eventType, String statementId, String customerId,
+                           LocalDate statementDate, String documentType, String status, Long fileSizeBytes,
+                           LocalDateTime occurredAt) {
+            this.seq = seq;
+            this.eventType = eventType;
+            this.statementId = statementId;
+            this.customerId = customerId;
+            this.statementDate = statementDate;
+            this.documentType = documentType;
+            this.status = status;
+            this.fileSizeBytes = fileSizeBytes;
+            this.occurredAt = occurredAt;
+        }
+
+        public Long getSeq() { return seq; }
+        public String getEventType() { return eventType; }
+        public String getStatementId() { return statementId; }
+        public String getCustomerId() { return customerId; }
+        public LocalDate getStatementDate() { return statementDate; }
+        public String getDocumentType() { return documentType; }
+        public String getStatus() { return status; }
+        public Long getFileSizeBytes() { return fileSizeBytes; }
+        public LocalDateTime getOccurredAt() { return occurredAt; }
+    }
+}
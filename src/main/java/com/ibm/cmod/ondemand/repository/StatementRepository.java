@@ -1,17 +1,39 @@
 package com.ibm.cmod.ondemand.repository;
 
+import com.ibm.cmod.ondemand.dto.StatementResponse;
 import com.ibm.cmod.ondemand.entity.Statement;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository interface for Statement entity
  */
 @Repository
-public interface StatementRepository extends JpaRepository<Statement, String> {
+public interface StatementRepository extends JpaRepository<Statement, String>, StatementSearchRepository {
+
+    /**
+     * Constructor expression building StatementResponse straight from columns,
+     * bypassing entity hydration, dirty-checking snapshots and version tracking
+     */
+    String RESPONSE_PROJECTION = "SELECT new com.ibm.cmod.ondemand.dto.StatementResponse("
+            + "s.id, s.customerId, s.statementDate, s.documentPath, s.documentType, s.status, "
+            + "s.fileSizeBytes, s.contentChecksum, s.createdAt, s.updatedAt, s.version) FROM Statement s";
+
+    /** Query cache regions of the metadata cache's loaders; any write to statements invalidates them */
+    String BY_ID_REGION = "statements.by-id";
+    String BY_CUSTOMER_REGION = "statements.by-customer";
 
     /**
      * Find statements by customer ID
@@ -27,4 +49,102 @@ public interface StatementRepository extends JpaRepository<Statement, String> {
      * Find statements by status
      */
     List<Statement> findByStatus(Statement.StatementStatus status);
+
+    /**
+     * Find a customer's statements in a date range with the given statuses, oldest first
+     */
+    List<Statement> findByCustomerIdAndStatementDateBetweenAndStatusInOrderByStatementDateAsc(
+            String customerId, LocalDate from, LocalDate to, Collection<Statement.StatementStatus> statuses,
+            Pageable pageable);
+
+    /**
+     * Find statements in a status whose statement date is before the cutoff, oldest first
+     */
+    List<Statement> findByStatusAndStatementDateBeforeOrderByStatementDateAsc(
+            Statement.StatementStatus status, LocalDate cutoff, Pageable pageable);
+
+    /**
+     * Read-only response projection of one statement
+     */
+    @Query(RESPONSE_PROJECTION + " WHERE s.id = :id")
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = BY_ID_REGION)
+    })
+    Optional<StatementResponse> findResponseById(@Param("id") String id);
+
+    /**
+     * Read-only response projections of a customer's statements
+     */
+    @Query(RESPONSE_PROJECTION + " WHERE s.customerId = :customerId")
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = BY_CUSTOMER_REGION)
+    })
+    List<StatementResponse> findResponsesByCustomerId(@Param("customerId") String customerId);
+
+    /**
+     * The live statement for a natural key, if any; rows in an inactive status (DELETED, FAILED) are ignored
+     */
+    @Query(RESPONSE_PROJECTION + " WHERE s.customerId = :customerId AND s.statementDate = :statementDate"
+            + " AND s.documentType = :documentType AND s.status NOT IN :inactive")
+    Optional<StatementResponse> findLiveResponseByNaturalKey(
+            @Param("customerId") String customerId,
+            @Param("statementDate") LocalDate statementDate,
+            @Param("documentType") String documentType,
+            @Param("inactive") Collection<Statement.StatementStatus> inactive);
+
+    /**
+     * IDs of statements in a status not modified since the cutoff, oldest first
+     */
+    @Query("SELECT s.id FROM Statement s WHERE s.status = :status AND s.updatedAt < :cutoff ORDER BY s.updatedAt ASC")
+    List<String> findIdsByStatusAndUpdatedAtBefore(@Param("status") Statement.StatementStatus status,
+                                                   @Param("cutoff") LocalDateTime cutoff,
+                                                   Pageable pageable);
+
+    /**
+     * Take over a statement still in the given status and untouched since the cutoff, bumping its
+     * version and modification time so no other instance claims it for another cutoff period
+     *
+     * @return 1 if claimed, 0 if the row changed meanwhile
+     */
+    @Modifying
+    @Query("UPDATE Statement s SET s.updatedAt = :now, s.version = s.version + 1"
+            + " WHERE s.id = :id AND s.status = :status AND s.updatedAt < :cutoff")
+    int claimStale(@Param("id") String id,
+                   @Param("status") Statement.StatementStatus status,
+                   @Param("cutoff") LocalDateTime cutoff,
+                   @Param("now") LocalDateTime now);
+
+    /**
+     * Fill in the checksum of a row stored without one. The version is left alone: the content is unchanged.
+     *
+     * @return 1 if stored, 0 if the row is not in the hot table or already has a checksum
+     */
+    @Modifying
+    @Query("UPDATE Statement s SET s.contentChecksum = :checksum WHERE s.id = :id AND s.contentChecksum IS NULL")
+    int backfillChecksum(@Param("id") String id, @Param("checksum") String checksum);
+
+    /**
+     * Read-only response projections for a set of IDs, in no particular order
+     */
+    @Query(RESPONSE_PROJECTION + " WHERE s.id IN :ids")
+    List<StatementResponse> findResponsesByIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * First keyset page of response projections, newest first
+     */
+    @Query(RESPONSE_PROJECTION + " ORDER BY s.createdAt DESC, s.id DESC")
+    List<StatementResponse> findFirstResponsePage(Pageable pageable);
+
+    /**
+     * Keyset page of response projections strictly after the given (createdAt, id) position, newest first.
+     * The leading range on createdAt lets the (created_at DESC, id DESC) index start at the position.
+     */
+    @Query(RESPONSE_PROJECTION + " WHERE s.createdAt <= :createdAt "
+            + "AND (s.createdAt < :createdAt OR s.id < :id) "
+            + "ORDER BY s.createdAt DESC, s.id DESC")
+    List<StatementResponse> findResponsePageAfter(@Param("createdAt") LocalDateTime createdAt,
+                                                  @Param("id") String id,
+                                                  Pageable pageable);
 }
@@ -0,0 +1,22 @@
+package com.ibm.cmod.ondemand.repository;
+
+import com.ibm.cmod.ondemand.dto.StatementFilter;
+import com.ibm.cmod.ondemand.dto.StatementResponse;
+import com.ibm.cmod.ondemand.util.PageCursor;
+
+import java.util.List;
+
+/**
+ * Dynamic multi-criteria statement search
+ */
+public interface StatementSearchRepository {
+
+    /**
+     * Find statements matching every non-null filter field, ordered by statement date then ID
+     *
+     * @param after       keyset position to continue after, or null for the first page
+     * @param newestFirst descending statement date when true
+     * @param maxResults  maximum number of rows to return
+     */
+    List<StatementResponse> search(StatementFilter filter, PageCursor after, boolean newestFirst, int maxResults);
+}
@@ -0,0 +1,100 @@
+package com.ibm.cmod.ondemand.repository;
+
+import com.ibm.cmod.ondemand.dto.StatementFilter;
+import com.ibm.cmod.ondemand.dto.StatementResponse;
+import com.ibm.cmod.ondemand.entity.Statement;
+import com.ibm.cmod.ondemand.util.PageCursor;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Criteria-based implementation of {@link StatementSearchRepository}. Only the
+ * predicates that are actually requested are added, so each query shape lines
+ * up with one of the covering indexes led by customer_id or status, and a
+ * newest-first page is read from it in order without a sort.
+ */
+public class StatementSearchRepositoryImpl implements StatementSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<StatementResponse> search(StatementFilter filter, PageCursor after,
+                                          boolean newestFirst, int maxResults) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<StatementResponse> query = cb.createQuery(StatementResponse.class);
+        Root<Statement> s = query.from(Statement.class);
+        Path<LocalDate> statementDate = s.get("statementDate");
+        Path<String> id = s.get("id");
+
+        query.select(cb.construct(StatementResponse.class,
+                id, s.get("customerId"), statementDate, s.get("documentPath"), s.get("documentType"),
+                s.get("status"), s.get("fileSizeBytes"), s.get("contentChecksum"),
+                s.get("createdAt"), s.get("updatedAt"), s.get("version")));
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.getCustomerId() != null) {
+            predicates.add(cb.equal(s.get("customerId"), filter.getCustomerId()));
+        }
+        if (filter.getDocumentType() != null) {
+            predicates.add(cb.equal(s.get("documentType"), filter.getDocumentType()));
+        }
+        Statement.StatementStatus status = filter.resolveStatus();
+        if (status != null) {
+            predicates.add(cb.equal(s.get("status"), status));
+        }
+        if (filter.getFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(statementDate, filter.getFrom()));
+        }
+        if (filter.getTo() != null) {
+            predicates.add(cb.lessThanOrEqualTo(statementDate, filter.getTo()));
+        }
+        if (after != null) {
+            // Range form: the bound on statement_date starts the index scan at the cursor
+            LocalDate afterDate = after.getPositionAsDate();
+            predicates.add(newestFirst
+                    ? cb.and(cb.lessThanOrEqualTo(statementDate, afterDate),
+                            cb.or(cb.lessThan(statementDate, afterDate), cb.lessThan(id, after.getId())))
+                    : cb.and(cb.greaterThanOrEqualTo(statementDate, afterDate),
+                            cb.or(cb.greaterThan(statementDate, afterDate), cb.greaterThan(id, after.getId()))));
+        }
+
+        query.where(predicates.toArray(new Predicate[0]));
+        query.orderBy(order(cb, s, filter, status, newestFirst));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    /**
+     * (statement_date, id) preceded by the equality-filtered columns the chosen index
+     * starts with. They are constant within the result, so the order is unchanged, but
+     * H2 only skips the sort when the ORDER BY is a prefix of the index.
+     */
+    private static List<Order> order(CriteriaBuilder cb, Root<Statement> s, StatementFilter filter,
+                                     Statement.StatementStatus status, boolean newestFirst) {
+        List<Order> order = new ArrayList<>();
+        if (filter.getCustomerId() != null) {
+            order.add(cb.asc(s.get("customerId")));
+            if (filter.getDocumentType() != null) {
+                order.add(cb.asc(s.get("documentType")));
+            }
+        } else if (status != null) {
+            order.add(cb.asc(s.get("status")));
+        }
+        order.add(newestFirst ? cb.desc(s.get("statementDate")) : cb.asc(s.get("statementDate")));
+        order.add(newestFirst ? cb.desc(s.get("id")) : cb.asc(s.get("id")));
+        return order;
+    }
+}
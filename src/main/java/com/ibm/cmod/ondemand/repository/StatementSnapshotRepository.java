@@ -0,0 +1,53 @@
+package com.ibm.cmod.ondemand.repository;
+
+import com.ibm.cmod.ondemand.dto.StatementResponse;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * Full scans of the columns the download path needs, for building the metadata snapshot
+ */
+@Repository
+public class StatementSnapshotRepository {
+
+    private static final String COLUMNS = "id, customer_id, statement_date, document_path, document_type, status, "
+            + "content_checksum, created_at, version";
+
+    private static final RowMapper<StatementResponse> SNAPSHOT_MAPPER = (rs, rowNum) -> StatementResponse.builder()
+            .id(rs.getString("id"))
+            .customerId(rs.getString("customer_id"))
+            .statementDate(rs.getObject("statement_date", LocalDate.class))
+            .documentPath(rs.getString("document_path"))
+            .documentType(rs.getString("document_type"))
+            .status(rs.getString("status"))
+            .contentChecksum(rs.getString("content_checksum"))
+            .createdAt(rs.getObject("created_at", LocalDateTime.class))
+            .version(rs.getObject("version", Integer.class))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StatementSnapshotRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Stream every row of the hot table or one history partition, in no particular order
+     */
+    public void scan(String table, int fetchSize, Consumer<StatementResponse> consumer) {
+        String sql = "SELECT " + COLUMNS + " FROM " + table;
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, rs -> {
+            consumer.accept(SNAPSHOT_MAPPER.mapRow(rs, 0));
+        });
+    }
+}
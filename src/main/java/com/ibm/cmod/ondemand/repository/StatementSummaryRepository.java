@@ -0,0 +1,296 @@
+package com.ibm.cmod.ondemand.repository;
+
+import com.ibm.cmod.ondemand.entity.Statement;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+
+/**
+ * JDBC access to statement_summary, the striped per-dimension counters, and the
+ * GROUP BY queries that recompute them from the statement tables.
+ */
+@Repository
+public class StatementSummaryRepository {
+
+    private static final String MERGE = "MERGE INTO statement_summary t USING (VALUES ";
+    private static final String ROW = "(CAST(? AS VARCHAR(20)), CAST(? AS VARCHAR(50)), CAST(? AS SMALLINT),"
+            + " CAST(? AS BIGINT), CAST(? AS BIGINT))";
+    private static final String MERGE_ACTION = ") s(dimension, dimension_key, stripe, statement_count, total_bytes)"
+            + " ON t.dimension = s.dimension AND t.dimension_key = s.dimension_key AND t.stripe = s.stripe"
+            + " WHEN MATCHED THEN UPDATE SET statement_count = t.statement_count + s.statement_count,"
+            + " total_bytes = t.total_bytes + s.total_bytes"
+            + " WHEN NOT MATCHED THEN INSERT (dimension, dimension_key, stripe, statement_count, total_bytes)"
+            + " VALUES (s.dimension, s.dimension_key, s.stripe, s.statement_count, s.total_bytes)";
+
+    /** Columns read by {@link #FACTS_MAPPER} */
+    public static final String FACT_COLUMNS = "id, customer_id, statement_date, status, document_type, file_size_bytes";
+
+    public static final RowMapper<StatementFacts> FACTS_MAPPER = (rs, rowNum) -> new StatementFacts(
+            rs.getString("id"),
+            rs.getString("customer_id"),
+            rs.getDate("statement_date").toLocalDate(),
+            rs.getString("status"),
+            rs.getString("document_type"),
+            rs.getLong("file_size_bytes"));
+
+    /**
+     * What a statement is counted under
+     */
+    public enum Dimension {
+        CUSTOMER("customer_id"),
+        STATEMENT_DATE("statement_date"),
+        STATUS("status"),
+        DOCUMENT_TYPE("document_type");
+
+        private final String column;
+
+        Dimension(String column) {
+            this.column = column;
+        }
+
+        public String keyOf(StatementFacts facts) {
+            switch (this) {
+                case CUSTOMER: return facts.getCustomerId();
+                case STATEMENT_DATE: return facts.getStatementDate().toString();
+                case STATUS: return facts.getStatus();
+                default: return facts.getDocumentType() != null ? facts.getDocumentType() : "";
+            }
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StatementSummaryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Add the deltas to one stripe of each key as a single MERGE, in the
+     * caller's transaction. Keys are applied in sorted order so concurrent
+     * writers lock shared rows in the same order.
+     */
+    public void add(SortedMap<Key, Counts> deltas, int stripe) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder(MERGE.length() + MERGE_ACTION.length() + deltas.size() * (ROW.length() + 2))
+                .append(MERGE);
+        List<Object> params = new ArrayList<>(deltas.size() * 5);
+        for (Map.Entry<Key, Counts> delta : deltas.entrySet()) {
+            if (!params.isEmpty()) {
+                sql.append(", ");
+            }
+            sql.append(ROW);
+            params.add(delta.getKey().getDimension().name());
+            params.add(delta.getKey().getValue());
+            params.add(stripe);
+            params.add(delta.getValue().getStatementCount());
+            params.add(delta.getValue().getTotalBytes());
+        }
+        sql.append(MERGE_ACTION);
+        try {
+            jdbcTemplate.update(sql.toString(), params.toArray());
+        } catch (DuplicateKeyException e) {
+            // A concurrent writer inserted one of the new rows first; now every row matches
+            jdbcTemplate.update(sql.toString(), params.toArray());
+        }
+    }
+
+    /**
+     * Every key of a dimension with its stripes summed; keys that sum to nothing are left out
+     */
+    public Map<String, Counts> findTotals(Dimension dimension) {
+        return totals(" WHERE dimension = ?", List.of(dimension.name()));
+    }
+
+    /**
+     * The given keys of a dimension with their stripes summed; keys never counted are absent
+     */
+    public Map<String, Counts> findTotals(Dimension dimension, Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<Object> params = new ArrayList<>(keys.size() + 1);
+        params.add(dimension.name());
+        params.addAll(keys);
+        return totals(" WHERE dimension = ? AND dimension_key IN (" + String.join(", ", Collections.nCopies(keys.size(), "?")) + ")",
+                params);
+    }
+
+    /**
+     * Statement-date keys within a range, oldest first
+     */
+    public Map<String, Counts> findDateTotals(LocalDate from, LocalDate to) {
+        return totals(" WHERE dimension = ? AND dimension_key BETWEEN ? AND ?",
+                List.of(Dimension.STATEMENT_DATE.name(), from.toString(), to.toString()));
+    }
+
+    private Map<String, Counts> totals(String where, List<Object> params) {
+        Map<String, Counts> totals = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT dimension_key, SUM(statement_count) AS statement_count, SUM(total_bytes) AS total_bytes"
+                        + " FROM statement_summary" + where + " GROUP BY dimension_key"
+                        + " HAVING SUM(statement_count) <> 0 OR SUM(total_bytes) <> 0 ORDER BY dimension_key",
+                rs -> {
+                    totals.put(rs.getString("dimension_key"),
+                            new Counts(rs.getLong("statement_count"), rs.getLong("total_bytes")));
+                },
+                params.toArray());
+        return totals;
+    }
+
+    /**
+     * Recompute a dimension from the given statement tables, with the latest change per key
+     */
+    public Map<String, Aggregate> aggregate(Dimension dimension, List<String> tables) {
+        StringBuilder union = new StringBuilder();
+        for (String table : tables) {
+            if (union.length() > 0) {
+                union.append(" UNION ALL ");
+            }
+            union.append("SELECT COALESCE(CAST(").append(dimension.column).append(" AS VARCHAR(50)), '') AS dimension_key,"
+                    + " COALESCE(file_size_bytes, 0) AS file_size_bytes, updated_at FROM ").append(table);
+        }
+        Map<String, Aggregate> aggregates = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT dimension_key, COUNT(*) AS statement_count, SUM(file_size_bytes) AS total_bytes,"
+                        + " MAX(updated_at) AS last_updated FROM (" + union + ") statements GROUP BY dimension_key",
+                rs -> {
+                    Timestamp lastUpdated = rs.getTimestamp("last_updated");
+                    aggregates.put(rs.getString("dimension_key"), new Aggregate(
+                            new Counts(rs.getLong("statement_count"), rs.getLong("total_bytes")),
+                            lastUpdated != null ? lastUpdated.toLocalDateTime() : null));
+                });
+        return aggregates;
+    }
+
+    public boolean isEmpty() {
+        return jdbcTemplate.queryForList("SELECT 1 FROM statement_summary FETCH FIRST 1 ROWS ONLY", Integer.class)
+                .isEmpty();
+    }
+
+    /**
+     * A summary counter: one key of one dimension
+     */
+    public static final class Key implements Comparable<Key> {
+        private final Dimension dimension;
+        private final String value;
+
+        public Key(Dimension dimension, String value) {
+            this.dimension = dimension;
+            this.value = value;
+        }
+
+        public Dimension getDimension() { return dimension; }
+        public String getValue() { return value; }
+
+        @Override
+        public int compareTo(Key other) {
+            int byDimension = dimension.compareTo(other.dimension);
+            return byDimension != 0 ? byDimension : value.compareTo(other.value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return dimension == key.dimension && value.equals(key.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(dimension, value);
+        }
+    }
+
+    /**
+     * Statement count and document bytes; deltas may be negative
+     */
+    public static final class Counts {
+        private final long statementCount;
+        private final long totalBytes;
+
+        public Counts(long statementCount, long totalBytes) {
+            this.statementCount = statementCount;
+            this.totalBytes = totalBytes;
+        }
+
+        public Counts plus(Counts other) {
+            return new Counts(statementCount + other.statementCount, totalBytes + other.totalBytes);
+        }
+
+        public Counts minus(Counts other) {
+            return new Counts(statementCount - other.statementCount, totalBytes - other.totalBytes);
+        }
+
+        public boolean isZero() {
+            return statementCount == 0 && totalBytes == 0;
+        }
+
+        public long getStatementCount() { return statementCount; }
+        public long getTotalBytes() { return totalBytes; }
+    }
+
+    /**
+     * A key recomputed from the statement tables
+     */
+    public static final class Aggregate {
+        private final Counts counts;
+        private final LocalDateTime lastUpdated;
+
+        public Aggregate(Counts counts, LocalDateTime lastUpdated) {
+            this.counts = counts;
+            this.lastUpdated = lastUpdated;
+        }
+
+        public Counts getCounts() { return counts; }
+        public LocalDateTime getLastUpdated() { return lastUpdated; }
+    }
+
+    /**
+     * The columns of a statement that the summary counts it under
+     */
+    public static final class StatementFacts {
+        private final String id;
+        private final String customerId;
+        private final LocalDate statementDate;
+        private final String status;
+        private final String documentType;
+        private final long fileSizeBytes;
+
+        public StatementFacts(String id, String customerId, LocalDate statementDate, String status,
+                              String documentType, long fileSizeBytes) {
+            this.id = id;
+            this.customerId = customerId;
+            this.statementDate = statementDate;
+            this.status = status;
+            this.documentType = documentType;
+            this.fileSizeBytes = fileSizeBytes;
+        }
+
+        public static StatementFacts of(Statement statement) {
+            return new StatementFacts(statement.getId(), statement.getCustomerId(), statement.getStatementDate(),
+                    statement.getStatus().name(), statement.getDocumentType(),
+                    statement.getFileSizeBytes() != null ? statement.getFileSizeBytes() : 0L);
+        }
+
+        public String getId() { return id; }
+        public String getCustomerId() { return customerId; }
+        public LocalDate getStatementDate() { return statementDate; }
+        public String getStatus() { return status; }
+        public String getDocumentType() { return documentType; }
+        public long getFileSizeBytes() { return fileSizeBytes; }
+    }
+}
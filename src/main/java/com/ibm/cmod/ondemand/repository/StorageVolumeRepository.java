@@ -0,0 +1,40 @@
+package com.ibm.cmod.ondemand.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JDBC access to storage_volumes, the volumes added at runtime
+ */
+@Repository
+public class StorageVolumeRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StorageVolumeRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Location and weight of every added volume, in the order they were added
+     */
+    public Map<String, Integer> findAll() {
+        Map<String, Integer> volumes = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT location, weight FROM storage_volumes ORDER BY added_at, location",
+                rs -> {
+                    volumes.put(rs.getString("location"), rs.getInt("weight"));
+                });
+        return volumes;
+    }
+
+    /**
+     * Record an added volume; a location recorded before keeps its first weight
+     */
+    public void insertIfAbsent(String location, int weight) {
+        jdbcTemplate.update("INSERT INTO storage_volumes (location, weight) SELECT ?, ?"
+                + " WHERE NOT EXISTS (SELECT 1 FROM storage_volumes WHERE location = ?)", location, weight, location);
+    }
+}
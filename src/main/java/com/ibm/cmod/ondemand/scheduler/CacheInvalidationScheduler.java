@@ -0,0 +1,48 @@
+package com.ibm.cmod.ondemand.scheduler;
+
+import com.ibm.cmod.ondemand.service.cache.ClusterInvalidationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scheduled polling of the statement change log for cache invalidations from other instances
+ */
+@Component
+@ConditionalOnProperty(name = "app.cache.invalidation.enabled", havingValue = "true", matchIfMissing = true)
+public class CacheInvalidationScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationScheduler.class);
+
+    private final ClusterInvalidationService clusterInvalidationService;
+
+    public CacheInvalidationScheduler(ClusterInvalidationService clusterInvalidationService) {
+        this.clusterInvalidationService = clusterInvalidationService;
+    }
+
+    /**
+     * Runs every second by default (configurable via app.cache.invalidation.poll-interval-ms)
+     */
+    @Scheduled(fixedDelayString = "${app.cache.invalidation.poll-interval-ms:1000}")
+    public void poll() {
+        try {
+            clusterInvalidationService.poll();
+        } catch (Exception e) {
+            logger.warn("Cache invalidation poll failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Hourly by default (configurable via app.cache.invalidation.purge-interval-ms)
+     */
+    @Scheduled(fixedDelayString = "${app.cache.invalidation.purge-interval-ms:3600000}")
+    public void purge() {
+        try {
+            clusterInvalidationService.purge();
+        } catch (Exception e) {
+            logger.error("Statement change log purge failed", e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.ibm.cmod.ondemand.scheduler;
+
+import com.ibm.cmod.ondemand.service.StatementService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scheduled removal of expired Idempotency-Key records
+ */
+@Component
+public class IdempotencyKeyPurgeScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyKeyPurgeScheduler.class);
+
+    private final StatementService statementService;
+
+    public IdempotencyKeyPurgeScheduler(StatementService statementService) {
+        this.statementService = statementService;
+    }
+
+    /**
+     * Runs hourly by default (configurable via app.idempotency.purge-interval-ms)
+     */
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval-ms:3600000}")
+    public void purge() {
+        try {
+            int deleted = statementService.purgeIdempotencyKeys();
+            if (deleted > 0) {
+                logger.info("Purged {} expired idempotency keys", deleted);
+            }
+        } catch (Exception e) {
+            logger.error("Idempotency key purge failed", e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.ibm.cmod.ondemand.scheduler;
+
+import com.ibm.cmod.ondemand.service.AsyncStatementService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scheduled requeue of asynchronously created statements stuck in PENDING
+ */
+@Component
+public class PendingStatementRecoveryScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(PendingStatementRecoveryScheduler.class);
+
+    private final AsyncStatementService asyncStatementService;
+
+    public PendingStatementRecoveryScheduler(AsyncStatementService asyncStatementService) {
+        this.asyncStatementService = asyncStatementService;
+    }
+
+    /**
+     * Runs every minute by default (configurable via app.async-create.recovery-interval-ms)
+     */
+    @Scheduled(fixedDelayString = "${app.async-create.recovery-interval-ms:60000}")
+    public void recover() {
+        try {
+            asyncStatementService.recoverStalePending();
+        } catch (Exception e) {
+            logger.error("Pending statement recovery failed", e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.ibm.cmod.ondemand.scheduler;
+
+import com.ibm.cmod.ondemand.config.ReplicaLagMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scheduled heartbeat on the primary and lag check of the read replicas
+ */
+@Component
+@ConditionalOnProperty(name = "app.read-replicas.enabled", havingValue = "true")
+public class ReplicaHeartbeatScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaHeartbeatScheduler.class);
+
+    private final ReplicaLagMonitor replicaLagMonitor;
+
+    public ReplicaHeartbeatScheduler(ReplicaLagMonitor replicaLagMonitor) {
+        this.replicaLagMonitor = replicaLagMonitor;
+    }
+
+    /**
+     * Runs every second by default (configurable via app.read-replicas.heartbeat-interval-ms)
+     */
+    @Scheduled(fixedRateString = "${app.read-replicas.heartbeat-interval-ms:1000}")
+    public void beat() {
+        try {
+            replicaLagMonitor.beat();
+        } catch (Exception e) {
+            logger.warn("Replica heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Runs every second by default (configurable via app.read-replicas.check-interval-ms)
+     */
+    @Scheduled(fixedDelayString = "${app.read-replicas.check-interval-ms:1000}")
+    public void check() {
+        try {
+            replicaLagMonitor.check();
+        } catch (Exception e) {
+            logger.warn("Replica lag check failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.ibm.cmod.ondemand.scheduler;
+
+import com.ibm.cmod.ondemand.service.outbox.StatementOutboxService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scheduled relay of outbox events to the statement event sinks
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.enabled", havingValue = "true", matchIfMissing = true)
+public class StatementOutboxScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementOutboxScheduler.class);
+
+    private final StatementOutboxService statementOutboxService;
+
+    public StatementOutboxScheduler(StatementOutboxService statementOutboxService) {
+        this.statementOutboxService = statementOutboxService;
+    }
+
+    /**
+     * Runs every second by default (configurable via app.outbox.relay-interval-ms)
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.relay-interval-ms:1000}")
+    public void relay() {
+        try {
+            statementOutboxService.relay();
+        } catch (Exception e) {
+            logger.warn("Statement outbox relay failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.ibm.cmod.ondemand.scheduler;
+
+import com.ibm.cmod.ondemand.dto.StatementPartitionResponse;
+import com.ibm.cmod.ondemand.service.StatementPartitionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Scheduled roll-off of aged months from the hot statements table into history partitions
+ */
+@Component
+@ConditionalOnProperty(name = "app.partitioning.enabled", havingValue = "true", matchIfMissing = true)
+public class StatementPartitionScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementPartitionScheduler.class);
+
+    private final StatementPartitionService statementPartitionService;
+
+    public StatementPartitionScheduler(StatementPartitionService statementPartitionService) {
+        this.statementPartitionService = statementPartitionService;
+    }
+
+    /**
+     * Runs daily at 4:00 AM by default (configurable via app.partitioning.cron). A month
+     * only moves once; later runs pick up rows that were PENDING or written back meanwhile.
+     */
+    @Scheduled(cron = "${app.partitioning.cron:0 0 4 * * ?}")
+    public void rollOff() {
+        try {
+            List<StatementPartitionResponse> rolled = statementPartitionService.rollOff();
+            if (!rolled.isEmpty()) {
+                logger.info("Partition roll-off updated {} partitions", rolled.size());
+            }
+        } catch (Exception e) {
+            logger.error("Partition roll-off failed", e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.ibm.cmod.ondemand.scheduler;
+
+import com.ibm.cmod.ondemand.dto.PurgeReportResponse;
+import com.ibm.cmod.ondemand.service.StatementLifecycleService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scheduled purge of statements DELETED for longer than the grace period
+ */
+@Component
+@ConditionalOnProperty(name = "app.purge.enabled", havingValue = "true", matchIfMissing = true)
+public class StatementPurgeScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementPurgeScheduler.class);
+
+    private final StatementLifecycleService statementLifecycleService;
+
+    public StatementPurgeScheduler(StatementLifecycleService statementLifecycleService) {
+        this.statementLifecycleService = statementLifecycleService;
+    }
+
+    /**
+     * Runs daily at 5:00 AM by default (configurable via app.purge.cron); rows
+     * beyond max-rows-per-run are left for the next run
+     */
+    @Scheduled(cron = "${app.purge.cron:0 0 5 * * ?}")
+    public void purge() {
+        try {
+            PurgeReportResponse report = statementLifecycleService.purge();
+            logger.info("Purge report: {} statements, {} files, {} bundles removed, {} failed, {}ms processing time",
+                    report.getPurgedCount(),
+                    report.getFilesDeleted(),
+                    report.getBundlesDeleted(),
+                    report.getFailedCount(),
+                    report.getProcessingTimeMs());
+        } catch (Exception e) {
+            logger.error("Statement purge job failed", e);
+        }
+    }
+}
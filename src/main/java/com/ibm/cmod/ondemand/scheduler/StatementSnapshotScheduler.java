@@ -0,0 +1,36 @@
+package com.ibm.cmod.ondemand.scheduler;
+
+import com.ibm.cmod.ondemand.service.cache.StatementMetadataSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scheduled rebuild of the statement metadata snapshot; the first run after startup builds it
+ */
+@Component
+@ConditionalOnProperty(name = "app.cache.snapshot.enabled", havingValue = "true", matchIfMissing = true)
+public class StatementSnapshotScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementSnapshotScheduler.class);
+
+    private final StatementMetadataSnapshot metadataSnapshot;
+
+    public StatementSnapshotScheduler(StatementMetadataSnapshot metadataSnapshot) {
+        this.metadataSnapshot = metadataSnapshot;
+    }
+
+    /**
+     * Checks every 10 seconds by default (configurable via app.cache.snapshot.check-interval-ms)
+     */
+    @Scheduled(fixedDelayString = "${app.cache.snapshot.check-interval-ms:10000}")
+    public void refresh() {
+        try {
+            metadataSnapshot.refreshIfDue();
+        } catch (Exception e) {
+            logger.error("Statement metadata snapshot refresh failed", e);
+        }
+    }
+}
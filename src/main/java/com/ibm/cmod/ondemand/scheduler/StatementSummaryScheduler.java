@@ -0,0 +1,36 @@
+package com.ibm.cmod.ondemand.scheduler;
+
+import com.ibm.cmod.ondemand.service.StatementSummaryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scheduled reconciliation of the statement summary against the statement tables
+ */
+@Component
+@ConditionalOnProperty(name = "app.summary.enabled", havingValue = "true", matchIfMissing = true)
+public class StatementSummaryScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementSummaryScheduler.class);
+
+    private final StatementSummaryService statementSummaryService;
+
+    public StatementSummaryScheduler(StatementSummaryService statementSummaryService) {
+        this.statementSummaryService = statementSummaryService;
+    }
+
+    /**
+     * Runs daily at 5:30 AM by default (configurable via app.summary.reconcile-cron)
+     */
+    @Scheduled(cron = "${app.summary.reconcile-cron:0 30 5 * * ?}")
+    public void reconcile() {
+        try {
+            statementSummaryService.reconcile();
+        } catch (Exception e) {
+            logger.error("Statement summary reconciliation failed", e);
+        }
+    }
+}
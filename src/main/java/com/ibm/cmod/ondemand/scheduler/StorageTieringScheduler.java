@@ -0,0 +1,47 @@
+package com.ibm.cmod.ondemand.scheduler;
+
+import com.ibm.cmod.ondemand.dto.TieringReportResponse;
+import com.ibm.cmod.ondemand.service.StorageTieringService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scheduled task moving aged statements to cold storage
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.tiering.enabled", havingValue = "true", matchIfMissing = true)
+public class StorageTieringScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageTieringScheduler.class);
+
+    private final StorageTieringService storageTieringService;
+
+    public StorageTieringScheduler(StorageTieringService storageTieringService) {
+        this.storageTieringService = storageTieringService;
+    }
+
+    /**
+     * Scheduled tiering task
+     * Runs daily at 3:30 AM by default (configurable via app.storage.tiering.cron)
+     */
+    @Scheduled(cron = "${app.storage.tiering.cron:0 30 3 * * ?}")
+    public void runTiering() {
+        logger.info("===== Starting Storage Tiering Job =====");
+
+        try {
+            TieringReportResponse report = storageTieringService.runTiering();
+            logger.info("Report: {} archived in {} bundles, {} failed, {}ms processing time",
+                    report.getArchivedCount(),
+                    report.getBundleCount(),
+                    report.getFailedCount(),
+                    report.getProcessingTimeMs());
+        } catch (Exception e) {
+            logger.error("Storage tiering job failed", e);
+        }
+
+        logger.info("===== Storage Tiering Job Completed =====");
+    }
+}
@@ -0,0 +1,384 @@
+package com.ibm.cmod.ondemand.service;
+
+import com.ibm.cmod.ondemand.dto.StatementRequest;
+import com.ibm.cmod.ondemand.dto.StatementResponse;
+import com.ibm.cmod.ondemand.entity.Statement;
+import com.ibm.cmod.ondemand.repository.StatementRepository;
+import com.ibm.cmod.ondemand.repository.StatementSummaryRepository.StatementFacts;
+import com.ibm.cmod.ondemand.service.cache.OffHeapDocumentCache;
+import com.ibm.cmod.ondemand.service.cache.StatementMetadataCache;
+import com.ibm.cmod.ondemand.service.odwek.ODWEKClient;
+import com.ibm.cmod.ondemand.service.outbox.StatementOutboxService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous statement creation. The request only stores a PENDING row and
+ * returns its ID; a bounded worker pool fetches the document from ODWEK,
+ * stores it and flips the row to AVAILABLE, or to FAILED when the fetch or
+ * store fails. Clients long-poll {@link #awaitStatement} for the outcome.
+ *
+ * When the queue is full the statement is not queued but left PENDING; the
+ * request thread never runs a fetch itself. Queued work is likewise lost with
+ * the instance, so PENDING rows untouched for longer than the pending timeout
+ * are claimed and processed again by whichever instance sees them first.
+ */
+@Service
+public class AsyncStatementService implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncStatementService.class);
+
+    private static final int MAX_COMPLETE_ATTEMPTS = 3;
+
+    private final StatementService statementService;
+    private final StatementRepository statementRepository;
+    private final ODWEKClient odwekClient;
+    private final FileStorageService fileStorageService;
+    private final OffHeapDocumentCache documentCache;
+    private final StatementMetadataCache metadataCache;
+    private final StatementSummaryService summaryService;
+    private final StatementOutboxService outboxService;
+    private final StatementCompletionNotifier completionNotifier;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong recovered = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+
+    private ThreadPoolExecutor workers;
+
+    @Value("${app.async-create.workers:8}")
+    private int workerCount;
+
+    @Value("${app.async-create.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${app.async-create.pending-timeout-ms:300000}")
+    private long pendingTimeoutMs;
+
+    @Value("${app.async-create.recovery-batch-size:100}")
+    private int recoveryBatchSize;
+
+    @Value("${app.async-create.max-wait-seconds:60}")
+    private int maxWaitSeconds;
+
+    public AsyncStatementService(StatementService statementService,
+                                 StatementRepository statementRepository,
+                                 ODWEKClient odwekClient,
+                                 FileStorageService fileStorageService,
+                                 OffHeapDocumentCache documentCache,
+                                 StatementMetadataCache metadataCache,
+                                 StatementSummaryService summaryService,
+                                 StatementOutboxService outboxService,
+                                 StatementCompletionNotifier completionNotifier,
+                                 PlatformTransactionManager transactionManager) {
+        this.statementService = statementService;
+        this.statementRepository = statementRepository;
+        this.odwekClient = odwekClient;
+        this.fileStorageService = fileStorageService;
+        this.documentCache = documentCache;
+        this.metadataCache = metadataCache;
+        this.summaryService = summaryService;
+        this.outboxService = outboxService;
+        this.completionNotifier = completionNotifier;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void init() {
+        workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "statement-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Rows still queued stay PENDING and are recovered after the pending timeout
+        workers.shutdownNow();
+    }
+
+    /**
+     * Store the statement as PENDING and fetch its document in the background.
+     * Idempotency-Key replay and natural-key deduplication behave as for the
+     * synchronous create; an existing statement is returned in whatever state it is in.
+     */
+    public StatementCreateResult createStatement(StatementRequest request, String idempotencyKey) {
+        return statementService.createStatement(request, idempotencyKey, this::createPending);
+    }
+
+    private StatementCreateResult createPending(StatementRequest request) {
+        Optional<StatementResponse> existing = statementService.findLiveByNaturalKey(request);
+        if (existing.isPresent()) {
+            logger.info("Statement already exists for customer {} on {}, not queueing again",
+                    request.getCustomerId(), request.getStatementDate());
+            return new StatementCreateResult(existing.get(), false);
+        }
+
+        Statement statement = statementService.newStatement(request);
+        Statement saved;
+        try {
+            saved = transactionTemplate.execute(status -> {
+                Statement inserted = statementRepository.saveAndFlush(statement);
+                metadataCache.invalidate(inserted);
+                summaryService.recordCreated(inserted);
+                outboxService.record(StatementOutboxService.EventType.CREATED, inserted);
+                return inserted;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another instance stored the same natural key first
+            return statementService.findLiveByNaturalKey(request)
+                    .map(winner -> new StatementCreateResult(winner, false))
+                    .orElseThrow(() -> e);
+        }
+
+        StatementResponse accepted = statementService.toResponse(saved);
+        statementService.auditCreated(saved);
+        submit(saved.getId());
+        logger.info("Statement {} accepted for asynchronous creation", saved.getId());
+        return new StatementCreateResult(accepted, true);
+    }
+
+    /**
+     * Current state of a statement once it leaves PENDING, or after the wait
+     * (capped at max-wait-seconds) elapses, whichever comes first
+     */
+    public CompletableFuture<StatementResponse> awaitStatement(String id, int waitSeconds) {
+        long wait = TimeUnit.SECONDS.toNanos(Math.max(0, Math.min(waitSeconds, maxWaitSeconds)));
+        return awaitUntil(id, System.nanoTime() + wait);
+    }
+
+    private CompletableFuture<StatementResponse> awaitUntil(String id, long deadline) {
+        // Register before reading so a completion between the read and the wait still wakes us
+        CompletableFuture<Void> signal = completionNotifier.register(id);
+        StatementResponse current;
+        try {
+            current = statementService.getStatement(id);
+        } catch (RuntimeException e) {
+            signal.cancel(false);
+            throw e;
+        }
+
+        long remaining = deadline - System.nanoTime();
+        if (!Statement.StatementStatus.PENDING.name().equals(current.getStatus()) || remaining <= 0) {
+            signal.cancel(false);
+            return CompletableFuture.completedFuture(current);
+        }
+        // A signal may be an unrelated change; read again and keep waiting until the deadline
+        return signal.completeOnTimeout(null, remaining, TimeUnit.NANOSECONDS)
+                .thenCompose(ignored -> awaitUntil(id, deadline));
+    }
+
+    /**
+     * Claim and requeue PENDING statements whose processing was lost, e.g. with a stopped instance
+     *
+     * @return number of statements requeued
+     */
+    public int recoverStalePending() {
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(pendingTimeoutMs));
+        List<String> stale = statementRepository.findIdsByStatusAndUpdatedAtBefore(
+                Statement.StatementStatus.PENDING, cutoff, PageRequest.of(0, recoveryBatchSize));
+
+        int requeued = 0;
+        for (String id : stale) {
+            if (queued.contains(id)) {
+                continue;
+            }
+            // The claim bumps updated_at, so only one instance requeues a given row per timeout
+            Integer claimed = transactionTemplate.execute(status -> statementRepository.claimStale(
+                    id, Statement.StatementStatus.PENDING, cutoff, LocalDateTime.now()));
+            if (claimed != null && claimed == 1) {
+                submit(id);
+                requeued++;
+            }
+        }
+        if (requeued > 0) {
+            recovered.addAndGet(requeued);
+            logger.warn("Requeued {} statements left PENDING for over {} ms", requeued, pendingTimeoutMs);
+        }
+        return requeued;
+    }
+
+    private void submit(String id) {
+        if (!queued.add(id)) {
+            return;
+        }
+        try {
+            workers.execute(() -> process(id));
+        } catch (RejectedExecutionException e) {
+            // Queue full or shutting down: the row stays PENDING for recovery to pick up
+            queued.remove(id);
+            deferred.incrementAndGet();
+            logger.warn("Worker queue full, statement {} stays PENDING until recovered after {} ms",
+                    id, pendingTimeoutMs);
+        }
+    }
+
+    /**
+     * Fetch and store the document of a PENDING statement, then flip it to AVAILABLE or FAILED
+     */
+    private void process(String id) {
+        try {
+            Optional<StatementResponse> pending = statementRepository.findResponseById(id)
+                    .filter(statement -> Statement.StatementStatus.PENDING.name().equals(statement.getStatus()));
+            if (pending.isEmpty()) {
+                // Deleted or completed by another instance meanwhile
+                return;
+            }
+
+            // Unmanaged copy; attachDocument stores the file and fills in its document fields
+            Statement fetched = Statement.builder()
+                    .id(id)
+                    .customerId(pending.get().getCustomerId())
+                    .statementDate(pending.get().getStatementDate())
+                    .documentType(pending.get().getDocumentType())
+                    .build();
+            byte[] afpData;
+            try {
+                afpData = odwekClient.fetchDocument(fetched.getCustomerId(), fetched.getStatementDate());
+                statementService.attachDocument(fetched, afpData);
+            } catch (RuntimeException e) {
+                logger.error("Asynchronous creation of statement {} failed", id, e);
+                discard(fetched);
+                markFailed(id);
+                return;
+            }
+
+            boolean stored;
+            try {
+                stored = complete(fetched);
+            } catch (RuntimeException e) {
+                // Left PENDING; recovery retries it after the pending timeout
+                logger.error("Failed to complete statement {}", id, e);
+                stored = false;
+            }
+            if (!stored) {
+                discard(fetched);
+                return;
+            }
+
+            documentCache.put(id, afpData, fetched.getContentChecksum());
+            completed.incrementAndGet();
+            logger.info("Statement {} is now AVAILABLE", id);
+        } catch (RuntimeException e) {
+            logger.error("Unexpected failure processing statement {}", id, e);
+        } finally {
+            queued.remove(id);
+            completionNotifier.signal(id);
+        }
+    }
+
+    /**
+     * Copy the stored document onto the row if it is still PENDING; a concurrent
+     * update of the row is retried against its new version
+     */
+    private boolean complete(Statement fetched) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Boolean stored = transactionTemplate.execute(status -> {
+                    Statement current = statementRepository.findById(fetched.getId()).orElse(null);
+                    if (current == null || current.getStatus() != Statement.StatementStatus.PENDING) {
+                        return false;
+                    }
+                    StatementFacts before = StatementFacts.of(current);
+                    current.setDocumentPath(fetched.getDocumentPath());
+                    current.setFileSizeBytes(fetched.getFileSizeBytes());
+                    current.setContentChecksum(fetched.getContentChecksum());
+                    current.setStatus(Statement.StatementStatus.AVAILABLE);
+                    statementRepository.saveAndFlush(current);
+                    metadataCache.invalidate(current);
+                    summaryService.recordChanged(before, current);
+                    outboxService.record(StatementOutboxService.EventType.UPDATED, current);
+                    return true;
+                });
+                return Boolean.TRUE.equals(stored);
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= MAX_COMPLETE_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void markFailed(String id) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> statementRepository.findById(id)
+                    .filter(statement -> statement.getStatus() == Statement.StatementStatus.PENDING)
+                    .ifPresent(statement -> {
+                        StatementFacts before = StatementFacts.of(statement);
+                        statement.setStatus(Statement.StatementStatus.FAILED);
+                        statementRepository.saveAndFlush(statement);
+                        metadataCache.invalidate(statement);
+                        summaryService.recordChanged(before, statement);
+                        outboxService.record(StatementOutboxService.EventType.UPDATED, statement);
+                        failed.incrementAndGet();
+                    }));
+        } catch (RuntimeException e) {
+            logger.error("Failed to mark statement {} FAILED; recovery will retry it", id, e);
+        }
+    }
+
+    private void discard(Statement statement) {
+        if (statement.getDocumentPath() != null) {
+            fileStorageService.deleteFile(fileStorageService.extractFilename(statement.getDocumentPath()));
+        }
+    }
+
+    public int getQueueSize() { return workers.getQueue().size(); }
+
+    public long getCompletedCount() { return completed.get(); }
+
+    public long getFailedCount() { return failed.get(); }
+
+    public long getRecoveredCount() { return recovered.get(); }
+
+    public long getDeferredCount() { return deferred.get(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("statements.async.completed", completed, AtomicLong::get)
+                .tag("outcome", "available")
+                .register(registry);
+        FunctionCounter.builder("statements.async.completed", failed, AtomicLong::get)
+                .tag("outcome", "failed")
+                .register(registry);
+        FunctionCounter.builder("statements.async.recovered", recovered, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("statements.async.deferred", deferred, AtomicLong::get)
+                .register(registry);
+        Gauge.builder("statements.async.queue.size", this, AsyncStatementService::getQueueSize)
+                .register(registry);
+        Gauge.builder("statements.async.waiters", completionNotifier, StatementCompletionNotifier::getWaiterCount)
+                .register(registry);
+    }
+}
@@ -0,0 +1,310 @@
+package com.ibm.cmod.ondemand.service;
+
+import com.ibm.cmod.ondemand.dto.BulkCreateResponse;
+import com.ibm.cmod.ondemand.dto.StatementRequest;
+import com.ibm.cmod.ondemand.dto.StatementResponse;
+import com.ibm.cmod.ondemand.entity.Statement;
+import com.ibm.cmod.ondemand.exception.InvalidRequestException;
+import com.ibm.cmod.ondemand.repository.StatementRepository;
+import com.ibm.cmod.ondemand.service.cache.OffHeapDocumentCache;
+import com.ibm.cmod.ondemand.service.cache.StatementMetadataCache;
+import com.ibm.cmod.ondemand.service.odwek.ODWEKClient;
+import com.ibm.cmod.ondemand.service.outbox.StatementOutboxService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Creates many statements in one call. Documents for a chunk are fetched from
+ * ODWEK concurrently on a bounded pool shared by all bulk requests, then the
+ * chunk's metadata is inserted in one JDBC-batched transaction. A failed item
+ * is reported in place without affecting the rest of the request. Items whose
+ * statement already exists, or that repeat an earlier item, are not fetched.
+ */
+@Service
+public class BulkStatementService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkStatementService.class);
+
+    private final StatementService statementService;
+    private final StatementRepository statementRepository;
+    private final ODWEKClient odwekClient;
+    private final FileStorageService fileStorageService;
+    private final OffHeapDocumentCache documentCache;
+    private final StatementMetadataCache metadataCache;
+    private final StatementSummaryService summaryService;
+    private final StatementOutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+
+    private ExecutorService fetchExecutor;
+
+    @Value("${app.bulk.max-items:1000}")
+    private int maxItems;
+
+    @Value("${app.bulk.chunk-size:50}")
+    private int chunkSize;
+
+    @Value("${app.bulk.fetch-parallelism:8}")
+    private int fetchParallelism;
+
+    public BulkStatementService(StatementService statementService,
+                                StatementRepository statementRepository,
+                                ODWEKClient odwekClient,
+                                FileStorageService fileStorageService,
+                                OffHeapDocumentCache documentCache,
+                                StatementMetadataCache metadataCache,
+                                StatementSummaryService summaryService,
+                                StatementOutboxService outboxService,
+                                PlatformTransactionManager transactionManager,
+                                Validator validator) {
+        this.statementService = statementService;
+        this.statementRepository = statementRepository;
+        this.odwekClient = odwekClient;
+        this.fileStorageService = fileStorageService;
+        this.documentCache = documentCache;
+        this.metadataCache = metadataCache;
+        this.summaryService = summaryService;
+        this.outboxService = outboxService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+    }
+
+    @PostConstruct
+    public void init() {
+        fetchExecutor = Executors.newFixedThreadPool(fetchParallelism, runnable -> {
+            Thread thread = new Thread(runnable, "bulk-odwek-fetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fetchExecutor.shutdownNow();
+    }
+
+    /**
+     * Create every valid statement in the list, returning one result per item in request order
+     */
+    public BulkCreateResponse createStatements(List<StatementRequest> requests) {
+        if (requests.isEmpty()) {
+            throw new InvalidRequestException("At least one statement is required");
+        }
+        if (requests.size() > maxItems) {
+            throw new InvalidRequestException(
+                    "Too many statements: " + requests.size() + " (maximum " + maxItems + ")");
+        }
+        logger.info("Starting bulk create of {} statements", requests.size());
+
+        BulkCreateResponse response = BulkCreateResponse.builder()
+                .startTime(LocalDateTime.now())
+                .build();
+
+        Map<String, Integer> firstIndexByKey = new HashMap<>();
+        try {
+            for (int from = 0; from < requests.size(); from += chunkSize) {
+                processChunk(requests, from, Math.min(from + chunkSize, requests.size()), firstIndexByKey, response);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Bulk create interrupted");
+            for (int i = response.getTotalProcessed(); i < requests.size(); i++) {
+                response.addFailure(i, customerIdOf(requests.get(i)), "Bulk create interrupted");
+            }
+        } finally {
+            response.setEndTime(LocalDateTime.now());
+            response.setProcessingTimeMs(Duration.between(response.getStartTime(), response.getEndTime()).toMillis());
+        }
+
+        logger.info("Bulk create completed: {} total, {} success, {} failed",
+                response.getTotalProcessed(), response.getSuccessCount(), response.getFailureCount());
+        return response;
+    }
+
+    private void processChunk(List<StatementRequest> requests, int from, int to,
+                              Map<String, Integer> firstIndexByKey, BulkCreateResponse response)
+            throws InterruptedException {
+        int size = to - from;
+        String[] errors = new String[size];
+        int[] duplicateOf = new int[size];
+        StatementResponse[] existing = new StatementResponse[size];
+        Statement[] statements = new Statement[size];
+        byte[][] documents = new byte[size][];
+
+        // Fetch and store concurrently; nothing here holds a database connection
+        List<Future<?>> futures = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            duplicateOf[i] = -1;
+            futures.add(null);
+            StatementRequest request = requests.get(from + i);
+            String violations = validate(request);
+            if (violations != null) {
+                errors[i] = violations;
+                continue;
+            }
+            // Repeats of a natural key within the request share the first item's outcome
+            int first = firstIndexByKey.merge(statementService.naturalKey(request), from + i, Math::min);
+            if (first != from + i) {
+                duplicateOf[i] = first;
+                continue;
+            }
+            int slot = i;
+            futures.set(i, fetchExecutor.submit(() -> {
+                Optional<StatementResponse> stored = statementService.findLiveByNaturalKey(request);
+                if (stored.isPresent()) {
+                    existing[slot] = stored.get();
+                    return;
+                }
+                Statement statement = statementService.newStatement(request);
+                byte[] afpData = odwekClient.fetchDocument(statement.getCustomerId(), statement.getStatementDate());
+                statementService.attachDocument(statement, afpData);
+                statements[slot] = statement;
+                documents[slot] = afpData;
+            }));
+        }
+        for (int i = 0; i < size; i++) {
+            if (futures.get(i) == null) {
+                continue;
+            }
+            try {
+                futures.get(i).get();
+            } catch (ExecutionException e) {
+                logger.error("Bulk create item {} failed", from + i, e.getCause());
+                errors[i] = e.getCause().getMessage();
+            }
+        }
+
+        List<Statement> fetched = new ArrayList<>(size);
+        for (Statement statement : statements) {
+            if (statement != null) {
+                fetched.add(statement);
+            }
+        }
+
+        // One transaction per chunk; inserts go out as JDBC batches
+        if (!fetched.isEmpty()) {
+            try {
+                persist(fetched);
+            } catch (DataIntegrityViolationException e) {
+                // A concurrent create took the natural key of some item; settle the chunk item by item
+                logger.warn("Bulk chunk starting at item {} hit an existing statement, persisting items one by one", from);
+                for (int i = 0; i < size; i++) {
+                    if (statements[i] != null) {
+                        persistOne(i, statements, existing, errors);
+                    }
+                }
+            } catch (RuntimeException e) {
+                logger.error("Failed to persist bulk chunk starting at item {}", from, e);
+                for (int i = 0; i < size; i++) {
+                    if (statements[i] != null) {
+                        discard(statements[i]);
+                        statements[i] = null;
+                        errors[i] = "Failed to persist statement: " + e.getMessage();
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (statements[i] != null) {
+                documentCache.put(statements[i].getId(), documents[i], statements[i].getContentChecksum());
+                statementService.auditCreated(statements[i]);
+                response.addSuccess(from + i, statementService.toResponse(statements[i]), true);
+            } else if (existing[i] != null) {
+                response.addSuccess(from + i, existing[i], false);
+            } else if (duplicateOf[i] >= 0) {
+                BulkCreateResponse.ItemResult first = response.getResults().get(duplicateOf[i]);
+                if (first.isSuccess()) {
+                    response.addSuccess(from + i, first.getStatement(), false);
+                } else {
+                    response.addFailure(from + i, first.getCustomerId(), first.getError());
+                }
+            } else {
+                response.addFailure(from + i, customerIdOf(requests.get(from + i)), errors[i]);
+            }
+        }
+    }
+
+    private void persist(List<Statement> statements) {
+        transactionTemplate.executeWithoutResult(status -> {
+            statementRepository.saveAll(statements);
+            statementRepository.flush();
+            statements.forEach(metadataCache::invalidate);
+            summaryService.recordCreated(statements);
+            outboxService.record(StatementOutboxService.EventType.CREATED, statements);
+        });
+    }
+
+    private void persistOne(int slot, Statement[] statements, StatementResponse[] existing, String[] errors) {
+        Statement statement = statements[slot];
+        // The failed batch may have assigned a version; start again as a new row
+        statement.setVersion(null);
+        try {
+            persist(List.of(statement));
+        } catch (DataIntegrityViolationException e) {
+            discard(statement);
+            statements[slot] = null;
+            existing[slot] = statementService.findLiveByNaturalKey(toRequest(statement)).orElse(null);
+            if (existing[slot] == null) {
+                errors[slot] = "Failed to persist statement: " + e.getMessage();
+            }
+        } catch (RuntimeException e) {
+            discard(statement);
+            statements[slot] = null;
+            errors[slot] = "Failed to persist statement: " + e.getMessage();
+        }
+    }
+
+    private void discard(Statement statement) {
+        fileStorageService.deleteFile(fileStorageService.extractFilename(statement.getDocumentPath()));
+    }
+
+    private StatementRequest toRequest(Statement statement) {
+        return StatementRequest.builder()
+                .customerId(statement.getCustomerId())
+                .statementDate(statement.getStatementDate())
+                .documentType(statement.getDocumentType())
+                .build();
+    }
+
+    private String validate(StatementRequest request) {
+        if (request == null) {
+            return "Statement request is required";
+        }
+        Set<ConstraintViolation<StatementRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private String customerIdOf(StatementRequest request) {
+        return request != null ? request.getCustomerId() : null;
+    }
+}
@@ -0,0 +1,221 @@
+package com.ibm.cmod.ondemand.service;
+
+import com.ibm.cmod.ondemand.exception.FileStorageException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Service for the cold storage tier. Archived documents live inside large
+ * compressed bundles; a document path of the form {@code <bundle>.zip!/<entry>}
+ * points into one of them. Reads restore single entries on demand into a
+ * short-lived restore area.
+ */
+@Service
+public class ColdStorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ColdStorageService.class);
+
+    private static final String ENTRY_SEPARATOR = "!/";
+    private static final DateTimeFormatter BUNDLE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    @Value("${app.storage.cold.location:./storage/cold}")
+    private String coldLocation;
+
+    @Value("${app.storage.cold.restore-location:./storage/cold-restore}")
+    private String restoreLocation;
+
+    @Value("${app.storage.cold.compression-level:6}")
+    private int compressionLevel;
+
+    @Value("${app.storage.cold.restore-ttl-hours:24}")
+    private long restoreTtlHours;
+
+    private Path coldRoot;
+    private Path restoreRoot;
+
+    @PostConstruct
+    public void init() {
+        this.coldRoot = Paths.get(coldLocation).toAbsolutePath().normalize();
+        this.restoreRoot = Paths.get(restoreLocation).toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(coldRoot);
+            Files.createDirectories(restoreRoot);
+            logger.info("Initialized cold storage at: {} (restore area: {})", coldRoot, restoreRoot);
+        } catch (IOException e) {
+            logger.error("Failed to initialize cold storage", e);
+            throw new FileStorageException("Failed to initialize cold storage", e);
+        }
+    }
+
+    /**
+     * Whether a document path points into a cold bundle
+     */
+    public static boolean isColdPath(String documentPath) {
+        return documentPath != null && documentPath.contains(ENTRY_SEPARATOR);
+    }
+
+    /**
+     * Write the given files into a new compressed bundle and return its path.
+     * The bundle only becomes visible once fully written and synced.
+     */
+    public Path writeBundle(List<Path> files) {
+        String name = "bundle-" + LocalDateTime.now().format(BUNDLE_TIMESTAMP) + "-"
+                + UUID.randomUUID().toString().substring(0, 8) + ".zip";
+        Path bundle = coldRoot.resolve(name);
+        Path temp = coldRoot.resolve(name + ".tmp");
+
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                ZipOutputStream zip = new ZipOutputStream(Channels.newOutputStream(channel));
+                zip.setLevel(compressionLevel);
+                for (Path file : files) {
+                    zip.putNextEntry(new ZipEntry(file.getFileName().toString()));
+                    Files.copy(file, zip);
+                    zip.closeEntry();
+                }
+                zip.finish();
+                zip.flush();
+                channel.force(true);
+            }
+            Files.move(temp, bundle, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Wrote cold bundle {} with {} documents", bundle.getFileName(), files.size());
+            return bundle;
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            logger.error("Failed to write cold bundle {}", name, e);
+            throw new FileStorageException("Failed to write cold bundle: " + name, e);
+        }
+    }
+
+    /**
+     * Build the document path of an entry inside a bundle
+     */
+    public String documentPath(Path bundle, String entryName) {
+        return bundle.toString() + ENTRY_SEPARATOR + entryName;
+    }
+
+    /**
+     * Path of the bundle a cold document path points into
+     */
+    public Path bundleOf(String documentPath) {
+        return Paths.get(documentPath.substring(0, documentPath.lastIndexOf(ENTRY_SEPARATOR)));
+    }
+
+    /**
+     * Document path prefix shared by every entry of a bundle
+     */
+    public String entryPrefix(Path bundle) {
+        return bundle.toString() + ENTRY_SEPARATOR;
+    }
+
+    /**
+     * Delete a bundle no statement points into any more
+     */
+    public boolean deleteBundle(Path bundle) {
+        try {
+            boolean deleted = Files.deleteIfExists(bundle);
+            if (deleted) {
+                logger.info("Deleted cold bundle {}", bundle.getFileName());
+            }
+            return deleted;
+        } catch (IOException e) {
+            logger.warn("Failed to delete cold bundle {}", bundle, e);
+            return false;
+        }
+    }
+
+    /**
+     * Return a readable local copy of a cold document, extracting it from its bundle if needed
+     */
+    public Path restore(String documentPath) {
+        int separator = documentPath.lastIndexOf(ENTRY_SEPARATOR);
+        Path bundle = Paths.get(documentPath.substring(0, separator));
+        String entryName = documentPath.substring(separator + ENTRY_SEPARATOR.length());
+
+        Path restored = restoreRoot.resolve(entryName).normalize();
+        if (!restored.startsWith(restoreRoot)) {
+            throw new FileStorageException("Invalid cold entry name: " + entryName);
+        }
+        if (Files.isReadable(restored)) {
+            touch(restored);
+            return restored;
+        }
+
+        try (ZipFile zip = new ZipFile(bundle.toFile())) {
+            ZipEntry entry = zip.getEntry(entryName);
+            if (entry == null) {
+                throw new FileStorageException("Entry " + entryName + " not found in cold bundle " + bundle);
+            }
+            Path temp = restoreRoot.resolve(entryName + "." + UUID.randomUUID() + ".tmp");
+            try (InputStream in = zip.getInputStream(entry);
+                 OutputStream out = Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW)) {
+                in.transferTo(out);
+            }
+            Files.move(temp, restored, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            logger.info("Restored {} from cold bundle {}", entryName, bundle.getFileName());
+            return restored;
+        } catch (IOException e) {
+            logger.error("Failed to restore {} from cold bundle {}", entryName, bundle, e);
+            throw new FileStorageException("Failed to restore document from cold storage: " + entryName, e);
+        }
+    }
+
+    /**
+     * Remove restored copies that have not been read within the restore TTL
+     */
+    public int purgeRestored() {
+        Instant cutoff = Instant.now().minus(Duration.ofHours(restoreTtlHours));
+        int purged = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(restoreRoot)) {
+            for (Path file : stream) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    Files.deleteIfExists(file);
+                    purged++;
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to purge cold restore area", e);
+        }
+        if (purged > 0) {
+            logger.info("Purged {} restored cold documents", purged);
+        }
+        return purged;
+    }
+
+    private void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            logger.debug("Failed to touch restored file {}", file, e);
+        }
+    }
+}
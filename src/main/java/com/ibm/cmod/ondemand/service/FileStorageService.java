@@ -1,6 +1,9 @@
 package com.ibm.cmod.ondemand.service;
 
 import com.ibm.cmod.ondemand.exception.FileStorageException;
+import com.ibm.cmod.ondemand.exception.InvalidRequestException;
+import com.ibm.cmod.ondemand.repository.StorageVolumeRepository;
+import com.ibm.cmod.ondemand.util.ConsistentHashRing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,30 +17,75 @@ import java.net.MalformedURLException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Service for managing file system storage
+ * Service for managing file system storage.
+ *
+ * Documents are spread over one or more storage volumes (mounts) by a weighted
+ * consistent-hash ring on the filename. Lookups go to the owning volume first
+ * and fall back to the others, so files that have not yet been moved by the
+ * rebalancer stay readable.
+ *
+ * Volumes added at runtime are recorded in storage_volumes and added to the
+ * configured ones on every start. Other instances pick them up when they restart.
  */
 @Service
 public class FileStorageService {
 
     private static final Logger logger = LoggerFactory.getLogger(FileStorageService.class);
 
+    /** A volume's share of the ring is its weight over the total; weights stay small so the ring does too */
+    public static final int MAX_VOLUME_WEIGHT = 100;
+
     @Value("${app.storage.location:./storage/afp-files}")
     private String storageLocation;
 
-    private Path rootLocation;
+    // Comma-separated volume roots, each optionally suffixed with @weight; defaults to app.storage.location
+    @Value("${app.storage.volumes:}")
+    private String[] volumeSpecs;
+
+    // Striped locks serializing deletes with rebalance moves of the same file
+    private static final int LOCK_STRIPES = 256;
+
+    private final StorageVolumeRepository volumeRepository;
+    private final Lock[] fileLocks = new Lock[LOCK_STRIPES];
+
+    private volatile ConsistentHashRing<Path> ring;
+
+    public FileStorageService(StorageVolumeRepository volumeRepository) {
+        this.volumeRepository = volumeRepository;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            fileLocks[i] = new ReentrantLock();
+        }
+    }
 
     @PostConstruct
     public void init() {
-        this.rootLocation = Paths.get(storageLocation);
-        try {
-            Files.createDirectories(rootLocation);
-            logger.info("Initialized file storage at: {}", rootLocation.toAbsolutePath());
-        } catch (IOException e) {
-            logger.error("Failed to initialize file storage", e);
-            throw new FileStorageException("Failed to initialize file storage", e);
+        Map<Path, Integer> volumes = new LinkedHashMap<>();
+        if (volumeSpecs == null || volumeSpecs.length == 0) {
+            volumes.put(prepareVolume(storageLocation), 1);
+        } else {
+            for (String spec : volumeSpecs) {
+                String trimmed = spec.trim();
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+                int at = trimmed.lastIndexOf('@');
+                String location = at > 0 ? trimmed.substring(0, at) : trimmed;
+                int weight = at > 0 ? parseWeight(trimmed.substring(at + 1), trimmed) : 1;
+                volumes.put(prepareVolume(location), weight);
+            }
         }
+        volumeRepository.findAll().forEach((location, weight) -> volumes.putIfAbsent(prepareVolume(location), weight));
+        this.ring = ConsistentHashRing.of(volumes);
+        logger.info("Initialized file storage on {} volume(s): {}", volumes.size(), volumes);
     }
 
     /**
@@ -49,7 +97,7 @@ public class FileStorageService {
                 throw new FileStorageException("Invalid filename: " + filename);
             }
 
-            Path destinationFile = rootLocation.resolve(filename).normalize().toAbsolutePath();
+            Path destinationFile = ownerOf(filename).resolve(filename).normalize().toAbsolutePath();
 
             // Create parent directories if they don't exist
             Files.createDirectories(destinationFile.getParent());
@@ -71,7 +119,7 @@ public class FileStorageService {
      */
     public Resource loadFile(String filename) {
         try {
-            Path file = rootLocation.resolve(filename).normalize();
+            Path file = locate(filename);
             Resource resource = new UrlResource(file.toUri());
 
             if (resource.exists() || resource.isReadable()) {
@@ -87,17 +135,35 @@ public class FileStorageService {
         }
     }
 
+    /**
+     * Resolve a stored file to its path for direct channel access
+     */
+    public Path resolveFile(String filename) {
+        Path file = locate(filename).toAbsolutePath();
+        if (!Files.isReadable(file)) {
+            logger.error("File not found or not readable: {}", filename);
+            throw new FileStorageException("File not found or not readable: " + filename);
+        }
+        return file;
+    }
+
     /**
      * Delete file from file system
      */
     public void deleteFile(String filename) {
+        Lock lock = lockFor(filename);
+        lock.lock();
         try {
-            Path file = rootLocation.resolve(filename).normalize();
-            Files.deleteIfExists(file);
+            // Remove every copy, including one left behind by an interrupted rebalance
+            for (Path volume : getVolumes()) {
+                Files.deleteIfExists(volume.resolve(filename).normalize());
+            }
             logger.info("Deleted file: {}", filename);
         } catch (IOException e) {
             logger.error("Failed to delete file: {}", filename, e);
             throw new FileStorageException("Failed to delete file: " + filename, e);
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -106,7 +172,7 @@ public class FileStorageService {
      */
     public long getFileSize(String filename) {
         try {
-            Path file = rootLocation.resolve(filename).normalize();
+            Path file = locate(filename);
             return Files.size(file);
         } catch (IOException e) {
             logger.error("Failed to get file size: {}", filename, e);
@@ -118,7 +184,110 @@ public class FileStorageService {
      * Check if file exists
      */
     public boolean fileExists(String filename) {
-        Path file = rootLocation.resolve(filename).normalize();
+        Path file = locate(filename);
         return Files.exists(file);
     }
+
+    /**
+     * Path of a stored file on whichever volume holds it, if any does
+     */
+    public Optional<Path> findFile(String filename) {
+        Path file = locate(filename).toAbsolutePath();
+        return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    /**
+     * Extract filename from full path
+     */
+    public String extractFilename(String path) {
+        if (path == null) return null;
+        int lastSeparator = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+        return lastSeparator >= 0 ? path.substring(lastSeparator + 1) : path;
+    }
+
+    /**
+     * Volume that should hold the given file under the current ring
+     */
+    public Path ownerOf(String filename) {
+        return ring.nodeFor(filename);
+    }
+
+    /**
+     * All configured volume roots
+     */
+    public List<Path> getVolumes() {
+        return new ArrayList<>(ring.getWeights().keySet());
+    }
+
+    public Map<Path, Integer> getVolumeWeights() {
+        return ring.getWeights();
+    }
+
+    /**
+     * Add a volume at runtime. New writes follow the new ring immediately;
+     * existing files are moved by the rebalancer and stay readable meanwhile.
+     */
+    public synchronized Path addVolume(String location, int weight) {
+        checkWeight(weight, location);
+        Path volume = prepareVolume(location);
+        if (ring.getWeights().containsKey(volume)) {
+            throw new FileStorageException("Storage volume already configured: " + volume);
+        }
+        volumeRepository.insertIfAbsent(volume.toString(), weight);
+        ring = ring.with(volume, weight);
+        logger.info("Added storage volume {} with weight {}", volume, weight);
+        return volume;
+    }
+
+    /**
+     * Lock held while a file is deleted or moved between volumes, so a delete
+     * cannot miss a copy that a concurrent move is about to publish
+     */
+    Lock lockFor(String filename) {
+        return fileLocks[Math.floorMod(filename.hashCode(), LOCK_STRIPES)];
+    }
+
+    /**
+     * Owning volume first, then any other volume that still holds the file
+     */
+    private Path locate(String filename) {
+        Path owned = ownerOf(filename).resolve(filename).normalize();
+        if (Files.exists(owned)) {
+            return owned;
+        }
+        for (Path volume : getVolumes()) {
+            Path candidate = volume.resolve(filename).normalize();
+            if (Files.exists(candidate)) {
+                return candidate;
+            }
+        }
+        return owned;
+    }
+
+    private static int parseWeight(String weight, String spec) {
+        try {
+            return checkWeight(Integer.parseInt(weight.trim()), spec);
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("Invalid storage volume weight in app.storage.volumes: " + spec, e);
+        }
+    }
+
+    private static int checkWeight(int weight, String volume) {
+        if (weight < 1 || weight > MAX_VOLUME_WEIGHT) {
+            throw new InvalidRequestException("Storage volume weight must be between 1 and " + MAX_VOLUME_WEIGHT
+                    + ": " + volume + " has " + weight);
+        }
+        return weight;
+    }
+
+    private Path prepareVolume(String location) {
+        Path volume = Paths.get(location).toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(volume);
+            return volume;
+        } catch (IOException e) {
+            logger.error("Failed to initialize storage volume {}", volume, e);
+            throw new FileStorageException("Failed to initialize storage volume: " + volume, e);
+        }
+    }
 }
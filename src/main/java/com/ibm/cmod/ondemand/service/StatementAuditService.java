@@ -0,0 +1,387 @@
+package com.ibm.cmod.ondemand.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibm.cmod.ondemand.repository.StatementAuditRepository;
+import com.ibm.cmod.ondemand.repository.StatementAuditRepository.AuditEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Audit trail of statement creates, updates, deletes and downloads in statement_audit.
+ *
+ * Recording an event only offers it to a bounded in-memory ring once the
+ * caller's transaction commits; the request never waits on the database. One
+ * writer thread drains the ring every flush interval, or as soon as a batch
+ * fills, and writes each batch as a single multi-row INSERT.
+ *
+ * Events that cannot reach the database are appended to a local spill file
+ * instead of being dropped: batches that fail to insert, everything drained
+ * while the database stays unavailable, and the ring left at shutdown. When
+ * the ring is full the event goes to a bounded overflow queue that the writer
+ * spills, so the request thread never touches the file; only when that is full
+ * too is the event dropped. The writer replays the spill file, oldest first,
+ * once inserts succeed again.
+ *
+ * Events are only durable once inserted or spilled. Those still in the ring or
+ * the overflow queue, up to a flush interval's worth in normal operation, are
+ * lost if the process dies without a clean shutdown.
+ */
+@Service
+public class StatementAuditService implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementAuditService.class);
+
+    private static final int MAX_DETAILS_LENGTH = 1000;
+
+    public enum Action { CREATE, UPDATE, DELETE, DOWNLOAD, PURGE }
+
+    private final StatementAuditRepository auditRepository;
+    private final ObjectMapper objectMapper;
+
+    private final Object spillLock = new Object();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private ArrayBlockingQueue<AuditEvent> ring;
+    private ArrayBlockingQueue<AuditEvent> overflow;
+    private Thread writer;
+    private volatile boolean running;
+    private volatile boolean databaseAvailable = true;
+
+    private Path spillFile;
+    private Path replayFile;
+    /** Lines of the replay file already inserted; only touched by the writer */
+    private long replayedLines;
+
+    @Value("${app.audit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.audit.ring-capacity:10000}")
+    private int ringCapacity;
+
+    @Value("${app.audit.overflow-capacity:10000}")
+    private int overflowCapacity;
+
+    @Value("${app.audit.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.audit.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${app.audit.spill-file:./storage/audit/audit-spill.ndjson}")
+    private String spillLocation;
+
+    public StatementAuditService(StatementAuditRepository auditRepository, ObjectMapper objectMapper) {
+        this.auditRepository = auditRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        ring = new ArrayBlockingQueue<>(ringCapacity);
+        overflow = new ArrayBlockingQueue<>(overflowCapacity);
+        spillFile = Paths.get(spillLocation).toAbsolutePath().normalize();
+        replayFile = spillFile.resolveSibling(spillFile.getFileName() + ".replay");
+        Files.createDirectories(spillFile.getParent());
+        if (!enabled) {
+            return;
+        }
+        if (Files.exists(spillFile) || Files.exists(replayFile)) {
+            logger.warn("Audit events spilled by a previous run will be replayed from {}", spillFile.getParent());
+        }
+        running = true;
+        writer = new Thread(this::runWriter, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Whatever the writer did not get to goes to the database, or the spill file
+        spillOverflow();
+        drainRing();
+    }
+
+    /**
+     * Record an action once the current transaction commits; a rolled-back change is not audited
+     */
+    public void record(String statementId, Action action, String details) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(statementId, action, details);
+                }
+            });
+        } else {
+            enqueue(statementId, action, details);
+        }
+    }
+
+    private void enqueue(String statementId, Action action, String details) {
+        AuditEvent event = new AuditEvent(statementId, action.name(), LocalDateTime.now(), truncate(details));
+        if (!ring.offer(event)) {
+            // Ring full: the database is behind; have the writer spill it rather than wait here
+            if (!overflow.offer(event)) {
+                dropped.incrementAndGet();
+            }
+            LockSupport.unpark(writer);
+            return;
+        }
+        if (ring.size() >= batchSize) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void runWriter() {
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (running) {
+            if (ring.size() < batchSize && overflow.isEmpty()) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                logger.error("Audit flush failed", e);
+            }
+        }
+    }
+
+    /**
+     * Spill the overflow, replay spilled events, then write out the ring
+     */
+    void flush() {
+        spillOverflow();
+        if (replaySpill()) {
+            drainRing();
+        } else {
+            // Still unavailable: keep the ring free for new events
+            List<AuditEvent> batch = new ArrayList<>(batchSize);
+            while (ring.drainTo(batch, batchSize) > 0) {
+                spill(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void spillOverflow() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (overflow.drainTo(batch, batchSize) > 0) {
+            spill(batch);
+            batch.clear();
+        }
+    }
+
+    private void drainRing() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (ring.drainTo(batch, batchSize) > 0) {
+            if (!insert(batch)) {
+                spill(batch);
+            }
+            batch.clear();
+        }
+    }
+
+    private boolean insert(List<AuditEvent> batch) {
+        try {
+            auditRepository.insertAll(batch);
+            written.addAndGet(batch.size());
+            if (!databaseAvailable) {
+                logger.info("Audit inserts succeed again");
+                databaseAvailable = true;
+            }
+            return true;
+        } catch (DataAccessException e) {
+            if (databaseAvailable) {
+                logger.warn("Audit insert of {} events failed, spilling to {}: {}",
+                        batch.size(), spillFile, e.getMessage());
+                databaseAvailable = false;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Insert the spilled events, oldest file first. The file being replayed is
+     * set aside so new spills go to a fresh one.
+     *
+     * @return true once nothing is left to replay
+     */
+    private boolean replaySpill() {
+        try {
+            while (true) {
+                if (!Files.exists(replayFile)) {
+                    synchronized (spillLock) {
+                        if (!Files.exists(spillFile)) {
+                            return true;
+                        }
+                        Files.move(spillFile, replayFile, StandardCopyOption.ATOMIC_MOVE);
+                    }
+                    replayedLines = 0;
+                }
+                if (!replayFile()) {
+                    return false;
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to replay audit spill file {}", replayFile, e);
+            return false;
+        }
+    }
+
+    /**
+     * Insert the rest of the replay file and delete it
+     *
+     * @return false if an insert failed; the next call resumes after the last inserted batch
+     */
+    private boolean replayFile() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(replayFile, StandardCharsets.UTF_8)) {
+            List<AuditEvent> batch = new ArrayList<>(batchSize);
+            long line = 0;
+            int batchLines = 0;
+            String json;
+            while ((json = reader.readLine()) != null) {
+                if (line++ < replayedLines) {
+                    continue;
+                }
+                batchLines++;
+                AuditEvent event = readEvent(json, line);
+                if (event != null) {
+                    batch.add(event);
+                }
+                if (batchLines == batchSize) {
+                    if (!insert(batch)) {
+                        return false;
+                    }
+                    replayedLines += batchLines;
+                    batch.clear();
+                    batchLines = 0;
+                }
+            }
+            if (!batch.isEmpty() && !insert(batch)) {
+                return false;
+            }
+            replayedLines += batchLines;
+        }
+
+        logger.info("Replayed {} spilled audit events", replayedLines);
+        Files.delete(replayFile);
+        replayedLines = 0;
+        return true;
+    }
+
+    private AuditEvent readEvent(String json, long line) {
+        try {
+            return objectMapper.readValue(json, AuditEvent.class);
+        } catch (IOException e) {
+            // A line cut short by a crash mid-append
+            logger.warn("Skipping unreadable audit spill line {}: {}", line, e.getMessage());
+            dropped.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Append events to the spill file and force them to disk
+     */
+    private void spill(List<AuditEvent> events) {
+        StringBuilder lines = new StringBuilder(events.size() * 160);
+        try {
+            for (AuditEvent event : events) {
+                lines.append(objectMapper.writeValueAsString(event)).append('\n');
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            synchronized (spillLock) {
+                try (FileChannel channel = FileChannel.open(spillFile, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    channel.force(false);
+                }
+            }
+            spilled.addAndGet(events.size());
+        } catch (IOException e) {
+            logger.error("Failed to spill {} audit events to {}; they are lost", events.size(), spillFile, e);
+            dropped.addAndGet(events.size());
+        }
+    }
+
+    private static String truncate(String details) {
+        return details != null && details.length() > MAX_DETAILS_LENGTH
+                ? details.substring(0, MAX_DETAILS_LENGTH)
+                : details;
+    }
+
+    public int getQueuedCount() { return ring != null ? ring.size() + overflow.size() : 0; }
+
+    public long getSpillFileBytes() {
+        long bytes = 0;
+        for (Path file : List.of(spillFile, replayFile)) {
+            try {
+                bytes += Files.size(file);
+            } catch (IOException e) {
+                // Not there, or just moved
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("statements.audit.written", written, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("statements.audit.spilled", spilled, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("statements.audit.dropped", dropped, AtomicLong::get)
+                .register(registry);
+        Gauge.builder("statements.audit.queue.size", this, StatementAuditService::getQueuedCount)
+                .register(registry);
+        Gauge.builder("statements.audit.spill.bytes", this, StatementAuditService::getSpillFileBytes)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
@@ -0,0 +1,55 @@
+package com.ibm.cmod.ondemand.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Wakes long-poll requests waiting on a statement. A waiter registers before
+ * it reads the row, so a change committed between the read and the wait is
+ * never missed; on a signal it reads the row again.
+ *
+ * Signals come from the local pending-statement workers and from invalidations
+ * logged by other instances, so a waiter hears about completions anywhere in
+ * the cluster.
+ */
+@Component
+public class StatementCompletionNotifier {
+
+    private final ConcurrentMap<String, Set<CompletableFuture<Void>>> waiters = new ConcurrentHashMap<>();
+
+    /**
+     * Future completed on the next signal for the statement
+     */
+    public CompletableFuture<Void> register(String statementId) {
+        CompletableFuture<Void> signal = new CompletableFuture<>();
+        waiters.compute(statementId, (id, registered) -> {
+            Set<CompletableFuture<Void>> set = registered != null ? registered : ConcurrentHashMap.newKeySet();
+            set.add(signal);
+            return set;
+        });
+        // Timed-out or abandoned waiters must not pile up under a statement that never changes
+        signal.whenComplete((ignored, error) -> waiters.computeIfPresent(statementId, (id, set) -> {
+            set.remove(signal);
+            return set.isEmpty() ? null : set;
+        }));
+        return signal;
+    }
+
+    /**
+     * Wake every waiter of the statement
+     */
+    public void signal(String statementId) {
+        Set<CompletableFuture<Void>> signalled = waiters.remove(statementId);
+        if (signalled != null) {
+            signalled.forEach(signal -> signal.complete(null));
+        }
+    }
+
+    public int getWaiterCount() {
+        return waiters.values().stream().mapToInt(Set::size).sum();
+    }
+}
@@ -0,0 +1,21 @@
+package com.ibm.cmod.ondemand.service;
+
+import com.ibm.cmod.ondemand.dto.StatementResponse;
+
+/**
+ * Outcome of an idempotent create: the statement, and whether this call created it
+ */
+public class StatementCreateResult {
+
+    private final StatementResponse statement;
+    private final boolean created;
+
+    public StatementCreateResult(StatementResponse statement, boolean created) {
+        this.statement = statement;
+        this.created = created;
+    }
+
+    public StatementResponse getStatement() { return statement; }
+
+    public boolean isCreated() { return created; }
+}
@@ -0,0 +1,154 @@
+package com.ibm.cmod.ondemand.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibm.cmod.ondemand.dto.StatementFilter;
+import com.ibm.cmod.ondemand.entity.Statement;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams statement metadata as newline-delimited JSON from a forward-only
+ * database cursor. Rows are mapped, written and evicted from the persistence
+ * context in small chunks, so heap use stays flat for any table size.
+ *
+ * The hot table is exported first, then each history partition overlapping
+ * the date range, oldest month first. Within each, rows come in the order of
+ * the index the filter is served from, not in any guaranteed order.
+ */
+@Service
+public class StatementExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementExportService.class);
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final StatementService statementService;
+    private final StatementPartitionService partitionService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.export.fetch-size:500}")
+    private int fetchSize;
+
+    @Value("${app.export.flush-every:500}")
+    private int flushEvery;
+
+    public StatementExportService(StatementService statementService,
+                                  StatementPartitionService partitionService,
+                                  ObjectMapper objectMapper) {
+        this.statementService = statementService;
+        this.partitionService = partitionService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Write every statement matching the filter to the stream, one JSON object per line
+     *
+     * @return number of rows written
+     */
+    @Transactional(readOnly = true)
+    public long export(StatementFilter filter, OutputStream out) throws IOException {
+        logger.info("Starting NDJSON export (from {}, to {}, status {}, type {})",
+                filter.getFrom(), filter.getTo(), filter.getStatus(), filter.getDocumentType());
+
+        Session session = entityManager.unwrap(Session.class);
+        org.hibernate.query.Query<Statement> query = session.createQuery(selectMatching(filter))
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .setCacheable(false)
+                // A full scan would otherwise push every hot entry out of the second-level cache
+                .setCacheMode(CacheMode.IGNORE);
+
+        long count = 0;
+        try (ScrollableResults rows = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (rows.next()) {
+                Statement statement = (Statement) rows.get(0);
+                out.write(objectMapper.writeValueAsBytes(statementService.toResponse(statement)));
+                out.write(NEWLINE);
+
+                // First row goes out immediately; afterwards flush and drop managed rows per chunk
+                if (++count == 1 || count % flushEvery == 0) {
+                    session.clear();
+                    out.flush();
+                }
+            }
+        }
+
+        long[] historyCount = {0};
+        try {
+            partitionService.stream(filter, fetchSize, statement -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(statement));
+                    out.write(NEWLINE);
+                    if (++historyCount[0] % flushEvery == 0) {
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        count += historyCount[0];
+        out.flush();
+
+        logger.info("NDJSON export completed: {} rows", count);
+        return count;
+    }
+
+    /**
+     * Only the supplied criteria become predicates, so the database can pick the
+     * date or status index. There is no ORDER BY: no index serves every filter
+     * combination in one order, and a sort would read the whole result before
+     * the first row could be sent.
+     */
+    private CriteriaQuery<Statement> selectMatching(StatementFilter filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Statement> query = cb.createQuery(Statement.class);
+        Root<Statement> s = query.from(Statement.class);
+        Path<LocalDate> statementDate = s.get("statementDate");
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.getCustomerId() != null) {
+            predicates.add(cb.equal(s.get("customerId"), filter.getCustomerId()));
+        }
+        if (filter.getDocumentType() != null) {
+            predicates.add(cb.equal(s.get("documentType"), filter.getDocumentType()));
+        }
+        Statement.StatementStatus status = filter.resolveStatus();
+        if (status != null) {
+            predicates.add(cb.equal(s.get("status"), status));
+        }
+        if (filter.getFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(statementDate, filter.getFrom()));
+        }
+        if (filter.getTo() != null) {
+            predicates.add(cb.lessThanOrEqualTo(statementDate, filter.getTo()));
+        }
+        return query.select(s).where(predicates.toArray(new Predicate[0]));
+    }
+}
@@ -0,0 +1,607 @@
+package com.ibm.cmod.ondemand.service;
+
+import com.ibm.cmod.ondemand.dto.ImportReportResponse;
+import com.ibm.cmod.ondemand.dto.StatementPartitionResponse;
+import com.ibm.cmod.ondemand.entity.Statement;
+import com.ibm.cmod.ondemand.exception.InvalidRequestException;
+import com.ibm.cmod.ondemand.repository.StatementImportRepository;
+import com.ibm.cmod.ondemand.service.cache.StatementMetadataCache;
+import com.ibm.cmod.ondemand.service.outbox.StatementOutboxService;
+import com.ibm.cmod.ondemand.util.TimeOrderedIds;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Imports existing statements from a CMOD index export in the staging
+ * directory, linking documents already copied onto the storage volumes
+ * instead of fetching them from ODWEK.
+ *
+ * The file is CSV with one statement per line: customer ID, statement date,
+ * document type (blank for the default), document path and optionally the
+ * size in bytes, used when documents are not verified; a first line starting
+ * with customer_id is a header. One
+ * reader streams and validates lines and hands batches to a pool of writers,
+ * each inserting its batch as one JDBC batch in its own transaction. At most
+ * two batches per writer are in flight, so memory does not grow with the file.
+ *
+ * Rows already live under the same natural key, in the hot table or in the
+ * attached history partition of their month, are skipped, which makes a
+ * restart or a re-import of rolled-off months safe. The report's committed offset is where every earlier line has
+ * been stored or rejected; writers finish out of order, so lines beyond it may
+ * be stored too and are skipped as duplicates on the restart.
+ */
+@Service
+public class StatementImportService implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementImportService.class);
+
+    private static final String DEFAULT_DOCUMENT_TYPE = "MONTHLY_STATEMENT";
+    private static final int MAX_LINE_BYTES = 8192;
+    private static final int MAX_REPORTED_REJECTS = 100;
+    private static final long PROGRESS_LOG_ROWS = 100_000;
+
+    private final StatementImportRepository importRepository;
+    private final StatementService statementService;
+    private final FileStorageService fileStorageService;
+    private final StatementMetadataCache metadataCache;
+    private final StatementSummaryService summaryService;
+    private final StatementOutboxService outboxService;
+    private final StatementPartitionService partitionService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong importedRows = new AtomicLong();
+    private final AtomicLong duplicateRows = new AtomicLong();
+    private final AtomicLong rejectedRows = new AtomicLong();
+
+    private volatile ImportJob current;
+    private DateTimeFormatter dateFormatter;
+
+    @Value("${app.batch.ingestion.staging-directory:./storage/staging}")
+    private String stagingDirectory;
+
+    @Value("${app.import.writers:4}")
+    private int writers;
+
+    @Value("${app.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.import.date-format:yyyy-MM-dd}")
+    private String dateFormat;
+
+    @Value("${app.import.verify-documents:true}")
+    private boolean verifyDocuments;
+
+    public StatementImportService(StatementImportRepository importRepository,
+                                  StatementService statementService,
+                                  FileStorageService fileStorageService,
+                                  StatementMetadataCache metadataCache,
+                                  StatementSummaryService summaryService,
+                                  StatementOutboxService outboxService,
+                                  StatementPartitionService partitionService,
+                                  PlatformTransactionManager transactionManager) {
+        this.importRepository = importRepository;
+        this.statementService = statementService;
+        this.fileStorageService = fileStorageService;
+        this.metadataCache = metadataCache;
+        this.summaryService = summaryService;
+        this.outboxService = outboxService;
+        this.partitionService = partitionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void init() {
+        dateFormatter = DateTimeFormatter.ofPattern(dateFormat);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ImportJob job = current;
+        if (job != null && job.status == ImportReportResponse.Status.RUNNING) {
+            job.fail("Stopped by shutdown");
+        }
+    }
+
+    /**
+     * Start importing a file in the staging directory in the background
+     *
+     * @param offset byte offset to start at: 0, or the start of a line, such as
+     *               a previous run's committed offset
+     */
+    public synchronized ImportReportResponse start(String filename, long offset) {
+        if (current != null && current.status == ImportReportResponse.Status.RUNNING) {
+            throw new InvalidRequestException("An import is already running: " + current.file.getFileName());
+        }
+        Path directory = Paths.get(stagingDirectory).toAbsolutePath().normalize();
+        Path file = directory.resolve(filename).normalize();
+        if (!file.startsWith(directory) || !Files.isRegularFile(file)) {
+            throw new InvalidRequestException("No such file in the staging directory: " + filename);
+        }
+        long size;
+        try {
+            size = Files.size(file);
+            if (offset < 0 || offset > size || (offset > 0 && !startsLine(file, offset))) {
+                throw new InvalidRequestException("Offset " + offset + " is not the start of a line in " + filename);
+            }
+        } catch (IOException e) {
+            throw new InvalidRequestException("Cannot read " + filename + ": " + e.getMessage());
+        }
+
+        ImportJob job = new ImportJob(file, size, offset, file.resolveSibling(file.getFileName() + ".rejects"));
+        current = job;
+        Thread reader = new Thread(() -> run(job), "statement-import");
+        reader.setDaemon(true);
+        reader.start();
+        logger.info("Importing statements from {} starting at byte {} of {}", file, offset, size);
+        return job.toReport();
+    }
+
+    /**
+     * Progress of the running import, or the outcome of the last one
+     */
+    public Optional<ImportReportResponse> getStatus() {
+        ImportJob job = current;
+        return job != null ? Optional.of(job.toReport()) : Optional.empty();
+    }
+
+    private static boolean startsLine(Path file, long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer previous = ByteBuffer.allocate(1);
+            channel.read(previous, offset - 1);
+            return previous.get(0) == '\n';
+        }
+    }
+
+    private void run(ImportJob job) {
+        ExecutorService pool = Executors.newFixedThreadPool(writers, runnable -> {
+            Thread thread = new Thread(runnable, "statement-import-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Semaphore inFlight = new Semaphore(writers * 2);
+        long position = job.startOffset;
+        try (FileChannel channel = FileChannel.open(job.file, StandardOpenOption.READ)) {
+            channel.position(job.startOffset);
+            LineReader lines = new LineReader(Channels.newInputStream(channel));
+            List<Statement> batch = new ArrayList<>(batchSize);
+            long batchNumber = 0;
+            int consumed;
+            while (job.status == ImportReportResponse.Status.RUNNING && (consumed = lines.next()) > 0) {
+                long lineStart = position;
+                position += consumed;
+                job.bytesRead = position;
+                String line = lines.text();
+                if (line.isBlank() || (lineStart == 0 && line.regionMatches(true, 0, "customer_id", 0, 11))) {
+                    continue;
+                }
+                long rows = job.rowsRead.incrementAndGet();
+                if (rows % PROGRESS_LOG_ROWS == 0) {
+                    logger.info("Import of {}: {} rows read, {} imported, at byte {} of {}",
+                            job.file.getFileName(), rows, job.imported.get(), position, job.fileSize);
+                }
+                String rejection = lines.isTruncated()
+                        ? "Line longer than " + MAX_LINE_BYTES + " bytes"
+                        : parse(line, batch);
+                if (rejection != null) {
+                    job.reject(lineStart, rejection, line);
+                    rejectedRows.incrementAndGet();
+                }
+                if (batch.size() >= batchSize) {
+                    submit(job, pool, inFlight, batchNumber++, batch, position);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (job.status == ImportReportResponse.Status.RUNNING) {
+                submit(job, pool, inFlight, batchNumber, batch, position);
+            }
+            inFlight.acquire(writers * 2);
+        } catch (IOException e) {
+            job.fail("Failed to read " + job.file.getFileName() + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail("Interrupted");
+        } finally {
+            pool.shutdownNow();
+            job.closeRejects();
+        }
+        job.finish(position);
+
+        ImportReportResponse report = job.toReport();
+        logger.info("Import of {} {}: {} rows read, {} imported, {} duplicates, {} rejected in {} ms ({} rows/s),"
+                        + " committed offset {}", job.file.getFileName(), report.getStatus(), report.getRowsRead(),
+                report.getImportedCount(), report.getDuplicateCount(), report.getRejectedCount(),
+                report.getProcessingTimeMs(), Math.round(report.getRowsPerSecond()), report.getCommittedOffset());
+    }
+
+    private void submit(ImportJob job, ExecutorService pool, Semaphore inFlight, long batchNumber,
+                        List<Statement> batch, long endOffset) throws InterruptedException {
+        inFlight.acquire();
+        pool.execute(() -> {
+            try {
+                if (job.status == ImportReportResponse.Status.RUNNING) {
+                    int inserted = batch.isEmpty() ? 0 : write(batch);
+                    job.imported.addAndGet(inserted);
+                    job.duplicates.addAndGet(batch.size() - inserted);
+                    importedRows.addAndGet(inserted);
+                    duplicateRows.addAndGet(batch.size() - inserted);
+                    job.batchCommitted(batchNumber, endOffset);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Import batch ending at byte {} failed", endOffset, e);
+                job.fail("Batch ending at byte " + endOffset + " failed: " + e.getMessage());
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * @return how many of the batch were inserted; the rest were already live
+     */
+    private int write(List<Statement> batch) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            return insert(batch, now);
+        } catch (DuplicateKeyException e) {
+            // A concurrent writer or create took one of the natural keys first; it now matches and is skipped
+            return insert(batch, now);
+        }
+    }
+
+    private int insert(List<Statement> batch, LocalDateTime now) {
+        Map<LocalDate, String> partitions = partitionsOf(batch);
+        Integer inserted = transactionTemplate.execute(status -> {
+            List<Statement> rows = importRepository.insertIfAbsent(batch, now, partitions);
+            if (!rows.isEmpty()) {
+                rows.stream().map(Statement::getCustomerId).distinct().forEach(metadataCache::invalidateCustomer);
+                summaryService.recordCreated(rows);
+                outboxService.record(StatementOutboxService.EventType.CREATED, rows);
+                rows.forEach(statementService::auditCreated);
+            }
+            return rows.size();
+        });
+        return inserted != null ? inserted : 0;
+    }
+
+    /**
+     * Attached history partitions within the batch's statement dates, by month
+     */
+    private Map<LocalDate, String> partitionsOf(List<Statement> batch) {
+        LocalDate from = batch.get(0).getStatementDate();
+        LocalDate to = from;
+        for (Statement statement : batch) {
+            LocalDate date = statement.getStatementDate();
+            from = date.isBefore(from) ? date : from;
+            to = date.isAfter(to) ? date : to;
+        }
+        Map<LocalDate, String> partitions = new HashMap<>();
+        for (StatementPartitionResponse partition : partitionService.getAttachedPartitions(from, to)) {
+            partitions.put(partition.getMonth(), partition.getTableName());
+        }
+        return partitions;
+    }
+
+    /**
+     * Validate a line and add its statement to the batch
+     *
+     * @return why the line is rejected, or null if it was added
+     */
+    private String parse(String line, List<Statement> batch) {
+        List<String> fields = splitCsv(line);
+        if (fields == null) {
+            return "Unbalanced quotes";
+        }
+        if (fields.size() < 4 || fields.size() > 5) {
+            return "Expected 4 or 5 fields, found " + fields.size();
+        }
+        String customerId = fields.get(0);
+        if (customerId.isEmpty() || customerId.length() > 50) {
+            return "Customer ID must be 1 to 50 characters";
+        }
+        LocalDate statementDate;
+        try {
+            statementDate = LocalDate.parse(fields.get(1), dateFormatter);
+        } catch (DateTimeParseException e) {
+            return "Statement date is not in " + dateFormat + " format: " + fields.get(1);
+        }
+        if (!statementDate.isBefore(LocalDate.now())) {
+            return "Statement date must be in the past: " + statementDate;
+        }
+        String documentType = fields.get(2).isEmpty() ? DEFAULT_DOCUMENT_TYPE : fields.get(2);
+        if (documentType.length() > 50) {
+            return "Document type must be at most 50 characters";
+        }
+        String documentPath = fields.get(3);
+        String filename = fileStorageService.extractFilename(documentPath);
+        if (filename == null || filename.isEmpty() || filename.contains("..") || documentPath.length() > 500) {
+            return "Invalid document path: " + documentPath;
+        }
+        Long fileSizeBytes = null;
+        if (fields.size() == 5 && !fields.get(4).isEmpty()) {
+            try {
+                fileSizeBytes = Long.parseLong(fields.get(4));
+            } catch (NumberFormatException e) {
+                fileSizeBytes = -1L;
+            }
+            if (fileSizeBytes < 0) {
+                return "Invalid file size: " + fields.get(4);
+            }
+        }
+        if (verifyDocuments) {
+            Optional<Path> file = fileStorageService.findFile(filename);
+            if (file.isEmpty()) {
+                return "Document not found on any storage volume: " + filename;
+            }
+            documentPath = file.get().toString();
+            try {
+                fileSizeBytes = Files.size(file.get());
+            } catch (IOException e) {
+                return "Cannot read document " + filename + ": " + e.getMessage();
+            }
+        }
+
+        batch.add(Statement.builder()
+                .id(TimeOrderedIds.next())
+                .customerId(customerId)
+                .statementDate(statementDate)
+                .documentType(documentType)
+                .documentPath(documentPath)
+                .fileSizeBytes(fileSizeBytes)
+                .status(Statement.StatementStatus.AVAILABLE)
+                .build());
+        return null;
+    }
+
+    /**
+     * Split a CSV line; fields may be double-quoted with "" for a quote, and are trimmed
+     *
+     * @return the fields, or null if a quote is not closed
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(5);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("statements.import.rows", importedRows, AtomicLong::get)
+                .tag("outcome", "imported")
+                .register(registry);
+        FunctionCounter.builder("statements.import.rows", duplicateRows, AtomicLong::get)
+                .tag("outcome", "duplicate")
+                .register(registry);
+        FunctionCounter.builder("statements.import.rows", rejectedRows, AtomicLong::get)
+                .tag("outcome", "rejected")
+                .register(registry);
+    }
+
+    /**
+     * Reads lines as bytes so the byte offset of every line is known. A line
+     * over {@link #MAX_LINE_BYTES} is consumed whole but only its start is kept.
+     */
+    private static final class LineReader {
+        private final InputStream in;
+        private final byte[] chunk = new byte[1 << 16];
+        private int chunkLength;
+        private int chunkPosition;
+        private final byte[] line = new byte[MAX_LINE_BYTES];
+        private int length;
+        private boolean truncated;
+
+        LineReader(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * @return bytes consumed including the line break, or 0 at the end of the file
+         */
+        int next() throws IOException {
+            length = 0;
+            truncated = false;
+            int consumed = 0;
+            while (true) {
+                if (chunkPosition == chunkLength) {
+                    chunkLength = in.read(chunk);
+                    chunkPosition = 0;
+                    if (chunkLength <= 0) {
+                        chunkLength = 0;
+                        break;
+                    }
+                }
+                byte b = chunk[chunkPosition++];
+                consumed++;
+                if (b == '\n') {
+                    break;
+                }
+                if (length < line.length) {
+                    line[length++] = b;
+                } else {
+                    truncated = true;
+                }
+            }
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            return consumed;
+        }
+
+        String text() {
+            return new String(line, 0, length, StandardCharsets.UTF_8);
+        }
+
+        boolean isTruncated() { return truncated; }
+    }
+
+    /**
+     * State of one import, shared by its reader and writers
+     */
+    private static final class ImportJob {
+        private final Path file;
+        private final long fileSize;
+        private final long startOffset;
+        private final Path rejectsFile;
+        private final LocalDateTime startTime = LocalDateTime.now();
+
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong imported = new AtomicLong();
+        private final AtomicLong duplicates = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final List<ImportReportResponse.Reject> rejects = new ArrayList<>();
+
+        /** End offsets of committed batches past the committed offset, by batch number */
+        private final TreeMap<Long, Long> committedAhead = new TreeMap<>();
+        private long nextBatch;
+
+        private volatile ImportReportResponse.Status status = ImportReportResponse.Status.RUNNING;
+        private volatile long bytesRead;
+        private volatile long committedOffset;
+        private volatile String error;
+        private volatile LocalDateTime endTime;
+
+        /** Only written by the reader */
+        private BufferedWriter rejectsOut;
+
+        ImportJob(Path file, long fileSize, long startOffset, Path rejectsFile) {
+            this.file = file;
+            this.fileSize = fileSize;
+            this.startOffset = startOffset;
+            this.rejectsFile = rejectsFile;
+            this.bytesRead = startOffset;
+            this.committedOffset = startOffset;
+        }
+
+        synchronized void batchCommitted(long batchNumber, long endOffset) {
+            committedAhead.put(batchNumber, endOffset);
+            while (!committedAhead.isEmpty() && committedAhead.firstKey() == nextBatch) {
+                committedOffset = committedAhead.pollFirstEntry().getValue();
+                nextBatch++;
+            }
+        }
+
+        void reject(long offset, String reason, String line) throws IOException {
+            rejected.incrementAndGet();
+            synchronized (this) {
+                if (rejects.size() < MAX_REPORTED_REJECTS) {
+                    rejects.add(new ImportReportResponse.Reject(offset, reason));
+                }
+            }
+            if (rejectsOut == null) {
+                rejectsOut = Files.newBufferedWriter(rejectsFile, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            rejectsOut.write(offset + "\t" + reason + "\t" + line);
+            rejectsOut.newLine();
+        }
+
+        void closeRejects() {
+            if (rejectsOut != null) {
+                try {
+                    rejectsOut.close();
+                } catch (IOException e) {
+                    logger.warn("Failed to close import rejects file {}: {}", rejectsFile, e.getMessage());
+                }
+            }
+        }
+
+        synchronized void fail(String reason) {
+            if (status == ImportReportResponse.Status.RUNNING) {
+                error = reason;
+                status = ImportReportResponse.Status.FAILED;
+            }
+        }
+
+        /**
+         * Called once every batch has finished; a complete run has committed up to where it stopped reading
+         */
+        synchronized void finish(long position) {
+            if (status == ImportReportResponse.Status.RUNNING) {
+                committedOffset = position;
+                status = ImportReportResponse.Status.COMPLETED;
+            }
+            endTime = LocalDateTime.now();
+        }
+
+        synchronized ImportReportResponse toReport() {
+            ImportReportResponse report = new ImportReportResponse(file.getFileName().toString(), fileSize,
+                    startOffset, startTime);
+            report.setStatus(status);
+            report.setBytesRead(bytesRead);
+            report.setCommittedOffset(committedOffset);
+            report.setRowsRead(rowsRead.get());
+            report.setImportedCount(imported.get());
+            report.setDuplicateCount(duplicates.get());
+            report.setRejectedCount(rejected.get());
+            report.setEndTime(endTime);
+            long elapsedMs = Duration.between(startTime, endTime != null ? endTime : LocalDateTime.now()).toMillis();
+            report.setProcessingTimeMs(elapsedMs);
+            report.setRowsPerSecond(elapsedMs > 0 ? rowsRead.get() * 1000.0 / elapsedMs : 0);
+            report.setRejectsFile(rejected.get() > 0 ? rejectsFile.getFileName().toString() : null);
+            report.setRejects(new ArrayList<>(rejects));
+            report.setError(error);
+            return report;
+        }
+    }
+}
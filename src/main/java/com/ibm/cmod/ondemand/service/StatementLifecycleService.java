@@ -0,0 +1,327 @@
+package com.ibm.cmod.ondemand.service;
+
+import com.ibm.cmod.ondemand.dto.BulkStatusReportResponse;
+import com.ibm.cmod.ondemand.dto.PurgeReportResponse;
+import com.ibm.cmod.ondemand.dto.StatementFilter;
+import com.ibm.cmod.ondemand.dto.StatementPartitionResponse;
+import com.ibm.cmod.ondemand.entity.Statement;
+import com.ibm.cmod.ondemand.exception.InvalidRequestException;
+import com.ibm.cmod.ondemand.repository.StatementMaintenanceRepository;
+import com.ibm.cmod.ondemand.repository.StatementMaintenanceRepository.PurgeCandidate;
+import com.ibm.cmod.ondemand.repository.StatementSummaryRepository.Counts;
+import com.ibm.cmod.ondemand.repository.StatementSummaryRepository.StatementFacts;
+import com.ibm.cmod.ondemand.service.cache.OffHeapDocumentCache;
+import com.ibm.cmod.ondemand.service.cache.StatementMetadataCache;
+import com.ibm.cmod.ondemand.service.outbox.StatementOutboxService;
+import com.ibm.cmod.ondemand.util.RateLimiter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * End of a statement's life: set-based bulk deletes over a filter, and the
+ * purge that hard-deletes DELETED statements and their documents once the
+ * grace period has passed.
+ *
+ * A bulk delete is one UPDATE per table in range (the hot table and any
+ * attached history partitions overlapping the dates), with one INSERT ...
+ * SELECT writing its audit rows. The purge works in small batches paced by a
+ * rate limiter, each batch one DELETE in its own transaction; documents are
+ * removed only after the rows are gone, and a cold bundle only once no
+ * statement points into it.
+ */
+@Service
+public class StatementLifecycleService implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementLifecycleService.class);
+
+    private final StatementMaintenanceRepository maintenanceRepository;
+    private final StatementPartitionService partitionService;
+    private final FileStorageService fileStorageService;
+    private final ColdStorageService coldStorageService;
+    private final OffHeapDocumentCache documentCache;
+    private final StatementMetadataCache metadataCache;
+    private final StatementAuditService auditService;
+    private final StatementSummaryService summaryService;
+    private final StatementOutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong bulkDeleted = new AtomicLong();
+    private final AtomicLong purgedRows = new AtomicLong();
+    private final AtomicLong purgedFiles = new AtomicLong();
+
+    @Value("${app.purge.grace-period-days:30}")
+    private int gracePeriodDays;
+
+    @Value("${app.purge.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.purge.max-rows-per-second:100}")
+    private double maxRowsPerSecond;
+
+    @Value("${app.purge.max-rows-per-run:20000}")
+    private int maxRowsPerRun;
+
+    public StatementLifecycleService(StatementMaintenanceRepository maintenanceRepository,
+                                     StatementPartitionService partitionService,
+                                     FileStorageService fileStorageService,
+                                     ColdStorageService coldStorageService,
+                                     OffHeapDocumentCache documentCache,
+                                     StatementMetadataCache metadataCache,
+                                     StatementAuditService auditService,
+                                     StatementSummaryService summaryService,
+                                     StatementOutboxService outboxService,
+                                     PlatformTransactionManager transactionManager) {
+        this.maintenanceRepository = maintenanceRepository;
+        this.partitionService = partitionService;
+        this.fileStorageService = fileStorageService;
+        this.coldStorageService = coldStorageService;
+        this.documentCache = documentCache;
+        this.metadataCache = metadataCache;
+        this.auditService = auditService;
+        this.summaryService = summaryService;
+        this.outboxService = outboxService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Soft-delete every statement matching the filter in one transaction. Their
+     * documents stay until the purge removes them after the grace period.
+     */
+    public BulkStatusReportResponse deleteMatching(StatementFilter filter) {
+        requireCriteria(filter);
+        LocalDateTime now = LocalDateTime.now();
+        String details = "bulk delete: " + describe(filter);
+        logger.info("Bulk {}", details);
+
+        List<String> tables = new ArrayList<>();
+        tables.add(StatementMaintenanceRepository.HOT_TABLE);
+        partitionService.getAttachedPartitions(filter.getFrom(), filter.getTo())
+                .forEach(partition -> tables.add(partition.getTableName()));
+
+        BulkStatusReportResponse report = new BulkStatusReportResponse(Statement.StatementStatus.DELETED.name(), now);
+        transactionTemplate.executeWithoutResult(status -> {
+            for (String table : tables) {
+                maintenanceRepository.insertDeleteAudit(table, filter, StatementAuditService.Action.DELETE.name(),
+                        now, details);
+                outboxService.recordBulkDelete(table, filter, now);
+                Map<String, Counts> previous = maintenanceRepository.markDeleted(table, filter, now);
+                int updated = previous.values().stream().mapToInt(counts -> (int) counts.getStatementCount()).sum();
+                if (updated > 0) {
+                    report.addUpdated(table, updated);
+                    summaryService.recordStatusChange(previous, Statement.StatementStatus.DELETED);
+                }
+            }
+            if (report.getUpdatedCount() > 0) {
+                // Any cached statement or customer list may be affected
+                metadataCache.invalidateAll();
+            }
+        });
+
+        bulkDeleted.addAndGet(report.getUpdatedCount());
+        report.setProcessingTimeMs(Duration.between(now, LocalDateTime.now()).toMillis());
+        logger.info("Bulk delete marked {} statements DELETED in {} ms", report.getUpdatedCount(),
+                report.getProcessingTimeMs());
+        return report;
+    }
+
+    /**
+     * Hard-delete statements DELETED for longer than the grace period, with their
+     * documents, in the hot table first and then in every history partition
+     */
+    public PurgeReportResponse purge() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(gracePeriodDays);
+        logger.info("Purging statements deleted before {}", cutoff);
+
+        PurgeReportResponse report = new PurgeReportResponse(cutoff, LocalDateTime.now());
+        RateLimiter rateLimiter = new RateLimiter(maxRowsPerSecond);
+        List<StatementPartitionResponse> partitions = partitionService.getPartitions();
+        Set<Path> bundles = new LinkedHashSet<>();
+        try {
+            int remaining = maxRowsPerRun;
+            remaining -= purgeTable(StatementMaintenanceRepository.HOT_TABLE, null, cutoff, remaining,
+                    rateLimiter, bundles, report);
+            for (StatementPartitionResponse partition : partitions) {
+                if (remaining <= 0) {
+                    break;
+                }
+                remaining -= purgeTable(partition.getTableName(), partition, cutoff, remaining,
+                        rateLimiter, bundles, report);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Purge interrupted");
+        } finally {
+            deleteUnreferencedBundles(bundles, partitions, report);
+            report.setEndTime(LocalDateTime.now());
+            report.setProcessingTimeMs(Duration.between(report.getStartTime(), report.getEndTime()).toMillis());
+        }
+
+        logger.info("Purge completed: {} statements, {} files and {} cold bundles removed, {} failed",
+                report.getPurgedCount(), report.getFilesDeleted(), report.getBundlesDeleted(), report.getFailedCount());
+        return report;
+    }
+
+    /**
+     * Purge one table batch by batch, examining at most the given number of rows
+     *
+     * @return rows examined
+     */
+    private int purgeTable(String table, StatementPartitionResponse partition, LocalDateTime cutoff, int limit,
+                           RateLimiter rateLimiter, Set<Path> bundles, PurgeReportResponse report)
+            throws InterruptedException {
+        int examined = 0;
+        while (examined < limit) {
+            List<PurgeCandidate> batch = maintenanceRepository.findPurgeable(table, cutoff,
+                    Math.min(batchSize, limit - examined));
+            if (batch.isEmpty()) {
+                break;
+            }
+            examined += batch.size();
+            rateLimiter.acquire(batch.size());
+
+            List<PurgeCandidate> purged;
+            try {
+                purged = transactionTemplate.execute(status -> deleteBatch(table, partition, batch, cutoff));
+            } catch (RuntimeException e) {
+                // Stop on this table rather than select the same failing batch again
+                logger.error("Failed to purge batch of {} statements from {}", batch.size(), table, e);
+                report.addFailure(batch.size(), table + ": " + e.getMessage());
+                break;
+            }
+
+            for (PurgeCandidate statement : purged) {
+                documentCache.invalidate(statement.getId());
+                deleteDocument(statement, bundles, report);
+            }
+            report.setPurgedCount(report.getPurgedCount() + purged.size());
+            purgedRows.addAndGet(purged.size());
+        }
+        return examined;
+    }
+
+    private List<PurgeCandidate> deleteBatch(String table, StatementPartitionResponse partition,
+                                             List<PurgeCandidate> batch, LocalDateTime cutoff) {
+        List<StatementFacts> deleted = maintenanceRepository.deletePurgeable(table,
+                batch.stream().map(PurgeCandidate::getId).collect(Collectors.toList()), cutoff);
+        Set<String> deletedIds = deleted.stream().map(StatementFacts::getId).collect(Collectors.toSet());
+        // Rows changed or rolled off since selection were not deleted; their documents stay
+        List<PurgeCandidate> purged = batch.stream()
+                .filter(statement -> deletedIds.contains(statement.getId()))
+                .collect(Collectors.toList());
+        for (PurgeCandidate statement : purged) {
+            metadataCache.invalidateRemoved(statement.getId(), statement.getCustomerId());
+            auditService.record(statement.getId(), StatementAuditService.Action.PURGE, table);
+        }
+        outboxService.recordPurged(deleted);
+        if (partition != null && !purged.isEmpty()) {
+            partitionService.recordPurged(partition, purged.size());
+        }
+        if (partition == null || partition.isAttached()) {
+            // Detached partitions are already out of the summary
+            summaryService.recordRemoved(deleted);
+        }
+        return purged;
+    }
+
+    private void deleteDocument(PurgeCandidate statement, Set<Path> bundles, PurgeReportResponse report) {
+        String documentPath = statement.getDocumentPath();
+        if (documentPath == null) {
+            return;
+        }
+        if (ColdStorageService.isColdPath(documentPath)) {
+            // Other entries may still be live; the bundle is checked once the run ends
+            bundles.add(coldStorageService.bundleOf(documentPath));
+            return;
+        }
+        try {
+            fileStorageService.deleteFile(fileStorageService.extractFilename(documentPath));
+            report.setFilesDeleted(report.getFilesDeleted() + 1);
+            purgedFiles.incrementAndGet();
+        } catch (RuntimeException e) {
+            report.addFailure(0, "Failed to delete document of " + statement.getId() + ": " + e.getMessage());
+        }
+    }
+
+    private void deleteUnreferencedBundles(Set<Path> bundles, List<StatementPartitionResponse> partitions,
+                                           PurgeReportResponse report) {
+        if (bundles.isEmpty()) {
+            return;
+        }
+        List<String> tables = new ArrayList<>();
+        tables.add(StatementMaintenanceRepository.HOT_TABLE);
+        partitions.forEach(partition -> tables.add(partition.getTableName()));
+        for (Path bundle : bundles) {
+            try {
+                if (!maintenanceRepository.isReferenced(tables, coldStorageService.entryPrefix(bundle))
+                        && coldStorageService.deleteBundle(bundle)) {
+                    report.setBundlesDeleted(report.getBundlesDeleted() + 1);
+                    purgedFiles.incrementAndGet();
+                }
+            } catch (RuntimeException e) {
+                report.addFailure(0, "Failed to check cold bundle " + bundle.getFileName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static void requireCriteria(StatementFilter filter) {
+        if (filter.getCustomerId() == null && filter.getDocumentType() == null
+                && filter.getFrom() == null && filter.getTo() == null) {
+            throw new InvalidRequestException("At least one of customerId, documentType, from or to is required");
+        }
+        if (filter.getFrom() != null && filter.getTo() != null && filter.getFrom().isAfter(filter.getTo())) {
+            throw new InvalidRequestException("from " + filter.getFrom() + " is after to " + filter.getTo());
+        }
+        // Rejects an unknown status before anything runs
+        filter.resolveStatus();
+    }
+
+    private static String describe(StatementFilter filter) {
+        List<String> criteria = new ArrayList<>();
+        if (filter.getCustomerId() != null) {
+            criteria.add("customerId=" + filter.getCustomerId());
+        }
+        if (filter.getDocumentType() != null) {
+            criteria.add("documentType=" + filter.getDocumentType());
+        }
+        if (filter.getStatus() != null) {
+            criteria.add("status=" + filter.getStatus());
+        }
+        if (filter.getFrom() != null) {
+            criteria.add("from=" + filter.getFrom());
+        }
+        if (filter.getTo() != null) {
+            criteria.add("to=" + filter.getTo());
+        }
+        return String.join(", ", criteria);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("statements.lifecycle.bulk.deleted", bulkDeleted, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("statements.lifecycle.purged", purgedRows, AtomicLong::get)
+                .tag("kind", "rows")
+                .register(registry);
+        FunctionCounter.builder("statements.lifecycle.purged", purgedFiles, AtomicLong::get)
+                .tag("kind", "files")
+                .register(registry);
+    }
+}
@@ -0,0 +1,378 @@
+package com.ibm.cmod.ondemand.service;
+
+import com.ibm.cmod.ondemand.dto.StatementFilter;
+import com.ibm.cmod.ondemand.dto.StatementPartitionResponse;
+import com.ibm.cmod.ondemand.dto.StatementResponse;
+import com.ibm.cmod.ondemand.entity.Statement;
+import com.ibm.cmod.ondemand.exception.InvalidRequestException;
+import com.ibm.cmod.ondemand.exception.StatementNotFoundException;
+import com.ibm.cmod.ondemand.repository.StatementHistoryRepository;
+import com.ibm.cmod.ondemand.service.cache.StatementMetadataCache;
+import com.ibm.cmod.ondemand.service.cache.StatementSecondLevelCache;
+import com.ibm.cmod.ondemand.util.PageCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Splits statements by statement_date into the hot table, holding the last
+ * hot-months months, and one history table per older month.
+ *
+ * Rolling a month off moves its settled rows in batches of batch-size, each
+ * in its own short transaction. Reads with a statement date range (search,
+ * export, a customer's range) read only the attached partitions that overlap
+ * it. The all-statements page reads only partitions whose created_at range,
+ * kept in the catalog, can still reach the page. A read by ID reaches history
+ * only when the hot table misses. A customer's full list reads every attached
+ * partition, one index seek each, and is then served from the metadata cache.
+ * Detaching or dropping a month is a catalog update or DROP TABLE, independent
+ * of its size.
+ *
+ * History is read-only to single-statement writes: they first move the
+ * statement back into the hot table, and it rolls off again on a later run.
+ * Set-based maintenance (bulk delete, purge) applies to partitions in place.
+ */
+@Service
+public class StatementPartitionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementPartitionService.class);
+
+    private final StatementHistoryRepository historyRepository;
+    private final StatementMetadataCache metadataCache;
+    private final StatementSecondLevelCache secondLevelCache;
+    private final StatementSummaryService summaryService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.partitioning.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.partitioning.hot-months:14}")
+    private int hotMonths;
+
+    @Value("${app.partitioning.batch-size:1000}")
+    private int batchSize;
+
+    public StatementPartitionService(StatementHistoryRepository historyRepository,
+                                     StatementMetadataCache metadataCache,
+                                     StatementSecondLevelCache secondLevelCache,
+                                     StatementSummaryService summaryService,
+                                     PlatformTransactionManager transactionManager) {
+        this.historyRepository = historyRepository;
+        this.metadataCache = metadataCache;
+        this.secondLevelCache = secondLevelCache;
+        this.summaryService = summaryService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Add indexes introduced since a partition's table was created, and record
+     * the created_at range of partitions rolled before it was kept; Flyway only
+     * migrates the hot table
+     */
+    @PostConstruct
+    void upgradePartitionIndexes() {
+        for (StatementPartitionResponse partition : historyRepository.findPartitions()) {
+            int superseded = historyRepository.createPartitionIndexes(partition.getTableName());
+            if (superseded > 0) {
+                logger.warn("Soft-deleted {} duplicate live statements in {}; keeping the newest of each",
+                        superseded, partition.getTableName());
+            }
+            if (partition.getMinCreatedAt() == null && partition.getRowCount() > 0) {
+                historyRepository.refreshCreatedRange(partition.getMonth(), partition.getTableName());
+            }
+        }
+    }
+
+    /**
+     * First day of the oldest month kept in the hot table
+     */
+    public LocalDate getHotBoundary() {
+        return LocalDate.now().withDayOfMonth(1).minusMonths(hotMonths);
+    }
+
+    /**
+     * Move every month before the hot boundary into its history partition.
+     * PENDING rows stay hot until they settle; months whose partition is
+     * detached are left alone.
+     *
+     * @return the partitions that received rows
+     */
+    public List<StatementPartitionResponse> rollOff() {
+        if (!enabled) {
+            return Collections.emptyList();
+        }
+        LocalDate boundary = getHotBoundary();
+        logger.info("Rolling statements dated before {} off the hot table", boundary);
+
+        List<StatementPartitionResponse> rolled = new ArrayList<>();
+        Optional<LocalDate> oldest = historyRepository.findOldestHotDateBefore(boundary);
+        for (LocalDate month = oldest.map(date -> date.withDayOfMonth(1)).orElse(boundary);
+             month.isBefore(boundary); month = month.plusMonths(1)) {
+
+            Optional<StatementPartitionResponse> existing = historyRepository.findPartition(month);
+            if (existing.isPresent() && !existing.get().isAttached()) {
+                logger.warn("Partition {} is detached; its hot rows are not rolled off", existing.get().getTableName());
+                continue;
+            }
+
+            String table = StatementHistoryRepository.tableName(month);
+            historyRepository.createPartitionTable(table);
+            int moved = moveMonth(month, table);
+            if (moved > 0) {
+                logger.info("Rolled {} statements into {}", moved, table);
+                historyRepository.findPartition(month).ifPresent(rolled::add);
+            }
+            int held = historyRepository.countSettledHot(month);
+            if (held > 0) {
+                // Changed during the move, or a second live row for a natural key already in the partition
+                logger.warn("{} settled statements dated {} stayed in the hot table", held, month);
+            }
+        }
+        return rolled;
+    }
+
+    /**
+     * Move a month's settled rows in batches, walking each status newest first
+     * so every batch is an index range on idx_status_date_cover. Each batch
+     * commits on its own; a failed run leaves the month split between the hot
+     * table and its partition, which every read already handles, and the next
+     * run continues with what is left.
+     */
+    private int moveMonth(LocalDate month, String table) {
+        int total = 0;
+        for (Statement.StatementStatus status : Statement.StatementStatus.values()) {
+            if (status == Statement.StatementStatus.PENDING) {
+                continue;
+            }
+            PageCursor after = null;
+            List<PageCursor> batch;
+            do {
+                batch = historyRepository.findRollOffBatch(month, status, after, batchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                List<String> ids = new ArrayList<>(batch.size());
+                batch.forEach(row -> ids.add(row.getId()));
+                Integer moved = transactionTemplate.execute(tx -> {
+                    int count = historyRepository.moveRows(table, ids);
+                    if (count > 0) {
+                        historyRepository.recordRollOff(month, table, count);
+                        secondLevelCache.evictMoved(ids);
+                    }
+                    return count;
+                });
+                total += moved != null ? moved : 0;
+                after = batch.get(batch.size() - 1);
+            } while (batch.size() == batchSize);
+        }
+        return total;
+    }
+
+    public List<StatementPartitionResponse> getPartitions() {
+        return historyRepository.findPartitions();
+    }
+
+    /**
+     * Attached partitions overlapping a date range; either bound may be null
+     */
+    public List<StatementPartitionResponse> getAttachedPartitions(LocalDate from, LocalDate to) {
+        return attached(from, to);
+    }
+
+    /**
+     * Account for rows purged from a partition within the caller's transaction
+     */
+    public void recordPurged(StatementPartitionResponse partition, int purged) {
+        historyRepository.subtractRows(partition.getMonth(), purged);
+    }
+
+    /**
+     * Hide a month from every read. Its table is kept and can be attached again or dropped.
+     */
+    public StatementPartitionResponse detach(LocalDate month) {
+        return changeState(month, StatementHistoryRepository.DETACHED, LocalDateTime.now());
+    }
+
+    /**
+     * Make a detached month visible to reads again
+     */
+    public StatementPartitionResponse attach(LocalDate month) {
+        return changeState(month, StatementHistoryRepository.ATTACHED, null);
+    }
+
+    /**
+     * Drop a detached month's table and catalog entry
+     */
+    public void drop(LocalDate month) {
+        StatementPartitionResponse partition = requirePartition(month);
+        if (partition.isAttached()) {
+            throw new InvalidRequestException("Partition " + partition.getTableName() + " must be detached before it is dropped");
+        }
+        historyRepository.dropPartition(partition);
+        logger.info("Dropped partition {} ({} statements)", partition.getTableName(), partition.getRowCount());
+    }
+
+    private StatementPartitionResponse changeState(LocalDate month, String state, LocalDateTime detachedAt) {
+        StatementPartitionResponse partition = requirePartition(month);
+        boolean attach = StatementHistoryRepository.ATTACHED.equals(state);
+        if (partition.isAttached() == attach) {
+            return partition;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            historyRepository.updateState(partition.getMonth(), state, detachedAt);
+            // The summary counts attached partitions only
+            summaryService.recordPartition(partition, attach);
+            // Cached metadata and customer lists may include, or lack, the whole month
+            metadataCache.invalidateAll();
+        });
+        logger.info("Partition {} is now {}", partition.getTableName(), state);
+        return requirePartition(month);
+    }
+
+    private StatementPartitionResponse requirePartition(LocalDate month) {
+        return historyRepository.findPartition(month.withDayOfMonth(1))
+                .orElseThrow(() -> new StatementNotFoundException("No statement partition for " + month.withDayOfMonth(1)));
+    }
+
+    // Reads against attached history partitions; empty when partitioning is off or nothing has rolled off
+
+    public Optional<StatementResponse> findById(String id) {
+        List<StatementPartitionResponse> partitions = attached(null, null);
+        return partitions.isEmpty() ? Optional.empty() : historyRepository.findById(partitions, id);
+    }
+
+    public List<StatementResponse> findByIds(Collection<String> ids) {
+        List<StatementPartitionResponse> partitions = attached(null, null);
+        return partitions.isEmpty() ? Collections.emptyList() : historyRepository.findByIdIn(partitions, ids);
+    }
+
+    public List<StatementResponse> findByCustomerId(String customerId) {
+        return historyRepository.findByCustomerId(attached(null, null), customerId);
+    }
+
+    /**
+     * Statements of a customer within a date range, reading only the months it spans
+     */
+    public List<StatementResponse> findByCustomerId(String customerId, LocalDate from, LocalDate to) {
+        StatementFilter filter = StatementFilter.builder().customerId(customerId).from(from).to(to).build();
+        return historyRepository.search(attached(from, to), filter, null, false, Integer.MAX_VALUE);
+    }
+
+    /**
+     * The live statement for a natural key, looked up in the one partition its date falls in
+     */
+    public Optional<StatementResponse> findLiveByNaturalKey(String customerId, LocalDate statementDate,
+                                                            String documentType,
+                                                            Set<Statement.StatementStatus> inactive) {
+        List<StatementPartitionResponse> partitions = attached(statementDate, statementDate);
+        return partitions.isEmpty()
+                ? Optional.empty()
+                : historyRepository.findLiveByNaturalKey(partitions.get(0), customerId, statementDate,
+                        documentType, inactive);
+    }
+
+    /**
+     * Search history, pruned to the months the filter's date range and the cursor position still allow
+     */
+    public List<StatementResponse> search(StatementFilter filter, PageCursor after, boolean newestFirst,
+                                          int maxResults) {
+        LocalDate from = filter.getFrom();
+        LocalDate to = filter.getTo();
+        if (after != null) {
+            LocalDate position = after.getPositionAsDate();
+            if (newestFirst) {
+                to = to == null || position.isBefore(to) ? position : to;
+            } else {
+                from = from == null || position.isAfter(from) ? position : from;
+            }
+        }
+        return historyRepository.search(attached(from, to), filter, after, newestFirst, maxResults);
+    }
+
+    /**
+     * One page of history newest created first, reading only the partitions that
+     * can contribute. Those whose rows were all created after the cursor are
+     * behind the page; those whose rows were all created before notBefore rank
+     * below rows the caller already has. A partition with no recorded range is read.
+     *
+     * @param notBefore created_at of the last row of a full hot page, or null
+     */
+    public List<StatementResponse> findPage(LocalDateTime afterCreatedAt, String afterId, int maxResults,
+                                            LocalDateTime notBefore) {
+        List<StatementPartitionResponse> partitions = new ArrayList<>();
+        for (StatementPartitionResponse partition : attached(null, null)) {
+            LocalDateTime min = partition.getMinCreatedAt();
+            LocalDateTime max = partition.getMaxCreatedAt();
+            boolean behind = afterCreatedAt != null && min != null && min.isAfter(afterCreatedAt);
+            boolean below = notBefore != null && max != null && max.isBefore(notBefore);
+            if (!behind && !below) {
+                partitions.add(partition);
+            }
+        }
+        return historyRepository.findPage(partitions, afterCreatedAt, afterId, maxResults);
+    }
+
+    /**
+     * Stream history rows matching the filter, one partition at a time, oldest month first
+     */
+    public void stream(StatementFilter filter, int fetchSize, Consumer<StatementResponse> consumer) {
+        for (StatementPartitionResponse partition : attached(filter.getFrom(), filter.getTo())) {
+            historyRepository.stream(partition, filter, fetchSize, consumer);
+        }
+    }
+
+    /**
+     * Move a rolled-off statement back into the hot table within the caller's transaction
+     *
+     * @return true if the statement was in history
+     */
+    public boolean promote(String id) {
+        List<StatementPartitionResponse> partitions = attached(null, null);
+        Optional<LocalDate> month = historyRepository.findMonthOf(partitions, id);
+        if (month.isEmpty()) {
+            return false;
+        }
+        StatementPartitionResponse partition = partitions.stream()
+                .filter(candidate -> candidate.getMonth().equals(month.get()))
+                .findFirst()
+                .orElseThrow();
+        logger.info("Moving statement {} back from {} for a write", id, partition.getTableName());
+        return historyRepository.promote(partition, id);
+    }
+
+    /**
+     * Store the checksum of a rolled-off statement that has none, within the caller's transaction
+     *
+     * @return 1 if stored, 0 if the statement is not in history or already has a checksum
+     */
+    public int backfillChecksum(StatementResponse statement, String checksum) {
+        List<StatementPartitionResponse> partitions =
+                attached(statement.getStatementDate(), statement.getStatementDate());
+        return partitions.isEmpty()
+                ? 0
+                : historyRepository.backfillChecksum(partitions.get(0), statement.getId(), checksum);
+    }
+
+    private List<StatementPartitionResponse> attached(LocalDate from, LocalDate to) {
+        if (!enabled) {
+            return Collections.emptyList();
+        }
+        return historyRepository.findAttached(
+                from != null ? from.withDayOfMonth(1) : null,
+                to != null ? to.withDayOfMonth(1) : null);
+    }
+}
@@ -1,18 +1,59 @@
 package com.ibm.cmod.ondemand.service;
 
+import com.ibm.cmod.ondemand.dto.StatementFilter;
+import com.ibm.cmod.ondemand.dto.StatementLookupResponse;
+import com.ibm.cmod.ondemand.dto.StatementPageResponse;
 import com.ibm.cmod.ondemand.dto.StatementRequest;
 import com.ibm.cmod.ondemand.dto.StatementResponse;
 import com.ibm.cmod.ondemand.entity.Statement;
+import com.ibm.cmod.ondemand.exception.FileStorageException;
+import com.ibm.cmod.ondemand.exception.IdempotencyKeyReuseException;
+import com.ibm.cmod.ondemand.exception.InvalidRequestException;
+import com.ibm.cmod.ondemand.exception.StatementNotAvailableException;
 import com.ibm.cmod.ondemand.exception.StatementNotFoundException;
+import com.ibm.cmod.ondemand.repository.IdempotencyKeyRepository;
 import com.ibm.cmod.ondemand.repository.StatementRepository;
+import com.ibm.cmod.ondemand.repository.StatementSummaryRepository.StatementFacts;
+import com.ibm.cmod.ondemand.service.cache.OffHeapDocumentCache;
+import com.ibm.cmod.ondemand.service.cache.StatementMetadataCache;
+import com.ibm.cmod.ondemand.service.cache.StatementMetadataSnapshot;
+import com.ibm.cmod.ondemand.service.download.DownloadableDocument;
 import com.ibm.cmod.ondemand.service.odwek.ODWEKClient;
+import com.ibm.cmod.ondemand.service.outbox.StatementOutboxService;
+import com.ibm.cmod.ondemand.util.ChecksumUtils;
+import com.ibm.cmod.ondemand.util.PageCursor;
+import com.ibm.cmod.ondemand.util.SingleFlight;
+import com.ibm.cmod.ondemand.util.TimeOrderedIds;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -24,47 +65,206 @@ public class StatementService {
 
     private static final Logger logger = LoggerFactory.getLogger(StatementService.class);
 
+    private static final String DEFAULT_DOCUMENT_TYPE = "MONTHLY_STATEMENT";
+
+    private static final Set<Statement.StatementStatus> DOWNLOADABLE_STATUSES =
+            EnumSet.of(Statement.StatementStatus.AVAILABLE, Statement.StatementStatus.ARCHIVED);
+
+    private static final Comparator<StatementResponse> CREATED_NEWEST_FIRST =
+            Comparator.comparing(StatementResponse::getCreatedAt).thenComparing(StatementResponse::getId).reversed();
+
+    private static final Comparator<StatementResponse> STATEMENT_DATE_ORDER =
+            Comparator.comparing(StatementResponse::getStatementDate).thenComparing(StatementResponse::getId);
+
+    /** Statuses that release the natural key; matches the active_key column */
+    private static final Set<Statement.StatementStatus> INACTIVE_STATUSES =
+            EnumSet.of(Statement.StatementStatus.DELETED, Statement.StatementStatus.FAILED);
+
     private final StatementRepository statementRepository;
     private final ODWEKClient odwekClient;
     private final FileStorageService fileStorageService;
+    private final ColdStorageService coldStorageService;
+    private final OffHeapDocumentCache documentCache;
+    private final StatementMetadataCache metadataCache;
+    private final StatementMetadataSnapshot metadataSnapshot;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final StatementPartitionService partitionService;
+    private final StatementAuditService auditService;
+    private final StatementSummaryService summaryService;
+    private final StatementOutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+    private final SingleFlight<String, StatementCreateResult> inFlightCreates = new SingleFlight<>();
+
+    @Value("${app.idempotency.retention-hours:24}")
+    private int idempotencyRetentionHours;
+
+    @Value("${app.pagination.default-limit:50}")
+    private int defaultPageLimit;
+
+    @Value("${app.pagination.max-limit:500}")
+    private int maxPageLimit;
+
+    @Value("${app.lookup.max-ids:1000}")
+    private int maxLookupIds;
+
+    @Value("${app.lookup.chunk-size:500}")
+    private int lookupChunkSize;
 
     public StatementService(StatementRepository statementRepository,
                            ODWEKClient odwekClient,
-                           FileStorageService fileStorageService) {
+                           FileStorageService fileStorageService,
+                           ColdStorageService coldStorageService,
+                           OffHeapDocumentCache documentCache,
+                           StatementMetadataCache metadataCache,
+                           StatementMetadataSnapshot metadataSnapshot,
+                           IdempotencyKeyRepository idempotencyKeyRepository,
+                           StatementPartitionService partitionService,
+                           StatementAuditService auditService,
+                           StatementSummaryService summaryService,
+                           StatementOutboxService outboxService,
+                           PlatformTransactionManager transactionManager) {
         this.statementRepository = statementRepository;
         this.odwekClient = odwekClient;
         this.fileStorageService = fileStorageService;
+        this.coldStorageService = coldStorageService;
+        this.documentCache = documentCache;
+        this.metadataCache = metadataCache;
+        this.metadataSnapshot = metadataSnapshot;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.partitionService = partitionService;
+        this.auditService = auditService;
+        this.summaryService = summaryService;
+        this.outboxService = outboxService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     /**
-     * Create a new statement
+     * Create a new statement, or return the live statement that already exists
+     * for the same customer, statement date and document type
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public StatementResponse createStatement(StatementRequest request) {
-        logger.info("Creating statement for customer: {}", request.getCustomerId());
+        return createStatement(request, null).getStatement();
+    }
 
-        // Build statement entity
-        Statement statement = Statement.builder()
-                .customerId(request.getCustomerId())
-                .statementDate(request.getStatementDate())
-                .documentType(request.getDocumentType() != null ? request.getDocumentType() : "MONTHLY_STATEMENT")
-                .status(Statement.StatementStatus.PENDING)
-                .build();
+    /**
+     * Idempotent create. A known Idempotency-Key replays the statement it created;
+     * otherwise concurrent requests for the same natural key share one ODWEK fetch
+     * and one insert, and later ones find the stored row without calling ODWEK.
+     * The fetch runs outside any transaction; only the insert is transactional.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public StatementCreateResult createStatement(StatementRequest request, String idempotencyKey) {
+        return createStatement(request, idempotencyKey, this::createOnce);
+    }
+
+    /**
+     * Idempotency-Key handling and coalescing around a create strategy; the
+     * asynchronous create supplies one that stores a PENDING row instead
+     */
+    StatementCreateResult createStatement(StatementRequest request, String idempotencyKey,
+                                          Function<StatementRequest, StatementCreateResult> creator) {
+        String requestHash = idempotencyKey != null
+                ? ChecksumUtils.sha256Hex(naturalKey(request).getBytes(StandardCharsets.UTF_8))
+                : null;
+        if (idempotencyKey != null) {
+            Optional<IdempotencyKeyRepository.IdempotencyRecord> record = idempotencyKeyRepository.find(
+                    idempotencyKey, LocalDateTime.now().minusHours(idempotencyRetentionHours));
+            if (record.isPresent()) {
+                return replay(record.get(), requestHash);
+            }
+        }
+
+        StatementCreateResult result = inFlightCreates.execute(naturalKey(request), () -> creator.apply(request));
+
+        if (idempotencyKey != null
+                && !idempotencyKeyRepository.insertIfAbsent(idempotencyKey, requestHash, result.getStatement().getId())) {
+            // A concurrent request recorded the key first; answer exactly as a retry of it would be answered
+            Optional<IdempotencyKeyRepository.IdempotencyRecord> winner = idempotencyKeyRepository.find(
+                    idempotencyKey, LocalDateTime.now().minusHours(idempotencyRetentionHours));
+            if (winner.isPresent()) {
+                return replay(winner.get(), requestHash);
+            }
+        }
+        return result;
+    }
+
+    private StatementCreateResult createOnce(StatementRequest request) {
+        Optional<StatementResponse> existing = findLiveByNaturalKey(request);
+        if (existing.isPresent()) {
+            logger.info("Statement already exists for customer {} on {}, not fetching again",
+                    request.getCustomerId(), request.getStatementDate());
+            return new StatementCreateResult(existing.get(), false);
+        }
+
+        logger.info("Creating statement for customer: {}", request.getCustomerId());
+        Statement statement = newStatement(request);
 
         // Fetch AFP from ODWEK (simulated)
         byte[] afpData = odwekClient.fetchDocument(statement.getCustomerId(), statement.getStatementDate());
-
-        // Store file
-        String filename = generateFilename(statement);
-        String filePath = fileStorageService.storeFile(filename, afpData);
-        statement.setDocumentPath(filePath);
-        statement.setFileSizeBytes(fileStorageService.getFileSize(filename));
-        statement.setStatus(Statement.StatementStatus.AVAILABLE);
+        attachDocument(statement, afpData);
 
         // Save to database
-        Statement saved = statementRepository.save(statement);
+        Statement saved;
+        try {
+            saved = transactionTemplate.execute(status -> {
+                Statement inserted = statementRepository.saveAndFlush(statement);
+                metadataCache.invalidate(inserted);
+                summaryService.recordCreated(inserted);
+                outboxService.record(StatementOutboxService.EventType.CREATED, inserted);
+                return inserted;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another instance stored the same natural key first; keep its row and drop our file
+            fileStorageService.deleteFile(fileStorageService.extractFilename(statement.getDocumentPath()));
+            return findLiveByNaturalKey(request)
+                    .map(winner -> new StatementCreateResult(winner, false))
+                    .orElseThrow(() -> e);
+        }
+
+        // Customers usually download a new statement within seconds, so keep it hot
+        documentCache.put(saved.getId(), afpData, saved.getContentChecksum());
+        auditCreated(saved);
         logger.info("Statement created successfully with ID: {}", saved.getId());
 
-        return toResponse(saved);
+        return new StatementCreateResult(toResponse(saved), true);
+    }
+
+    private StatementCreateResult replay(IdempotencyKeyRepository.IdempotencyRecord record, String requestHash) {
+        if (!record.getRequestHash().equals(requestHash)) {
+            throw new IdempotencyKeyReuseException(
+                    "Idempotency-Key " + record.getIdempotencyKey() + " was already used with a different request");
+        }
+        logger.info("Replaying Idempotency-Key {} for statement {}", record.getIdempotencyKey(), record.getStatementId());
+        return new StatementCreateResult(findResponse(record.getStatementId()), false);
+    }
+
+    /**
+     * The live statement with the same customer, statement date and document type as the request.
+     * The hot table is checked before history, so a statement rolling off meanwhile is still found.
+     */
+    Optional<StatementResponse> findLiveByNaturalKey(StatementRequest request) {
+        Optional<StatementResponse> hot = statementRepository.findLiveResponseByNaturalKey(request.getCustomerId(),
+                request.getStatementDate(), documentTypeOf(request), INACTIVE_STATUSES);
+        if (hot.isPresent()) {
+            return hot;
+        }
+        return partitionService.findLiveByNaturalKey(request.getCustomerId(), request.getStatementDate(),
+                documentTypeOf(request), INACTIVE_STATUSES);
+    }
+
+    /**
+     * Key identifying one statement, matching the active_key column
+     */
+    String naturalKey(StatementRequest request) {
+        return request.getCustomerId() + "|" + request.getStatementDate() + "|" + documentTypeOf(request);
+    }
+
+    /**
+     * Delete expired Idempotency-Key records
+     */
+    public int purgeIdempotencyKeys() {
+        return idempotencyKeyRepository.deleteOlderThan(LocalDateTime.now().minusHours(idempotencyRetentionHours));
     }
 
     /**
@@ -73,9 +273,55 @@ public class StatementService {
     @Transactional(readOnly = true)
     public StatementResponse getStatement(String id) {
         logger.info("Fetching statement with ID: {}", id);
-        Statement statement = statementRepository.findById(id)
-                .orElseThrow(() -> new StatementNotFoundException("Statement not found with ID: " + id));
-        return toResponse(statement);
+        return findResponse(id);
+    }
+
+    /**
+     * Look up many statements at once. Distinct IDs are resolved with IN-list
+     * queries of at most lookup-chunk-size parameters; results come back in
+     * request order with missing IDs reported in place.
+     */
+    @Transactional(readOnly = true)
+    public StatementLookupResponse lookupStatements(List<String> ids) {
+        if (ids.size() > maxLookupIds) {
+            throw new InvalidRequestException(
+                    "Too many statement IDs: " + ids.size() + " (maximum " + maxLookupIds + ")");
+        }
+        logger.info("Looking up {} statements by ID", ids.size());
+
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<String, StatementResponse> byId = new HashMap<>(distinct.size() * 2);
+        for (int from = 0; from < distinct.size(); from += lookupChunkSize) {
+            List<String> chunk = distinct.subList(from, Math.min(from + lookupChunkSize, distinct.size()));
+            for (StatementResponse statement : statementRepository.findResponsesByIdIn(chunk)) {
+                byId.put(statement.getId(), statement);
+            }
+        }
+        // IDs missing from the hot table may have rolled off into history
+        List<String> missing = distinct.stream().filter(id -> !byId.containsKey(id)).collect(Collectors.toList());
+        for (int from = 0; from < missing.size(); from += lookupChunkSize) {
+            List<String> chunk = missing.subList(from, Math.min(from + lookupChunkSize, missing.size()));
+            for (StatementResponse statement : partitionService.findByIds(chunk)) {
+                byId.put(statement.getId(), statement);
+            }
+        }
+
+        List<StatementLookupResponse.Result> results = new ArrayList<>(ids.size());
+        int found = 0;
+        for (String id : ids) {
+            StatementResponse statement = byId.get(id);
+            if (statement != null) {
+                found++;
+            }
+            results.add(new StatementLookupResponse.Result(id, statement));
+        }
+
+        return StatementLookupResponse.builder()
+                .results(results)
+                .requested(ids.size())
+                .found(found)
+                .missing(ids.size() - found)
+                .build();
     }
 
     /**
@@ -84,22 +330,101 @@ public class StatementService {
     @Transactional(readOnly = true)
     public List<StatementResponse> getStatementsByCustomer(String customerId) {
         logger.info("Fetching statements for customer: {}", customerId);
-        List<Statement> statements = statementRepository.findByCustomerId(customerId);
-        return statements.stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+        return metadataCache.getCustomerStatements(customerId, id -> {
+            List<StatementResponse> statements = new ArrayList<>(statementRepository.findResponsesByCustomerId(id));
+            statements.addAll(partitionService.findByCustomerId(id));
+            return statements;
+        });
     }
 
     /**
-     * Get all statements
+     * Get one keyset page of all statements, newest first. Every page is a bounded
+     * index range scan on (created_at, id), so deep pages cost the same as the first.
+     * History partitions are read only where their created_at range reaches the page.
      */
     @Transactional(readOnly = true)
-    public List<StatementResponse> getAllStatements() {
-        logger.info("Fetching all statements");
-        List<Statement> statements = statementRepository.findAll();
-        return statements.stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+    public StatementPageResponse getStatementsPage(String cursor, Integer limit) {
+        int pageSize = pageSize(limit);
+        logger.info("Fetching statements page (limit {}, cursor {})", pageSize, cursor != null);
+
+        // Fetch one extra row to learn whether another page follows
+        PageRequest window = PageRequest.of(0, pageSize + 1);
+        List<StatementResponse> statements;
+        List<StatementResponse> history;
+        LocalDateTime afterCreatedAt = null;
+        String afterId = null;
+        if (cursor == null || cursor.isEmpty()) {
+            statements = statementRepository.findFirstResponsePage(window);
+        } else {
+            PageCursor position = PageCursor.decode(cursor);
+            afterCreatedAt = position.getPositionAsDateTime();
+            afterId = position.getId();
+            statements = statementRepository.findResponsePageAfter(afterCreatedAt, afterId, window);
+        }
+        // A full hot window already fills the page down to its last row; older history cannot rank above it
+        LocalDateTime notBefore = statements.size() > pageSize
+                ? statements.get(statements.size() - 1).getCreatedAt()
+                : null;
+        history = partitionService.findPage(afterCreatedAt, afterId, pageSize + 1, notBefore);
+        statements = merge(statements, history, CREATED_NEWEST_FIRST, pageSize + 1);
+
+        return toPage(statements, pageSize, last -> PageCursor.after(last.getCreatedAt(), last.getId()));
+    }
+
+    /**
+     * Search statements by any combination of customer, document type, status and
+     * date range, ordered by statement date. Pages continue by keyset on
+     * (statement_date, id) and are read in order from the covering search indexes.
+     */
+    @Transactional(readOnly = true)
+    public StatementPageResponse searchStatements(StatementFilter filter, boolean newestFirst,
+                                                  String cursor, Integer limit) {
+        int pageSize = pageSize(limit);
+        logger.info("Searching statements (customer {}, type {}, status {}, from {}, to {}, limit {})",
+                filter.getCustomerId(), filter.getDocumentType(), filter.getStatus(),
+                filter.getFrom(), filter.getTo(), pageSize);
+
+        PageCursor after = cursor == null || cursor.isEmpty() ? null : PageCursor.decode(cursor);
+        List<StatementResponse> statements = merge(
+                statementRepository.search(filter, after, newestFirst, pageSize + 1),
+                partitionService.search(filter, after, newestFirst, pageSize + 1),
+                newestFirst ? STATEMENT_DATE_ORDER.reversed() : STATEMENT_DATE_ORDER,
+                pageSize + 1);
+
+        return toPage(statements, pageSize, last -> PageCursor.after(last.getStatementDate(), last.getId()));
+    }
+
+    /**
+     * The first maxResults rows of two lists, each already sorted in the given order
+     */
+    private static List<StatementResponse> merge(List<StatementResponse> hot, List<StatementResponse> history,
+                                                 Comparator<StatementResponse> order, int maxResults) {
+        if (history.isEmpty()) {
+            return hot;
+        }
+        List<StatementResponse> merged = new ArrayList<>(hot.size() + history.size());
+        merged.addAll(hot);
+        merged.addAll(history);
+        merged.sort(order);
+        return merged.size() > maxResults ? new ArrayList<>(merged.subList(0, maxResults)) : merged;
+    }
+
+    private int pageSize(Integer limit) {
+        return limit == null ? defaultPageLimit : Math.max(1, Math.min(limit, maxPageLimit));
+    }
+
+    private StatementPageResponse toPage(List<StatementResponse> statements, int pageSize,
+                                         Function<StatementResponse, PageCursor> cursorOf) {
+        boolean hasMore = statements.size() > pageSize;
+        List<StatementResponse> page = hasMore ? new ArrayList<>(statements.subList(0, pageSize)) : statements;
+        String nextCursor = hasMore ? cursorOf.apply(page.get(page.size() - 1)).encode() : null;
+
+        return StatementPageResponse.builder()
+                .items(page)
+                .limit(pageSize)
+                .hasMore(hasMore)
+                .nextCursor(nextCursor)
+                .build();
     }
 
     /**
@@ -108,10 +433,14 @@ public class StatementService {
     public StatementResponse updateStatement(String id, StatementRequest request) {
         logger.info("Updating statement with ID: {}", id);
 
-        Statement statement = statementRepository.findById(id)
-                .orElseThrow(() -> new StatementNotFoundException("Statement not found with ID: " + id));
+        Statement statement = findForWrite(id);
+        String changes = describeChanges(statement, request);
+        StatementFacts before = StatementFacts.of(statement);
 
         // Update fields
+        if (!statement.getCustomerId().equals(request.getCustomerId())) {
+            metadataCache.invalidateCustomer(statement.getCustomerId());
+        }
         statement.setCustomerId(request.getCustomerId());
         statement.setStatementDate(request.getStatementDate());
         if (request.getDocumentType() != null) {
@@ -119,6 +448,10 @@ public class StatementService {
         }
 
         Statement updated = statementRepository.save(statement);
+        metadataCache.invalidate(updated);
+        summaryService.recordChanged(before, updated);
+        outboxService.record(StatementOutboxService.EventType.UPDATED, updated);
+        auditService.record(id, StatementAuditService.Action.UPDATE, changes);
         logger.info("Statement updated successfully: {}", id);
 
         return toResponse(updated);
@@ -130,34 +463,137 @@ public class StatementService {
     public void deleteStatement(String id) {
         logger.info("Deleting statement with ID: {}", id);
 
-        Statement statement = statementRepository.findById(id)
-                .orElseThrow(() -> new StatementNotFoundException("Statement not found with ID: " + id));
+        Statement statement = findForWrite(id);
 
         // Soft delete
+        StatementFacts before = StatementFacts.of(statement);
+        Statement.StatementStatus previous = statement.getStatus();
         statement.setStatus(Statement.StatementStatus.DELETED);
         statementRepository.save(statement);
+        metadataCache.invalidate(statement);
+        summaryService.recordChanged(before, statement);
+        outboxService.record(StatementOutboxService.EventType.DELETED, statement);
+        documentCache.invalidate(id);
+        auditService.record(id, StatementAuditService.Action.DELETE, "status " + previous + " -> DELETED");
 
         logger.info("Statement soft-deleted successfully: {}", id);
     }
 
     /**
-     * Download statement file
+     * Load a statement for a write, first moving it back from history if it has rolled off
      */
-    @Transactional(readOnly = true)
-    public Resource downloadStatement(String id) {
+    private Statement findForWrite(String id) {
+        Optional<Statement> hot = statementRepository.findById(id);
+        if (hot.isEmpty() && partitionService.promote(id)) {
+            hot = statementRepository.findById(id);
+        }
+        return hot.orElseThrow(() -> new StatementNotFoundException("Statement not found with ID: " + id));
+    }
+
+    /**
+     * Download statement file. Metadata comes from the snapshot when it knows
+     * the statement, so no transaction is opened and the database is only read
+     * on a snapshot miss; downloads keep working while it is unavailable.
+     * The document cache is consulted later, and the download audited, only for
+     * a body that is sent
+     * (see {@link com.ibm.cmod.ondemand.service.download.DocumentTransferService}).
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public DownloadableDocument downloadStatement(String id) {
         logger.info("Downloading statement with ID: {}", id);
 
-        Statement statement = statementRepository.findById(id)
-                .orElseThrow(() -> new StatementNotFoundException("Statement not found with ID: " + id));
+        StatementResponse statement = metadataSnapshot.find(id).orElseGet(() -> findResponse(id));
+        if (!isDownloadable(statement)) {
+            throw new StatementNotAvailableException(
+                    "Statement " + id + " is " + statement.getStatus() + " and has no document to download");
+        }
+
+        String filename = fileStorageService.extractFilename(statement.getDocumentPath());
+        Path file = resolveDocumentFile(statement);
+
+        // Rows created before checksums were stored hash the file once and keep the result
+        String checksum = statement.getContentChecksum();
+        if (checksum == null) {
+            checksum = backfillChecksum(statement, file);
+        }
+
+        return toDownloadable(statement, filename, file, fileSize(file), checksum);
+    }
+
+    /**
+     * Downloadable statements of a customer within a date range, oldest first.
+     * Only metadata is read; files are resolved one at a time as the bundle is
+     * written (see {@link #resolveBundleDocument}). At most maxResults hot rows
+     * are read, enough for the caller to reject an oversized bundle.
+     */
+    @Transactional(readOnly = true)
+    public List<StatementResponse> getBundleStatements(String customerId, LocalDate from, LocalDate to,
+                                                       int maxResults) {
+        logger.info("Resolving bundle for customer: {} ({} to {})", customerId, from, to);
+        List<StatementResponse> statements = statementRepository
+                .findByCustomerIdAndStatementDateBetweenAndStatusInOrderByStatementDateAsc(
+                        customerId, from, to, DOWNLOADABLE_STATUSES, PageRequest.of(0, maxResults)).stream()
+                .map(this::toResponse)
+                .collect(Collectors.toCollection(ArrayList::new));
+        partitionService.findByCustomerId(customerId, from, to).stream()
+                .filter(this::isDownloadable)
+                .forEach(statements::add);
+        statements.sort(STATEMENT_DATE_ORDER);
+        return statements;
+    }
+
+    /**
+     * Downloadable statements for a list of IDs, in request order
+     */
+    @Transactional(readOnly = true)
+    public List<StatementResponse> getBundleStatements(List<String> ids) {
+        logger.info("Resolving bundle for {} statement IDs", ids.size());
+        Map<String, StatementResponse> byId = statementRepository.findResponsesByIdIn(new LinkedHashSet<>(ids)).stream()
+                .collect(Collectors.toMap(StatementResponse::getId, Function.identity()));
+        List<String> missing = ids.stream().distinct().filter(id -> !byId.containsKey(id)).collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            partitionService.findByIds(missing).forEach(statement -> byId.put(statement.getId(), statement));
+        }
+
+        List<StatementResponse> ordered = new ArrayList<>(byId.size());
+        for (String id : new LinkedHashSet<>(ids)) {
+            StatementResponse statement = byId.get(id);
+            if (statement == null || !isDownloadable(statement)) {
+                logger.warn("Statement {} not found or not downloadable, skipped from bundle", id);
+                continue;
+            }
+            ordered.add(statement);
+        }
+        return ordered;
+    }
 
-        String filename = extractFilename(statement.getDocumentPath());
-        return fileStorageService.loadFile(filename);
+    /**
+     * Locate one bundle entry's file, restoring it from cold storage if archived,
+     * and audit the download. Called as the entry is about to be written, so the
+     * cost is paid per entry rather than before the first byte.
+     *
+     * @return the document, or empty if its file is missing
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Optional<DownloadableDocument> resolveBundleDocument(StatementResponse statement) {
+        String filename = fileStorageService.extractFilename(statement.getDocumentPath());
+        Path file;
+        try {
+            file = resolveDocumentFile(statement);
+        } catch (FileStorageException e) {
+            logger.warn("Document file missing for statement {}, skipped from bundle", statement.getId());
+            return Optional.empty();
+        }
+        DownloadableDocument document = toDownloadable(statement, filename, file, fileSize(file),
+                statement.getContentChecksum());
+        auditService.record(statement.getId(), StatementAuditService.Action.DOWNLOAD, "bundle");
+        return Optional.of(document);
     }
 
     /**
      * Convert entity to response DTO
      */
-    private StatementResponse toResponse(Statement statement) {
+    StatementResponse toResponse(Statement statement) {
         return StatementResponse.builder()
                 .id(statement.getId())
                 .customerId(statement.getCustomerId())
@@ -166,12 +602,80 @@ public class StatementService {
                 .documentType(statement.getDocumentType())
                 .status(statement.getStatus().name())
                 .fileSizeBytes(statement.getFileSizeBytes())
+                .contentChecksum(statement.getContentChecksum())
                 .createdAt(statement.getCreatedAt())
                 .updatedAt(statement.getUpdatedAt())
                 .downloadUrl("/api/statements/" + statement.getId() + "/download")
+                .version(statement.getVersion())
                 .build();
     }
 
+    /**
+     * Build an unsaved PENDING statement; the time-ordered ID is assigned up front so the stored filename is unique
+     */
+    Statement newStatement(StatementRequest request) {
+        return Statement.builder()
+                .id(TimeOrderedIds.next())
+                .customerId(request.getCustomerId())
+                .statementDate(request.getStatementDate())
+                .documentType(documentTypeOf(request))
+                .status(Statement.StatementStatus.PENDING)
+                .build();
+    }
+
+    /**
+     * Audit a stored statement once the current transaction, if any, commits
+     */
+    void auditCreated(Statement statement) {
+        auditService.record(statement.getId(), StatementAuditService.Action.CREATE, String.format(
+                "customerId=%s, statementDate=%s, documentType=%s, status=%s", statement.getCustomerId(),
+                statement.getStatementDate(), statement.getDocumentType(), statement.getStatus()));
+    }
+
+    private static String describeChanges(Statement statement, StatementRequest request) {
+        List<String> changes = new ArrayList<>(3);
+        if (!statement.getCustomerId().equals(request.getCustomerId())) {
+            changes.add("customerId " + statement.getCustomerId() + " -> " + request.getCustomerId());
+        }
+        if (!statement.getStatementDate().equals(request.getStatementDate())) {
+            changes.add("statementDate " + statement.getStatementDate() + " -> " + request.getStatementDate());
+        }
+        if (request.getDocumentType() != null && !request.getDocumentType().equals(statement.getDocumentType())) {
+            changes.add("documentType " + statement.getDocumentType() + " -> " + request.getDocumentType());
+        }
+        return changes.isEmpty() ? "no changes" : String.join(", ", changes);
+    }
+
+    private String documentTypeOf(StatementRequest request) {
+        return request.getDocumentType() != null ? request.getDocumentType() : DEFAULT_DOCUMENT_TYPE;
+    }
+
+    /**
+     * Store a fetched document and mark the statement AVAILABLE
+     */
+    void attachDocument(Statement statement, byte[] afpData) {
+        String filename = generateFilename(statement);
+        String filePath = fileStorageService.storeFile(filename, afpData);
+        statement.setDocumentPath(filePath);
+        statement.setFileSizeBytes(fileStorageService.getFileSize(filename));
+        statement.setContentChecksum(ChecksumUtils.sha256Hex(afpData));
+        statement.setStatus(Statement.StatementStatus.AVAILABLE);
+    }
+
+    /**
+     * Metadata of one statement, served from the metadata cache when present;
+     * a miss reads the hot table, then history
+     */
+    private StatementResponse findResponse(String id) {
+        return metadataCache.getStatement(id, key -> statementRepository.findResponseById(key)
+                        .or(() -> partitionService.findById(key)))
+                .orElseThrow(() -> new StatementNotFoundException("Statement not found with ID: " + id));
+    }
+
+    private boolean isDownloadable(StatementResponse statement) {
+        return DOWNLOADABLE_STATUSES.contains(Statement.StatementStatus.valueOf(statement.getStatus()));
+    }
+
     /**
      * Generate filename for AFP file
      */
@@ -182,11 +686,63 @@ public class StatementService {
     }
 
     /**
-     * Extract filename from full path
+     * Locate a statement's document on the hot tier, restoring it from cold storage if archived
      */
-    private String extractFilename(String path) {
-        if (path == null) return null;
-        int lastSeparator = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
-        return lastSeparator >= 0 ? path.substring(lastSeparator + 1) : path;
+    private Path resolveDocumentFile(StatementResponse statement) {
+        String documentPath = statement.getDocumentPath();
+        if (documentPath == null) {
+            throw new FileStorageException("No document stored for statement: " + statement.getId());
+        }
+        if (ColdStorageService.isColdPath(documentPath)) {
+            return coldStorageService.restore(documentPath);
+        }
+        return fileStorageService.resolveFile(fileStorageService.extractFilename(documentPath));
+    }
+
+    /**
+     * Hash the document of a row stored without a checksum and write the result
+     * back, so only its first download pays for the hash. The update only fills
+     * a missing value and leaves the version alone, as the content is unchanged.
+     * Failing to store it does not fail the download.
+     */
+    private String backfillChecksum(StatementResponse statement, Path file) {
+        String id = statement.getId();
+        logger.debug("No stored checksum for statement {}, computing from file", id);
+        String checksum = ChecksumUtils.sha256Hex(file);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                int stored = statementRepository.backfillChecksum(id, checksum);
+                if (stored == 0) {
+                    stored = partitionService.backfillChecksum(statement, checksum);
+                }
+                if (stored > 0) {
+                    metadataCache.invalidateRemoved(id, statement.getCustomerId());
+                }
+            });
+        } catch (DataAccessException | TransactionException e) {
+            logger.warn("Could not store computed checksum of statement {}", id, e);
+        }
+        return checksum;
+    }
+
+    private DownloadableDocument toDownloadable(StatementResponse statement, String filename, Path file,
+                                                long length, String checksum) {
+        long lastModified = statement.getCreatedAt()
+                .atZone(ZoneId.systemDefault())
+                .toInstant()
+                .toEpochMilli();
+        return new DownloadableDocument(statement.getId(), filename, file, length, lastModified,
+                checksum, statement.getStatementDate(), statement.getDocumentType());
+    }
+
+    /**
+     * Current on-disk size of a resolved document
+     */
+    private long fileSize(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new FileStorageException("Failed to read size of: " + file, e);
+        }
     }
 }
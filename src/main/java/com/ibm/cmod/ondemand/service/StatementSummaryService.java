@@ -0,0 +1,292 @@
+package com.ibm.cmod.ondemand.service;
+
+import com.ibm.cmod.ondemand.dto.StatementPartitionResponse;
+import com.ibm.cmod.ondemand.dto.StatementSummaryResponse;
+import com.ibm.cmod.ondemand.dto.SummaryReconciliationResponse;
+import com.ibm.cmod.ondemand.entity.Statement;
+import com.ibm.cmod.ondemand.exception.InvalidRequestException;
+import com.ibm.cmod.ondemand.repository.StatementHistoryRepository;
+import com.ibm.cmod.ondemand.repository.StatementMaintenanceRepository;
+import com.ibm.cmod.ondemand.repository.StatementSummaryRepository;
+import com.ibm.cmod.ondemand.repository.StatementSummaryRepository.Aggregate;
+import com.ibm.cmod.ondemand.repository.StatementSummaryRepository.Counts;
+import com.ibm.cmod.ondemand.repository.StatementSummaryRepository.Dimension;
+import com.ibm.cmod.ondemand.repository.StatementSummaryRepository.Key;
+import com.ibm.cmod.ondemand.repository.StatementSummaryRepository.StatementFacts;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Statement counts and document bytes per customer, statement date, status and
+ * document type, kept in statement_summary so dashboards never scan the
+ * statement tables.
+ *
+ * Every write adds its deltas in its own transaction: creates count the new
+ * row, changes move a statement from its old keys to its new ones, purges and
+ * detached partitions subtract. A periodic reconciliation recomputes each
+ * dimension from the hot table and attached partitions and corrects keys that
+ * drifted, e.g. through writes made outside this service. Keys changed within
+ * the settle window are left to the next run, since in-flight writes would
+ * make them look wrong.
+ */
+@Service
+public class StatementSummaryService implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementSummaryService.class);
+
+    private static final int MAX_REPORTED_CORRECTIONS = 100;
+
+    private final StatementSummaryRepository summaryRepository;
+    private final StatementHistoryRepository historyRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong reconciliations = new AtomicLong();
+    private final AtomicLong correctedKeys = new AtomicLong();
+    private volatile LocalDateTime lastReconciledAt;
+
+    @Value("${app.summary.stripes:8}")
+    private int stripes;
+
+    @Value("${app.summary.settle-seconds:300}")
+    private long settleSeconds;
+
+    @Value("${app.summary.max-days:366}")
+    private int maxDays;
+
+    public StatementSummaryService(StatementSummaryRepository summaryRepository,
+                                   StatementHistoryRepository historyRepository,
+                                   PlatformTransactionManager transactionManager) {
+        this.summaryRepository = summaryRepository;
+        this.historyRepository = historyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Fill the summary on the first start after it was added
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeAfterStartup() {
+        if (summaryRepository.isEmpty()) {
+            logger.info("Statement summary is empty, building it from the statement tables");
+            reconcile(false);
+        }
+    }
+
+    // Incremental maintenance; each joins the caller's transaction
+
+    public void recordCreated(Statement statement) {
+        recordCreated(List.of(statement));
+    }
+
+    public void recordCreated(Collection<Statement> statements) {
+        SortedMap<Key, Counts> deltas = new TreeMap<>();
+        for (Statement statement : statements) {
+            addDeltas(deltas, StatementFacts.of(statement), 1);
+        }
+        add(deltas);
+    }
+
+    /**
+     * Move a statement from the keys it was counted under to its current ones
+     *
+     * @param before captured with {@link StatementFacts#of} before the change
+     */
+    public void recordChanged(StatementFacts before, Statement after) {
+        SortedMap<Key, Counts> deltas = new TreeMap<>();
+        addDeltas(deltas, before, -1);
+        addDeltas(deltas, StatementFacts.of(after), 1);
+        add(deltas);
+    }
+
+    /**
+     * Move counts between statuses, for set-based status changes
+     *
+     * @param previous counts of the changed rows by their previous status
+     */
+    public void recordStatusChange(Map<String, Counts> previous, Statement.StatementStatus status) {
+        SortedMap<Key, Counts> deltas = new TreeMap<>();
+        Key to = new Key(Dimension.STATUS, status.name());
+        previous.forEach((from, counts) -> {
+            deltas.merge(new Key(Dimension.STATUS, from), new Counts(0, 0).minus(counts), Counts::plus);
+            deltas.merge(to, counts, Counts::plus);
+        });
+        add(deltas);
+    }
+
+    public void recordRemoved(Collection<StatementFacts> statements) {
+        SortedMap<Key, Counts> deltas = new TreeMap<>();
+        for (StatementFacts statement : statements) {
+            addDeltas(deltas, statement, -1);
+        }
+        add(deltas);
+    }
+
+    /**
+     * Add a history partition being attached, or subtract one being detached
+     */
+    public void recordPartition(StatementPartitionResponse partition, boolean attached) {
+        SortedMap<Key, Counts> deltas = new TreeMap<>();
+        for (Dimension dimension : Dimension.values()) {
+            summaryRepository.aggregate(dimension, List.of(partition.getTableName())).forEach((key, aggregate) ->
+                    deltas.put(new Key(dimension, key), attached
+                            ? aggregate.getCounts()
+                            : new Counts(0, 0).minus(aggregate.getCounts())));
+        }
+        add(deltas);
+    }
+
+    private static void addDeltas(SortedMap<Key, Counts> deltas, StatementFacts statement, int sign) {
+        Counts delta = new Counts(sign, sign * statement.getFileSizeBytes());
+        for (Dimension dimension : Dimension.values()) {
+            deltas.merge(new Key(dimension, dimension.keyOf(statement)), delta, Counts::plus);
+        }
+    }
+
+    private void add(SortedMap<Key, Counts> deltas) {
+        deltas.values().removeIf(Counts::isZero);
+        summaryRepository.add(deltas, ThreadLocalRandom.current().nextInt(stripes));
+    }
+
+    // Reads
+
+    /**
+     * Totals, per status and per document type, plus the given customers and the
+     * statement dates in range. Cost depends on the keys asked for, not on how
+     * many statements there are.
+     */
+    @Transactional(readOnly = true)
+    public StatementSummaryResponse getSummary(Collection<String> customerIds, LocalDate from, LocalDate to) {
+        if ((from == null) != (to == null)) {
+            throw new InvalidRequestException("Both from and to are required for statement date totals");
+        }
+        if (from != null && (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= maxDays)) {
+            throw new InvalidRequestException("Statement date range must run forwards and span at most " + maxDays + " days");
+        }
+
+        StatementSummaryResponse response = new StatementSummaryResponse();
+        summaryRepository.findTotals(Dimension.STATUS).forEach((status, counts) -> {
+            response.setStatementCount(response.getStatementCount() + counts.getStatementCount());
+            response.setTotalBytes(response.getTotalBytes() + counts.getTotalBytes());
+            response.getByStatus().put(status, toResponse(counts));
+        });
+        summaryRepository.findTotals(Dimension.DOCUMENT_TYPE)
+                .forEach((type, counts) -> response.getByDocumentType().put(type, toResponse(counts)));
+        if (customerIds != null) {
+            summaryRepository.findTotals(Dimension.CUSTOMER, customerIds)
+                    .forEach((customer, counts) -> response.getByCustomer().put(customer, toResponse(counts)));
+        }
+        if (from != null) {
+            summaryRepository.findDateTotals(from, to)
+                    .forEach((date, counts) -> response.getByStatementDate().put(date, toResponse(counts)));
+        }
+        response.setLastReconciledAt(lastReconciledAt);
+        return response;
+    }
+
+    private static StatementSummaryResponse.Counts toResponse(Counts counts) {
+        return new StatementSummaryResponse.Counts(counts.getStatementCount(), counts.getTotalBytes());
+    }
+
+    // Reconciliation
+
+    /**
+     * Recompute every dimension from the statement tables and correct keys that drifted
+     */
+    public SummaryReconciliationResponse reconcile() {
+        return reconcile(true);
+    }
+
+    private SummaryReconciliationResponse reconcile(boolean settle) {
+        LocalDateTime start = LocalDateTime.now();
+        LocalDateTime settledBefore = settle ? start.minusSeconds(settleSeconds) : null;
+        SummaryReconciliationResponse report = new SummaryReconciliationResponse(start);
+
+        List<String> tables = new ArrayList<>();
+        tables.add(StatementMaintenanceRepository.HOT_TABLE);
+        historyRepository.findAttached(null, null).forEach(partition -> tables.add(partition.getTableName()));
+
+        for (Dimension dimension : Dimension.values()) {
+            // Not in a transaction, so both reads go to the primary
+            Map<String, Aggregate> actual = summaryRepository.aggregate(dimension, tables);
+            Map<String, Counts> counted = summaryRepository.findTotals(dimension);
+
+            Set<String> keys = new HashSet<>(actual.keySet());
+            keys.addAll(counted.keySet());
+            SortedMap<Key, Counts> corrections = new TreeMap<>();
+            for (String key : keys) {
+                Aggregate aggregate = actual.get(key);
+                Counts expected = aggregate != null ? aggregate.getCounts() : new Counts(0, 0);
+                Counts correction = expected.minus(counted.getOrDefault(key, new Counts(0, 0)));
+                if (correction.isZero()) {
+                    continue;
+                }
+                if (settledBefore != null && aggregate != null && aggregate.getLastUpdated() != null
+                        && aggregate.getLastUpdated().isAfter(settledBefore)) {
+                    report.setSkippedKeys(report.getSkippedKeys() + 1);
+                    continue;
+                }
+                corrections.put(new Key(dimension, key), correction);
+            }
+            report.setCheckedKeys(report.getCheckedKeys() + keys.size());
+
+            if (!corrections.isEmpty()) {
+                transactionTemplate.executeWithoutResult(status -> add(corrections));
+                corrections.forEach((key, correction) -> {
+                    if (report.getCorrectedKeys() < MAX_REPORTED_CORRECTIONS) {
+                        report.getCorrections().add(String.format("%s %s: %+d statements, %+d bytes",
+                                key.getDimension(), key.getValue(), correction.getStatementCount(),
+                                correction.getTotalBytes()));
+                    }
+                    report.setCorrectedKeys(report.getCorrectedKeys() + 1);
+                });
+                correctedKeys.addAndGet(corrections.size());
+            }
+        }
+
+        reconciliations.incrementAndGet();
+        lastReconciledAt = LocalDateTime.now();
+        report.setProcessingTimeMs(Duration.between(start, lastReconciledAt).toMillis());
+        if (report.getCorrectedKeys() > 0) {
+            logger.warn("Statement summary reconciliation corrected {} of {} keys: {}", report.getCorrectedKeys(),
+                    report.getCheckedKeys(), report.getCorrections().stream().limit(10).collect(Collectors.joining("; ")));
+        } else {
+            logger.info("Statement summary reconciliation checked {} keys, no drift ({} skipped as recently changed)",
+                    report.getCheckedKeys(), report.getSkippedKeys());
+        }
+        return report;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("statements.summary.reconciliations", reconciliations, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("statements.summary.corrected.keys", correctedKeys, AtomicLong::get)
+                .register(registry);
+    }
+}
@@ -0,0 +1,205 @@
+package com.ibm.cmod.ondemand.service;
+
+import com.ibm.cmod.ondemand.dto.RebalanceReportResponse;
+import com.ibm.cmod.ondemand.exception.InvalidRequestException;
+import com.ibm.cmod.ondemand.util.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Moves documents that sit on a volume other than their consistent-hash owner.
+ * After a volume is added only the share the new volume now owns is moved.
+ * Each move makes the file visible at its new location before removing the old
+ * one, so reads keep working while the rebalance runs, and holds the file's
+ * lock so a concurrent delete cannot leave the moved copy behind.
+ */
+@Service
+public class StorageRebalanceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageRebalanceService.class);
+
+    private static final String TEMP_SUFFIX = ".rebalance.tmp";
+
+    private static final int QUEUED_MOVES_PER_WORKER = 64;
+
+    private final FileStorageService fileStorageService;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${app.storage.rebalance.on-startup:true}")
+    private boolean rebalanceOnStartup;
+
+    @Value("${app.storage.rebalance.parallelism:4}")
+    private int parallelism;
+
+    @Value("${app.storage.rebalance.max-files-per-second:500}")
+    private double maxFilesPerSecond;
+
+    public StorageRebalanceService(FileStorageService fileStorageService) {
+        this.fileStorageService = fileStorageService;
+    }
+
+    /**
+     * Pick up volumes added to the configuration since the last start
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebalanceAfterStartup() {
+        if (rebalanceOnStartup && fileStorageService.getVolumes().size() > 1) {
+            rebalanceInBackground();
+        }
+    }
+
+    /**
+     * Add a volume and start moving its share of documents in the background
+     */
+    public Path addVolume(String location, int weight) {
+        Path volume = fileStorageService.addVolume(location, weight);
+        rebalanceInBackground();
+        return volume;
+    }
+
+    public void rebalanceInBackground() {
+        Thread worker = new Thread(() -> {
+            try {
+                rebalance();
+            } catch (InvalidRequestException e) {
+                logger.info("Storage rebalance skipped: {}", e.getMessage());
+            } catch (Exception e) {
+                logger.error("Background storage rebalance failed", e);
+            }
+        }, "storage-rebalance");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Move every misplaced document to its owning volume
+     */
+    public RebalanceReportResponse rebalance() {
+        if (!running.compareAndSet(false, true)) {
+            throw new InvalidRequestException("A storage rebalance is already running");
+        }
+
+        Map<String, Integer> volumes = new LinkedHashMap<>();
+        fileStorageService.getVolumeWeights().forEach((path, weight) -> volumes.put(path.toString(), weight));
+        RebalanceReportResponse report = RebalanceReportResponse.builder()
+                .volumes(volumes)
+                .startTime(LocalDateTime.now())
+                .build();
+        logger.info("Starting storage rebalance across volumes {}", volumes);
+
+        RateLimiter rateLimiter = new RateLimiter(maxFilesPerSecond);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        // The scan waits for a permit before queuing a move, so however many files are
+        // misplaced only a bounded number of moves is held in memory at once
+        int maxQueued = parallelism * QUEUED_MOVES_PER_WORKER;
+        Semaphore queued = new Semaphore(maxQueued);
+        try {
+            for (Path volume : fileStorageService.getVolumes()) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(volume)) {
+                    for (Path file : files) {
+                        String filename = file.getFileName().toString();
+                        if (!Files.isRegularFile(file) || filename.endsWith(TEMP_SUFFIX)) {
+                            continue;
+                        }
+                        report.addScanned();
+                        Path owner = fileStorageService.ownerOf(filename);
+                        if (!owner.equals(volume)) {
+                            queued.acquire();
+                            executor.execute(() -> {
+                                try {
+                                    move(file, owner.resolve(filename), rateLimiter, report);
+                                } catch (RuntimeException e) {
+                                    logger.error("Failed to move {}", file, e);
+                                    report.addFailure("Failed to move " + filename + ": " + e.getMessage());
+                                } finally {
+                                    queued.release();
+                                }
+                            });
+                        }
+                    }
+                } catch (IOException e) {
+                    logger.error("Failed to scan storage volume {}", volume, e);
+                    report.addFailure("Failed to scan " + volume + ": " + e.getMessage());
+                }
+            }
+            // Every permit is back once the last move has finished
+            queued.acquire(maxQueued);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Storage rebalance interrupted");
+        } finally {
+            executor.shutdownNow();
+            running.set(false);
+            report.setEndTime(LocalDateTime.now());
+            report.setProcessingTimeMs(Duration.between(report.getStartTime(), report.getEndTime()).toMillis());
+        }
+
+        logger.info("Storage rebalance completed: {} scanned, {} moved ({} bytes), {} failed",
+                report.getScanned(), report.getMoved(), report.getBytesMoved(), report.getFailed());
+        return report;
+    }
+
+    private void move(Path source, Path target, RateLimiter rateLimiter, RebalanceReportResponse report) {
+        try {
+            rateLimiter.acquire(1);
+            // Held across the whole move, so a concurrent delete removes either the
+            // original or the published copy, never only the original
+            Lock lock = fileStorageService.lockFor(source.getFileName().toString());
+            lock.lock();
+            try {
+                if (!Files.exists(source)) {
+                    logger.debug("{} was deleted before it could be rebalanced", source.getFileName());
+                    return;
+                }
+                long size = Files.size(source);
+
+                if (Files.exists(target) && Files.size(target) == size) {
+                    // Already copied by an earlier, interrupted run
+                    Files.deleteIfExists(source);
+                    report.addMoved(0);
+                    return;
+                }
+
+                try {
+                    Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    // Different mounts: publish a complete copy first, then drop the original
+                    Path temp = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+                    Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    Files.delete(source);
+                }
+                report.addMoved(size);
+                logger.debug("Rebalanced {} to {}", source.getFileName(), target.getParent());
+            } finally {
+                lock.unlock();
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.error("Failed to move {} to {}", source, target, e);
+            report.addFailure("Failed to move " + source.getFileName() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.ibm.cmod.ondemand.service;
+
+import com.ibm.cmod.ondemand.dto.StatementFilter;
+import com.ibm.cmod.ondemand.dto.StatementResponse;
+import com.ibm.cmod.ondemand.dto.TieringReportResponse;
+import com.ibm.cmod.ondemand.entity.Statement;
+import com.ibm.cmod.ondemand.exception.InvalidRequestException;
+import com.ibm.cmod.ondemand.repository.StatementRepository;
+import com.ibm.cmod.ondemand.repository.StatementSummaryRepository.Counts;
+import com.ibm.cmod.ondemand.service.cache.StatementMetadataCache;
+import com.ibm.cmod.ondemand.service.outbox.StatementOutboxService;
+import com.ibm.cmod.ondemand.util.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Moves aged statements from the hot storage directory into compressed cold
+ * bundles and flips them to ARCHIVED. Batches run in parallel and are paced by
+ * a rate limiter so archiving never competes with request traffic for I/O.
+ */
+@Service
+public class StorageTieringService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageTieringService.class);
+
+    private final StatementRepository statementRepository;
+    private final FileStorageService fileStorageService;
+    private final ColdStorageService coldStorageService;
+    private final StatementMetadataCache metadataCache;
+    private final StatementSummaryService summaryService;
+    private final StatementOutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.storage.tiering.archive-after-days:400}")
+    private int archiveAfterDays;
+
+    @Value("${app.storage.tiering.bundle-size:500}")
+    private int bundleSize;
+
+    @Value("${app.storage.tiering.parallelism:4}")
+    private int parallelism;
+
+    @Value("${app.storage.tiering.max-documents-per-run:50000}")
+    private int maxDocumentsPerRun;
+
+    @Value("${app.storage.tiering.max-documents-per-second:200}")
+    private double maxDocumentsPerSecond;
+
+    public StorageTieringService(StatementRepository statementRepository,
+                                 FileStorageService fileStorageService,
+                                 ColdStorageService coldStorageService,
+                                 StatementMetadataCache metadataCache,
+                                 StatementSummaryService summaryService,
+                                 StatementOutboxService outboxService,
+                                 PlatformTransactionManager transactionManager) {
+        this.statementRepository = statementRepository;
+        this.fileStorageService = fileStorageService;
+        this.coldStorageService = coldStorageService;
+        this.metadataCache = metadataCache;
+        this.summaryService = summaryService;
+        this.outboxService = outboxService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Archive AVAILABLE statements older than the configured age
+     */
+    public TieringReportResponse runTiering() {
+        LocalDate cutoff = LocalDate.now().minusDays(archiveAfterDays);
+        logger.info("Starting storage tiering for statements dated before {}", cutoff);
+        return archive(StatementFilter.builder().to(cutoff.minusDays(1)).build(), cutoff);
+    }
+
+    /**
+     * Archive the AVAILABLE statements matching the filter now, whatever their age,
+     * e.g. one customer's or one document type's. Statements already rolled off
+     * into history partitions are past the tiering age and not considered.
+     */
+    public TieringReportResponse archiveMatching(StatementFilter filter) {
+        if (filter.getCustomerId() == null && filter.getDocumentType() == null
+                && filter.getFrom() == null && filter.getTo() == null) {
+            throw new InvalidRequestException("At least one of customerId, documentType, from or to is required");
+        }
+        if (filter.getStatus() != null) {
+            throw new InvalidRequestException("Only AVAILABLE statements can be archived; omit status");
+        }
+        logger.info("Starting storage tiering for statements of customer {}, type {}, dated {} to {}",
+                filter.getCustomerId(), filter.getDocumentType(), filter.getFrom(), filter.getTo());
+        return archive(filter, filter.getTo() != null ? filter.getTo().plusDays(1) : null);
+    }
+
+    private TieringReportResponse archive(StatementFilter filter, LocalDate before) {
+        StatementFilter candidates = StatementFilter.builder()
+                .customerId(filter.getCustomerId())
+                .documentType(filter.getDocumentType())
+                .status(Statement.StatementStatus.AVAILABLE.name())
+                .from(filter.getFrom())
+                .to(filter.getTo())
+                .build();
+
+        TieringReportResponse report = TieringReportResponse.builder()
+                .archivedBefore(before)
+                .startTime(LocalDateTime.now())
+                .build();
+
+        RateLimiter rateLimiter = new RateLimiter(maxDocumentsPerSecond);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            int remaining = maxDocumentsPerRun;
+            while (remaining > 0) {
+                int pageSize = Math.min(bundleSize * parallelism, remaining);
+                // Archived rows drop out of the filter, so every page starts from the oldest remaining
+                List<StatementResponse> page = statementRepository.search(candidates, null, false, pageSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                report.setCandidates(report.getCandidates() + page.size());
+                remaining -= page.size();
+
+                int archivedBefore = report.getArchivedCount();
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < page.size(); i += bundleSize) {
+                    List<StatementResponse> batch = page.subList(i, Math.min(i + bundleSize, page.size()));
+                    futures.add(executor.submit(() -> archiveBatch(batch, rateLimiter, report)));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+
+                // Failed rows stay AVAILABLE and would be selected again; stop rather than spin on them
+                if (report.getArchivedCount() == archivedBefore) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Storage tiering interrupted");
+        } catch (ExecutionException e) {
+            logger.error("Storage tiering batch failed unexpectedly", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            report.setRestoredFilesPurged(coldStorageService.purgeRestored());
+            report.setEndTime(LocalDateTime.now());
+            report.setProcessingTimeMs(Duration.between(report.getStartTime(), report.getEndTime()).toMillis());
+        }
+
+        logger.info("Storage tiering completed: {} candidates, {} archived in {} bundles, {} failed",
+                report.getCandidates(), report.getArchivedCount(), report.getBundleCount(), report.getFailedCount());
+        return report;
+    }
+
+    /**
+     * Bundle one batch of hot files, repoint the rows at the bundle, then drop the hot copies.
+     * The bundle is durable before the rows change, and hot files are only removed after commit,
+     * so a crash at any point leaves every statement readable.
+     */
+    private void archiveBatch(List<StatementResponse> batch, RateLimiter rateLimiter, TieringReportResponse report) {
+        try {
+            rateLimiter.acquire(batch.size());
+
+            Map<String, Path> hotFiles = new LinkedHashMap<>();
+            for (StatementResponse statement : batch) {
+                String filename = fileStorageService.extractFilename(statement.getDocumentPath());
+                if (filename == null || !fileStorageService.fileExists(filename)) {
+                    logger.warn("Hot file missing for statement {}, not archived", statement.getId());
+                    continue;
+                }
+                hotFiles.put(statement.getId(), fileStorageService.resolveFile(filename));
+            }
+            if (hotFiles.isEmpty()) {
+                report.addFailure(batch.size(), "No hot files found for batch of " + batch.size());
+                return;
+            }
+
+            Path bundle = coldStorageService.writeBundle(new ArrayList<>(hotFiles.values()));
+
+            List<String> archived = transactionTemplate.execute(status -> {
+                List<String> ids = new ArrayList<>();
+                List<Statement> changed = new ArrayList<>();
+                long bytes = 0;
+                for (Statement statement : statementRepository.findAllById(hotFiles.keySet())) {
+                    // Skip rows changed since selection, e.g. deleted meanwhile
+                    if (statement.getStatus() != Statement.StatementStatus.AVAILABLE) {
+                        continue;
+                    }
+                    String entryName = hotFiles.get(statement.getId()).getFileName().toString();
+                    statement.setDocumentPath(coldStorageService.documentPath(bundle, entryName));
+                    statement.setStatus(Statement.StatementStatus.ARCHIVED);
+                    metadataCache.invalidate(statement);
+                    ids.add(statement.getId());
+                    changed.add(statement);
+                    bytes += statement.getFileSizeBytes() != null ? statement.getFileSizeBytes() : 0L;
+                }
+                summaryService.recordStatusChange(Map.of(Statement.StatementStatus.AVAILABLE.name(),
+                        new Counts(ids.size(), bytes)), Statement.StatementStatus.ARCHIVED);
+                outboxService.record(StatementOutboxService.EventType.UPDATED, changed);
+                return ids;
+            });
+
+            for (String id : archived) {
+                fileStorageService.deleteFile(hotFiles.get(id).getFileName().toString());
+            }
+            report.addBundle(bundle.getFileName().toString(), archived.size());
+            if (archived.size() < batch.size()) {
+                report.addFailure(batch.size() - archived.size(),
+                        (batch.size() - archived.size()) + " statements skipped in " + bundle.getFileName());
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            report.addFailure(batch.size(), "Interrupted");
+        } catch (RuntimeException e) {
+            logger.error("Failed to archive batch of {} statements", batch.size(), e);
+            report.addFailure(batch.size(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.ibm.cmod.ondemand.service.cache;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Pinned view of a document held in the off-heap cache. The underlying
+ * blocks cannot be reused while the handle is open, so it must be closed
+ * once the content has been written.
+ */
+public class CachedDocument implements AutoCloseable {
+
+    private final OffHeapDocumentCache cache;
+    private final OffHeapDocumentCache.Entry entry;
+    private boolean closed;
+
+    CachedDocument(OffHeapDocumentCache cache, OffHeapDocumentCache.Entry entry) {
+        this.cache = cache;
+        this.entry = entry;
+    }
+
+    public long getLength() {
+        return entry.length;
+    }
+
+    public String getChecksum() {
+        return entry.checksum;
+    }
+
+    /**
+     * Write [start, start + count) of the document to the target channel
+     */
+    public void writeTo(WritableByteChannel target, long start, long count) throws IOException {
+        cache.write(entry, target, start, count);
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            cache.release(entry);
+        }
+    }
+}
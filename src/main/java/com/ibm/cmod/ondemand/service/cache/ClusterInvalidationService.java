@@ -0,0 +1,149 @@
+package com.ibm.cmod.ondemand.service.cache;
+
+import com.ibm.cmod.ondemand.repository.StatementChangeLogRepository;
+import com.ibm.cmod.ondemand.repository.StatementChangeLogRepository.ChangeRecord;
+import com.ibm.cmod.ondemand.service.StatementCompletionNotifier;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies metadata cache invalidations logged by other instances. Each poll
+ * reads statement_change_log past a watermark; the lag is bounded by the poll
+ * interval.
+ *
+ * Sequence numbers are assigned at insert but become visible at commit, so a
+ * lower sequence can appear after a higher one. The watermark therefore only
+ * advances over contiguous sequences; a gap is re-read until it fills or is
+ * older than the gap timeout (a rolled-back insert never fills). Changes seen
+ * above the watermark are remembered so none is applied twice. Applied changes
+ * also wake local long-polls waiting on the statement.
+ */
+@Service
+public class ClusterInvalidationService implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterInvalidationService.class);
+
+    private final StatementChangeLogRepository changeLogRepository;
+    private final StatementMetadataCache metadataCache;
+    private final StatementCompletionNotifier completionNotifier;
+
+    @Value("${app.cache.invalidation.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.cache.invalidation.gap-timeout-ms:30000}")
+    private long gapTimeoutMs;
+
+    @Value("${app.cache.invalidation.retention-hours:24}")
+    private int retentionHours;
+
+    private long watermark = -1;
+    private final TreeMap<Long, Long> seenAboveWatermark = new TreeMap<>();
+
+    private final AtomicLong applied = new AtomicLong();
+    private volatile long lastLagMs;
+
+    public ClusterInvalidationService(StatementChangeLogRepository changeLogRepository,
+                                      StatementMetadataCache metadataCache,
+                                      StatementCompletionNotifier completionNotifier) {
+        this.changeLogRepository = changeLogRepository;
+        this.metadataCache = metadataCache;
+        this.completionNotifier = completionNotifier;
+    }
+
+    /**
+     * Apply changes logged by other instances since the last poll
+     *
+     * @return number of invalidations applied
+     */
+    public synchronized int poll() {
+        if (watermark < 0) {
+            // The cache starts empty, so history before startup is irrelevant
+            watermark = changeLogRepository.findMaxSeq();
+            logger.info("Cluster cache invalidation started at sequence {} (node {})",
+                    watermark, metadataCache.getNodeId());
+            return 0;
+        }
+
+        List<ChangeRecord> changes = changeLogRepository.findAfter(watermark, batchSize);
+        long now = System.currentTimeMillis();
+        int count = 0;
+        for (ChangeRecord change : changes) {
+            if (seenAboveWatermark.putIfAbsent(change.getSeq(), now) != null) {
+                continue;
+            }
+            if (metadataCache.getNodeId().equals(change.getOriginNode())) {
+                continue;
+            }
+            metadataCache.applyRemoteInvalidation(change.getStatementId(), change.getCustomerId());
+            if (change.getStatementId() != null) {
+                // Long-polls here may be waiting on a statement completed by another instance
+                completionNotifier.signal(change.getStatementId());
+            }
+            lastLagMs = Math.max(0, Duration.between(change.getChangedAt(), LocalDateTime.now()).toMillis());
+            count++;
+        }
+        advanceWatermark(now);
+
+        if (count > 0) {
+            applied.addAndGet(count);
+            logger.debug("Applied {} remote cache invalidations, watermark {}", count, watermark);
+        }
+        return count;
+    }
+
+    /**
+     * Delete change log rows older than the retention period
+     */
+    public int purge() {
+        int deleted = changeLogRepository.deleteOlderThan(LocalDateTime.now().minusHours(retentionHours));
+        if (deleted > 0) {
+            logger.info("Purged {} statement change log rows", deleted);
+        }
+        return deleted;
+    }
+
+    private void advanceWatermark(long now) {
+        while (!seenAboveWatermark.isEmpty()) {
+            Map.Entry<Long, Long> first = seenAboveWatermark.firstEntry();
+            if (first.getKey() != watermark + 1 && now - first.getValue() < gapTimeoutMs) {
+                break;
+            }
+            if (first.getKey() != watermark + 1) {
+                logger.debug("Giving up on change log sequences {} to {}", watermark + 1, first.getKey() - 1);
+            }
+            watermark = first.getKey();
+            seenAboveWatermark.pollFirstEntry();
+        }
+    }
+
+    public synchronized long getWatermark() { return watermark; }
+
+    public long getAppliedCount() { return applied.get(); }
+
+    public long getLastLagMs() { return lastLagMs; }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("statements.cache.invalidation.applied", this,
+                        ClusterInvalidationService::getAppliedCount)
+                .register(registry);
+        Gauge.builder("statements.cache.invalidation.lag", this, ClusterInvalidationService::getLastLagMs)
+                .baseUnit("milliseconds")
+                .register(registry);
+        Gauge.builder("statements.cache.invalidation.watermark", this, ClusterInvalidationService::getWatermark)
+                .register(registry);
+    }
+}
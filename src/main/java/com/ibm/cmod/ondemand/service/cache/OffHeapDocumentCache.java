@@ -0,0 +1,445 @@
+package com.ibm.cmod.ondemand.service.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded cache of document bytes kept outside the Java heap.
+ *
+ * Memory is allocated once at startup as direct buffers and carved into
+ * fixed-size blocks, so large PDFs neither add GC pressure nor fragment the
+ * cache. Eviction is least-frequently-used with periodic aging (counters are
+ * halved), falling back to least-recently-used between equal frequencies.
+ *
+ * Downloads admit a document only on its second miss within the admission
+ * window (see {@link #admitOnRepeat}), so one-off reads neither pay for the
+ * copy nor displace documents that are read again.
+ *
+ * Bytes are copied into reserved blocks outside the monitor. A document is
+ * published only if its reservation is still the latest for its ID, so an
+ * invalidation, or another put or load, during the copy discards it.
+ */
+@Component
+public class OffHeapDocumentCache implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapDocumentCache.class);
+
+    // A single direct buffer cannot exceed 2 GB, so larger capacities span several slabs
+    private static final long MAX_SLAB_BYTES = 1L << 30;
+
+    private static final int MAX_FREQUENCY = 255;
+
+    private static final Comparator<Entry> EVICTION_ORDER = Comparator
+            .comparingInt((Entry e) -> e.frequency)
+            .thenComparingLong(e -> e.lastAccess);
+
+    @Value("${app.cache.documents.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.cache.documents.capacity-bytes:67108864}")
+    private long capacityBytes;
+
+    @Value("${app.cache.documents.block-size-bytes:65536}")
+    private int blockSize;
+
+    @Value("${app.cache.documents.max-entry-bytes:8388608}")
+    private long maxEntryBytes;
+
+    @Value("${app.cache.documents.admission-window:10000}")
+    private int admissionWindow;
+
+    private ByteBuffer[] blocks = new ByteBuffer[0];
+    private int[] freeBlocks = new int[0];
+    private int freeCount;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    /** Blocks reserved for a copy still under way, by ID; compared by identity on publish */
+    private final Map<String, int[]> inFlight = new HashMap<>();
+    private final TreeSet<Entry> evictionQueue = new TreeSet<>(EVICTION_ORDER);
+    private Map<String, Boolean> recentMisses = new HashMap<>();
+    private long clock;
+    private long accessesSinceAging;
+    private long usedBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled || capacityBytes <= 0) {
+            logger.info("Off-heap document cache disabled");
+            enabled = false;
+            return;
+        }
+
+        int window = admissionWindow;
+        recentMisses = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > window;
+            }
+        };
+
+        int totalBlocks = (int) Math.min(Integer.MAX_VALUE, capacityBytes / blockSize);
+        int blocksPerSlab = (int) (MAX_SLAB_BYTES / blockSize);
+        blocks = new ByteBuffer[totalBlocks];
+        freeBlocks = new int[totalBlocks];
+
+        int allocated = 0;
+        while (allocated < totalBlocks) {
+            int slabBlocks = Math.min(blocksPerSlab, totalBlocks - allocated);
+            ByteBuffer slab = ByteBuffer.allocateDirect(slabBlocks * blockSize);
+            for (int i = 0; i < slabBlocks; i++) {
+                ByteBuffer view = slab.duplicate();
+                view.limit((i + 1) * blockSize);
+                view.position(i * blockSize);
+                blocks[allocated + i] = view.slice();
+            }
+            allocated += slabBlocks;
+        }
+        for (int i = 0; i < totalBlocks; i++) {
+            freeBlocks[i] = totalBlocks - 1 - i;
+        }
+        freeCount = totalBlocks;
+
+        logger.info("Initialized off-heap document cache: {} blocks of {} bytes ({} bytes total)",
+                totalBlocks, blockSize, (long) totalBlocks * blockSize);
+    }
+
+    /**
+     * Cache document bytes under the statement ID, replacing any previous entry
+     */
+    public void put(String id, byte[] data, String checksum) {
+        if (!admissible(data.length)) {
+            return;
+        }
+        int[] reserved = reserve(id, data.length);
+        if (reserved == null) {
+            return;
+        }
+        int offset = 0;
+        for (int block : reserved) {
+            ByteBuffer target = blocks[block].duplicate();
+            int chunk = Math.min(blockSize, data.length - offset);
+            target.put(data, offset, chunk);
+            offset += chunk;
+        }
+        publish(id, reserved, data.length, checksum, false);
+    }
+
+    /**
+     * Read a stored file into the cache and return a pinned handle to it, or
+     * null if not admitted or invalidated while it was read
+     */
+    public CachedDocument load(String id, Path file, long length, String checksum) {
+        if (!admissible(length)) {
+            return null;
+        }
+        int[] reserved = reserve(id, length);
+        if (reserved == null) {
+            return null;
+        }
+        try {
+            readFile(file, reserved, length);
+        } catch (IOException e) {
+            logger.warn("Failed to load document {} into cache", id, e);
+            synchronized (this) {
+                inFlight.remove(id, reserved);
+                freeAll(reserved);
+            }
+            return null;
+        }
+        Entry entry = publish(id, reserved, length, checksum, true);
+        return entry != null ? new CachedDocument(this, entry) : null;
+    }
+
+    /**
+     * Whether a download that missed should load the document: true on its second
+     * miss among the last admission-window distinct missed documents
+     */
+    public synchronized boolean admitOnRepeat(String id) {
+        if (!enabled) {
+            return false;
+        }
+        if (recentMisses.remove(id) != null) {
+            return true;
+        }
+        recentMisses.put(id, Boolean.TRUE);
+        return false;
+    }
+
+    /**
+     * Look up a document and pin it for reading, or null on a miss
+     */
+    public CachedDocument acquire(String id) {
+        if (!enabled) {
+            return null;
+        }
+        synchronized (this) {
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            touch(entry);
+            entry.refCount++;
+            return new CachedDocument(this, entry);
+        }
+    }
+
+    /**
+     * Drop a document from the cache, and any copy of it still being loaded;
+     * blocks still being read are freed on release
+     */
+    public synchronized void invalidate(String id) {
+        inFlight.remove(id);
+        Entry entry = entries.remove(id);
+        if (entry != null) {
+            retire(entry);
+        }
+    }
+
+    public long getHitCount() { return hits.get(); }
+
+    public long getMissCount() { return misses.get(); }
+
+    public long getEvictionCount() { return evictions.get(); }
+
+    public long getRejectionCount() { return rejections.get(); }
+
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public synchronized long getUsedBytes() { return usedBytes; }
+
+    public long getCapacityBytes() { return (long) blocks.length * blockSize; }
+
+    public synchronized int getEntryCount() { return entries.size(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("statements.document.cache.hits", this, OffHeapDocumentCache::getHitCount)
+                .register(registry);
+        FunctionCounter.builder("statements.document.cache.misses", this, OffHeapDocumentCache::getMissCount)
+                .register(registry);
+        FunctionCounter.builder("statements.document.cache.evictions", this, OffHeapDocumentCache::getEvictionCount)
+                .register(registry);
+        FunctionCounter.builder("statements.document.cache.rejections", this, OffHeapDocumentCache::getRejectionCount)
+                .register(registry);
+        Gauge.builder("statements.document.cache.hit.ratio", this, OffHeapDocumentCache::getHitRatio)
+                .register(registry);
+        Gauge.builder("statements.document.cache.used.bytes", this, OffHeapDocumentCache::getUsedBytes)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("statements.document.cache.capacity.bytes", this, OffHeapDocumentCache::getCapacityBytes)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("statements.document.cache.entries", this, OffHeapDocumentCache::getEntryCount)
+                .register(registry);
+    }
+
+    void write(Entry entry, WritableByteChannel target, long start, long count) throws IOException {
+        long position = start;
+        long remaining = Math.min(count, entry.length - start);
+        while (remaining > 0) {
+            int blockIndex = (int) (position / blockSize);
+            int offset = (int) (position % blockSize);
+            int chunk = (int) Math.min(blockSize - offset, remaining);
+
+            ByteBuffer source = blocks[entry.blocks[blockIndex]].duplicate();
+            source.limit(offset + chunk);
+            source.position(offset);
+            while (source.hasRemaining()) {
+                target.write(source);
+            }
+            position += chunk;
+            remaining -= chunk;
+        }
+    }
+
+    /**
+     * Copy the file into the reserved blocks, unsynchronized
+     */
+    void readFile(Path file, int[] reserved, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = 0;
+            for (int block : reserved) {
+                ByteBuffer target = blocks[block].duplicate();
+                target.limit((int) Math.min(blockSize, length - position));
+                while (target.hasRemaining()) {
+                    int read = channel.read(target, position + target.position());
+                    if (read < 0) {
+                        throw new IOException("File shorter than expected: " + file);
+                    }
+                }
+                position += blockSize;
+            }
+        }
+    }
+
+    synchronized void release(Entry entry) {
+        entry.refCount--;
+        if (entry.removed && entry.refCount == 0) {
+            freeAll(entry.blocks);
+        }
+    }
+
+    private boolean admissible(long length) {
+        if (!enabled || length <= 0) {
+            return false;
+        }
+        if (length > maxEntryBytes) {
+            rejections.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Take enough free blocks for a document, evicting cold entries if needed.
+     * Supersedes any earlier reservation for the same ID, even if none is made.
+     */
+    private synchronized int[] reserve(String id, long length) {
+        inFlight.remove(id);
+        Entry previous = entries.remove(id);
+        if (previous != null) {
+            retire(previous);
+        }
+
+        int needed = (int) ((length + blockSize - 1) / blockSize);
+        Iterator<Entry> candidates = evictionQueue.iterator();
+        while (freeCount < needed && candidates.hasNext()) {
+            Entry victim = candidates.next();
+            if (victim.refCount > 0) {
+                continue;
+            }
+            candidates.remove();
+            entries.remove(victim.id);
+            victim.removed = true;
+            usedBytes -= victim.length;
+            freeAll(victim.blocks);
+            evictions.incrementAndGet();
+        }
+        if (freeCount < needed) {
+            rejections.incrementAndGet();
+            logger.debug("Document {} not cached, {} blocks needed but only {} free", id, needed, freeCount);
+            return null;
+        }
+
+        int[] reserved = new int[needed];
+        for (int i = 0; i < needed; i++) {
+            reserved[i] = freeBlocks[--freeCount];
+        }
+        inFlight.put(id, reserved);
+        return reserved;
+    }
+
+    /**
+     * Make copied blocks visible under the ID, or free them and return null if
+     * the reservation was invalidated or superseded during the copy
+     */
+    private synchronized Entry publish(String id, int[] reserved, long length, String checksum, boolean pin) {
+        if (inFlight.get(id) != reserved) {
+            logger.debug("Document {} changed while it was copied, not cached", id);
+            freeAll(reserved);
+            return null;
+        }
+        inFlight.remove(id);
+        Entry entry = new Entry(id, reserved, length, checksum);
+        if (pin) {
+            entry.refCount = 1;
+        }
+        Entry previous = entries.put(id, entry);
+        if (previous != null) {
+            retire(previous);
+        }
+        entry.frequency = 1;
+        entry.lastAccess = ++clock;
+        evictionQueue.add(entry);
+        usedBytes += length;
+        return entry;
+    }
+
+    private void touch(Entry entry) {
+        evictionQueue.remove(entry);
+        if (entry.frequency < MAX_FREQUENCY) {
+            entry.frequency++;
+        }
+        entry.lastAccess = ++clock;
+        evictionQueue.add(entry);
+
+        // Halve all counters periodically so formerly hot documents can age out
+        if (++accessesSinceAging >= Math.max(1024, entries.size() * 16L)) {
+            accessesSinceAging = 0;
+            Entry[] snapshot = evictionQueue.toArray(new Entry[0]);
+            evictionQueue.clear();
+            for (Entry e : snapshot) {
+                e.frequency = Math.max(1, e.frequency / 2);
+                evictionQueue.add(e);
+            }
+        }
+    }
+
+    private void retire(Entry entry) {
+        evictionQueue.remove(entry);
+        entry.removed = true;
+        usedBytes -= entry.length;
+        if (entry.refCount == 0) {
+            freeAll(entry.blocks);
+        }
+    }
+
+    private void freeAll(int[] released) {
+        for (int block : released) {
+            freeBlocks[freeCount++] = block;
+        }
+    }
+
+    /**
+     * Cache entry; mutable fields are guarded by the cache monitor
+     */
+    static final class Entry {
+        final String id;
+        final int[] blocks;
+        final long length;
+        final String checksum;
+        int frequency;
+        long lastAccess;
+        int refCount;
+        boolean removed;
+
+        Entry(String id, int[] blocks, long length, String checksum) {
+            this.id = id;
+            this.blocks = blocks;
+            this.length = length;
+            this.checksum = checksum;
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package com.ibm.cmod.ondemand.service.cache;
+
+import com.ibm.cmod.ondemand.config.ReadRouting;
+import com.ibm.cmod.ondemand.dto.StatementResponse;
+import com.ibm.cmod.ondemand.entity.Statement;
+import com.ibm.cmod.ondemand.repository.StatementChangeLogRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded, in-process read-through cache of statement metadata by ID and of
+ * per-customer statement lists, each evicted least-recently-used.
+ *
+ * Invalidation leaves a marker carrying the statement's new @Version and a
+ * sequence stamp. A loader that read the row before the write committed comes
+ * back with an older version (or an older stamp, for customer lists) and its
+ * result is discarded, so a stale row can never be cached after an update.
+ * When a marker itself is evicted, every load that started before it is
+ * discarded instead.
+ *
+ * Each invalidation is also appended to the statement change log inside the
+ * writing transaction, so other instances can apply it (see
+ * {@link ClusterInvalidationService}).
+ *
+ * Every invalidation also updates the delta of the
+ * {@link StatementMetadataSnapshot}, whatever this cache's own settings, and
+ * evicts what Hibernate cannot have seen from the second-level cache (see
+ * {@link StatementSecondLevelCache}).
+ *
+ * Misses are loaded from the primary even with read replicas configured: a
+ * lagging replica could return a row older than an invalidation already
+ * applied here, and the stamp check would admit it.
+ */
+@Component
+public class StatementMetadataCache implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementMetadataCache.class);
+
+    private final boolean enabled;
+    private final boolean clusterInvalidation;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final StatementChangeLogRepository changeLogRepository;
+    private final StatementMetadataSnapshot snapshot;
+    private final StatementSecondLevelCache secondLevelCache;
+
+    private final Map<String, Entry<StatementResponse>> statements;
+    private final Map<String, Entry<List<StatementResponse>>> customers;
+    private long sequence;
+    private long evictedMarkerStamp;
+
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+    private final AtomicLong customerHits = new AtomicLong();
+    private final AtomicLong customerMisses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong staleRejections = new AtomicLong();
+
+    public StatementMetadataCache(StatementChangeLogRepository changeLogRepository,
+                                  StatementMetadataSnapshot snapshot,
+                                  StatementSecondLevelCache secondLevelCache,
+                                  @Value("${app.cache.metadata.enabled:true}") boolean enabled,
+                                  @Value("${app.cache.metadata.max-statements:10000}") int maxStatements,
+                                  @Value("${app.cache.metadata.max-customers:2000}") int maxCustomers,
+                                  @Value("${app.cache.invalidation.enabled:true}") boolean clusterInvalidation) {
+        this.changeLogRepository = changeLogRepository;
+        this.snapshot = snapshot;
+        this.secondLevelCache = secondLevelCache;
+        this.enabled = enabled;
+        this.clusterInvalidation = clusterInvalidation;
+        this.statements = boundedMap(maxStatements);
+        this.customers = boundedMap(maxCustomers);
+        logger.info("Statement metadata cache {} ({} statements, {} customer lists)",
+                enabled ? "enabled" : "disabled", maxStatements, maxCustomers);
+    }
+
+    /**
+     * Metadata of one statement, loaded and cached on a miss
+     */
+    public Optional<StatementResponse> getStatement(String id, Function<String, Optional<StatementResponse>> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        long stamp;
+        synchronized (this) {
+            Entry<StatementResponse> entry = statements.get(id);
+            if (entry != null && entry.value != null) {
+                statementHits.incrementAndGet();
+                return Optional.of(entry.value);
+            }
+            stamp = sequence;
+        }
+        statementMisses.incrementAndGet();
+
+        Optional<StatementResponse> loaded = ReadRouting.onPrimary(() -> loader.apply(id));
+        loaded.ifPresent(response -> admitStatement(response, stamp));
+        return loaded;
+    }
+
+    /**
+     * All statements of a customer, loaded and cached on a miss
+     */
+    public List<StatementResponse> getCustomerStatements(String customerId,
+                                                         Function<String, List<StatementResponse>> loader) {
+        if (!enabled) {
+            return loader.apply(customerId);
+        }
+        long stamp;
+        synchronized (this) {
+            Entry<List<StatementResponse>> entry = customers.get(customerId);
+            if (entry != null && entry.value != null) {
+                customerHits.incrementAndGet();
+                return entry.value;
+            }
+            stamp = sequence;
+        }
+        customerMisses.incrementAndGet();
+
+        List<StatementResponse> loaded = List.copyOf(ReadRouting.onPrimary(() -> loader.apply(customerId)));
+        admitCustomer(customerId, loaded, stamp);
+        return loaded;
+    }
+
+    /**
+     * Drop a statement written in the current transaction, and its customer's
+     * list, once the transaction commits. The version is read at that point,
+     * after the flush has incremented it.
+     */
+    public void invalidate(Statement statement) {
+        publish(statement.getId(), statement.getCustomerId());
+        afterCommit(() -> {
+            evictStatement(statement.getId(), statement.getVersion());
+            evictCustomer(statement.getCustomerId());
+            snapshot.put(statement);
+        });
+    }
+
+    /**
+     * Drop a statement removed, or changed outside the entity manager, in the current
+     * transaction, e.g. by a purge or a checksum backfill, and its customer's list
+     */
+    public void invalidateRemoved(String statementId, String customerId) {
+        publish(statementId, customerId);
+        afterCommit(() -> {
+            evictStatement(statementId, null);
+            evictCustomer(customerId);
+            snapshot.forget(statementId);
+            secondLevelCache.evict(statementId);
+        });
+    }
+
+    /**
+     * Drop a customer's list once the current transaction commits, e.g. when a statement moves away from it
+     */
+    public void invalidateCustomer(String customerId) {
+        publish(null, customerId);
+        afterCommit(() -> {
+            evictCustomer(customerId);
+            secondLevelCache.evictQueries();
+        });
+    }
+
+    /**
+     * Drop every entry once the current transaction commits, e.g. when a whole
+     * history partition is attached or detached. Logged with neither ID set.
+     */
+    public void invalidateAll() {
+        publish(null, null);
+        afterCommit(() -> {
+            clear();
+            snapshot.invalidateAll();
+            secondLevelCache.evictAll();
+        });
+    }
+
+    /**
+     * Apply an invalidation logged by another instance. The row version is not
+     * logged; the marker's stamp alone rejects loads that started before it.
+     */
+    void applyRemoteInvalidation(String statementId, String customerId) {
+        if (statementId == null && customerId == null) {
+            clear();
+            snapshot.invalidateAll();
+            secondLevelCache.evictAll();
+            return;
+        }
+        if (statementId != null) {
+            evictStatement(statementId, null);
+            snapshot.forget(statementId);
+            secondLevelCache.evict(statementId);
+        } else {
+            secondLevelCache.evictQueries();
+        }
+        evictCustomer(customerId);
+    }
+
+    public String getNodeId() { return nodeId; }
+
+    private void publish(String statementId, String customerId) {
+        if (clusterInvalidation) {
+            changeLogRepository.append(statementId, customerId, nodeId);
+        }
+    }
+
+    private synchronized void admitStatement(StatementResponse response, long stamp) {
+        Entry<StatementResponse> current = statements.get(response.getId());
+        boolean stale;
+        if (current == null) {
+            stale = evictedMarkerStamp > stamp;
+        } else if (current.version != null && response.getVersion() != null) {
+            stale = response.getVersion() < current.version;
+        } else {
+            stale = current.stamp > stamp;
+        }
+        if (stale) {
+            staleRejections.incrementAndGet();
+            return;
+        }
+        statements.put(response.getId(), new Entry<>(response, response.getVersion(), stamp));
+    }
+
+    private synchronized void admitCustomer(String customerId, List<StatementResponse> responses, long stamp) {
+        Entry<List<StatementResponse>> current = customers.get(customerId);
+        boolean stale = current != null ? current.stamp > stamp : evictedMarkerStamp > stamp;
+        if (stale) {
+            staleRejections.incrementAndGet();
+            return;
+        }
+        customers.put(customerId, new Entry<>(responses, null, stamp));
+    }
+
+    private synchronized void evictStatement(String id, Integer version) {
+        if (!enabled) {
+            return;
+        }
+        statements.put(id, new Entry<>(null, version, ++sequence));
+        invalidations.incrementAndGet();
+    }
+
+    private synchronized void evictCustomer(String customerId) {
+        if (!enabled || customerId == null) {
+            return;
+        }
+        customers.put(customerId, new Entry<>(null, null, ++sequence));
+        invalidations.incrementAndGet();
+    }
+
+    private synchronized void clear() {
+        if (!enabled) {
+            return;
+        }
+        statements.clear();
+        customers.clear();
+        // With no markers left, this stamp rejects every load that started before the clear
+        evictedMarkerStamp = ++sequence;
+        invalidations.incrementAndGet();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private <V> Map<String, Entry<V>> boundedMap(int maxEntries) {
+        return new LinkedHashMap<String, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                if (size() <= maxEntries) {
+                    return false;
+                }
+                if (eldest.getValue().value == null) {
+                    evictedMarkerStamp = Math.max(evictedMarkerStamp, eldest.getValue().stamp);
+                } else {
+                    evictions.incrementAndGet();
+                }
+                return true;
+            }
+        };
+    }
+
+    // Statistics
+
+    public long getHitCount() { return statementHits.get() + customerHits.get(); }
+
+    public long getMissCount() { return statementMisses.get() + customerMisses.get(); }
+
+    public long getEvictionCount() { return evictions.get(); }
+
+    public long getInvalidationCount() { return invalidations.get(); }
+
+    public long getStaleRejectionCount() { return staleRejections.get(); }
+
+    public double getHitRatio() {
+        long hits = getHitCount();
+        long total = hits + getMissCount();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    public synchronized int getStatementEntryCount() { return statements.size(); }
+
+    public synchronized int getCustomerEntryCount() { return customers.size(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("statements.metadata.cache.hits", statementHits, AtomicLong::get)
+                .tag("region", "statement")
+                .register(registry);
+        FunctionCounter.builder("statements.metadata.cache.misses", statementMisses, AtomicLong::get)
+                .tag("region", "statement")
+                .register(registry);
+        FunctionCounter.builder("statements.metadata.cache.hits", customerHits, AtomicLong::get)
+                .tag("region", "customer")
+                .register(registry);
+        FunctionCounter.builder("statements.metadata.cache.misses", customerMisses, AtomicLong::get)
+                .tag("region", "customer")
+                .register(registry);
+        FunctionCounter.builder("statements.metadata.cache.evictions", this, StatementMetadataCache::getEvictionCount)
+                .register(registry);
+        FunctionCounter.builder("statements.metadata.cache.invalidations", this,
+                        StatementMetadataCache::getInvalidationCount)
+                .register(registry);
+        FunctionCounter.builder("statements.metadata.cache.stale.rejections", this,
+                        StatementMetadataCache::getStaleRejectionCount)
+                .register(registry);
+        Gauge.builder("statements.metadata.cache.hit.ratio", this, StatementMetadataCache::getHitRatio)
+                .register(registry);
+        Gauge.builder("statements.metadata.cache.entries", this, StatementMetadataCache::getStatementEntryCount)
+                .tag("region", "statement")
+                .register(registry);
+        Gauge.builder("statements.metadata.cache.entries", this, StatementMetadataCache::getCustomerEntryCount)
+                .tag("region", "customer")
+                .register(registry);
+    }
+
+    /**
+     * Cached value, or an invalidation marker when value is null
+     */
+    private static final class Entry<V> {
+        final V value;
+        final Integer version;
+        final long stamp;
+
+        Entry(V value, Integer version, long stamp) {
+            this.value = value;
+            this.version = version;
+            this.stamp = stamp;
+        }
+    }
+}
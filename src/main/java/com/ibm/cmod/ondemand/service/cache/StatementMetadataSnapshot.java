@@ -0,0 +1,668 @@
+package com.ibm.cmod.ondemand.service.cache;
+
+import com.ibm.cmod.ondemand.dto.StatementPartitionResponse;
+import com.ibm.cmod.ondemand.dto.StatementResponse;
+import com.ibm.cmod.ondemand.entity.Statement;
+import com.ibm.cmod.ondemand.repository.StatementHistoryRepository;
+import com.ibm.cmod.ondemand.repository.StatementMaintenanceRepository;
+import com.ibm.cmod.ondemand.repository.StatementSnapshotRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-only snapshot of the metadata the download path needs, so a download
+ * is resolved without a database read.
+ *
+ * The snapshot is a file in the snapshot directory, memory-mapped read-only:
+ * a header, the packed records, then an open-addressing hash table of
+ * (id hash, record offset) slots. It lives in the page cache rather than the
+ * heap and is rebuilt by a full scan of the hot table and the attached
+ * history partitions, periodically or once the delta grows too large.
+ *
+ * Writes since the build started are kept in a small in-memory delta that
+ * overrides the file. The delta is fed by the metadata cache's invalidation
+ * hooks: local writes carry the new row, purges remove it, and invalidations
+ * from other instances only mark the ID stale, so it falls through to the
+ * database until the next build. Anything that may change many rows at once
+ * (a bulk delete, attaching or detaching a partition) sets the snapshot aside
+ * until it has been rebuilt.
+ *
+ * A mapping cannot exceed 2 GB, roughly ten million statements; a larger
+ * build fails and lookups keep falling through to the database. So do lookups
+ * after the file was overwritten on disk: a record that cannot be read sets
+ * the snapshot aside until the next build. Truncating the file under the
+ * mapping is not survivable; nothing but this class may touch the directory.
+ */
+@Component
+public class StatementMetadataSnapshot implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementMetadataSnapshot.class);
+
+    private static final int MAGIC = 0x534d5331; // "SMS1"
+    private static final int HEADER_BYTES = 32;
+    private static final int NULL_LENGTH = -1;
+    private static final Statement.StatementStatus[] STATUSES = Statement.StatementStatus.values();
+
+    private static final Delta UNKNOWN = new Delta(null);
+
+    private final StatementSnapshotRepository snapshotRepository;
+    private final StatementHistoryRepository historyRepository;
+
+    @Value("${app.cache.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.cache.snapshot.location:./storage/snapshot}")
+    private String location;
+
+    @Value("${app.cache.snapshot.refresh-interval-ms:900000}")
+    private long refreshIntervalMs;
+
+    @Value("${app.cache.snapshot.max-delta-entries:50000}")
+    private int maxDeltaEntries;
+
+    @Value("${app.cache.snapshot.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${app.partitioning.enabled:true}")
+    private boolean partitioningEnabled;
+
+    private Path directory;
+
+    /** Snapshot and delta are swapped together, so a lookup never pairs a new delta with an old file */
+    private volatile State state = new State(null, new ConcurrentHashMap<>());
+    /** Receives writes as well while a build is running; becomes the delta of the new snapshot */
+    private Map<String, Delta> pending;
+    /** Bumped whenever the snapshot is set aside; a build that saw it change is discarded */
+    private long epoch;
+    private final Object lock = new Object();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong deltaHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong builds = new AtomicLong();
+    private final AtomicLong buildFailures = new AtomicLong();
+    private volatile long lastBuildMs;
+    private volatile long failedAt;
+
+    public StatementMetadataSnapshot(StatementSnapshotRepository snapshotRepository,
+                                     StatementHistoryRepository historyRepository) {
+        this.snapshotRepository = snapshotRepository;
+        this.historyRepository = historyRepository;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            logger.info("Statement metadata snapshot disabled");
+            return;
+        }
+        directory = Paths.get(location).toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(directory);
+            // Files from a previous run miss whatever changed since; the first refresh builds a new one
+            deleteSnapshotFiles(null);
+        } catch (IOException e) {
+            logger.error("Failed to initialize snapshot directory {}, snapshot disabled", directory, e);
+            enabled = false;
+            return;
+        }
+        logger.info("Statement metadata snapshot in {} (refresh every {} ms or {} changes)",
+                directory, refreshIntervalMs, maxDeltaEntries);
+    }
+
+    // Lookup
+
+    /**
+     * Metadata of one statement as of the latest write seen here, or empty if
+     * the snapshot cannot tell and the caller has to ask the database
+     */
+    public Optional<StatementResponse> find(String id) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        State current = state;
+        Delta delta = current.delta.get(id);
+        if (delta != null) {
+            if (delta.value != null) {
+                deltaHits.incrementAndGet();
+                return Optional.of(delta.value);
+            }
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        StatementResponse found;
+        try {
+            found = current.snapshot != null ? current.snapshot.find(id) : null;
+        } catch (RuntimeException e) {
+            // The file was overwritten under the mapping
+            setAside(current, e);
+            found = null;
+        }
+        if (found == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(found);
+    }
+
+    // Delta; called by the metadata cache once the write has committed
+
+    void put(Statement statement) {
+        record(statement.getId(), new Delta(StatementResponse.builder()
+                .id(statement.getId())
+                .customerId(statement.getCustomerId())
+                .statementDate(statement.getStatementDate())
+                .documentPath(statement.getDocumentPath())
+                .documentType(statement.getDocumentType())
+                .status(statement.getStatus().name())
+                .contentChecksum(statement.getContentChecksum())
+                .createdAt(statement.getCreatedAt())
+                .version(statement.getVersion())
+                .build()));
+    }
+
+    /**
+     * The statement was removed, or changed by another instance; ask the database until the next build
+     */
+    void forget(String id) {
+        record(id, UNKNOWN);
+    }
+
+    /**
+     * Set the snapshot aside until the next build; writes from here on are kept
+     */
+    void invalidateAll() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (lock) {
+            epoch++;
+            pending = null;
+            state = new State(null, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Stop using a snapshot whose file can no longer be read; the delta stays
+     * and the next refresh builds a new file
+     */
+    private void setAside(State broken, Throwable cause) {
+        synchronized (lock) {
+            if (state != broken) {
+                return;
+            }
+            epoch++;
+            pending = null;
+            state = new State(null, broken.delta);
+        }
+        logger.warn("Statement metadata snapshot {} is unreadable, set aside until rebuilt: {}",
+                broken.snapshot.file, cause.toString());
+    }
+
+    private void record(String id, Delta delta) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (lock) {
+            state.delta.put(id, delta);
+            if (pending != null) {
+                pending.put(id, delta);
+            }
+        }
+    }
+
+    // Build
+
+    /**
+     * Rebuild when there is no usable snapshot, it is older than the refresh
+     * interval, or the delta has grown past its limit
+     */
+    public boolean refreshIfDue() {
+        if (!enabled) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if (now - failedAt < refreshIntervalMs) {
+            // A failed build is not retried before the next regular refresh
+            return false;
+        }
+        State current = state;
+        boolean due = current.snapshot == null
+                || now - current.snapshot.builtAt >= refreshIntervalMs
+                || current.delta.size() >= maxDeltaEntries;
+        return due && refresh();
+    }
+
+    /**
+     * Scan the statements into a new snapshot file and swap it in
+     *
+     * @return true if the new snapshot is in use
+     */
+    public synchronized boolean refresh() {
+        if (!enabled) {
+            return false;
+        }
+        long startEpoch;
+        synchronized (lock) {
+            startEpoch = epoch;
+            pending = new ConcurrentHashMap<>();
+        }
+
+        long started = System.currentTimeMillis();
+        Snapshot built;
+        try {
+            built = build(started);
+        } catch (IOException | RuntimeException e) {
+            synchronized (lock) {
+                pending = null;
+            }
+            buildFailures.incrementAndGet();
+            failedAt = System.currentTimeMillis();
+            logger.warn("Statement metadata snapshot build failed: {}", e.getMessage());
+            return false;
+        }
+
+        synchronized (lock) {
+            if (epoch != startEpoch) {
+                // Set aside while scanning; rows read before that may be out of date
+                logger.debug("Discarding statement metadata snapshot {}, invalidated during build", built.file);
+                deleteQuietly(built.file);
+                return false;
+            }
+            state = new State(built, pending);
+            pending = null;
+        }
+        failedAt = 0;
+        deleteSnapshotFiles(built.file);
+
+        lastBuildMs = System.currentTimeMillis() - started;
+        builds.incrementAndGet();
+        logger.info("Built statement metadata snapshot: {} statements, {} bytes in {} ms",
+                built.count, built.sizeBytes, lastBuildMs);
+        return true;
+    }
+
+    private Snapshot build(long builtAt) throws IOException {
+        List<String> tables = new ArrayList<>();
+        tables.add(StatementMaintenanceRepository.HOT_TABLE);
+        if (partitioningEnabled) {
+            historyRepository.findAttached(null, null).stream()
+                    .map(StatementPartitionResponse::getTableName)
+                    .forEach(tables::add);
+        }
+
+        Path temp = Files.createTempFile(directory, "statements-", ".snapshot.tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                SnapshotWriter writer = new SnapshotWriter(channel);
+                try {
+                    for (String table : tables) {
+                        snapshotRepository.scan(table, fetchSize, writer::append);
+                    }
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                writer.finish(builtAt);
+            }
+            Path file = directory.resolve("statements-" + builtAt + ".snapshot");
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            return Snapshot.open(file, builtAt);
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    private void deleteSnapshotFiles(Path keep) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "statements-*.snapshot*")) {
+            for (Path file : files) {
+                if (!file.equals(keep)) {
+                    // A mapping of the file stays valid until it is garbage collected
+                    deleteQuietly(file);
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Could not list snapshot directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.debug("Could not delete snapshot file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static int hash(String id) {
+        int h = id.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+
+    // Statistics
+
+    public long getHitCount() { return hits.get(); }
+
+    public long getDeltaHitCount() { return deltaHits.get(); }
+
+    public long getMissCount() { return misses.get(); }
+
+    public long getBuildCount() { return builds.get(); }
+
+    public long getBuildFailureCount() { return buildFailures.get(); }
+
+    public long getLastBuildMs() { return lastBuildMs; }
+
+    public int getEntryCount() {
+        Snapshot snapshot = state.snapshot;
+        return snapshot != null ? snapshot.count : 0;
+    }
+
+    public int getDeltaEntryCount() { return state.delta.size(); }
+
+    public long getSizeBytes() {
+        Snapshot snapshot = state.snapshot;
+        return snapshot != null ? snapshot.sizeBytes : 0L;
+    }
+
+    /**
+     * Age of the snapshot in use, or 0 if there is none
+     */
+    public long getAgeMs() {
+        Snapshot snapshot = state.snapshot;
+        return snapshot != null ? System.currentTimeMillis() - snapshot.builtAt : 0L;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("statements.snapshot.lookups", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("statements.snapshot.lookups", deltaHits, AtomicLong::get)
+                .tag("result", "delta")
+                .register(registry);
+        FunctionCounter.builder("statements.snapshot.lookups", misses, AtomicLong::get)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("statements.snapshot.builds", builds, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("statements.snapshot.build.failures", buildFailures, AtomicLong::get)
+                .register(registry);
+        Gauge.builder("statements.snapshot.build.time", this, StatementMetadataSnapshot::getLastBuildMs)
+                .baseUnit("milliseconds")
+                .register(registry);
+        Gauge.builder("statements.snapshot.entries", this, StatementMetadataSnapshot::getEntryCount)
+                .register(registry);
+        Gauge.builder("statements.snapshot.delta.entries", this, StatementMetadataSnapshot::getDeltaEntryCount)
+                .register(registry);
+        Gauge.builder("statements.snapshot.size", this, StatementMetadataSnapshot::getSizeBytes)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("statements.snapshot.age", this, StatementMetadataSnapshot::getAgeMs)
+                .baseUnit("milliseconds")
+                .register(registry);
+    }
+
+    /**
+     * A write seen since the build started: the new metadata, or null for a
+     * statement that was removed or changed elsewhere
+     */
+    private static final class Delta {
+        final StatementResponse value;
+
+        Delta(StatementResponse value) {
+            this.value = value;
+        }
+    }
+
+    private static final class State {
+        final Snapshot snapshot;
+        final Map<String, Delta> delta;
+
+        State(Snapshot snapshot, Map<String, Delta> delta) {
+            this.snapshot = snapshot;
+            this.delta = delta;
+        }
+    }
+
+    /**
+     * Appends packed records after the header and writes the hash table and
+     * header once the count is known. Record layout: id, customer ID, document
+     * type, document path and checksum as length-prefixed UTF-8 (length -1
+     * for null), then the status ordinal, statement date as epoch day, created
+     * time as epoch milliseconds (UTC) and version.
+     */
+    private static final class SnapshotWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        private long position = HEADER_BYTES;
+        private int[] hashes = new int[1024];
+        private int[] offsets = new int[1024];
+        private int count;
+
+        SnapshotWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void append(StatementResponse statement) {
+            byte[][] strings = {
+                    utf8(statement.getId()),
+                    utf8(statement.getCustomerId()),
+                    utf8(statement.getDocumentType()),
+                    utf8(statement.getDocumentPath()),
+                    utf8(statement.getContentChecksum())
+            };
+            int size = 1 + 4 + 8 + 4;
+            for (byte[] string : strings) {
+                size += 2 + (string != null ? string.length : 0);
+            }
+            long offset = position + buffer.position();
+            if (offset + size > Integer.MAX_VALUE) {
+                throw new UncheckedIOException(new IOException("Snapshot exceeds 2 GB after " + count + " statements"));
+            }
+            if (buffer.remaining() < size) {
+                flush();
+            }
+
+            for (byte[] string : strings) {
+                if (string == null) {
+                    buffer.putShort((short) NULL_LENGTH);
+                } else {
+                    buffer.putShort((short) string.length).put(string);
+                }
+            }
+            buffer.put((byte) Statement.StatementStatus.valueOf(statement.getStatus()).ordinal());
+            buffer.putInt((int) statement.getStatementDate().toEpochDay());
+            buffer.putLong(statement.getCreatedAt() != null
+                    ? statement.getCreatedAt().toInstant(ZoneOffset.UTC).toEpochMilli() : 0L);
+            buffer.putInt(statement.getVersion() != null ? statement.getVersion() : 0);
+
+            if (count == hashes.length) {
+                hashes = Arrays.copyOf(hashes, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            hashes[count] = hash(statement.getId());
+            offsets[count] = (int) offset;
+            count++;
+        }
+
+        void finish(long builtAt) throws IOException {
+            flush();
+            // At most half full, so probe sequences stay short
+            int slots = Integer.highestOneBit(Math.max(8, count) * 2 - 1) << 1;
+            long tableOffset = position;
+            long sizeBytes = tableOffset + (long) slots * Long.BYTES;
+            if (sizeBytes > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot exceeds 2 GB with " + count + " statements");
+            }
+
+            MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_WRITE, tableOffset, (long) slots * Long.BYTES);
+            int mask = slots - 1;
+            for (int i = 0; i < count; i++) {
+                int slot = hashes[i] & mask;
+                while (table.getLong(slot * Long.BYTES) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table.putLong(slot * Long.BYTES, ((long) hashes[i] << 32) | (offsets[i] & 0xffffffffL));
+            }
+            table.force();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(count).putInt(slots).putInt((int) tableOffset).putLong(builtAt);
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+
+        private void flush() {
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buffer.clear();
+        }
+
+        private static byte[] utf8(String value) {
+            return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+        }
+    }
+
+    /**
+     * A mapped snapshot file; lookups only use absolute reads or private duplicates, so any thread may call them
+     */
+    private static final class Snapshot {
+        final Path file;
+        final MappedByteBuffer buffer;
+        final int count;
+        final int mask;
+        final int tableOffset;
+        final long builtAt;
+        final long sizeBytes;
+
+        private Snapshot(Path file, MappedByteBuffer buffer, long builtAt) throws IOException {
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a statement snapshot: " + file);
+            }
+            this.file = file;
+            this.buffer = buffer;
+            this.count = buffer.getInt(4);
+            this.mask = buffer.getInt(8) - 1;
+            this.tableOffset = buffer.getInt(12);
+            this.builtAt = builtAt;
+            this.sizeBytes = buffer.capacity();
+        }
+
+        static Snapshot open(Path file, long builtAt) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                return new Snapshot(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), builtAt);
+            }
+        }
+
+        StatementResponse find(String id) {
+            byte[] key = id.getBytes(StandardCharsets.UTF_8);
+            int hash = hash(id);
+            int slot = hash & mask;
+            // The table is at most half full, so a probe that finds no free slot means it was damaged
+            for (int probes = 0; probes <= mask; probes++) {
+                long entry = buffer.getLong(tableOffset + slot * Long.BYTES);
+                if (entry == 0) {
+                    return null;
+                }
+                if ((int) (entry >>> 32) == hash) {
+                    int offset = (int) entry;
+                    if (keyMatches(offset, key)) {
+                        return read(offset);
+                    }
+                }
+                slot = (slot + 1) & mask;
+            }
+            throw new IllegalStateException("No free slot in the hash table of " + file);
+        }
+
+        private boolean keyMatches(int offset, byte[] key) {
+            if (buffer.getShort(offset) != key.length) {
+                return false;
+            }
+            for (int i = 0; i < key.length; i++) {
+                if (buffer.get(offset + 2 + i) != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private StatementResponse read(int offset) {
+            ByteBuffer record = buffer.duplicate();
+            record.position(offset);
+            String id = readString(record);
+            String customerId = readString(record);
+            String documentType = readString(record);
+            String documentPath = readString(record);
+            String checksum = readString(record);
+            Statement.StatementStatus status = STATUSES[record.get()];
+            LocalDate statementDate = LocalDate.ofEpochDay(record.getInt());
+            long createdMillis = record.getLong();
+            int version = record.getInt();
+            return StatementResponse.builder()
+                    .id(id)
+                    .customerId(customerId)
+                    .statementDate(statementDate)
+                    .documentPath(documentPath)
+                    .documentType(documentType)
+                    .status(status.name())
+                    .contentChecksum(checksum)
+                    .createdAt(LocalDateTime.ofEpochSecond(Math.floorDiv(createdMillis, 1000L),
+                            (int) Math.floorMod(createdMillis, 1000L) * 1_000_000, ZoneOffset.UTC))
+                    .version(version)
+                    .build();
+        }
+
+        private static String readString(ByteBuffer record) {
+            short length = record.getShort();
+            if (length == NULL_LENGTH) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            record.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.ibm.cmod.ondemand.service.cache;
+
+import com.ibm.cmod.ondemand.entity.Statement;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.cache.CacheManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Collection;
+
+/**
+ * Keeps the Hibernate second-level cache in step with changes Hibernate does
+ * not see: set-based JDBC statements on the statements table and writes by
+ * other instances. Writes through the entity manager maintain it themselves.
+ * Driven by the metadata cache's invalidation hooks, after commit.
+ *
+ * Query results cannot be evicted per statement, so any such change drops the
+ * cached query results; entities are evicted by ID where it is known. Does
+ * nothing while app.cache.second-level.enabled is off.
+ */
+@Component
+public class StatementSecondLevelCache implements MeterBinder {
+
+    private final Cache cache;
+    private final ObjectProvider<CacheManager> cacheManager;
+    private final boolean enabled;
+
+    public StatementSecondLevelCache(EntityManagerFactory entityManagerFactory,
+                                     ObjectProvider<CacheManager> cacheManager,
+                                     @Value("${app.cache.second-level.enabled:false}") boolean enabled) {
+        this.cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        this.cacheManager = cacheManager;
+        this.enabled = enabled;
+    }
+
+    /**
+     * One statement changed or was removed
+     */
+    void evict(String id) {
+        if (enabled) {
+            cache.evictEntityData(Statement.class, id);
+            cache.evictQueryRegions();
+        }
+    }
+
+    /**
+     * Statements were added, or changed in ways the caller cannot name
+     */
+    void evictQueries() {
+        if (enabled) {
+            cache.evictQueryRegions();
+        }
+    }
+
+    void evictAll() {
+        if (enabled) {
+            cache.evictEntityData(Statement.class);
+            cache.evictQueryRegions();
+        }
+    }
+
+    /**
+     * Rows the current transaction moves out of the statements table, once it
+     * commits; a cached copy would let a later write miss that the row moved
+     */
+    public void evictMoved(Collection<String> ids) {
+        if (!enabled) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                ids.forEach(id -> cache.evictEntityData(Statement.class, id));
+                cache.evictQueryRegions();
+            }
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // Hits, misses and puts per region come from Hibernate's statistics; only the sizes are added here
+        cacheManager.ifAvailable(manager -> {
+            for (String region : manager.getCacheNames()) {
+                com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine = manager.getCache(region)
+                        .unwrap(com.github.benmanes.caffeine.cache.Cache.class);
+                Gauge.builder("statements.second.level.cache.entries", caffeine,
+                                com.github.benmanes.caffeine.cache.Cache::estimatedSize)
+                        .tag("region", region)
+                        .register(registry);
+            }
+        });
+    }
+}
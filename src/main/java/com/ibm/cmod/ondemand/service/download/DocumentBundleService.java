@@ -0,0 +1,150 @@
+package com.ibm.cmod.ondemand.service.download;
+
+import com.ibm.cmod.ondemand.dto.StatementResponse;
+import com.ibm.cmod.ondemand.exception.InvalidRequestException;
+import com.ibm.cmod.ondemand.service.StatementService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams several statement documents to the client as a single ZIP archive.
+ * Entries are written straight to the response as each file is read, so nothing
+ * is buffered beyond one copy buffer regardless of bundle size.
+ */
+@Service
+public class DocumentBundleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentBundleService.class);
+
+    // Formats whose payload is already compressed; deflating them again only burns CPU
+    private static final Set<String> STORED_EXTENSIONS = Set.of("pdf", "zip", "gz", "jpg", "jpeg", "png");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final StatementService statementService;
+
+    @Value("${app.bundle.max-documents:500}")
+    private int maxDocuments;
+
+    public DocumentBundleService(StatementService statementService) {
+        this.statementService = statementService;
+    }
+
+    /**
+     * Stream all downloadable statements of a customer within a date range
+     */
+    public void streamCustomerBundle(String customerId, LocalDate from, LocalDate to,
+                                     HttpServletResponse response) throws IOException {
+        if (from.isAfter(to)) {
+            throw new InvalidRequestException("Bundle start date " + from + " is after end date " + to);
+        }
+        List<StatementResponse> statements = statementService.getBundleStatements(customerId, from, to,
+                maxDocuments + 1);
+        stream(statements, "statements-" + customerId + "-" + from + "-" + to + ".zip", response);
+    }
+
+    /**
+     * Stream the given statements, in request order
+     */
+    public void streamBundle(List<String> ids, HttpServletResponse response) throws IOException {
+        if (ids.size() > maxDocuments) {
+            throw new InvalidRequestException("Bundle exceeds the maximum of " + maxDocuments + " documents");
+        }
+        stream(statementService.getBundleStatements(ids), "statements.zip", response);
+    }
+
+    /**
+     * Write the archive, resolving each statement's file only when its entry is
+     * reached; a statement whose file is missing is left out
+     */
+    private void stream(List<StatementResponse> statements, String archiveName,
+                        HttpServletResponse response) throws IOException {
+        if (statements.size() > maxDocuments) {
+            throw new InvalidRequestException("Bundle exceeds the maximum of " + maxDocuments + " documents");
+        }
+
+        logger.info("Streaming bundle {} with up to {} documents", archiveName, statements.size());
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + archiveName + "\"");
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        ZipOutputStream zip = new ZipOutputStream(response.getOutputStream());
+        for (StatementResponse statement : statements) {
+            Optional<DownloadableDocument> resolved = statementService.resolveBundleDocument(statement);
+            if (resolved.isEmpty()) {
+                continue;
+            }
+            DownloadableDocument document = resolved.get();
+            ZipEntry entry = new ZipEntry(entryName(document));
+            entry.setTime(document.getLastModified());
+
+            if (isStored(document.getFilename())) {
+                // STORED entries need size and CRC in the local header; the extra pass
+                // reads one file at most, so time-to-first-byte stays flat
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(document.getLength());
+                entry.setCompressedSize(document.getLength());
+                entry.setCrc(crc32(document.getPath(), buffer));
+            } else {
+                entry.setMethod(ZipEntry.DEFLATED);
+            }
+
+            zip.putNextEntry(entry);
+            copy(document.getPath(), zip, buffer);
+            zip.closeEntry();
+
+            // Push each finished entry to the client instead of letting the container hold it
+            zip.flush();
+            response.flushBuffer();
+        }
+        zip.finish();
+        response.flushBuffer();
+    }
+
+    private String entryName(DownloadableDocument document) {
+        return String.format("%s_%s_%s", document.getStatementDate(),
+                document.getDocumentType(), document.getFilename());
+    }
+
+    private boolean isStored(String filename) {
+        int dot = filename.lastIndexOf('.');
+        return dot >= 0 && STORED_EXTENSIONS.contains(filename.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private long crc32(Path file, byte[] buffer) throws IOException {
+        try (CheckedInputStream in = new CheckedInputStream(Files.newInputStream(file), new CRC32())) {
+            while (in.read(buffer) != -1) {
+                // drain to update the checksum
+            }
+            return in.getChecksum().getValue();
+        }
+    }
+
+    private void copy(Path file, OutputStream out, byte[] buffer) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.ibm.cmod.ondemand.service.download;
+
+import com.ibm.cmod.ondemand.service.StatementAuditService;
+import com.ibm.cmod.ondemand.service.cache.CachedDocument;
+import com.ibm.cmod.ondemand.service.cache.OffHeapDocumentCache;
+import org.apache.catalina.connector.CoyoteOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Serves statement documents over HTTP with zero-copy transfer,
+ * byte ranges and conditional GET support. Only responses that send the
+ * document, whole or in part, are audited as downloads; 304, 416 and HEAD
+ * responses are not.
+ *
+ * The off-heap document cache is consulted only once a body is actually sent,
+ * after the conditional check. A full-body miss loads the document only on its
+ * second miss within the cache's admission window, so documents fetched once
+ * keep going to sendfile and are never read through the JVM; range requests
+ * use a cached copy but never load one.
+ */
+@Service
+public class DocumentTransferService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentTransferService.class);
+
+    // Tomcat sendfile request attributes (see org.apache.coyote.Constants)
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private static final String CRLF = "\r\n";
+
+    private final OffHeapDocumentCache documentCache;
+    private final StatementAuditService auditService;
+
+    @Value("${app.download.cache-max-age-seconds:31536000}")
+    private long cacheMaxAgeSeconds;
+
+    @Value("${app.download.sendfile.enabled:true}")
+    private boolean sendfileEnabled;
+
+    @Value("${app.download.sendfile.min-size-bytes:49152}")
+    private long sendfileMinSize;
+
+    public DocumentTransferService(OffHeapDocumentCache documentCache, StatementAuditService auditService) {
+        this.documentCache = documentCache;
+        this.auditService = auditService;
+    }
+
+    /**
+     * Write the document to the response, honoring Range, If-Range,
+     * If-None-Match and If-Modified-Since
+     */
+    public void serve(DownloadableDocument document, HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+
+        String etag = document.getETag();
+        long length = document.getLength();
+
+        // Statement content never changes once stored, so caches may keep it indefinitely
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=" + cacheMaxAgeSeconds + ", immutable");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + document.getFilename() + "\"");
+
+        // Sets ETag/Last-Modified and answers 304 when the client copy is current
+        if (new ServletWebRequest(request, response).checkNotModified(etag, document.getLastModified())) {
+            logger.debug("Document {} not modified, sent 304", document.getStatementId());
+            return;
+        }
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !isRangeApplicable(request, etag, document.getLastModified())) {
+            response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+            response.setContentLengthLong(length);
+            try (CachedDocument cached = cachedContent(document, request, true)) {
+                writeRegion(document, cached, 0, length - 1, request, response, true);
+            }
+            auditSent(document, request, null);
+            return;
+        }
+
+        List<Region> regions = parseRegions(rangeHeader, length);
+        if (regions == null) {
+            logger.debug("Unsatisfiable range '{}' for document {}", rangeHeader, document.getStatementId());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            return;
+        }
+
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        try (CachedDocument cached = cachedContent(document, request, false)) {
+            if (regions.size() == 1) {
+                Region region = regions.get(0);
+                response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, region.contentRange(length));
+                response.setContentLengthLong(region.length());
+                writeRegion(document, cached, region.start, region.end, request, response, true);
+            } else {
+                writeMultipart(document, cached, regions, request, response);
+            }
+        }
+        auditSent(document, request, rangeHeader);
+    }
+
+    private void auditSent(DownloadableDocument document, HttpServletRequest request, String details) {
+        if (!isHead(request)) {
+            auditService.record(document.getStatementId(), StatementAuditService.Action.DOWNLOAD, details);
+        }
+    }
+
+    /**
+     * Pinned cached copy of the document for a response with a body, or null to
+     * serve it from its file. Loading on a miss is left to the cache's admission
+     * filter and only allowed for full-body responses.
+     */
+    private CachedDocument cachedContent(DownloadableDocument document, HttpServletRequest request,
+                                         boolean loadOnMiss) {
+        if (isHead(request)) {
+            return null;
+        }
+        String id = document.getStatementId();
+        CachedDocument cached = documentCache.acquire(id);
+        if (cached == null && loadOnMiss && documentCache.admitOnRepeat(id)) {
+            cached = documentCache.load(id, document.getPath(), document.getLength(), document.getChecksum());
+        }
+        return cached;
+    }
+
+    /**
+     * If-Range allows the partial response only when the validator still matches
+     */
+    private boolean isRangeApplicable(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            long ifRangeDate = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return ifRangeDate != -1 && lastModified / 1000 <= ifRangeDate / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Resolve the Range header against the document length, or null if unsatisfiable
+     */
+    private List<Region> parseRegions(String rangeHeader, long length) {
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (ranges.isEmpty()) {
+            return null;
+        }
+
+        List<Region> regions = new ArrayList<>(ranges.size());
+        long total = 0;
+        for (HttpRange range : ranges) {
+            long start;
+            long end;
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            if (start >= length || start > end) {
+                return null;
+            }
+            Region region = new Region(start, end);
+            total += region.length();
+            regions.add(region);
+        }
+
+        // Guard against overlapping ranges that would amplify the response beyond the file itself
+        if (regions.size() > 1 && total > length) {
+            return null;
+        }
+        return regions;
+    }
+
+    private void writeMultipart(DownloadableDocument document, CachedDocument cached, List<Region> regions,
+                                HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        long length = document.getLength();
+
+        List<byte[]> partHeaders = new ArrayList<>(regions.size());
+        long contentLength = 0;
+        for (Region region : regions) {
+            byte[] header = (CRLF + "--" + boundary + CRLF
+                    + HttpHeaders.CONTENT_TYPE + ": " + MediaType.APPLICATION_PDF_VALUE + CRLF
+                    + HttpHeaders.CONTENT_RANGE + ": " + region.contentRange(length) + CRLF
+                    + CRLF).getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(header);
+            contentLength += header.length + region.length();
+        }
+        byte[] trailer = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+        contentLength += trailer.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (isHead(request)) {
+            return;
+        }
+
+        ServletOutputStream out = response.getOutputStream();
+        for (int i = 0; i < regions.size(); i++) {
+            out.write(partHeaders.get(i));
+            Region region = regions.get(i);
+            writeRegion(document, cached, region.start, region.end, request, response, false);
+        }
+        out.write(trailer);
+    }
+
+    /**
+     * Copy [start, end] of the document to the response. Cached documents are written
+     * straight from off-heap memory; single-region file responses are handed to the
+     * container's sendfile when available, otherwise the file channel transfers
+     * directly into the response channel.
+     */
+    private void writeRegion(DownloadableDocument document, CachedDocument cached, long start, long end,
+                             HttpServletRequest request, HttpServletResponse response,
+                             boolean sendfileAllowed) throws IOException {
+        long count = end - start + 1;
+        if (count <= 0 || isHead(request)) {
+            return;
+        }
+
+        if (cached != null) {
+            cached.writeTo(responseChannel(response), start, count);
+            return;
+        }
+
+        if (sendfileAllowed && sendfileEnabled && count >= sendfileMinSize
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, document.getPath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, end + 1);
+            logger.debug("Document {} handed to sendfile ({} bytes)", document.getStatementId(), count);
+            return;
+        }
+
+        WritableByteChannel target = responseChannel(response);
+        try (FileChannel channel = FileChannel.open(document.getPath(), StandardOpenOption.READ)) {
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    throw new IOException("Unexpected end of file for document " + document.getStatementId());
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    /**
+     * Channel over the response body. Tomcat's stream takes a ByteBuffer as is,
+     * so off-heap and mapped buffers are not first copied into a heap array, as
+     * Channels.newChannel would do.
+     */
+    private static WritableByteChannel responseChannel(HttpServletResponse response) throws IOException {
+        ServletOutputStream out = response.getOutputStream();
+        if (!(out instanceof CoyoteOutputStream)) {
+            return Channels.newChannel(out);
+        }
+        CoyoteOutputStream coyote = (CoyoteOutputStream) out;
+        return new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer source) throws IOException {
+                int count = source.remaining();
+                coyote.write(source);
+                source.position(source.limit());
+                return count;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+                // The container owns the response stream
+            }
+        };
+    }
+
+    private boolean isHead(HttpServletRequest request) {
+        return "HEAD".equalsIgnoreCase(request.getMethod());
+    }
+
+    /**
+     * Inclusive byte region of a document
+     */
+    private static final class Region {
+        private final long start;
+        private final long end;
+
+        private Region(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        private long length() {
+            return end - start + 1;
+        }
+
+        private String contentRange(long total) {
+            return "bytes " + start + "-" + end + "/" + total;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.ibm.cmod.ondemand.service.download;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * Resolved statement document ready to be served over HTTP
+ */
+public class DownloadableDocument {
+
+    private final String statementId;
+    private final String filename;
+    private final Path path;
+    private final long length;
+    private final long lastModified;
+    private final String checksum;
+    private final LocalDate statementDate;
+    private final String documentType;
+
+    public DownloadableDocument(String statementId, String filename, Path path,
+                                long length, long lastModified, String checksum,
+                                LocalDate statementDate, String documentType) {
+        this.statementId = statementId;
+        this.filename = filename;
+        this.path = path;
+        this.length = length;
+        this.lastModified = lastModified;
+        this.checksum = checksum;
+        this.statementDate = statementDate;
+        this.documentType = documentType;
+    }
+
+    public String getStatementId() { return statementId; }
+
+    public String getFilename() { return filename; }
+
+    public Path getPath() { return path; }
+
+    public long getLength() { return length; }
+
+    /**
+     * Last-Modified timestamp in epoch millis
+     */
+    public long getLastModified() { return lastModified; }
+
+    public String getChecksum() { return checksum; }
+
+    public LocalDate getStatementDate() { return statementDate; }
+
+    public String getDocumentType() { return documentType; }
+
+    /**
+     * Strong entity tag derived from the content checksum
+     */
+    public String getETag() {
+        return "\"" + checksum + "\"";
+    }
+}
@@ -0,0 +1,70 @@
+package com.ibm.cmod.ondemand.service.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibm.cmod.ondemand.repository.StatementOutboxRepository.OutboxEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends events to a local NDJSON file, one event per line. A batch is
+ * written and forced to disk before it counts as delivered.
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.file.enabled", havingValue = "true", matchIfMissing = true)
+public class FileEventSink implements StatementEventSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileEventSink.class);
+
+    private final ObjectMapper objectMapper;
+    private Path file;
+
+    @Value("${app.outbox.file.location:./storage/outbox/statement-events.ndjson}")
+    private String location;
+
+    public FileEventSink(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        file = Paths.get(location).toAbsolutePath().normalize();
+        Files.createDirectories(file.getParent());
+        logger.info("Statement events are appended to {}", file);
+    }
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+
+    @Override
+    public void deliver(List<OutboxEvent> events) throws IOException {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream(events.size() * 256);
+        for (OutboxEvent event : events) {
+            objectMapper.writeValue(lines, event);
+            lines.write('\n');
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.ibm.cmod.ondemand.service.outbox;
+
+import com.ibm.cmod.ondemand.repository.StatementOutboxRepository.OutboxEvent;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A downstream destination for statement change events. The relay hands each
+ * sink batches in sequence order and retries a batch until it is accepted, so
+ * a sink may see an event more than once but never out of order.
+ */
+public interface StatementEventSink {
+
+    /**
+     * Name used in logs and as the sink tag of the statements.outbox.* metrics
+     */
+    String getName();
+
+    /**
+     * Deliver the events durably before returning; throw to have the batch retried
+     */
+    void deliver(List<OutboxEvent> events) throws IOException;
+}
@@ -0,0 +1,267 @@
+package com.ibm.cmod.ondemand.service.outbox;
+
+import com.ibm.cmod.ondemand.dto.StatementFilter;
+import com.ibm.cmod.ondemand.entity.Statement;
+import com.ibm.cmod.ondemand.repository.StatementMaintenanceRepository;
+import com.ibm.cmod.ondemand.repository.StatementOutboxRepository;
+import com.ibm.cmod.ondemand.repository.StatementOutboxRepository.OutboxEvent;
+import com.ibm.cmod.ondemand.repository.StatementSummaryRepository.StatementFacts;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Transactional outbox of statement changes for downstream systems.
+ *
+ * Writers record an event in the same transaction as the change, so an event
+ * exists if and only if the change commits. The relay reads the oldest events
+ * in batches and hands each batch to every sink; once all sinks have accepted
+ * it the rows are deleted. A sink that fails holds the outbox at that batch
+ * and is retried with backoff, so delivery is at-least-once and each
+ * statement's events arrive in the order they were committed: a statement's
+ * rows are written under its row version, so a later change's event is only
+ * inserted after the earlier one committed.
+ *
+ * The relay lock row keeps a second instance from relaying the same batch.
+ * Which sinks already accepted the current batch is only remembered in
+ * memory; after a restart or a move to another instance they get it again.
+ */
+@Service
+public class StatementOutboxService implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementOutboxService.class);
+
+    public enum EventType { CREATED, UPDATED, DELETED, PURGED }
+
+    private final StatementOutboxRepository outboxRepository;
+    private final StatementMaintenanceRepository maintenanceRepository;
+    private final List<StatementEventSink> sinks;
+    private final TransactionTemplate transactionTemplate;
+
+    /** Sequences of the current batch each sink has accepted; only touched by the relay */
+    private final Map<String, Set<Long>> accepted = new LinkedHashMap<>();
+    private final Map<String, AtomicLong> delivered = new LinkedHashMap<>();
+    private final Map<String, AtomicLong> failures = new LinkedHashMap<>();
+    private final AtomicLong relayed = new AtomicLong();
+    /** When the oldest undelivered event seen by the relay occurred, or null if none is left */
+    private volatile LocalDateTime oldestPending;
+
+    private int consecutiveFailures;
+    private long retryAt;
+
+    @Value("${app.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.outbox.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+
+    @Value("${app.outbox.max-backoff-ms:60000}")
+    private long maxBackoffMs;
+
+    @Value("${app.outbox.relay-interval-ms:1000}")
+    private long relayIntervalMs;
+
+    public StatementOutboxService(StatementOutboxRepository outboxRepository,
+                                  StatementMaintenanceRepository maintenanceRepository,
+                                  ObjectProvider<StatementEventSink> sinks,
+                                  PlatformTransactionManager transactionManager) {
+        this.outboxRepository = outboxRepository;
+        this.maintenanceRepository = maintenanceRepository;
+        this.sinks = sinks.orderedStream().collect(Collectors.toList());
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        for (StatementEventSink sink : this.sinks) {
+            accepted.put(sink.getName(), new HashSet<>());
+            delivered.put(sink.getName(), new AtomicLong());
+            failures.put(sink.getName(), new AtomicLong());
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        if (sinks.isEmpty()) {
+            logger.warn("Statement outbox is enabled without sinks; events will be discarded as they are relayed");
+        } else {
+            logger.info("Relaying statement events to sinks {}", accepted.keySet());
+        }
+    }
+
+    // Recording; each joins the caller's transaction
+
+    public void record(EventType type, Statement statement) {
+        record(type, List.of(statement));
+    }
+
+    public void record(EventType type, Collection<Statement> statements) {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> events = new ArrayList<>(statements.size());
+        for (Statement statement : statements) {
+            events.add(new OutboxEvent(null, type.name(), statement.getId(), statement.getCustomerId(),
+                    statement.getStatementDate(), statement.getDocumentType(), statement.getStatus().name(),
+                    statement.getFileSizeBytes(), now));
+        }
+        outboxRepository.appendAll(events);
+    }
+
+    /**
+     * Record a PURGED event for each statement the purge has just removed
+     */
+    public void recordPurged(Collection<StatementFacts> statements) {
+        if (!enabled || statements.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> events = new ArrayList<>(statements.size());
+        for (StatementFacts statement : statements) {
+            events.add(new OutboxEvent(null, EventType.PURGED.name(), statement.getId(), statement.getCustomerId(),
+                    statement.getStatementDate(), statement.getDocumentType(), statement.getStatus(),
+                    statement.getFileSizeBytes(), now));
+        }
+        outboxRepository.appendAll(events);
+    }
+
+    /**
+     * Record a DELETED event for every statement in the table a set-based
+     * delete with the same filter is about to mark; run it first
+     */
+    public void recordBulkDelete(String table, StatementFilter filter, LocalDateTime now) {
+        if (enabled) {
+            maintenanceRepository.insertDeleteEvents(table, filter, EventType.DELETED.name(), now);
+        }
+    }
+
+    // Relay
+
+    /**
+     * Deliver outstanding events to every sink, a batch at a time
+     *
+     * @return number of events delivered to all sinks and removed
+     */
+    public synchronized int relay() {
+        if (!enabled || System.currentTimeMillis() < retryAt) {
+            return 0;
+        }
+        int total = 0;
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            Integer count = transactionTemplate.execute(status -> relayBatch());
+            if (count == null || count < 0) {
+                backOff();
+                break;
+            }
+            consecutiveFailures = 0;
+            total += count;
+            if (count < batchSize) {
+                break;
+            }
+        }
+        if (total > 0) {
+            relayed.addAndGet(total);
+            logger.debug("Relayed {} statement events to {} sinks", total, sinks.size());
+        }
+        return total;
+    }
+
+    /**
+     * @return events relayed, or -1 if a sink failed and the batch is kept
+     */
+    private int relayBatch() {
+        outboxRepository.lockRelay();
+        List<OutboxEvent> batch = outboxRepository.findFirst(batchSize);
+        if (batch.isEmpty()) {
+            oldestPending = null;
+            return 0;
+        }
+        oldestPending = batch.stream().map(OutboxEvent::getOccurredAt).min(LocalDateTime::compareTo).get();
+
+        Set<Long> seqs = batch.stream().map(OutboxEvent::getSeq).collect(Collectors.toSet());
+        for (StatementEventSink sink : sinks) {
+            Set<Long> done = accepted.get(sink.getName());
+            // Events another instance relayed meanwhile are gone
+            done.retainAll(seqs);
+            List<OutboxEvent> pending = batch.stream()
+                    .filter(event -> !done.contains(event.getSeq()))
+                    .collect(Collectors.toList());
+            if (pending.isEmpty()) {
+                continue;
+            }
+            try {
+                sink.deliver(pending);
+            } catch (Exception e) {
+                failures.get(sink.getName()).incrementAndGet();
+                logger.warn("Statement event sink {} failed on {} events from sequence {}, retrying: {}",
+                        sink.getName(), pending.size(), pending.get(0).getSeq(), e.getMessage());
+                return -1;
+            }
+            pending.forEach(event -> done.add(event.getSeq()));
+            delivered.get(sink.getName()).addAndGet(pending.size());
+        }
+
+        outboxRepository.deleteAll(seqs);
+        outboxRepository.markRelayed(batch.get(batch.size() - 1).getSeq(), LocalDateTime.now());
+        accepted.values().forEach(Set::clear);
+        if (batch.size() < batchSize) {
+            oldestPending = null;
+        }
+        return batch.size();
+    }
+
+    private void backOff() {
+        consecutiveFailures++;
+        long delay = Math.min(maxBackoffMs, relayIntervalMs << Math.min(consecutiveFailures, 16));
+        retryAt = System.currentTimeMillis() + delay;
+    }
+
+    /**
+     * How long the oldest event seen by the relay has waited; keeps growing while a sink is failing
+     */
+    public long getLagMs() {
+        LocalDateTime oldest = oldestPending;
+        return oldest != null ? Math.max(0, Duration.between(oldest, LocalDateTime.now()).toMillis()) : 0L;
+    }
+
+    public long getRelayedCount() { return relayed.get(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("statements.outbox.lag", this, StatementOutboxService::getLagMs)
+                .baseUnit("milliseconds")
+                .register(registry);
+        FunctionCounter.builder("statements.outbox.relayed", this, StatementOutboxService::getRelayedCount)
+                .register(registry);
+        delivered.forEach((sink, count) -> FunctionCounter.builder("statements.outbox.delivered", count, AtomicLong::get)
+                .tag("sink", sink)
+                .register(registry));
+        failures.forEach((sink, count) -> FunctionCounter.builder("statements.outbox.failures", count, AtomicLong::get)
+                .tag("sink", sink)
+                .register(registry));
+    }
+}
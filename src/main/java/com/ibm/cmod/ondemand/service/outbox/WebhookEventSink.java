@@ -0,0 +1,77 @@
+package com.ibm.cmod.ondemand.service.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibm.cmod.ondemand.repository.StatementOutboxRepository.OutboxEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * POSTs each batch as a JSON array to a webhook URL. Any 2xx response
+ * acknowledges the batch; anything else, or no answer within the timeout, has
+ * it retried. Point the URL at a local listener to stub the receiver.
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.webhook.enabled", havingValue = "true")
+public class WebhookEventSink implements StatementEventSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookEventSink.class);
+
+    private final ObjectMapper objectMapper;
+    private HttpClient httpClient;
+    private URI uri;
+
+    @Value("${app.outbox.webhook.url}")
+    private String url;
+
+    @Value("${app.outbox.webhook.timeout-ms:5000}")
+    private long timeoutMs;
+
+    public WebhookEventSink(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void init() {
+        uri = URI.create(url);
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(timeoutMs))
+                .build();
+        logger.info("Statement events are posted to {}", uri);
+    }
+
+    @Override
+    public String getName() {
+        return "webhook";
+    }
+
+    @Override
+    public void deliver(List<OutboxEvent> events) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(timeoutMs))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(events)))
+                .build();
+        HttpResponse<Void> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while posting statement events", e);
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Webhook " + uri + " answered HTTP " + response.statusCode());
+        }
+    }
+}
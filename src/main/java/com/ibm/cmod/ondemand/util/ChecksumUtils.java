@@ -0,0 +1,64 @@
+package com.ibm.cmod.ondemand.util;
+
+import com.ibm.cmod.ondemand.exception.FileStorageException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Utility for computing document content checksums
+ */
+public final class ChecksumUtils {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private ChecksumUtils() {
+    }
+
+    /**
+     * SHA-256 of the given bytes as lowercase hex
+     */
+    public static String sha256Hex(byte[] data) {
+        MessageDigest digest = newDigest();
+        digest.update(data);
+        return toHex(digest.digest());
+    }
+
+    /**
+     * SHA-256 of the given file as lowercase hex, streamed so large files are not loaded whole
+     */
+    public static String sha256Hex(Path file) {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new FileStorageException("Failed to compute checksum for: " + file, e);
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0x0f];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0x0f];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,80 @@
+package com.ibm.cmod.ondemand.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Immutable weighted consistent-hash ring. Each node owns a number of virtual
+ * points proportional to its weight, so adding a node only takes over the keys
+ * that now hash closest to its points.
+ */
+public final class ConsistentHashRing<T> {
+
+    private static final int POINTS_PER_WEIGHT = 160;
+
+    private final NavigableMap<Long, T> points;
+    private final Map<T, Integer> weights;
+
+    private ConsistentHashRing(Map<T, Integer> weights) {
+        weights.forEach((node, weight) -> {
+            if (weight < 1) {
+                throw new IllegalArgumentException("Weight of " + node + " must be positive: " + weight);
+            }
+        });
+        this.weights = Collections.unmodifiableMap(new LinkedHashMap<>(weights));
+        TreeMap<Long, T> ring = new TreeMap<>();
+        weights.forEach((node, weight) -> {
+            for (int i = 0; i < weight * POINTS_PER_WEIGHT; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        });
+        this.points = ring;
+    }
+
+    public static <T> ConsistentHashRing<T> of(Map<T, Integer> weights) {
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Hash ring needs at least one node");
+        }
+        return new ConsistentHashRing<>(weights);
+    }
+
+    /**
+     * New ring with one more node; existing placements move only if the new node claims them
+     */
+    public ConsistentHashRing<T> with(T node, int weight) {
+        Map<T, Integer> next = new LinkedHashMap<>(weights);
+        next.put(node, weight);
+        return new ConsistentHashRing<>(next);
+    }
+
+    /**
+     * Node owning the given key
+     */
+    public T nodeFor(String key) {
+        Map.Entry<Long, T> entry = points.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : points.firstEntry().getValue();
+    }
+
+    public Map<T, Integer> getWeights() {
+        return weights;
+    }
+
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long h = 0;
+            for (int i = 0; i < 8; i++) {
+                h = (h << 8) | (digest[i] & 0xff);
+            }
+            return h;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
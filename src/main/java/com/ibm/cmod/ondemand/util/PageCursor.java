@@ -0,0 +1,80 @@
+package com.ibm.cmod.ondemand.util;
+
+import com.ibm.cmod.ondemand.exception.InvalidRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset pagination on (sort key, id)
+ */
+public final class PageCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final String position;
+    private final String id;
+
+    private PageCursor(String position, String id) {
+        this.position = position;
+        this.id = id;
+    }
+
+    /**
+     * Cursor after the row with the given sort key (its ISO string form) and ID
+     */
+    public static PageCursor after(Object position, String id) {
+        return new PageCursor(String.valueOf(position), id);
+    }
+
+    public String getId() { return id; }
+
+    /**
+     * Sort key of a cursor over created_at
+     */
+    public LocalDateTime getPositionAsDateTime() {
+        try {
+            return LocalDateTime.parse(position);
+        } catch (DateTimeParseException e) {
+            throw new InvalidRequestException("Invalid page cursor", e);
+        }
+    }
+
+    /**
+     * Sort key of a cursor over statement_date
+     */
+    public LocalDate getPositionAsDate() {
+        try {
+            return LocalDate.parse(position);
+        } catch (DateTimeParseException e) {
+            throw new InvalidRequestException("Invalid page cursor", e);
+        }
+    }
+
+    /**
+     * Encode as a URL-safe token
+     */
+    public String encode() {
+        String raw = position + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token produced by {@link #encode()}
+     */
+    public static PageCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new InvalidRequestException("Invalid page cursor");
+            }
+            return new PageCursor(raw.substring(0, separator), raw.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Invalid page cursor", e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.ibm.cmod.ondemand.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simple thread-safe token bucket used to pace background jobs
+ */
+public class RateLimiter {
+
+    private final long intervalNanos;
+    private long nextFreeNanos;
+
+    /**
+     * @param permitsPerSecond sustained rate; zero or negative disables limiting
+     */
+    public RateLimiter(double permitsPerSecond) {
+        this.intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+        this.nextFreeNanos = System.nanoTime();
+    }
+
+    /**
+     * Block until the given number of permits is available
+     */
+    public void acquire(int permits) throws InterruptedException {
+        if (intervalNanos == 0 || permits <= 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long start = Math.max(now, nextFreeNanos);
+            nextFreeNanos = start + permits * intervalNanos;
+            waitNanos = start - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
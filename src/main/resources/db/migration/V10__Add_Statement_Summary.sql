@@ -0,0 +1,16 @@
+-- Statement counts and document bytes per customer, statement date, status and
+-- document type, over the hot table and attached history partitions. Writers
+-- add their deltas in the same transaction as the statement change; a periodic
+-- reconciliation corrects any drift.
+--
+-- Each key's counters are split across stripes, and a writer adds to one
+-- stripe chosen at random, so concurrent writers seldom wait on the same row
+-- (every create touches its status row). A key's value is the sum of its stripes.
+CREATE TABLE IF NOT EXISTS statement_summary (
+    dimension VARCHAR(20) NOT NULL,
+    dimension_key VARCHAR(50) NOT NULL,
+    stripe SMALLINT NOT NULL,
+    statement_count BIGINT NOT NULL DEFAULT 0,
+    total_bytes BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (dimension, dimension_key, stripe)
+);
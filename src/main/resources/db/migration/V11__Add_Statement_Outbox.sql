@@ -0,0 +1,22 @@
+-- Statement change events for downstream systems, written in the same
+-- transaction as the change. The relay deletes rows once every sink has them.
+CREATE TABLE IF NOT EXISTS statement_outbox (
+    seq BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type VARCHAR(20) NOT NULL,
+    statement_id VARCHAR(36) NOT NULL,
+    customer_id VARCHAR(50) NOT NULL,
+    statement_date DATE NOT NULL,
+    document_type VARCHAR(50),
+    status VARCHAR(20) NOT NULL,
+    file_size_bytes BIGINT,
+    occurred_at TIMESTAMP NOT NULL
+);
+
+-- Single row locked by the instance relaying a batch, so one instance relays at a time
+CREATE TABLE IF NOT EXISTS statement_outbox_relay (
+    id INT PRIMARY KEY,
+    relayed_seq BIGINT NOT NULL,
+    relayed_at TIMESTAMP
+);
+
+INSERT INTO statement_outbox_relay (id, relayed_seq) VALUES (1, 0);
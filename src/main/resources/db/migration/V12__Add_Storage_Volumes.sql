@@ -0,0 +1,8 @@
+-- Storage volumes added at runtime through the admin API. They are added to
+-- the configured app.storage.volumes on every start, so documents moved onto
+-- them stay reachable after a restart.
+CREATE TABLE IF NOT EXISTS storage_volumes (
+    location VARCHAR(500) PRIMARY KEY,
+    weight INT NOT NULL,
+    added_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
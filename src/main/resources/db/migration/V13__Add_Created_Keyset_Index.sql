@@ -0,0 +1,8 @@
+-- Keyset pages over all statements (newest created first) continue from a
+-- (created_at, id) position. H2 only reads an index in its declared order, so
+-- the index matches ORDER BY created_at DESC, id DESC and a page is a range
+-- scan that stops after the requested rows, without a sort step.
+CREATE INDEX idx_created_at_id ON statements(created_at DESC, id DESC);
+
+-- Superseded: created_at leads the index above
+DROP INDEX IF EXISTS idx_created_at;
@@ -0,0 +1,24 @@
+-- Covering versions of the V3 search indexes. Each holds id and every column
+-- the search projects, so a page is read from the index alone, and ends in
+-- (statement_date DESC, id DESC) so the keyset cursor is an index range and
+-- the newest-first page needs no sort. H2 has no INCLUDE clause, so the
+-- projected columns trail the key columns.
+
+-- customer [+ date range] [+ status], newest first
+CREATE INDEX idx_customer_date_cover ON statements(customer_id, statement_date DESC, id DESC,
+    status, document_type, document_path, file_size_bytes, content_checksum, created_at, updated_at, version);
+DROP INDEX IF EXISTS idx_customer_date_status;
+
+-- customer + document type [+ date range] [+ status], newest first
+CREATE INDEX idx_customer_type_date_cover ON statements(customer_id, document_type, statement_date DESC, id DESC,
+    status, document_path, file_size_bytes, content_checksum, created_at, updated_at, version);
+DROP INDEX IF EXISTS idx_customer_type_date;
+
+-- status [+ date range], newest first. idx_status_date stays for tiering,
+-- which reads the oldest candidates first.
+CREATE INDEX idx_status_date_cover ON statements(status, statement_date DESC, id DESC,
+    customer_id, document_type, document_path, file_size_bytes, content_checksum, created_at, updated_at, version);
+
+-- idx_customer_id and idx_status (V1) stay dropped: customer_id leads both
+-- customer indexes and status leads idx_status_date, so lookups on either
+-- column alone use those prefixes.
@@ -0,0 +1,7 @@
+-- Range of created_at held by each partition. The all-statements page is
+-- ordered by created_at, so a partition whose range cannot reach the page is
+-- not read. Rows only enter a partition by roll-off, which widens the range;
+-- rows leaving it only narrow the true range, so the stored one stays a bound.
+-- NULL means not yet known, and the partition is always read.
+ALTER TABLE statement_partitions ADD COLUMN min_created_at TIMESTAMP;
+ALTER TABLE statement_partitions ADD COLUMN max_created_at TIMESTAMP;
@@ -0,0 +1,2 @@
+-- SHA-256 of the stored document, used as the strong ETag on downloads
+ALTER TABLE statements ADD COLUMN content_checksum VARCHAR(64);
@@ -0,0 +1,16 @@
+-- Composite indexes for the common statement search shapes.
+-- Equality columns lead, the sort column follows, so a search filters and
+-- orders from one index range scan without a separate sort step.
+
+-- customer [+ date range] [+ status], newest first
+CREATE INDEX idx_customer_date_status ON statements(customer_id, statement_date DESC, status);
+
+-- customer + document type [+ date range], newest first
+CREATE INDEX idx_customer_type_date ON statements(customer_id, document_type, statement_date DESC, status);
+
+-- status [+ date range]: tiering candidates and status-filtered exports
+CREATE INDEX idx_status_date ON statements(status, statement_date);
+
+-- Superseded: customer_id and status now lead the composites above
+DROP INDEX IF EXISTS idx_customer_id;
+DROP INDEX IF EXISTS idx_status;
@@ -0,0 +1,11 @@
+-- Change log polled by every instance to invalidate its in-process metadata cache.
+-- Rows are written in the same transaction as the statement change they describe.
+CREATE TABLE IF NOT EXISTS statement_change_log (
+    seq BIGINT AUTO_INCREMENT PRIMARY KEY,
+    statement_id VARCHAR(36),
+    customer_id VARCHAR(50),
+    origin_node VARCHAR(36) NOT NULL,
+    changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_change_log_changed_at ON statement_change_log(changed_at);
@@ -0,0 +1,33 @@
+-- At most one live statement per (customer, statement date, document type).
+-- active_key is NULL for soft-deleted rows, and NULLs never collide in a
+-- unique index, so a deleted statement can be created again.
+
+-- Keep the newest live row of any existing duplicates; soft-delete the rest
+UPDATE statements s SET status = 'DELETED'
+WHERE s.status <> 'DELETED'
+  AND EXISTS (
+    SELECT 1 FROM statements t
+    WHERE t.customer_id = s.customer_id
+      AND t.statement_date = s.statement_date
+      AND t.document_type = s.document_type
+      AND t.status <> 'DELETED'
+      AND (t.created_at > s.created_at OR (t.created_at = s.created_at AND t.id > s.id))
+  );
+
+ALTER TABLE statements ADD COLUMN active_key VARCHAR(120) GENERATED ALWAYS AS (
+    CASE WHEN status <> 'DELETED'
+         THEN customer_id || '|' || CAST(statement_date AS VARCHAR) || '|' || document_type
+    END
+);
+
+CREATE UNIQUE INDEX uk_statements_active_key ON statements(active_key);
+
+-- Idempotency-Key values seen on POST /api/statements
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    idempotency_key VARCHAR(100) PRIMARY KEY,
+    request_hash VARCHAR(64) NOT NULL,
+    statement_id VARCHAR(36) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_idempotency_created_at ON idempotency_keys(created_at);
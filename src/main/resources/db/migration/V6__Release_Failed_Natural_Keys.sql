@@ -0,0 +1,13 @@
+-- Asynchronous creates can end FAILED. A failed statement has no document
+-- and must not block a retry, so like DELETED it no longer holds its natural key.
+
+DROP INDEX IF EXISTS uk_statements_active_key;
+ALTER TABLE statements DROP COLUMN active_key;
+
+ALTER TABLE statements ADD COLUMN active_key VARCHAR(120) GENERATED ALWAYS AS (
+    CASE WHEN status NOT IN ('DELETED', 'FAILED')
+         THEN customer_id || '|' || CAST(statement_date AS VARCHAR) || '|' || document_type
+    END
+);
+
+CREATE UNIQUE INDEX uk_statements_active_key ON statements(active_key);
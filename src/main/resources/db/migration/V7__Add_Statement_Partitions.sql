@@ -0,0 +1,16 @@
+-- H2 has no native table partitioning, so statements is split by statement_date
+-- into a hot table and monthly history tables. statements keeps the recent
+-- months; each older month is rolled off into its own statements_pYYYYMM table
+-- with the same columns, created by the application when the month rolls off.
+--
+-- This catalog lists the history tables. Queries read only ATTACHED partitions
+-- whose month overlaps their date range. Detaching a month is a catalog update
+-- and dropping it is a DROP TABLE, so neither depends on its row count.
+CREATE TABLE IF NOT EXISTS statement_partitions (
+    partition_month DATE PRIMARY KEY,
+    table_name VARCHAR(64) NOT NULL,
+    row_count BIGINT NOT NULL DEFAULT 0,
+    state VARCHAR(20) NOT NULL DEFAULT 'ATTACHED',
+    rolled_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    detached_at TIMESTAMP
+);
@@ -0,0 +1,3 @@
+-- status + last change: DELETED rows past the purge grace period and
+-- PENDING rows left behind by a lost worker, both oldest change first
+CREATE INDEX idx_status_updated ON statements(status, updated_at);
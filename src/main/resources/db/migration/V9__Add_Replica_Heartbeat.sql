@@ -0,0 +1,8 @@
+-- Single row the primary rewrites every heartbeat interval. How old a replica's
+-- copy of it is bounds that replica's replication lag.
+CREATE TABLE IF NOT EXISTS replica_heartbeat (
+    id INT PRIMARY KEY,
+    beat_at TIMESTAMP NOT NULL
+);
+
+INSERT INTO replica_heartbeat (id, beat_at) VALUES (1, CURRENT_TIMESTAMP);
@@ -0,0 +1,195 @@
+package com.ibm.cmod.ondemand.config;
+
+import com.ibm.cmod.ondemand.dto.StatementFilter;
+import com.ibm.cmod.ondemand.dto.StatementRequest;
+import com.ibm.cmod.ondemand.dto.StatementResponse;
+import com.ibm.cmod.ondemand.service.StatementService;
+import com.ibm.cmod.ondemand.support.ApplicationNode;
+import com.ibm.cmod.ondemand.support.StatementSeed;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.Cookie;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Replica routing against two H2 file databases, a primary and one replica.
+ * There is no replication between them: the test copies the primary to the
+ * replica with SCRIPT/RUNSCRIPT, then marks the replica's copy of one
+ * statement so each read shows which database answered. The schedules beat
+ * and check only at startup; the test drives the monitor itself.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ReadReplicaRoutingTest {
+
+    private static final Path DIRECTORY = Paths.get("target", "it-storage", "replicas").toAbsolutePath();
+    private static final String REPLICA_URL = "jdbc:h2:file:" + DIRECTORY.resolve("replica");
+    private static final String ON_REPLICA = "ON_REPLICA";
+    private static final long STICKINESS_MS = 10_000;
+
+    private ApplicationNode node;
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+    private ReplicaLagMonitor monitor;
+    private String id;
+
+    @BeforeAll
+    void start() throws IOException {
+        deleteDirectory();
+        node = ApplicationNode.start("replicas",
+                "spring.datasource.url=jdbc:h2:file:" + DIRECTORY.resolve("primary"),
+                "app.read-replicas.enabled=true",
+                "app.read-replicas.urls=" + REPLICA_URL,
+                "app.read-replicas.max-lag-ms=5000",
+                "app.read-replicas.heartbeat-interval-ms=3600000",
+                "app.read-replicas.check-interval-ms=3600000");
+        primary = node.bean(JdbcTemplate.class);
+        replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+        monitor = node.bean(ReplicaLagMonitor.class);
+    }
+
+    @AfterAll
+    void stop() throws IOException {
+        node.close();
+        replica.execute("SHUTDOWN");
+        deleteDirectory();
+    }
+
+    @BeforeEach
+    void replicate() {
+        primary.update("DELETE FROM statements");
+        StatementSeed.hot(primary, 4, 2);
+        id = primary.queryForObject("SELECT MIN(id) FROM statements WHERE customer_id = 'C1'", String.class);
+
+        monitor.beat();
+        String script = DIRECTORY.resolve("snapshot.sql").toString().replace('\\', '/');
+        primary.execute("SCRIPT TO '" + script + "'");
+        replica.execute("DROP ALL OBJECTS");
+        replica.execute("RUNSCRIPT FROM '" + script + "'");
+        replica.update("UPDATE statements SET document_type = ? WHERE id = ?", ON_REPLICA, id);
+        monitor.check();
+    }
+
+    @AfterEach
+    void clearRouting() {
+        ReadRouting.clear();
+    }
+
+    @Test
+    void readOnlyTransactionsReadFromAReplicaWithinTheLagTolerance() {
+        assertThat(documentType()).isEqualTo(ON_REPLICA);
+    }
+
+    @Test
+    void writesGoToThePrimary() {
+        StatementResponse statement = service().getStatement(id);
+        service().updateStatement(id, new StatementRequest(statement.getCustomerId(),
+                statement.getStatementDate(), "UPDATED"));
+
+        assertThat(primary.queryForObject("SELECT document_type FROM statements WHERE id = ?", String.class, id))
+                .isEqualTo("UPDATED");
+        assertThat(replica.queryForObject("SELECT document_type FROM statements WHERE id = ?", String.class, id))
+                .isEqualTo(ON_REPLICA);
+    }
+
+    @Test
+    void laggingReplicaTakesNoReads() {
+        replica.update("UPDATE replica_heartbeat SET beat_at = ? WHERE id = 1",
+                Timestamp.valueOf(LocalDateTime.now().minusMinutes(1)));
+        monitor.check();
+
+        assertThat(documentType()).isNotEqualTo(ON_REPLICA);
+
+        replica.update("UPDATE replica_heartbeat SET beat_at = ? WHERE id = 1", Timestamp.valueOf(LocalDateTime.now()));
+        monitor.check();
+
+        assertThat(documentType()).isEqualTo(ON_REPLICA);
+    }
+
+    @Test
+    void unreachableReplicaTakesNoReads() {
+        replica.execute("DROP TABLE replica_heartbeat");
+        monitor.check();
+
+        assertThat(documentType()).isNotEqualTo(ON_REPLICA);
+    }
+
+    @Test
+    void clientReadsFromThePrimaryAfterItsOwnWrite() throws Exception {
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(STICKINESS_MS);
+
+        MockHttpServletResponse written = new MockHttpServletResponse();
+        AtomicReference<String> duringWrite = new AtomicReference<>();
+        filter.doFilter(new MockHttpServletRequest("PUT", "/api/statements/" + id), written,
+                (request, response) -> duringWrite.set(documentType()));
+        Cookie cookie = written.getCookie(ReadYourWritesFilter.COOKIE);
+        assertThat(duringWrite.get()).isNotEqualTo(ON_REPLICA);
+        assertThat(cookie).isNotNull();
+
+        MockHttpServletRequest sticky = new MockHttpServletRequest("GET", "/api/statements/search");
+        sticky.setCookies(cookie);
+        AtomicReference<String> afterWrite = new AtomicReference<>();
+        filter.doFilter(sticky, new MockHttpServletResponse(), (request, response) -> afterWrite.set(documentType()));
+        assertThat(afterWrite.get()).isNotEqualTo(ON_REPLICA);
+
+        AtomicReference<String> otherClient = new AtomicReference<>();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/statements/search"), new MockHttpServletResponse(),
+                (request, response) -> otherClient.set(documentType()));
+        assertThat(otherClient.get()).isEqualTo(ON_REPLICA);
+
+        MockHttpServletRequest expired = new MockHttpServletRequest("GET", "/api/statements/search");
+        expired.setCookies(new Cookie(ReadYourWritesFilter.COOKIE, Long.toString(System.currentTimeMillis() - 1)));
+        AtomicReference<String> afterWindow = new AtomicReference<>();
+        filter.doFilter(expired, new MockHttpServletResponse(), (request, response) -> afterWindow.set(documentType()));
+        assertThat(afterWindow.get()).isEqualTo(ON_REPLICA);
+    }
+
+    /**
+     * Document type of the marked statement as a read-only search sees it
+     */
+    private String documentType() {
+        StatementFilter filter = StatementFilter.builder().customerId("C1").build();
+        List<StatementResponse> items = service().searchStatements(filter, true, null, 10).getItems();
+        List<String> types = items.stream()
+                .filter(statement -> statement.getId().equals(id))
+                .map(StatementResponse::getDocumentType)
+                .collect(Collectors.toList());
+        assertThat(types).hasSize(1);
+        return types.get(0);
+    }
+
+    private StatementService service() {
+        return node.bean(StatementService.class);
+    }
+
+    private static void deleteDirectory() throws IOException {
+        if (!Files.exists(DIRECTORY)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(DIRECTORY)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
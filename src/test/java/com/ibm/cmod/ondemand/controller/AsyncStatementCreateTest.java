@@ -0,0 +1,195 @@
+package com.ibm.cmod.ondemand.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibm.cmod.ondemand.exception.ODWEKException;
+import com.ibm.cmod.ondemand.service.AsyncStatementService;
+import com.ibm.cmod.ondemand.service.odwek.ODWEKClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * POST /api/statements?async=true through to the worker pool: 202 with a
+ * Location, the PENDING row turning AVAILABLE or FAILED, the ?wait= long-poll,
+ * and a full queue leaving statements PENDING for recovery. ODWEK holds each
+ * fetch until the test releases it; customer FAIL makes it throw.
+ */
+@SpringBootTest(properties = {
+        "app.async-create.workers=1",
+        "app.async-create.queue-capacity=1",
+        "app.async-create.pending-timeout-ms=200",
+        "app.async-create.recovery-interval-ms=3600000"})
+@AutoConfigureMockMvc
+@ActiveProfiles("it")
+class AsyncStatementCreateTest {
+
+    private static final AtomicInteger DAYS = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AsyncStatementService asyncStatementService;
+
+    @MockBean
+    private ODWEKClient odwekClient;
+
+    private CountDownLatch release;
+
+    @BeforeEach
+    void holdFetches() {
+        release = new CountDownLatch(1);
+        when(odwekClient.fetchDocument(anyString(), any())).thenAnswer(invocation -> {
+            if (!release.await(30, TimeUnit.SECONDS)) {
+                throw new ODWEKException("Test never released the fetch");
+            }
+            if ("FAIL".equals(invocation.getArgument(0))) {
+                throw new ODWEKException("Document not found in CMOD");
+            }
+            return "AFP".getBytes(StandardCharsets.US_ASCII);
+        });
+    }
+
+    @AfterEach
+    void releaseFetches() {
+        release.countDown();
+    }
+
+    @Test
+    void acceptedStatementBecomesAvailable() throws Exception {
+        MvcResult created = mockMvc.perform(post("/api/statements?async=true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body("ASYNC")))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("PENDING"))
+                .andReturn();
+        String id = idOf(created);
+        assertThat(created.getResponse().getHeader("Location")).isEqualTo("/api/statements/" + id);
+
+        mockMvc.perform(get("/api/statements/" + id))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+
+        release.countDown();
+        assertThat(await(id, 10).get("status").asText()).isEqualTo("AVAILABLE");
+        mockMvc.perform(get("/api/statements/" + id + "/download"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void failedFetchMarksTheStatementFailed() throws Exception {
+        String id = idOf(mockMvc.perform(post("/api/statements?async=true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body("FAIL")))
+                .andExpect(status().isAccepted())
+                .andReturn());
+
+        release.countDown();
+        assertThat(await(id, 10).get("status").asText()).isEqualTo("FAILED");
+        mockMvc.perform(get("/api/statements/" + id + "/download"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void longPollReturnsThePendingStatementWhenTheWaitElapses() throws Exception {
+        String id = idOf(mockMvc.perform(post("/api/statements?async=true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body("ASYNC")))
+                .andReturn());
+
+        long start = System.nanoTime();
+        assertThat(await(id, 1).get("status").asText()).isEqualTo("PENDING");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(900);
+
+        // Leave the worker idle for the next test
+        release.countDown();
+        assertThat(await(id, 10).get("status").asText()).isEqualTo("AVAILABLE");
+    }
+
+    @Test
+    void fullQueueLeavesTheStatementPendingForRecovery() throws Exception {
+        // One fetch held by the worker, one queued; the third does not fit
+        String running = create("ASYNC");
+        String queued = create("ASYNC");
+        long deferred = asyncStatementService.getDeferredCount();
+        long start = System.nanoTime();
+        String overflow = create("ASYNC");
+
+        // Answered without running the held fetch on the request thread
+        assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start)).isLessThan(5);
+        assertThat(asyncStatementService.getDeferredCount()).isEqualTo(deferred + 1);
+
+        release.countDown();
+        assertThat(await(running, 10).get("status").asText()).isEqualTo("AVAILABLE");
+        assertThat(await(queued, 10).get("status").asText()).isEqualTo("AVAILABLE");
+        assertThat(await(overflow, 0).get("status").asText()).isEqualTo("PENDING");
+
+        Thread.sleep(300);
+        assertThat(asyncStatementService.recoverStalePending()).isGreaterThanOrEqualTo(1);
+        assertThat(await(overflow, 10).get("status").asText()).isEqualTo("AVAILABLE");
+    }
+
+    private String create(String customerId) throws Exception {
+        return idOf(mockMvc.perform(post("/api/statements?async=true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body(customerId)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andReturn());
+    }
+
+    /**
+     * GET /api/statements/{id}?wait={seconds}
+     */
+    private JsonNode await(String id, int seconds) throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/statements/" + id).param("wait", Integer.toString(seconds)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        started.getAsyncResult(TimeUnit.SECONDS.toMillis(seconds + 10));
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    private String idOf(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asText();
+    }
+
+    /**
+     * A request for a statement date not used before, so natural-key deduplication never applies
+     */
+    private static String body(String customerId) {
+        LocalDate date = LocalDate.of(2020, 1, 1).plusDays(DAYS.incrementAndGet());
+        return "{\"customerId\":\"" + customerId + "\",\"statementDate\":\"" + date + "\"}";
+    }
+}
@@ -0,0 +1,194 @@
+package com.ibm.cmod.ondemand.controller;
+
+import com.ibm.cmod.ondemand.dto.StatementRequest;
+import com.ibm.cmod.ondemand.service.StatementAuditService;
+import com.ibm.cmod.ondemand.service.StatementService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * GET /api/statements/{id}/download through DocumentTransferService: ranges,
+ * If-Range, If-None-Match and HEAD, and which of those responses are audited
+ * as downloads.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("it")
+class DocumentDownloadTest {
+
+    private static final AtomicInteger DAYS = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StatementService statementService;
+
+    @MockBean
+    private StatementAuditService auditService;
+
+    private String id;
+    private String url;
+    private byte[] document;
+    private String etag;
+
+    @BeforeEach
+    void createStatement() throws Exception {
+        LocalDate date = LocalDate.of(2021, 1, 1).plusDays(DAYS.incrementAndGet());
+        id = statementService.createStatement(new StatementRequest("DOWNLOAD", date, null)).getId();
+        url = "/api/statements/" + id + "/download";
+
+        MockHttpServletResponse full = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        document = full.getContentAsByteArray();
+        etag = full.getHeader(HttpHeaders.ETAG);
+        assertThat(document.length).isGreaterThan(100);
+        assertThat(full.getContentLengthLong()).isEqualTo(document.length);
+        assertThat(etag).isNotNull();
+        verify(auditService).record(id, StatementAuditService.Action.DOWNLOAD, null);
+        clearInvocations(auditService);
+    }
+
+    @Test
+    void singleRangeSendsThatRegion() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get(url).header(HttpHeaders.RANGE, "bytes=0-99"))
+                .andExpect(status().isPartialContent())
+                .andReturn().getResponse();
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 0-99/" + document.length);
+        assertThat(response.getContentLengthLong()).isEqualTo(100);
+        assertThat(response.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(document, 0, 100));
+        verify(auditService).record(id, StatementAuditService.Action.DOWNLOAD, "bytes=0-99");
+    }
+
+    @Test
+    void multipleRangesSendMultipartByteranges() throws Exception {
+        int length = document.length;
+        MockHttpServletResponse response = mockMvc.perform(get(url)
+                        .header(HttpHeaders.RANGE, "bytes=0-9,50-59,-5"))
+                .andExpect(status().isPartialContent())
+                .andReturn().getResponse();
+
+        String contentType = response.getContentType();
+        assertThat(contentType).startsWith("multipart/byteranges; boundary=");
+        String boundary = contentType.substring(contentType.indexOf('=') + 1);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        part(expected, boundary, 0, 9);
+        part(expected, boundary, 50, 59);
+        part(expected, boundary, length - 5, length - 1);
+        expected.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+
+        byte[] body = response.getContentAsByteArray();
+        assertThat(response.getContentLengthLong()).isEqualTo(body.length);
+        assertThat(body).isEqualTo(expected.toByteArray());
+        verify(auditService).record(id, StatementAuditService.Action.DOWNLOAD, "bytes=0-9,50-59,-5");
+    }
+
+    @Test
+    void unsatisfiableRangesAreAnsweredWith416() throws Exception {
+        int length = document.length;
+        for (String range : new String[]{"bytes=" + length + "-", "bytes=0-,0-", "bytes=abc"}) {
+            MockHttpServletResponse response = mockMvc.perform(get(url).header(HttpHeaders.RANGE, range))
+                    .andExpect(status().isRequestedRangeNotSatisfiable())
+                    .andReturn().getResponse();
+
+            assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */" + length);
+            assertThat(response.getContentAsByteArray()).isEmpty();
+        }
+        verify(auditService, never()).record(eq(id), eq(StatementAuditService.Action.DOWNLOAD), any());
+    }
+
+    @Test
+    void staleIfRangeSendsTheWholeDocument() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get(url)
+                        .header(HttpHeaders.RANGE, "bytes=0-99")
+                        .header(HttpHeaders.IF_RANGE, "\"other\""))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isNull();
+        assertThat(response.getContentAsByteArray()).isEqualTo(document);
+        verify(auditService).record(eq(id), eq(StatementAuditService.Action.DOWNLOAD), isNull());
+    }
+
+    @Test
+    void matchingIfRangeSendsTheRange() throws Exception {
+        mockMvc.perform(get(url)
+                        .header(HttpHeaders.RANGE, "bytes=10-19")
+                        .header(HttpHeaders.IF_RANGE, etag))
+                .andExpect(status().isPartialContent());
+    }
+
+    @Test
+    void currentIfNoneMatchIsAnsweredWith304() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andReturn().getResponse();
+
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(etag);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+        verify(auditService, never()).record(eq(id), eq(StatementAuditService.Action.DOWNLOAD), any());
+    }
+
+    @Test
+    void headSendsTheHeadersWithoutABody() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(head(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+
+        assertThat(response.getContentLengthLong()).isEqualTo(document.length);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(etag);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+
+        mockMvc.perform(head(url).header(HttpHeaders.RANGE, "bytes=0-9,20-29"))
+                .andExpect(status().isPartialContent());
+        verify(auditService, never()).record(eq(id), eq(StatementAuditService.Action.DOWNLOAD), any());
+    }
+
+    @Test
+    void missingFileIsNotAudited() throws Exception {
+        Files.delete(statementService.downloadStatement(id).getPath());
+
+        int status = mockMvc.perform(get(url)).andReturn().getResponse().getStatus();
+
+        assertThat(status).isGreaterThanOrEqualTo(400);
+        verify(auditService, never()).record(eq(id), eq(StatementAuditService.Action.DOWNLOAD), any());
+    }
+
+    private void part(ByteArrayOutputStream out, String boundary, int start, int end) {
+        byte[] header = ("\r\n--" + boundary + "\r\n"
+                + "Content-Type: application/pdf\r\n"
+                + "Content-Range: bytes " + start + "-" + end + "/" + document.length + "\r\n"
+                + "\r\n").getBytes(StandardCharsets.US_ASCII);
+        out.write(header, 0, header.length);
+        out.write(document, start, end - start + 1);
+    }
+}
@@ -0,0 +1,140 @@
+package com.ibm.cmod.ondemand.repository;
+
+import com.ibm.cmod.ondemand.dto.StatementPartitionResponse;
+import com.ibm.cmod.ondemand.entity.Statement;
+import com.ibm.cmod.ondemand.util.PageCursor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Natural key uniqueness and batched roll-off in history partitions
+ */
+@DataJpaTest(showSql = false)
+@Import(StatementHistoryRepository.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StatementHistoryRepositoryTest {
+
+    private static final LocalDate MONTH = LocalDate.of(2024, 1, 1);
+    private static final String PARTITION = StatementHistoryRepository.tableName(MONTH);
+
+    @Autowired
+    private StatementHistoryRepository historyRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void clean() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + PARTITION);
+        jdbcTemplate.update("DELETE FROM statement_partitions WHERE table_name = ?", PARTITION);
+        jdbcTemplate.update("DELETE FROM statements");
+    }
+
+    @Test
+    void partitionRejectsSecondLiveStatementForNaturalKey() {
+        historyRepository.createPartitionTable(PARTITION);
+        insert(PARTITION, "a", "AVAILABLE", 1);
+
+        assertThatThrownBy(() -> insert(PARTITION, "b", "AVAILABLE", 2))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        // Deleted and failed rows do not hold the key
+        insert(PARTITION, "c", "DELETED", 3);
+        insert(PARTITION, "d", "FAILED", 4);
+    }
+
+    @Test
+    void rollOffLeavesDuplicateOfLiveHistoryRowHot() {
+        historyRepository.createPartitionTable(PARTITION);
+        insert(PARTITION, "rolled", "AVAILABLE", 1);
+        insert("statements", "duplicate", "AVAILABLE", 2);
+        insert("statements", "other", "AVAILABLE", 3, "TAX");
+
+        List<String> ids = new ArrayList<>();
+        historyRepository.findRollOffBatch(MONTH, Statement.StatementStatus.AVAILABLE, null, 10)
+                .forEach(row -> ids.add(row.getId()));
+        int moved = historyRepository.moveRows(PARTITION, ids);
+
+        assertThat(ids).containsExactlyInAnyOrder("duplicate", "other");
+        assertThat(moved).isEqualTo(1);
+        assertThat(historyRepository.countSettledHot(MONTH)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT id FROM statements", String.class)).isEqualTo("duplicate");
+    }
+
+    @Test
+    void rollOffBatchesWalkTheMonthWithoutRepeats() {
+        for (int i = 0; i < 5; i++) {
+            insert("statements", "s" + i, "AVAILABLE", i, "TYPE_" + i);
+        }
+        insert("statements", "pending", "PENDING", 9, "TYPE_9");
+
+        List<String> seen = new ArrayList<>();
+        PageCursor after = null;
+        List<PageCursor> batch;
+        do {
+            batch = historyRepository.findRollOffBatch(MONTH, Statement.StatementStatus.AVAILABLE, after, 2);
+            batch.forEach(row -> seen.add(row.getId()));
+            after = batch.isEmpty() ? after : batch.get(batch.size() - 1);
+        } while (batch.size() == 2);
+
+        assertThat(seen).containsExactly("s4", "s3", "s2", "s1", "s0");
+    }
+
+    @Test
+    void rollOffRecordsCreatedRange() {
+        historyRepository.createPartitionTable(PARTITION);
+        insert("statements", "first", "AVAILABLE", 1);
+        insert("statements", "last", "ARCHIVED", 7, "TAX");
+
+        int moved = historyRepository.moveRows(PARTITION, List.of("first", "last"));
+        historyRepository.recordRollOff(MONTH, PARTITION, moved);
+
+        StatementPartitionResponse partition = historyRepository.findPartition(MONTH).orElseThrow();
+        assertThat(partition.getRowCount()).isEqualTo(2);
+        assertThat(partition.getMinCreatedAt()).isEqualTo(LocalDateTime.of(2024, 2, 1, 0, 0, 1));
+        assertThat(partition.getMaxCreatedAt()).isEqualTo(LocalDateTime.of(2024, 2, 1, 0, 0, 7));
+    }
+
+    @Test
+    void upgradeKeepsNewestOfExistingDuplicates() {
+        // A partition created before history tables had a natural key
+        jdbcTemplate.execute("CREATE TABLE " + PARTITION + " AS SELECT id, customer_id, statement_date,"
+                + " document_path, document_type, status, file_size_bytes, content_checksum, created_at,"
+                + " updated_at, version FROM statements WHERE 1 = 0");
+        insert(PARTITION, "older", "AVAILABLE", 1);
+        insert(PARTITION, "newer", "AVAILABLE", 2);
+
+        assertThat(historyRepository.createPartitionIndexes(PARTITION)).isEqualTo(1);
+        assertThat(historyRepository.createPartitionIndexes(PARTITION)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM " + PARTITION + " WHERE id = 'older'",
+                String.class)).isEqualTo("DELETED");
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM " + PARTITION + " WHERE id = 'newer'",
+                String.class)).isEqualTo("AVAILABLE");
+    }
+
+    private void insert(String table, String id, String status, int second) {
+        insert(table, id, status, second, "MONTHLY_STATEMENT");
+    }
+
+    private void insert(String table, String id, String status, int second, String documentType) {
+        jdbcTemplate.update("INSERT INTO " + table + " (id, customer_id, statement_date, document_path,"
+                        + " document_type, status, file_size_bytes, created_at, updated_at, version)"
+                        + " VALUES (?, 'C1', ?, 'x.afp', ?, ?, 1, DATEADD('SECOND', ?, TIMESTAMP '2024-02-01 00:00:00'),"
+                        + " CURRENT_TIMESTAMP, 0)",
+                id, MONTH.plusDays(14), documentType, status, second);
+    }
+}
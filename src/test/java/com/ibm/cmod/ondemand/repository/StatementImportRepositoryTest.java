@@ -0,0 +1,87 @@
+package com.ibm.cmod.ondemand.repository;
+
+import com.ibm.cmod.ondemand.entity.Statement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Import skips natural keys already live in the hot table or in the month's history partition
+ */
+@DataJpaTest(showSql = false)
+@Import({StatementImportRepository.class, StatementHistoryRepository.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StatementImportRepositoryTest {
+
+    private static final LocalDate MONTH = LocalDate.of(2024, 2, 1);
+    private static final String PARTITION = StatementHistoryRepository.tableName(MONTH);
+
+    @Autowired
+    private StatementImportRepository importRepository;
+
+    @Autowired
+    private StatementHistoryRepository historyRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void clean() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + PARTITION);
+        jdbcTemplate.update("DELETE FROM statements");
+    }
+
+    @Test
+    void reimportOfRolledOffMonthSkipsLiveHistoryRows() {
+        historyRepository.createPartitionTable(PARTITION);
+        jdbcTemplate.update("INSERT INTO " + PARTITION + " (id, customer_id, statement_date, document_path,"
+                + " document_type, status, file_size_bytes, created_at, updated_at, version)"
+                + " VALUES ('rolled', 'C1', ?, 'x.afp', 'MONTHLY_STATEMENT', 'AVAILABLE', 1,"
+                + " CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 0)", MONTH.plusDays(14));
+        Statement again = statement("again", "C1", MONTH.plusDays(14));
+        Statement other = statement("other", "C2", MONTH.plusDays(14));
+        Statement hot = statement("hot", "C1", LocalDate.now().minusDays(1));
+
+        List<Statement> inserted = importRepository.insertIfAbsent(List.of(again, other, hot),
+                LocalDateTime.now(), Map.of(MONTH, PARTITION));
+
+        assertThat(inserted).containsExactlyInAnyOrder(other, hot);
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM statements", String.class))
+                .containsExactlyInAnyOrder("other", "hot");
+    }
+
+    @Test
+    void reimportSkipsLiveHotRows() {
+        Statement first = statement("first", "C1", MONTH.plusDays(3));
+        importRepository.insertIfAbsent(List.of(first), LocalDateTime.now(), Map.of());
+
+        List<Statement> inserted = importRepository.insertIfAbsent(
+                List.of(statement("second", "C1", MONTH.plusDays(3))), LocalDateTime.now(), Map.of());
+
+        assertThat(inserted).isEmpty();
+    }
+
+    private static Statement statement(String id, String customerId, LocalDate statementDate) {
+        Statement statement = new Statement();
+        statement.setId(id);
+        statement.setCustomerId(customerId);
+        statement.setStatementDate(statementDate);
+        statement.setDocumentType("MONTHLY_STATEMENT");
+        statement.setDocumentPath(id + ".afp");
+        statement.setFileSizeBytes(1L);
+        statement.setStatus(Statement.StatementStatus.AVAILABLE);
+        return statement;
+    }
+}
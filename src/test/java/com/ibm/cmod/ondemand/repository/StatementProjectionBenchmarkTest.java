@@ -0,0 +1,118 @@
+package com.ibm.cmod.ondemand.repository;
+
+import com.ibm.cmod.ondemand.dto.StatementResponse;
+import com.ibm.cmod.ondemand.entity.Statement;
+import com.ibm.cmod.ondemand.support.StatementSeed;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Time and heap allocation of loading one customer's 10,000 statements as
+ * response projections, and as managed entities copied into responses as the
+ * read endpoints did before. Each load runs in a read-only transaction, like
+ * the service methods. Run with mvn test -Pbenchmark.
+ */
+@DataJpaTest(showSql = false)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Tag("benchmark")
+class StatementProjectionBenchmarkTest {
+
+    private static final int ROWS = 200_000;
+    private static final int CUSTOMERS = 20;
+    private static final int WARMUP = 20;
+    private static final int ROUNDS = 30;
+
+    @Autowired
+    private StatementRepository statementRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnly;
+
+    @BeforeAll
+    void seed() {
+        StatementSeed.hot(jdbcTemplate, ROWS, CUSTOMERS);
+        jdbcTemplate.execute("ANALYZE");
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterAll
+    void clean() {
+        jdbcTemplate.update("DELETE FROM statements");
+    }
+
+    @Test
+    void customerHistory() {
+        Supplier<List<StatementResponse>> projection = () -> statementRepository.findResponsesByCustomerId("C7");
+        Supplier<List<StatementResponse>> entities = () -> statementRepository.findByCustomerId("C7").stream()
+                .map(StatementProjectionBenchmarkTest::toResponse)
+                .collect(Collectors.toList());
+
+        assertThat(load(projection)).hasSize(ROWS / CUSTOMERS);
+        assertThat(load(entities)).hasSize(ROWS / CUSTOMERS);
+
+        measure("entities", entities);
+        measure("projection", projection);
+        measure("entities", entities);
+        measure("projection", projection);
+    }
+
+    private void measure(String name, Supplier<List<StatementResponse>> loader) {
+        for (int i = 0; i < WARMUP; i++) {
+            load(loader);
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            load(loader);
+            long elapsed = System.nanoTime() - start;
+            best = Math.min(best, elapsed);
+            total += elapsed;
+        }
+        allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+        int rows = ROWS / CUSTOMERS;
+        System.out.printf("%-10s best %.2f ms, mean %.2f ms, %.0f bytes allocated/row%n",
+                name, best / 1e6, total / 1e6 / ROUNDS, (double) allocated / ROUNDS / rows);
+    }
+
+    private List<StatementResponse> load(Supplier<List<StatementResponse>> loader) {
+        return readOnly.execute(status -> loader.get());
+    }
+
+    /**
+     * The copy StatementService.toResponse made of each entity
+     */
+    private static StatementResponse toResponse(Statement statement) {
+        return new StatementResponse(statement.getId(), statement.getCustomerId(), statement.getStatementDate(),
+                statement.getDocumentPath(), statement.getDocumentType(), statement.getStatus(),
+                statement.getFileSizeBytes(), statement.getContentChecksum(), statement.getCreatedAt(),
+                statement.getUpdatedAt(), statement.getVersion());
+    }
+}
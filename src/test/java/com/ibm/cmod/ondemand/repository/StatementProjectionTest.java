@@ -0,0 +1,57 @@
+package com.ibm.cmod.ondemand.repository;
+
+import com.ibm.cmod.ondemand.dto.StatementResponse;
+import com.ibm.cmod.ondemand.support.StatementSeed;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The read endpoints' projection queries return responses without putting
+ * Statement entities in the persistence context
+ */
+@DataJpaTest(showSql = false)
+class StatementProjectionTest {
+
+    @Autowired
+    private StatementRepository statementRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void projectionsLeaveThePersistenceContextEmpty() {
+        StatementSeed.hot(jdbcTemplate, 40, 4);
+        String id = jdbcTemplate.queryForObject("SELECT MIN(id) FROM statements", String.class);
+
+        List<StatementResponse> customer = statementRepository.findResponsesByCustomerId("C1");
+        assertThat(statementRepository.findResponseById(id)).isPresent();
+        statementRepository.findFirstResponsePage(PageRequest.of(0, 20));
+
+        assertThat(customer).hasSize(10).allSatisfy(statement -> {
+            assertThat(statement.getCustomerId()).isEqualTo("C1");
+            assertThat(statement.getStatus()).isNotNull();
+            assertThat(statement.getVersion()).isZero();
+        });
+        assertThat(managedEntities()).isZero();
+
+        // The entity query it replaced manages every row it returns
+        statementRepository.findByCustomerId("C1");
+        assertThat(managedEntities()).isEqualTo(10);
+    }
+
+    private int managedEntities() {
+        return entityManager.unwrap(Session.class).getStatistics().getEntityCount();
+    }
+}
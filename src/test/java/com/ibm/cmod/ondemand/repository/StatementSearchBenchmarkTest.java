@@ -0,0 +1,122 @@
+package com.ibm.cmod.ondemand.repository;
+
+import com.ibm.cmod.ondemand.dto.StatementFilter;
+import com.ibm.cmod.ondemand.dto.StatementResponse;
+import com.ibm.cmod.ondemand.support.StatementSeed;
+import com.ibm.cmod.ondemand.util.PageCursor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Customer search latency on 200,000 statements, with the covering indexes and
+ * again with the V3 indexes they replaced. Run with mvn test -Pbenchmark.
+ */
+@DataJpaTest(showSql = false)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Tag("benchmark")
+class StatementSearchBenchmarkTest {
+
+    private static final int ROWS = 200_000;
+    private static final int CUSTOMERS = 20;
+    private static final int PAGE = 50;
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    private StatementRepository statementRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void seed() {
+        StatementSeed.hot(jdbcTemplate, ROWS, CUSTOMERS);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @AfterAll
+    void clean() {
+        jdbcTemplate.update("DELETE FROM statements");
+    }
+
+    @Test
+    void customerSearch() {
+        StatementFilter filter = StatementFilter.builder().customerId("C7").build();
+        StatementFilter filtered = StatementFilter.builder().customerId("C7").status("ARCHIVED").build();
+
+        measure("covering", filter, filtered);
+
+        jdbcTemplate.execute("DROP INDEX idx_customer_date_cover");
+        jdbcTemplate.execute("DROP INDEX idx_customer_type_date_cover");
+        jdbcTemplate.execute("CREATE INDEX idx_customer_date_status ON statements(customer_id, statement_date DESC, status)");
+        jdbcTemplate.execute("CREATE INDEX idx_customer_type_date ON statements(customer_id, document_type, statement_date DESC, status)");
+        try {
+            measure("V3", filter, filtered);
+        } finally {
+            jdbcTemplate.execute("DROP INDEX idx_customer_date_status");
+            jdbcTemplate.execute("DROP INDEX idx_customer_type_date");
+            jdbcTemplate.execute("CREATE INDEX idx_customer_date_cover ON statements(customer_id, statement_date DESC,"
+                    + " id DESC, status, document_type, document_path, file_size_bytes, content_checksum,"
+                    + " created_at, updated_at, version)");
+            jdbcTemplate.execute("CREATE INDEX idx_customer_type_date_cover ON statements(customer_id, document_type,"
+                    + " statement_date DESC, id DESC, status, document_path, file_size_bytes, content_checksum,"
+                    + " created_at, updated_at, version)");
+        }
+    }
+
+    private void measure(String indexes, StatementFilter filter, StatementFilter filtered) {
+        walk(filter);
+        int filteredPages = walk(filtered);
+
+        long firstPage = Long.MAX_VALUE;
+        long allPages = Long.MAX_VALUE;
+        long allFiltered = Long.MAX_VALUE;
+        int pages = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            statementRepository.search(filter, null, true, PAGE + 1);
+            firstPage = Math.min(firstPage, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            pages = walk(filter);
+            allPages = Math.min(allPages, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            walk(filtered);
+            allFiltered = Math.min(allFiltered, System.nanoTime() - start);
+        }
+        assertThat(pages).isEqualTo(ROWS / CUSTOMERS / PAGE);
+        System.out.printf("%-8s first page %.2f ms, %d pages %.1f ms (%.2f ms/page), %d ARCHIVED pages %.1f ms%n",
+                indexes, firstPage / 1e6, pages, allPages / 1e6, allPages / 1e6 / pages,
+                filteredPages, allFiltered / 1e6);
+    }
+
+    /**
+     * Follow the cursor through every page of the search, as a client would
+     */
+    private int walk(StatementFilter filter) {
+        PageCursor after = null;
+        int pages = 0;
+        while (true) {
+            List<StatementResponse> page = statementRepository.search(filter, after, true, PAGE + 1);
+            pages++;
+            if (page.size() <= PAGE) {
+                return pages;
+            }
+            StatementResponse last = page.get(PAGE - 1);
+            after = PageCursor.after(last.getStatementDate(), last.getId());
+        }
+    }
+}
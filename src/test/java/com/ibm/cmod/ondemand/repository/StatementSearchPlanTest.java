@@ -0,0 +1,142 @@
+package com.ibm.cmod.ondemand.repository;
+
+import com.ibm.cmod.ondemand.dto.StatementFilter;
+import com.ibm.cmod.ondemand.dto.StatementPartitionResponse;
+import com.ibm.cmod.ondemand.dto.StatementResponse;
+import com.ibm.cmod.ondemand.support.SqlRecorder;
+import com.ibm.cmod.ondemand.support.StatementSeed;
+import com.ibm.cmod.ondemand.util.PageCursor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Query plans of the keyset page and search shapes on a seeded schema: each must
+ * start at the cursor on its index and read it in order, without a sort step
+ */
+@DataJpaTest(showSql = false)
+@Import({StatementHistoryRepository.class, SqlRecorder.Config.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class StatementSearchPlanTest {
+
+    private static final String PARTITION = "statements_p202312";
+    private static final int PAGE = 51;
+
+    @Autowired
+    private StatementRepository statementRepository;
+
+    @Autowired
+    private StatementHistoryRepository historyRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SqlRecorder recorder;
+
+    private List<StatementPartitionResponse> partitions;
+
+    @BeforeAll
+    void seed() {
+        StatementSeed.hot(jdbcTemplate, 20_000, 20);
+        historyRepository.createPartitionTable(PARTITION);
+        // One statement per customer and day: the partition holds one live row per natural key
+        StatementSeed.table(jdbcTemplate, PARTITION, 600, 20, LocalDate.of(2023, 12, 31), 30);
+        jdbcTemplate.execute("ANALYZE");
+        partitions = List.of(new StatementPartitionResponse(LocalDate.of(2023, 12, 1), PARTITION, 600,
+                StatementHistoryRepository.ATTACHED, null, null));
+    }
+
+    @AfterAll
+    void clean() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + PARTITION);
+        jdbcTemplate.update("DELETE FROM statements");
+    }
+
+    @BeforeEach
+    void clearRecorder() {
+        recorder.clear();
+    }
+
+    @Test
+    void customerSearchReadsCoveringIndexInOrder() {
+        StatementFilter filter = StatementFilter.builder().customerId("C7").build();
+        List<StatementResponse> first = statementRepository.search(filter, null, true, PAGE);
+        assertThat(plan("from statements")).contains("IDX_CUSTOMER_DATE_COVER", "index sorted");
+
+        StatementResponse last = first.get(PAGE - 1);
+        statementRepository.search(filter, PageCursor.after(last.getStatementDate(), last.getId()), true, PAGE);
+        assertThat(plan("from statements"))
+                .contains("IDX_CUSTOMER_DATE_COVER: CUSTOMER_ID = ?", "STATEMENT_DATE <= ?", "index sorted");
+    }
+
+    @Test
+    void customerAndTypeSearchReadsTypeIndexInOrder() {
+        StatementFilter filter = StatementFilter.builder().customerId("C7").documentType("TAX").build();
+        statementRepository.search(filter, null, true, PAGE);
+        assertThat(plan("from statements")).contains("IDX_CUSTOMER_TYPE_DATE_COVER", "index sorted");
+    }
+
+    @Test
+    void customerAndStatusSearchFiltersWithinCoveringIndex() {
+        StatementFilter filter = StatementFilter.builder().customerId("C7").status("ARCHIVED").build();
+        statementRepository.search(filter, null, true, PAGE);
+        assertThat(plan("from statements")).contains("IDX_CUSTOMER_DATE_COVER", "index sorted");
+    }
+
+    @Test
+    void statusSearchReadsStatusIndexInOrder() {
+        StatementFilter filter = StatementFilter.builder().status("ARCHIVED").build();
+        statementRepository.search(filter, null, true, PAGE);
+        assertThat(plan("from statements")).contains("IDX_STATUS_DATE_COVER", "index sorted");
+    }
+
+    @Test
+    void historySearchReadsPartitionCoveringIndexInOrder() {
+        StatementFilter filter = StatementFilter.builder().customerId("C7").build();
+        List<StatementResponse> first = historyRepository.search(partitions, filter, null, true, PAGE);
+        StatementResponse last = first.get(first.size() - 1);
+        historyRepository.search(partitions, filter, PageCursor.after(last.getStatementDate(), last.getId()),
+                true, PAGE);
+        assertThat(plan("from " + PARTITION)).contains("_CUSTOMER_COVER: CUSTOMER_ID = ?", "index sorted");
+    }
+
+    @Test
+    void createdPagesReadKeysetIndexInOrder() {
+        List<StatementResponse> first = statementRepository.findFirstResponsePage(PageRequest.of(0, PAGE));
+        assertThat(plan("from statements")).contains("IDX_CREATED_AT_ID", "index sorted");
+
+        StatementResponse last = first.get(PAGE - 1);
+        statementRepository.findResponsePageAfter(last.getCreatedAt(), last.getId(), PageRequest.of(0, PAGE));
+        assertThat(plan("from statements")).contains("IDX_CREATED_AT_ID: CREATED_AT <= ?", "index sorted");
+
+        historyRepository.findPage(partitions, last.getCreatedAt(), last.getId(), PAGE);
+        assertThat(plan("from " + PARTITION)).contains("_CREATED_ID: CREATED_AT <= ?", "index sorted");
+    }
+
+    @Test
+    void customerLookupUsesCompositePrefix() {
+        // idx_customer_id is gone; the customer indexes' leading column serves it
+        statementRepository.findResponsesByCustomerId("C7");
+        assertThat(plan("from statements")).contains("IDX_CUSTOMER_");
+    }
+
+    private String plan(String fragment) {
+        return SqlRecorder.explain(jdbcTemplate, recorder.last(fragment));
+    }
+}
@@ -0,0 +1,80 @@
+package com.ibm.cmod.ondemand.service;
+
+import com.ibm.cmod.ondemand.exception.InvalidRequestException;
+import com.ibm.cmod.ondemand.repository.StorageVolumeRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Volume weights from app.storage.volumes and from volumes added at runtime
+ */
+@ExtendWith(MockitoExtension.class)
+class FileStorageServiceTest {
+
+    @Mock
+    private StorageVolumeRepository volumeRepository;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void configuredWeightsAreApplied() {
+        FileStorageService service = start(volume("a"), volume("b") + "@100");
+
+        assertThat(service.getVolumeWeights()).containsOnly(
+                entry(directory.resolve("a"), 1),
+                entry(directory.resolve("b"), 100));
+    }
+
+    @Test
+    void configuredWeightsOutOfRangeFailStartup() {
+        for (String weight : new String[]{"0", "-1", "101", "two", ""}) {
+            assertThatThrownBy(() -> start(volume("a") + "@" + weight))
+                    .as(weight)
+                    .isInstanceOf(InvalidRequestException.class)
+                    .hasMessageContaining(volume("a"));
+        }
+    }
+
+    @Test
+    void addedVolumesNeedAWeightFrom1To100() {
+        FileStorageService service = start(volume("a"));
+
+        for (int weight : new int[]{0, -5, 101}) {
+            assertThatThrownBy(() -> service.addVolume(volume("b"), weight))
+                    .isInstanceOf(InvalidRequestException.class)
+                    .hasMessageContaining("between 1 and 100");
+        }
+        verify(volumeRepository, never()).insertIfAbsent(anyString(), anyInt());
+        assertThat(service.getVolumes()).containsExactly(directory.resolve("a"));
+
+        service.addVolume(volume("b"), 100);
+        verify(volumeRepository).insertIfAbsent(directory.resolve("b").toString(), 100);
+        assertThat(service.getVolumeWeights()).containsEntry(directory.resolve("b"), 100);
+    }
+
+    private FileStorageService start(String... volumeSpecs) {
+        FileStorageService service = new FileStorageService(volumeRepository);
+        ReflectionTestUtils.setField(service, "volumeSpecs", volumeSpecs);
+        service.init();
+        return service;
+    }
+
+    private String volume(String name) {
+        return directory.resolve(name).toString();
+    }
+}
@@ -0,0 +1,162 @@
+package com.ibm.cmod.ondemand.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibm.cmod.ondemand.repository.StatementAuditRepository;
+import com.ibm.cmod.ondemand.repository.StatementAuditRepository.AuditEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * The ring, overflow, spill file and replay. The writer thread is stopped once
+ * started, so each test flushes explicitly, as the writer would
+ */
+@ExtendWith(MockitoExtension.class)
+class StatementAuditServiceTest {
+
+    @Mock
+    private StatementAuditRepository auditRepository;
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final List<AuditEvent> inserted = new ArrayList<>();
+    private boolean databaseDown;
+    private StatementAuditService service;
+    private Path spillFile;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            if (databaseDown) {
+                throw new DataAccessResourceFailureException("Connection refused");
+            }
+            inserted.addAll(invocation.getArgument(0));
+            return null;
+        }).when(auditRepository).insertAll(anyList());
+        spillFile = directory.resolve("audit-spill.ndjson");
+    }
+
+    @AfterEach
+    void tearDown() {
+        databaseDown = false;
+        service.shutdown();
+    }
+
+    @Test
+    void eventsSpillWhileTheDatabaseIsDownAndReplayOnceItRecovers() throws IOException {
+        start(100, 100);
+        databaseDown = true;
+        service.record("s1", StatementAuditService.Action.CREATE, null);
+        service.record("s2", StatementAuditService.Action.DOWNLOAD, "a.afp");
+        service.record("s3", StatementAuditService.Action.DELETE, null);
+
+        service.flush();
+
+        assertThat(spilledIds()).containsExactly("s1", "s2", "s3");
+        assertThat(service.getQueuedCount()).isZero();
+        assertThat(inserted).isEmpty();
+
+        service.flush();
+        assertThat(spilledIds()).containsExactly("s1", "s2", "s3");
+
+        databaseDown = false;
+        service.record("s4", StatementAuditService.Action.UPDATE, null);
+        service.flush();
+
+        assertThat(inserted).extracting(AuditEvent::getStatementId).containsExactly("s1", "s2", "s3", "s4");
+        assertThat(inserted.get(1).getDetails()).isEqualTo("a.afp");
+        assertThat(service.getSpillFileBytes()).isZero();
+        assertThat(Files.exists(spillFile)).isFalse();
+    }
+
+    @Test
+    void fullRingOverflowsWithoutTheCallerWritingTheSpillFile() throws IOException {
+        start(2, 2);
+        databaseDown = true;
+        for (int i = 1; i <= 5; i++) {
+            service.record("s" + i, StatementAuditService.Action.DOWNLOAD, null);
+        }
+
+        // Two in the ring, two in the overflow, one dropped; nothing written yet
+        assertThat(service.getQueuedCount()).isEqualTo(4);
+        assertThat(Files.exists(spillFile)).isFalse();
+        verify(auditRepository, never()).insertAll(anyList());
+
+        service.flush();
+        assertThat(spilledIds()).containsExactlyInAnyOrder("s1", "s2", "s3", "s4");
+
+        databaseDown = false;
+        service.flush();
+        assertThat(inserted).extracting(AuditEvent::getStatementId)
+                .containsExactlyInAnyOrder("s1", "s2", "s3", "s4");
+        assertThat(Files.exists(spillFile)).isFalse();
+    }
+
+    @Test
+    void shutdownWritesOutWhatIsQueued() {
+        start(100, 100);
+        service.record("s1", StatementAuditService.Action.CREATE, null);
+
+        service.shutdown();
+
+        assertThat(inserted).extracting(AuditEvent::getStatementId).containsExactly("s1");
+    }
+
+    private void start(int ringCapacity, int overflowCapacity) {
+        service = new StatementAuditService(auditRepository, objectMapper);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "ringCapacity", ringCapacity);
+        ReflectionTestUtils.setField(service, "overflowCapacity", overflowCapacity);
+        ReflectionTestUtils.setField(service, "batchSize", 200);
+        ReflectionTestUtils.setField(service, "flushIntervalMs", 3_600_000L);
+        ReflectionTestUtils.setField(service, "spillLocation", spillFile.toString());
+        try {
+            service.init();
+            ReflectionTestUtils.setField(service, "running", false);
+            Thread writer = (Thread) ReflectionTestUtils.getField(service, "writer");
+            LockSupport.unpark(writer);
+            writer.join();
+        } catch (IOException | InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Events waiting in the file being replayed, then in the spill file
+     */
+    private List<String> spilledIds() throws IOException {
+        List<String> ids = new ArrayList<>();
+        for (Path file : List.of(spillFile.resolveSibling(spillFile.getFileName() + ".replay"), spillFile)) {
+            if (!Files.exists(file)) {
+                continue;
+            }
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                ids.add(objectMapper.readValue(line, AuditEvent.class).getStatementId());
+            }
+        }
+        return ids;
+    }
+}
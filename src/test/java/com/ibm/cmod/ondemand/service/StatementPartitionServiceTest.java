@@ -0,0 +1,130 @@
+package com.ibm.cmod.ondemand.service;
+
+import com.ibm.cmod.ondemand.dto.StatementPartitionResponse;
+import com.ibm.cmod.ondemand.entity.Statement;
+import com.ibm.cmod.ondemand.repository.StatementHistoryRepository;
+import com.ibm.cmod.ondemand.service.cache.StatementMetadataCache;
+import com.ibm.cmod.ondemand.service.cache.StatementSecondLevelCache;
+import com.ibm.cmod.ondemand.util.PageCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Partition pruning for the all-statements page and batched roll-off
+ */
+@ExtendWith(MockitoExtension.class)
+class StatementPartitionServiceTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 6, 1, 0, 0);
+
+    @Mock private StatementHistoryRepository historyRepository;
+    @Mock private StatementMetadataCache metadataCache;
+    @Mock private StatementSecondLevelCache secondLevelCache;
+    @Mock private StatementSummaryService summaryService;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private StatementPartitionService service;
+
+    private final StatementPartitionResponse january = partition(1, DAY.plusDays(31), DAY.plusDays(40));
+    private final StatementPartitionResponse february = partition(2, DAY.plusDays(60), DAY.plusDays(70));
+    private final StatementPartitionResponse unknown = partition(3, null, null);
+
+    @BeforeEach
+    void setUp() {
+        service = new StatementPartitionService(historyRepository, metadataCache, secondLevelCache, summaryService,
+                transactionManager);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "hotMonths", 14);
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+    }
+
+    @Test
+    void firstPageWithoutFullHotWindowReadsEveryPartition() {
+        when(historyRepository.findAttached(null, null)).thenReturn(List.of(january, february, unknown));
+
+        service.findPage(null, null, 11, null);
+
+        assertThat(readPartitions()).containsExactly(january, february, unknown);
+    }
+
+    @Test
+    void fullHotWindowSkipsPartitionsCreatedBeforeIt() {
+        when(historyRepository.findAttached(null, null)).thenReturn(List.of(january, february, unknown));
+
+        service.findPage(null, null, 11, DAY.plusDays(50));
+
+        assertThat(readPartitions()).containsExactly(february, unknown);
+    }
+
+    @Test
+    void cursorSkipsPartitionsCreatedAfterIt() {
+        when(historyRepository.findAttached(null, null)).thenReturn(List.of(january, february, unknown));
+
+        service.findPage(DAY.plusDays(45), "id", 11, null);
+
+        assertThat(readPartitions()).containsExactly(january, unknown);
+    }
+
+    @Test
+    void rollOffMovesEachBatchInItsOwnTransaction() {
+        LocalDate month = LocalDate.now().withDayOfMonth(1).minusMonths(20);
+        String table = StatementHistoryRepository.tableName(month);
+        PageCursor a = PageCursor.after(month, "a");
+        PageCursor b = PageCursor.after(month, "b");
+        PageCursor c = PageCursor.after(month, "c");
+        when(historyRepository.findOldestHotDateBefore(any())).thenReturn(Optional.of(month));
+        when(historyRepository.findPartition(any())).thenReturn(Optional.empty());
+        when(historyRepository.findRollOffBatch(eq(month), any(), any(), eq(2))).thenReturn(List.of());
+        when(historyRepository.findRollOffBatch(eq(month), eq(Statement.StatementStatus.AVAILABLE), isNull(), eq(2)))
+                .thenReturn(List.of(a, b));
+        when(historyRepository.findRollOffBatch(month, Statement.StatementStatus.AVAILABLE, b, 2))
+                .thenReturn(List.of(c));
+        when(historyRepository.moveRows(eq(table), anyList())).thenAnswer(call -> ((List<?>) call.getArgument(1)).size());
+
+        service.rollOff();
+
+        verify(historyRepository).moveRows(table, List.of("a", "b"));
+        verify(historyRepository).moveRows(table, List.of("c"));
+        verify(historyRepository).recordRollOff(month, table, 2);
+        verify(historyRepository).recordRollOff(month, table, 1);
+        verify(transactionManager, times(2)).commit(any());
+        verify(secondLevelCache, times(2)).evictMoved(any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<StatementPartitionResponse> readPartitions() {
+        ArgumentCaptor<List<StatementPartitionResponse>> partitions = ArgumentCaptor.forClass(List.class);
+        verify(historyRepository).findPage(partitions.capture(), any(), any(), eq(11));
+        return partitions.getValue();
+    }
+
+    private static StatementPartitionResponse partition(int month, LocalDateTime min, LocalDateTime max) {
+        LocalDate start = LocalDate.of(2023, month, 1);
+        StatementPartitionResponse partition = new StatementPartitionResponse(start,
+                StatementHistoryRepository.tableName(start), 10, StatementHistoryRepository.ATTACHED,
+                null, null);
+        partition.setMinCreatedAt(min);
+        partition.setMaxCreatedAt(max);
+        return partition;
+    }
+}
@@ -0,0 +1,117 @@
+package com.ibm.cmod.ondemand.service;
+
+import com.ibm.cmod.ondemand.dto.StatementRequest;
+import com.ibm.cmod.ondemand.dto.StatementResponse;
+import com.ibm.cmod.ondemand.service.cache.StatementMetadataCache;
+import com.ibm.cmod.ondemand.support.SqlRecorder;
+import com.ibm.cmod.ondemand.support.StatementSeed;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Latency and database round trips of a read-heavy mix through StatementService
+ * with the metadata cache on: 85% reads by ID, 10% customer lists and 5%
+ * updates, over 100,000 statements with a skewed popularity. Run with
+ * mvn test -Pbenchmark; add -Dapp.cache.second-level.enabled=true or
+ * -Dapp.cache.metadata.enabled=false to compare.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("it")
+@Import(SqlRecorder.Config.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Tag("benchmark")
+class StatementReadMixBenchmarkTest {
+
+    private static final int ROWS = 100_000;
+    private static final int CUSTOMERS = 2_000;
+    private static final int OPERATIONS = 20_000;
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    private StatementService statementService;
+
+    @Autowired
+    private StatementMetadataCache metadataCache;
+
+    @Autowired
+    private SqlRecorder sqlRecorder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private List<String> ids;
+
+    @BeforeAll
+    void seed() {
+        StatementSeed.hot(jdbcTemplate, ROWS, CUSTOMERS);
+        jdbcTemplate.execute("ANALYZE");
+        ids = jdbcTemplate.queryForList("SELECT id FROM statements ORDER BY id", String.class);
+    }
+
+    @AfterAll
+    void clean() {
+        jdbcTemplate.update("DELETE FROM statements");
+    }
+
+    @Test
+    void readHeavyMix() {
+        run(new Random(1));
+        for (int round = 0; round < ROUNDS; round++) {
+            long hits = metadataCache.getHitCount();
+            long misses = metadataCache.getMissCount();
+            sqlRecorder.clear();
+            long readNanos = run(new Random(round + 2));
+            long statements = sqlRecorder.count();
+            long roundHits = metadataCache.getHitCount() - hits;
+            long roundMisses = metadataCache.getMissCount() - misses;
+            System.out.printf("round %d: %.1f us/read, %.2f SQL statements/operation, metadata cache hit rate %.3f%n",
+                    round, readNanos / 1e3 / (OPERATIONS * 0.95), (double) statements / OPERATIONS,
+                    (double) roundHits / Math.max(1, roundHits + roundMisses));
+        }
+    }
+
+    /**
+     * @return nanoseconds spent in reads
+     */
+    private long run(Random random) {
+        long readNanos = 0;
+        for (int i = 0; i < OPERATIONS; i++) {
+            int kind = random.nextInt(100);
+            String id = ids.get(skewed(random, ids.size()));
+            if (kind < 85) {
+                long start = System.nanoTime();
+                statementService.getStatement(id);
+                readNanos += System.nanoTime() - start;
+            } else if (kind < 95) {
+                String customerId = "C" + skewed(random, CUSTOMERS);
+                long start = System.nanoTime();
+                statementService.getStatementsByCustomer(customerId);
+                readNanos += System.nanoTime() - start;
+            } else {
+                StatementResponse current = statementService.getStatement(id);
+                statementService.updateStatement(id, new StatementRequest(current.getCustomerId(),
+                        current.getStatementDate(), current.getDocumentType()));
+            }
+        }
+        return readNanos;
+    }
+
+    /**
+     * Index in [0, size) where low indexes are far more popular: about half the
+     * picks fall in the first 1/8 of the range
+     */
+    private static int skewed(Random random, int size) {
+        return (int) (size * Math.pow(random.nextDouble(), 3));
+    }
+}
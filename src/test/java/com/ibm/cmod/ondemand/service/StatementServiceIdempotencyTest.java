@@ -0,0 +1,116 @@
+package com.ibm.cmod.ondemand.service;
+
+import com.ibm.cmod.ondemand.dto.StatementRequest;
+import com.ibm.cmod.ondemand.dto.StatementResponse;
+import com.ibm.cmod.ondemand.exception.IdempotencyKeyReuseException;
+import com.ibm.cmod.ondemand.repository.IdempotencyKeyRepository;
+import com.ibm.cmod.ondemand.repository.StatementRepository;
+import com.ibm.cmod.ondemand.service.cache.OffHeapDocumentCache;
+import com.ibm.cmod.ondemand.service.cache.StatementMetadataCache;
+import com.ibm.cmod.ondemand.service.cache.StatementMetadataSnapshot;
+import com.ibm.cmod.ondemand.service.odwek.ODWEKClient;
+import com.ibm.cmod.ondemand.service.outbox.StatementOutboxService;
+import com.ibm.cmod.ondemand.util.ChecksumUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Idempotency-Key handling when two requests with the same key race past the
+ * initial lookup and only one of them records the key
+ */
+@ExtendWith(MockitoExtension.class)
+class StatementServiceIdempotencyTest {
+
+    private static final String KEY = "key-1";
+
+    @Mock private StatementRepository statementRepository;
+    @Mock private ODWEKClient odwekClient;
+    @Mock private FileStorageService fileStorageService;
+    @Mock private ColdStorageService coldStorageService;
+    @Mock private OffHeapDocumentCache documentCache;
+    @Mock private StatementMetadataCache metadataCache;
+    @Mock private StatementMetadataSnapshot metadataSnapshot;
+    @Mock private IdempotencyKeyRepository idempotencyKeyRepository;
+    @Mock private StatementPartitionService partitionService;
+    @Mock private StatementAuditService auditService;
+    @Mock private StatementSummaryService summaryService;
+    @Mock private StatementOutboxService outboxService;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private StatementService service;
+
+    private final StatementRequest request = new StatementRequest("C1", LocalDate.of(2026, 9, 30), null);
+
+    @BeforeEach
+    void setUp() {
+        service = new StatementService(statementRepository, odwekClient, fileStorageService, coldStorageService,
+                documentCache, metadataCache, metadataSnapshot, idempotencyKeyRepository, partitionService,
+                auditService, summaryService, outboxService, transactionManager);
+    }
+
+    @Test
+    void losingTheKeyRaceReturnsTheWinnersStatement() {
+        StatementResponse winner = statement("winner");
+        when(idempotencyKeyRepository.find(eq(KEY), any())).thenReturn(
+                Optional.empty(),
+                Optional.of(new IdempotencyKeyRepository.IdempotencyRecord(KEY, hashOf(request), "winner")));
+        when(idempotencyKeyRepository.insertIfAbsent(KEY, hashOf(request), "ours")).thenReturn(false);
+        when(metadataCache.getStatement(eq("winner"), any())).thenReturn(Optional.of(winner));
+
+        StatementCreateResult result = service.createStatement(request, KEY,
+                ignored -> new StatementCreateResult(statement("ours"), true));
+
+        assertThat(result.getStatement().getId()).isEqualTo("winner");
+        assertThat(result.isCreated()).isFalse();
+    }
+
+    @Test
+    void losingTheKeyRaceToADifferentRequestIsAReuse() {
+        when(idempotencyKeyRepository.find(eq(KEY), any())).thenReturn(
+                Optional.empty(),
+                Optional.of(new IdempotencyKeyRepository.IdempotencyRecord(KEY, "other-request", "winner")));
+        when(idempotencyKeyRepository.insertIfAbsent(eq(KEY), anyString(), eq("ours"))).thenReturn(false);
+
+        Function<StatementRequest, StatementCreateResult> creator =
+                ignored -> new StatementCreateResult(statement("ours"), true);
+
+        assertThatThrownBy(() -> service.createStatement(request, KEY, creator))
+                .isInstanceOf(IdempotencyKeyReuseException.class);
+    }
+
+    @Test
+    void winningTheKeyRaceReturnsOwnResult() {
+        when(idempotencyKeyRepository.find(eq(KEY), any())).thenReturn(Optional.empty());
+        when(idempotencyKeyRepository.insertIfAbsent(KEY, hashOf(request), "ours")).thenReturn(true);
+
+        StatementCreateResult result = service.createStatement(request, KEY,
+                ignored -> new StatementCreateResult(statement("ours"), true));
+
+        assertThat(result.getStatement().getId()).isEqualTo("ours");
+        assertThat(result.isCreated()).isTrue();
+    }
+
+    private String hashOf(StatementRequest statementRequest) {
+        return ChecksumUtils.sha256Hex(service.naturalKey(statementRequest).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static StatementResponse statement(String id) {
+        return StatementResponse.builder().id(id).customerId("C1").statementDate(LocalDate.of(2026, 9, 30)).build();
+    }
+}
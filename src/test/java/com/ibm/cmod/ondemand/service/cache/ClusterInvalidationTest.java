@@ -0,0 +1,120 @@
+package com.ibm.cmod.ondemand.service.cache;
+
+import com.ibm.cmod.ondemand.dto.StatementRequest;
+import com.ibm.cmod.ondemand.dto.StatementResponse;
+import com.ibm.cmod.ondemand.service.StatementService;
+import com.ibm.cmod.ondemand.support.ApplicationNode;
+import com.ibm.cmod.ondemand.support.StatementSeed;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two application instances sharing one database: a write on one reaches the
+ * other's metadata cache through the statement change log on its next poll.
+ * The schedules poll only at startup, so each test polls explicitly and can
+ * first show the other instance still serving its cached copy.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ClusterInvalidationTest {
+
+    private static final String DATABASE = "spring.datasource.url=jdbc:h2:mem:cluster;DB_CLOSE_DELAY=-1";
+    private static final String NO_POLLING = "app.cache.invalidation.poll-interval-ms=3600000";
+
+    private ApplicationNode first;
+    private ApplicationNode second;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void start() {
+        first = ApplicationNode.start("first", DATABASE, NO_POLLING);
+        second = ApplicationNode.start("second", DATABASE, NO_POLLING);
+        jdbcTemplate = first.bean(JdbcTemplate.class);
+    }
+
+    @AfterAll
+    void stop() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        second.close();
+        first.close();
+    }
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.update("DELETE FROM statements");
+        StatementSeed.hot(jdbcTemplate, 4, 2);
+        // Start both watermarks after anything earlier tests logged
+        poll(first);
+        poll(second);
+    }
+
+    @Test
+    void updateOnOneInstanceReachesTheOthersCachedStatement() {
+        String id = idOf("C1");
+        StatementResponse cached = service(second).getStatement(id);
+        service(second).getStatementsByCustomer("C1");
+
+        service(first).updateStatement(id, new StatementRequest(cached.getCustomerId(),
+                cached.getStatementDate(), "CORRECTED"));
+
+        assertThat(service(second).getStatement(id).getDocumentType()).isEqualTo(cached.getDocumentType());
+        assertThat(poll(second)).isGreaterThan(0);
+        assertThat(service(second).getStatement(id).getDocumentType()).isEqualTo("CORRECTED");
+        assertThat(service(second).getStatementsByCustomer("C1"))
+                .filteredOn(statement -> statement.getId().equals(id))
+                .extracting(StatementResponse::getDocumentType)
+                .containsExactly("CORRECTED");
+    }
+
+    @Test
+    void deleteOnOneInstanceReachesTheOthersCustomerList() {
+        String id = idOf("C0");
+        assertThat(ids(service(first).getStatementsByCustomer("C0"))).contains(id);
+        service(first).getStatement(id);
+
+        service(second).deleteStatement(id);
+
+        assertThat(ids(service(first).getStatementsByCustomer("C0"))).contains(id);
+        poll(first);
+        assertThat(service(first).getStatementsByCustomer("C0"))
+                .filteredOn(statement -> statement.getId().equals(id))
+                .extracting(StatementResponse::getStatus)
+                .containsExactly("DELETED");
+    }
+
+    @Test
+    void instanceSkipsItsOwnChanges() {
+        String id = idOf("C1");
+        StatementResponse statement = service(first).getStatement(id);
+        service(first).updateStatement(id, new StatementRequest(statement.getCustomerId(),
+                statement.getStatementDate(), statement.getDocumentType()));
+
+        assertThat(poll(first)).isZero();
+        assertThat(poll(second)).isGreaterThan(0);
+    }
+
+    private String idOf(String customerId) {
+        return jdbcTemplate.queryForObject("SELECT MIN(id) FROM statements WHERE customer_id = ?",
+                String.class, customerId);
+    }
+
+    private static List<String> ids(List<StatementResponse> statements) {
+        return statements.stream().map(StatementResponse::getId).collect(Collectors.toList());
+    }
+
+    private static StatementService service(ApplicationNode node) {
+        return node.bean(StatementService.class);
+    }
+
+    private static int poll(ApplicationNode node) {
+        return node.bean(ClusterInvalidationService.class).poll();
+    }
+}
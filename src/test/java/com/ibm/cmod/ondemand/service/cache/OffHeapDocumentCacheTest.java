@@ -0,0 +1,236 @@
+package com.ibm.cmod.ondemand.service.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Eviction order, pinning, block reuse and loads racing with invalidation, on
+ * a cache of four 16-byte blocks
+ */
+class OffHeapDocumentCacheTest {
+
+    private static final int BLOCK = 16;
+
+    @TempDir
+    Path directory;
+
+    /** The cache a racing load is copied into, for the callback to act on */
+    private OffHeapDocumentCache racing;
+
+    @Test
+    void evictsTheLeastFrequentlyUsedThenTheLeastRecentlyUsed() {
+        OffHeapDocumentCache cache = cache();
+        for (String id : new String[]{"A", "B", "C", "D"}) {
+            cache.put(id, document(id, BLOCK), null);
+        }
+        read(cache, "A", 2);
+        read(cache, "B", 1);
+        read(cache, "C", 1);
+
+        // D was never read
+        cache.put("E", document("E", BLOCK), null);
+        assertThat(ids(cache)).containsExactly("A", "B", "C", "E");
+
+        // E is the newest but the least used
+        cache.put("F", document("F", BLOCK), null);
+        assertThat(ids(cache)).containsExactly("A", "B", "C", "F");
+
+        // B, C and F are used as often; B was read longest ago
+        read(cache, "F", 1);
+        cache.put("G", document("G", BLOCK), null);
+        assertThat(ids(cache)).containsExactly("A", "C", "F", "G");
+        assertThat(cache.getEvictionCount()).isEqualTo(3);
+    }
+
+    @Test
+    void agingLetsAFormerlyHotDocumentBeEvicted() {
+        OffHeapDocumentCache cache = cache();
+        cache.put("HOT", document("HOT", BLOCK), null);
+        cache.put("WARM", document("WARM", BLOCK), null);
+        cache.put("BUSY", document("BUSY", BLOCK), null);
+        cache.put("SPARE", document("SPARE", BLOCK), null);
+        read(cache, "HOT", 254);
+
+        // Counters are halved every 1024 reads; only BUSY keeps being read
+        read(cache, "BUSY", 8 * 1024);
+        read(cache, "WARM", 10);
+        read(cache, "SPARE", 20);
+
+        cache.put("NEW", document("NEW", BLOCK), null);
+        assertThat(ids(cache)).containsExactly("BUSY", "NEW", "SPARE", "WARM");
+    }
+
+    @Test
+    void pinnedDocumentsAreNeverEvicted() throws IOException {
+        OffHeapDocumentCache cache = cache();
+        for (String id : new String[]{"A", "B", "C", "D"}) {
+            cache.put(id, document(id, BLOCK), null);
+        }
+        read(cache, "B", 3);
+        read(cache, "C", 3);
+        read(cache, "D", 3);
+
+        try (CachedDocument pinned = cache.acquire("A")) {
+            // A is the coldest, so the others go first
+            cache.put("E", document("E", BLOCK), null);
+            cache.put("F", document("F", 2 * BLOCK), null);
+            assertThat(ids(cache)).containsExactly("A", "D", "F");
+            read(cache, "D", 10);
+            read(cache, "F", 10);
+
+            // Nothing left to evict but A, so a document needing all four blocks is turned away
+            long rejections = cache.getRejectionCount();
+            cache.put("G", document("G", 4 * BLOCK), null);
+            assertThat(cache.getRejectionCount()).isEqualTo(rejections + 1);
+            assertThat(ids(cache)).containsExactly("A");
+            assertThat(content(pinned)).isEqualTo(document("A", BLOCK));
+        }
+
+        cache.put("G", document("G", 4 * BLOCK), null);
+        assertThat(ids(cache)).containsExactly("G");
+    }
+
+    @Test
+    void blocksOfAnInvalidatedDocumentAreReusedOnlyOnceReleased() throws IOException {
+        OffHeapDocumentCache cache = cache();
+        cache.put("A", document("A", 2 * BLOCK), null);
+        CachedDocument reader = cache.acquire("A");
+
+        cache.invalidate("A");
+        assertThat(cache.acquire("A")).isNull();
+        assertThat(cache.getUsedBytes()).isZero();
+
+        // Only the two blocks A never used are free while it is still being read
+        cache.put("B", document("B", 3 * BLOCK), null);
+        assertThat(ids(cache)).isEmpty();
+        cache.put("C", document("C", 2 * BLOCK), null);
+        assertThat(content(reader)).isEqualTo(document("A", 2 * BLOCK));
+
+        reader.close();
+        cache.invalidate("C");
+        cache.put("B", document("B", 4 * BLOCK), null);
+        try (CachedDocument b = cache.acquire("B")) {
+            assertThat(content(b)).isEqualTo(document("B", 4 * BLOCK));
+        }
+        assertThat(cache.getUsedBytes()).isEqualTo(4 * BLOCK);
+    }
+
+    @Test
+    void loadInvalidatedWhileReadingIsNotPublished() throws IOException {
+        Path file = file("A", 2 * BLOCK);
+        OffHeapDocumentCache cache = cache(() -> this.racing.invalidate("A"));
+
+        assertThat(cache.load("A", file, 2 * BLOCK, "c1")).isNull();
+
+        assertThat(cache.acquire("A")).isNull();
+        assertThat(cache.getEntryCount()).isZero();
+        assertThat(cache.getUsedBytes()).isZero();
+        // All four blocks are free again
+        cache.put("B", document("B", 4 * BLOCK), null);
+        assertThat(ids(cache)).containsExactly("B");
+    }
+
+    @Test
+    void loadSupersededWhileReadingKeepsTheNewerDocument() throws IOException {
+        Path file = file("A", BLOCK);
+        byte[] newer = document("A2", BLOCK);
+        OffHeapDocumentCache cache = cache(() -> this.racing.put("A", newer, "c2"));
+
+        assertThat(cache.load("A", file, BLOCK, "c1")).isNull();
+
+        try (CachedDocument cached = cache.acquire("A")) {
+            assertThat(cached.getChecksum()).isEqualTo("c2");
+            assertThat(content(cached)).isEqualTo(newer);
+        }
+        assertThat(cache.getUsedBytes()).isEqualTo(BLOCK);
+    }
+
+    @Test
+    void loadReturnsAPinnedDocument() throws IOException {
+        Path file = file("A", 3 * BLOCK + 5);
+        OffHeapDocumentCache cache = cache();
+
+        try (CachedDocument loaded = cache.load("A", file, 3 * BLOCK + 5, "c1")) {
+            assertThat(content(loaded)).isEqualTo(document("A", 3 * BLOCK + 5));
+            cache.put("B", document("B", 2 * BLOCK), null);
+            assertThat(ids(cache)).containsExactly("A");
+        }
+    }
+
+    private OffHeapDocumentCache cache() {
+        return configure(new OffHeapDocumentCache());
+    }
+
+    /**
+     * A cache that runs the callback while a load is copying the file, between reserve and publish
+     */
+    private OffHeapDocumentCache cache(Runnable duringRead) {
+        racing = configure(new OffHeapDocumentCache() {
+            @Override
+            void readFile(Path file, int[] reserved, long length) throws IOException {
+                super.readFile(file, reserved, length);
+                duringRead.run();
+            }
+        });
+        return racing;
+    }
+
+    private static OffHeapDocumentCache configure(OffHeapDocumentCache cache) {
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "capacityBytes", 4L * BLOCK);
+        ReflectionTestUtils.setField(cache, "blockSize", BLOCK);
+        ReflectionTestUtils.setField(cache, "maxEntryBytes", 4L * BLOCK);
+        ReflectionTestUtils.setField(cache, "admissionWindow", 100);
+        cache.init();
+        return cache;
+    }
+
+    private static void read(OffHeapDocumentCache cache, String id, int times) {
+        for (int i = 0; i < times; i++) {
+            CachedDocument cached = cache.acquire(id);
+            assertThat(cached).as(id).isNotNull();
+            cached.close();
+        }
+    }
+
+    /**
+     * IDs cached, sorted; read from the map so that looking does not count as a use
+     */
+    private static String[] ids(OffHeapDocumentCache cache) {
+        Map<?, ?> entries = (Map<?, ?>) ReflectionTestUtils.getField(cache, "entries");
+        return entries.keySet().stream().map(String.class::cast).sorted().toArray(String[]::new);
+    }
+
+    private static byte[] content(CachedDocument cached) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cached.writeTo(Channels.newChannel(out), 0, cached.getLength());
+        return out.toByteArray();
+    }
+
+    private Path file(String id, int length) throws IOException {
+        return Files.write(directory.resolve(id + ".afp"), document(id, length));
+    }
+
+    /**
+     * Recognizable bytes: the ID repeated to the length
+     */
+    private static byte[] document(String id, int length) {
+        byte[] pattern = (id + "|").getBytes(StandardCharsets.US_ASCII);
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = pattern[i % pattern.length];
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,321 @@
+package com.ibm.cmod.ondemand.service.cache;
+
+import com.ibm.cmod.ondemand.dto.StatementResponse;
+import com.ibm.cmod.ondemand.entity.Statement;
+import com.ibm.cmod.ondemand.repository.StatementChangeLogRepository;
+import com.ibm.cmod.ondemand.repository.StatementHistoryRepository;
+import com.ibm.cmod.ondemand.repository.StatementSnapshotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+/**
+ * The mapped snapshot and its delta against a scan of an in-memory table:
+ * lookups after a build, writes and invalidations overriding the file, builds
+ * racing with writes, and lookups falling through to the database (an empty
+ * result) whenever the snapshot cannot answer.
+ */
+@ExtendWith(MockitoExtension.class)
+class StatementMetadataSnapshotTest {
+
+    @Mock
+    private StatementSnapshotRepository snapshotRepository;
+
+    @Mock
+    private StatementHistoryRepository historyRepository;
+
+    @TempDir
+    Path directory;
+
+    /** The hot table the builds scan, as committed rows */
+    private final Map<String, StatementResponse> table = new ConcurrentHashMap<>();
+    /** Run once per scanned row, e.g. to write while a build is under way */
+    private Consumer<StatementResponse> duringScan = row -> { };
+    private StatementMetadataSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        // Lenient: a build that fails before scanning never calls it
+        lenient().doAnswer(invocation -> {
+            Consumer<StatementResponse> consumer = invocation.getArgument(2);
+            for (StatementResponse row : new ArrayList<>(table.values())) {
+                consumer.accept(row);
+                duringScan.accept(row);
+            }
+            return null;
+        }).when(snapshotRepository).scan(anyString(), anyInt(), any());
+
+        snapshot = new StatementMetadataSnapshot(snapshotRepository, historyRepository);
+        ReflectionTestUtils.setField(snapshot, "enabled", true);
+        ReflectionTestUtils.setField(snapshot, "location", directory.toString());
+        ReflectionTestUtils.setField(snapshot, "refreshIntervalMs", 3_600_000L);
+        ReflectionTestUtils.setField(snapshot, "maxDeltaEntries", 1000);
+        ReflectionTestUtils.setField(snapshot, "fetchSize", 100);
+        snapshot.init();
+    }
+
+    @Test
+    void builtSnapshotAnswersLookups() {
+        for (int i = 0; i < 500; i++) {
+            insert(statement("S" + i, i));
+        }
+        Statement sparse = statement("SPARSE", 7);
+        sparse.setDocumentType(null);
+        sparse.setContentChecksum(null);
+        insert(sparse);
+
+        assertThat(snapshot.find("S1")).isEmpty();
+        assertThat(snapshot.refresh()).isTrue();
+
+        assertThat(snapshot.getEntryCount()).isEqualTo(501);
+        for (String id : List.of("S0", "S123", "S499", "SPARSE")) {
+            assertThat(snapshot.find(id)).get().usingRecursiveComparison().isEqualTo(table.get(id));
+        }
+        assertThat(snapshot.find("S500")).isEmpty();
+        assertThat(snapshot.getHitCount()).isEqualTo(4);
+        assertThat(snapshot.getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    void deltaOverridesTheSnapshot() {
+        commit(statement("S1", 1));
+        commit(statement("S2", 1));
+        snapshot.refresh();
+
+        Statement updated = statement("S1", 2);
+        updated.setDocumentPath("/volumes/2/S1.afp");
+        commit(updated);
+
+        assertThat(snapshot.find("S1")).get()
+                .extracting(StatementResponse::getDocumentPath, StatementResponse::getVersion)
+                .containsExactly("/volumes/2/S1.afp", 2);
+        assertThat(snapshot.getDeltaHitCount()).isEqualTo(1);
+
+        // Removed here: the file still has the row, the database decides
+        snapshot.forget("S2");
+        assertThat(snapshot.find("S2")).isEmpty();
+
+        // The next build reads both from the table and starts an empty delta
+        table.remove("S2");
+        assertThat(snapshot.refresh()).isTrue();
+        assertThat(snapshot.getDeltaEntryCount()).isZero();
+        assertThat(snapshot.find("S1")).get().extracting(StatementResponse::getVersion).isEqualTo(2);
+        assertThat(snapshot.find("S2")).isEmpty();
+    }
+
+    @Test
+    void remoteInvalidationsFallThroughUntilTheNextBuild() {
+        StatementMetadataCache cache = new StatementMetadataCache(
+                mock(StatementChangeLogRepository.class), snapshot,
+                mock(StatementSecondLevelCache.class), true, 100, 100, true);
+        commit(statement("S1", 1));
+        commit(statement("S2", 1));
+        snapshot.refresh();
+
+        // Another instance changed S1; its new row is not known here
+        cache.applyRemoteInvalidation("S1", "C1");
+        assertThat(snapshot.find("S1")).isEmpty();
+        assertThat(snapshot.find("S2")).isPresent();
+
+        // Another instance attached a partition
+        cache.applyRemoteInvalidation(null, null);
+        assertThat(snapshot.find("S2")).isEmpty();
+        assertThat(snapshot.getEntryCount()).isZero();
+
+        // Writes after the snapshot was set aside are still served
+        commit(statement("S3", 1));
+        assertThat(snapshot.find("S3")).isPresent();
+
+        assertThat(snapshot.refreshIfDue()).isTrue();
+        assertThat(snapshot.find("S1")).isPresent();
+        assertThat(snapshot.find("S2")).isPresent();
+    }
+
+    @Test
+    void writesDuringABuildOverrideTheRowsItScanned() {
+        for (int i = 0; i < 10; i++) {
+            commit(statement("S" + i, 1));
+        }
+        duringScan = row -> {
+            if (row.getId().equals("S5")) {
+                // Committed after the scan read S3 and S4 at version 1, or before it gets to them
+                commit(statement("S3", 2));
+                commit(statement("S4", 2));
+                table.remove("S6");
+                snapshot.forget("S6");
+                duringScan = ignored -> { };
+            }
+        };
+
+        assertThat(snapshot.refresh()).isTrue();
+
+        assertThat(snapshot.find("S3")).get().extracting(StatementResponse::getVersion).isEqualTo(2);
+        assertThat(snapshot.find("S4")).get().extracting(StatementResponse::getVersion).isEqualTo(2);
+        assertThat(snapshot.find("S6")).isEmpty();
+        assertThat(snapshot.getDeltaEntryCount()).isEqualTo(3);
+    }
+
+    @Test
+    void buildSetAsideWhileScanningIsDiscarded() throws IOException {
+        commit(statement("S1", 1));
+        commit(statement("S2", 1));
+        duringScan = row -> {
+            snapshot.invalidateAll();
+            duringScan = ignored -> { };
+        };
+
+        assertThat(snapshot.refresh()).isFalse();
+
+        assertThat(snapshot.find("S1")).isEmpty();
+        assertThat(snapshotFiles()).isEmpty();
+        assertThat(snapshot.refresh()).isTrue();
+        assertThat(snapshot.find("S1")).isPresent();
+    }
+
+    @Test
+    void concurrentWritesAreNeverLostToARebuild() throws InterruptedException {
+        int statements = 200;
+        for (int i = 0; i < statements; i++) {
+            commit(statement("S" + i, 0));
+        }
+        Thread writer = new Thread(() -> {
+            for (int version = 1; version <= 50; version++) {
+                for (int i = 0; i < statements; i++) {
+                    commit(statement("S" + i, version));
+                }
+            }
+        });
+
+        writer.start();
+        int builds = 0;
+        while (writer.isAlive()) {
+            if (snapshot.refresh()) {
+                builds++;
+            }
+        }
+        writer.join();
+
+        assertThat(builds).isPositive();
+        for (int i = 0; i < statements; i++) {
+            assertThat(snapshot.find("S" + i)).get().extracting(StatementResponse::getVersion).isEqualTo(50);
+        }
+        assertThat(snapshot.refresh()).isTrue();
+        for (int i = 0; i < statements; i++) {
+            assertThat(snapshot.find("S" + i)).get().extracting(StatementResponse::getVersion).isEqualTo(50);
+        }
+    }
+
+    @Test
+    void failedBuildLeavesLookupsToTheDatabase() throws IOException {
+        insert(statement("S1", 1));
+        Files.delete(directory);
+
+        assertThat(snapshot.refresh()).isFalse();
+
+        assertThat(snapshot.getBuildFailureCount()).isEqualTo(1);
+        assertThat(snapshot.find("S1")).isEmpty();
+        // Not retried before the next regular refresh
+        Files.createDirectories(directory);
+        assertThat(snapshot.refreshIfDue()).isFalse();
+    }
+
+    @Test
+    void damagedFileIsSetAside() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            commit(statement("S" + i, 1));
+        }
+        snapshot.refresh();
+        commit(statement("S0", 2));
+        Path file = snapshotFiles().get(0);
+
+        // Overwrite everything after the header, records and hash table alike
+        byte[] garbage = new byte[(int) Files.size(file) - 32];
+        Arrays.fill(garbage, (byte) 0x7f);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(garbage), 32);
+        }
+
+        for (int i = 1; i < 100; i++) {
+            assertThat(snapshot.find("S" + i)).isEmpty();
+        }
+        assertThat(snapshot.find("S0")).get().extracting(StatementResponse::getVersion).isEqualTo(2);
+
+        assertThat(snapshot.refreshIfDue()).isTrue();
+        assertThat(snapshot.find("S1")).isPresent();
+    }
+
+    /**
+     * Commit a row to the table, then tell the snapshot, as the metadata cache does after commit
+     */
+    private void commit(Statement statement) {
+        insert(statement);
+        snapshot.put(statement);
+    }
+
+    /**
+     * A row already in the table, e.g. written before this instance started
+     */
+    private void insert(Statement statement) {
+        table.put(statement.getId(), StatementResponse.builder()
+                .id(statement.getId())
+                .customerId(statement.getCustomerId())
+                .statementDate(statement.getStatementDate())
+                .documentPath(statement.getDocumentPath())
+                .documentType(statement.getDocumentType())
+                .status(statement.getStatus().name())
+                .contentChecksum(statement.getContentChecksum())
+                .createdAt(statement.getCreatedAt())
+                .version(statement.getVersion())
+                .build());
+    }
+
+    private static Statement statement(String id, int version) {
+        Statement statement = Statement.builder()
+                .id(id)
+                .customerId("C1")
+                .statementDate(LocalDate.of(2026, 1, 31))
+                .documentPath("/volumes/1/" + id + ".afp")
+                .documentType("MONTHLY_STATEMENT")
+                .status(Statement.StatementStatus.AVAILABLE)
+                .contentChecksum("checksum-" + id)
+                .build();
+        statement.setCreatedAt(LocalDateTime.of(2026, 2, 1, 8, 30, 15, 123_000_000));
+        statement.setVersion(version);
+        return statement;
+    }
+
+    private List<Path> snapshotFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "statements-*.snapshot")) {
+            stream.forEach(files::add);
+        }
+        return files;
+    }
+}
@@ -0,0 +1,130 @@
+package com.ibm.cmod.ondemand.service.outbox;
+
+import com.ibm.cmod.ondemand.dto.StatementFilter;
+import com.ibm.cmod.ondemand.dto.StatementRequest;
+import com.ibm.cmod.ondemand.dto.StatementResponse;
+import com.ibm.cmod.ondemand.repository.StatementOutboxRepository.OutboxEvent;
+import com.ibm.cmod.ondemand.service.StatementLifecycleService;
+import com.ibm.cmod.ondemand.service.StatementService;
+import com.ibm.cmod.ondemand.service.StorageTieringService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Archiving and purging reach the outbox sinks like any other statement change:
+ * archiving as an UPDATED event with status ARCHIVED, the purge as PURGED
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"app.purge.grace-period-days=0", "app.outbox.relay-interval-ms=3600000"})
+@ActiveProfiles("it")
+class StatementLifecycleEventsTest {
+
+    private static final String CUSTOMER = "LIFECYCLE";
+
+    @Autowired
+    private StatementService statementService;
+
+    @Autowired
+    private StorageTieringService tieringService;
+
+    @Autowired
+    private StatementLifecycleService lifecycleService;
+
+    @Autowired
+    private StatementOutboxService outboxService;
+
+    @Autowired
+    private RecordingSink sink;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void clear() {
+        outboxService.relay();
+        sink.events.clear();
+    }
+
+    @Test
+    void archivedStatementsAreRelayedAsUpdates() {
+        StatementResponse first = create(LocalDate.of(2024, 1, 31));
+        StatementResponse second = create(LocalDate.of(2024, 2, 29));
+        outboxService.relay();
+        sink.events.clear();
+
+        tieringService.archiveMatching(StatementFilter.builder().customerId(CUSTOMER).build());
+        outboxService.relay();
+
+        assertThat(sink.events).extracting(OutboxEvent::getStatementId, OutboxEvent::getEventType,
+                        OutboxEvent::getStatus)
+                .containsExactlyInAnyOrder(
+                        tuple(first.getId(), "UPDATED", "ARCHIVED"),
+                        tuple(second.getId(), "UPDATED", "ARCHIVED"));
+    }
+
+    @Test
+    void purgedStatementsAreRelayed() throws InterruptedException {
+        StatementResponse statement = create(LocalDate.of(2024, 3, 31));
+        statementService.deleteStatement(statement.getId());
+        outboxService.relay();
+        assertThat(types(statement.getId())).containsExactly("CREATED", "DELETED");
+        // The purge takes rows deleted strictly before now
+        Thread.sleep(10);
+
+        lifecycleService.purge();
+        outboxService.relay();
+
+        assertThat(types(statement.getId())).containsExactly("CREATED", "DELETED", "PURGED");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM statements WHERE id = ?", Integer.class,
+                statement.getId())).isZero();
+    }
+
+    private StatementResponse create(LocalDate statementDate) {
+        return statementService.createStatement(new StatementRequest(CUSTOMER, statementDate, null));
+    }
+
+    private List<String> types(String statementId) {
+        return sink.events.stream()
+                .filter(event -> event.getStatementId().equals(statementId))
+                .map(OutboxEvent::getEventType)
+                .collect(Collectors.toList());
+    }
+
+    static class RecordingSink implements StatementEventSink {
+
+        final List<OutboxEvent> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String getName() {
+            return "recording";
+        }
+
+        @Override
+        public void deliver(List<OutboxEvent> batch) {
+            events.addAll(batch);
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        RecordingSink recordingSink() {
+            return new RecordingSink();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.ibm.cmod.ondemand.support;
+
+import com.ibm.cmod.ondemand.OnDemandStatementsApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One in-process instance of the application, for tests that need several
+ * instances side by side. Runs with the it profile, without a web server, and
+ * with its own local files under target/it-storage/{name}.
+ */
+public final class ApplicationNode implements AutoCloseable {
+
+    private final ConfigurableApplicationContext context;
+
+    private ApplicationNode(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Start an instance; properties are key=value pairs overriding the it profile
+     */
+    public static ApplicationNode start(String name, String... properties) {
+        String local = "target/it-storage/" + name;
+        List<String> all = new ArrayList<>(List.of(
+                "spring.devtools.restart.enabled=false",
+                "app.cache.snapshot.location=" + local + "/snapshot",
+                "app.audit.spill-file=" + local + "/audit/audit-spill.ndjson",
+                "app.outbox.file.location=" + local + "/outbox/statement-events.ndjson"));
+        all.addAll(Arrays.asList(properties));
+        // As command-line arguments: builder properties are defaults, which application.yml overrides
+        String[] args = all.stream().map(property -> "--" + property).toArray(String[]::new);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(OnDemandStatementsApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("it")
+                .run(args);
+        return new ApplicationNode(context);
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,107 @@
+package com.ibm.cmod.ondemand.support;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records the SQL every connection of the application's DataSource prepares, so a
+ * test can ask H2 for the plan of exactly what Hibernate or a JDBC repository sent
+ */
+public class SqlRecorder {
+
+    private final List<String> statements = new CopyOnWriteArrayList<>();
+
+    public void clear() {
+        statements.clear();
+    }
+
+    /**
+     * Number of statements prepared since the last clear
+     */
+    public int count() {
+        return statements.size();
+    }
+
+    /**
+     * The most recent statement containing the fragment (case-insensitive)
+     */
+    public String last(String fragment) {
+        String needle = fragment.toLowerCase();
+        for (int i = statements.size() - 1; i >= 0; i--) {
+            if (statements.get(i).toLowerCase().contains(needle)) {
+                return statements.get(i);
+            }
+        }
+        throw new AssertionError("No statement containing '" + fragment + "' was prepared; saw " + statements);
+    }
+
+    /**
+     * H2's plan for a recorded statement; parameters stay unbound, as in the statement itself
+     */
+    public static String explain(JdbcTemplate jdbcTemplate, String sql) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+    }
+
+    private DataSource wrap(DataSource dataSource) {
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(dataSource, method, args);
+                    return result instanceof Connection ? wrap((Connection) result) : result;
+                });
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("prepare") && args != null && args[0] instanceof String) {
+                        statements.add((String) args[0]);
+                    }
+                    return invoke(connection, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @TestConfiguration
+    public static class Config {
+
+        private final SqlRecorder recorder = new SqlRecorder();
+
+        @Bean
+        public SqlRecorder sqlRecorder() {
+            return recorder;
+        }
+
+        /**
+         * Only the bean the application injects as its DataSource: with read replicas the
+         * primary pool behind it is also a DataSource bean, and is injected by its Hikari type
+         */
+        @Bean
+        public static BeanPostProcessor recordingDataSource(ObjectProvider<SqlRecorder> recorder) {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource && "dataSource".equals(beanName)
+                            ? recorder.getObject().wrap((DataSource) bean) : bean;
+                }
+            };
+        }
+    }
+}
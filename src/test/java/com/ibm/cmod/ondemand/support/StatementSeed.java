@@ -0,0 +1,42 @@
+package com.ibm.cmod.ondemand.support;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+
+/**
+ * Set-based test data for the statements table and history partitions
+ */
+public final class StatementSeed {
+
+    private StatementSeed() {
+    }
+
+    /**
+     * Seed the hot table: customers C0..C{customers-1}, one statement per customer and
+     * day going back from today. Each customer's statements rotate through three
+     * document types, and every tenth is ARCHIVED.
+     */
+    public static void hot(JdbcTemplate jdbcTemplate, int rows, int customers) {
+        table(jdbcTemplate, "statements", rows, customers, LocalDate.now(), rows / customers + 1);
+    }
+
+    /**
+     * Seed any table with the statements columns, statement dates spread over the
+     * given number of days ending at latest; created_at grows with the row number
+     */
+    public static void table(JdbcTemplate jdbcTemplate, String table, int rows, int customers,
+                             LocalDate latest, int days) {
+        // H2 cannot type parameters in these positions, so the generator's constants are inlined
+        jdbcTemplate.update("INSERT INTO " + table + " (id, customer_id, statement_date, document_path,"
+                + " document_type, status, file_size_bytes, created_at, updated_at, version)"
+                + " SELECT RANDOM_UUID(), 'C' || MOD(X, " + customers + "),"
+                + " DATEADD('DAY', -MOD(X / " + customers + ", " + days + "), DATE '" + latest + "'),"
+                + " X || '.afp',"
+                + " CASE MOD(X / " + customers + ", 3) WHEN 0 THEN 'MONTHLY_STATEMENT' WHEN 1 THEN 'TAX'"
+                + " ELSE 'NOTICE' END,"
+                + " CASE WHEN MOD(X / " + customers + ", 10) = 0 THEN 'ARCHIVED' ELSE 'AVAILABLE' END, 1024,"
+                + " DATEADD('SECOND', X, TIMESTAMP '2024-01-01 00:00:00'), CURRENT_TIMESTAMP, 0"
+                + " FROM SYSTEM_RANGE(1, " + rows + ")");
+    }
+}
@@ -0,0 +1,87 @@
+package com.ibm.cmod.ondemand.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Placement of filenames on a weighted ring, and how few move when a node joins
+ */
+class ConsistentHashRingTest {
+
+    private static final int KEYS = 40_000;
+
+    @Test
+    void placementIsStableAndFollowsTheWeights() {
+        ConsistentHashRing<String> ring = ConsistentHashRing.of(weights("a", 1, "b", 1, "c", 2));
+        ConsistentHashRing<String> rebuilt = ConsistentHashRing.of(weights("c", 2, "a", 1, "b", 1));
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            String key = key(i);
+            String node = ring.nodeFor(key);
+            assertThat(rebuilt.nodeFor(key)).isEqualTo(node);
+            counts.merge(node, 1, Integer::sum);
+        }
+
+        assertThat(share(counts, "a")).isCloseTo(0.25, within(0.04));
+        assertThat(share(counts, "b")).isCloseTo(0.25, within(0.04));
+        assertThat(share(counts, "c")).isCloseTo(0.50, within(0.04));
+    }
+
+    @Test
+    void addingANodeOnlyMovesKeysOntoIt() {
+        ConsistentHashRing<String> before = ConsistentHashRing.of(weights("a", 1, "b", 1, "c", 2));
+        ConsistentHashRing<String> after = before.with("d", 1);
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = key(i);
+            String owner = after.nodeFor(key);
+            if (!owner.equals(before.nodeFor(key))) {
+                assertThat(owner).isEqualTo("d");
+                moved++;
+            }
+        }
+
+        // d's share of the new total weight, and no more
+        assertThat((double) moved / KEYS).isCloseTo(0.2, within(0.04));
+        assertThat(after.getWeights()).containsOnlyKeys("a", "b", "c", "d");
+        assertThat(before.getWeights()).containsOnlyKeys("a", "b", "c");
+    }
+
+    @Test
+    void rejectsAnEmptyRingAndNonPositiveWeights() {
+        assertThatThrownBy(() -> ConsistentHashRing.of(Map.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ConsistentHashRing.of(weights("a", 0)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ConsistentHashRing.of(weights("a", 1)).with("b", -1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static Map<String, Integer> weights(Object... nodesAndWeights) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (int i = 0; i < nodesAndWeights.length; i += 2) {
+            weights.put((String) nodesAndWeights[i], (Integer) nodesAndWeights[i + 1]);
+        }
+        return weights;
+    }
+
+    /**
+     * A filename as stored: customer, date and statement ID
+     */
+    private static String key(int i) {
+        return "C" + (i % 997) + "_2026-" + (1 + i % 12) + "-28_" + TimeOrderedIds.next() + ".afp";
+    }
+
+    private static double share(Map<String, Integer> counts, String node) {
+        return (double) counts.getOrDefault(node, 0) / KEYS;
+    }
+}
@@ -0,0 +1,122 @@
+package com.ibm.cmod.ondemand.util;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Insert throughput and on-disk size of a statements-shaped table keyed by
+ * random version 4 IDs and by TimeOrderedIds, each in its own H2 file database
+ * under target/. The table has the primary key and the two indexes that carry
+ * the ID (customer/date and created_at keyset), and each batch of 1000 rows
+ * commits on its own, as the import does. Run with mvn test -Pbenchmark;
+ * -Dbenchmark.id.rows sets the row count (default 1,000,000).
+ */
+@Tag("benchmark")
+class StatementIdInsertBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.id.rows", 1_000_000);
+    private static final int BATCH = 1000;
+    private static final int CUSTOMERS = 50_000;
+    private static final Path DIRECTORY = Paths.get("target", "benchmark-ids");
+
+    @Test
+    void randomAndTimeOrderedKeys() throws Exception {
+        measure("uuid-v4", () -> UUID.randomUUID().toString());
+        measure("uuid-v7", TimeOrderedIds::next);
+    }
+
+    private void measure(String name, Supplier<String> ids) throws SQLException, IOException {
+        deleteDirectory();
+        String url = "jdbc:h2:file:" + DIRECTORY.toAbsolutePath().resolve(name);
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            try (Statement ddl = connection.createStatement()) {
+                ddl.execute("CREATE TABLE statements (id VARCHAR(36) PRIMARY KEY, customer_id VARCHAR(50) NOT NULL,"
+                        + " statement_date DATE NOT NULL, document_path VARCHAR(500) NOT NULL,"
+                        + " created_at TIMESTAMP NOT NULL)");
+                ddl.execute("CREATE INDEX idx_customer_date ON statements(customer_id, statement_date DESC, id DESC)");
+                ddl.execute("CREATE INDEX idx_created_at_id ON statements(created_at DESC, id DESC)");
+            }
+            connection.setAutoCommit(false);
+
+            long start = System.nanoTime();
+            long lastTenth = 0;
+            LocalDateTime created = LocalDateTime.of(2024, 1, 1, 0, 0);
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO statements"
+                    + " (id, customer_id, statement_date, document_path, created_at) VALUES (?, ?, ?, ?, ?)")) {
+                for (int row = 0; row < ROWS; row++) {
+                    if (row == ROWS - ROWS / 10) {
+                        lastTenth = System.nanoTime();
+                    }
+                    insert.setString(1, ids.get());
+                    insert.setString(2, "C" + row % CUSTOMERS);
+                    insert.setDate(3, Date.valueOf(LocalDate.of(2024, 1, 1).plusDays(row / CUSTOMERS)));
+                    insert.setString(4, row + ".afp");
+                    insert.setTimestamp(5, Timestamp.valueOf(created.plusNanos(row * 1000L)));
+                    insert.addBatch();
+                    if ((row + 1) % BATCH == 0) {
+                        insert.executeBatch();
+                        connection.commit();
+                    }
+                }
+                insert.executeBatch();
+                connection.commit();
+            }
+            long end = System.nanoTime();
+
+            try (Statement query = connection.createStatement();
+                 ResultSet rs = query.executeQuery("SELECT COUNT(*) FROM statements")) {
+                rs.next();
+                assertThat(rs.getLong(1)).isEqualTo(ROWS);
+            }
+            // Pages written during the load but since replaced still take file space
+            long loadedSize = Files.size(file(name));
+            try (Statement shutdown = connection.createStatement()) {
+                shutdown.execute("SHUTDOWN COMPACT");
+            }
+            long compactSize = Files.size(file(name));
+
+            System.out.printf("%-8s %,d rows: %,.0f rows/s overall, %,.0f rows/s for the last tenth,"
+                            + " %,d MB file after the load, %,d MB compacted%n",
+                    name, ROWS, ROWS / ((end - start) / 1e9), (ROWS / 10) / ((end - lastTenth) / 1e9),
+                    loadedSize >> 20, compactSize >> 20);
+        } finally {
+            deleteDirectory();
+        }
+    }
+
+    private static Path file(String name) {
+        return DIRECTORY.resolve(name + ".mv.db");
+    }
+
+    private static void deleteDirectory() throws IOException {
+        if (!Files.exists(DIRECTORY)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(DIRECTORY)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
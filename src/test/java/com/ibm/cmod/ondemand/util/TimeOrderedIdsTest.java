@@ -0,0 +1,68 @@
+package com.ibm.cmod.ondemand.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Layout and ordering of the UUIDv7 statement IDs
+ */
+class TimeOrderedIdsTest {
+
+    @Test
+    void idsAreVersion7WithTheCurrentTime() {
+        long before = System.currentTimeMillis();
+        UUID id = TimeOrderedIds.nextUuid();
+        long after = System.currentTimeMillis();
+
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        // Within a burst the counter may borrow a few milliseconds ahead
+        assertThat(id.getMostSignificantBits() >>> 16).isBetween(before, after + 1000);
+    }
+
+    @Test
+    void stringsAreStrictlyIncreasingWithinOneMillisecondBurst() {
+        String previous = TimeOrderedIds.next();
+        for (int i = 0; i < 100_000; i++) {
+            String next = TimeOrderedIds.next();
+            assertThat(next).hasSize(36).isGreaterThan(previous);
+            assertThat(UUID.fromString(next).toString()).isEqualTo(next);
+            previous = next;
+        }
+    }
+
+    @Test
+    void concurrentCallersGetDistinctIds() throws Exception {
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    Set<String> local = new HashSet<>();
+                    for (int i = 0; i < 20_000; i++) {
+                        local.add(TimeOrderedIds.next());
+                    }
+                    seen.addAll(local);
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(seen).hasSize(8 * 20_000);
+    }
+}